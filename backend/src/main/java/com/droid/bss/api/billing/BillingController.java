@@ -1,8 +1,12 @@
 package com.droid.bss.api.billing;
 
+import com.droid.bss.application.command.billing.BulkIngestUsageRecordsUseCase;
 import com.droid.bss.application.command.billing.IngestUsageRecordUseCase;
 import com.droid.bss.application.command.billing.ProcessBillingCycleUseCase;
 import com.droid.bss.application.command.billing.StartBillingCycleUseCase;
+import com.droid.bss.application.command.billing.StreamingBillingRunUseCase;
+import com.droid.bss.application.dto.billing.BulkIngestionReport;
+import com.droid.bss.application.dto.billing.CdrFormat;
 import com.droid.bss.application.dto.billing.IngestUsageRecordCommand;
 import com.droid.bss.application.dto.billing.StartBillingCycleCommand;
 import com.droid.bss.application.dto.billing.UsageRecordResponse;
@@ -15,11 +19,13 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import java.io.InputStream;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -32,20 +38,26 @@ import java.util.List;
 public class BillingController {
 
     private final IngestUsageRecordUseCase ingestUseCase;
+    private final BulkIngestUsageRecordsUseCase bulkIngestUseCase;
     private final StartBillingCycleUseCase startCycleUseCase;
     private final ProcessBillingCycleUseCase processCycleUseCase;
+    private final StreamingBillingRunUseCase streamingBillingRunUseCase;
     private final UsageRecordRepository usageRecordRepository;
     private final BillingCycleRepository billingCycleRepository;
 
     public BillingController(
             IngestUsageRecordUseCase ingestUseCase,
+            BulkIngestUsageRecordsUseCase bulkIngestUseCase,
             StartBillingCycleUseCase startCycleUseCase,
             ProcessBillingCycleUseCase processCycleUseCase,
+            StreamingBillingRunUseCase streamingBillingRunUseCase,
             UsageRecordRepository usageRecordRepository,
             BillingCycleRepository billingCycleRepository) {
         this.ingestUseCase = ingestUseCase;
+        this.bulkIngestUseCase = bulkIngestUseCase;
         this.startCycleUseCase = startCycleUseCase;
         this.processCycleUseCase = processCycleUseCase;
+        this.streamingBillingRunUseCase = streamingBillingRunUseCase;
         this.usageRecordRepository = usageRecordRepository;
         this.billingCycleRepository = billingCycleRepository;
     }
@@ -69,6 +81,25 @@ public class BillingController {
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping(value = "/usage-records/bulk", consumes = {"text/csv", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    @Operation(
+        summary = "Bulk ingest usage records",
+        description = "Stream a CDR file (CSV or ASN.1 BER) into usage records; invalid records are reported per batch"
+    )
+    @ApiResponse(responseCode = "200", description = "File ingested, see report for rejected records")
+    @ApiResponse(responseCode = "401", description = "Unauthorized")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('OPERATOR')")
+    @Timed(value = "bss.billing.api.bulk_ingest_usage_records", description = "Time to bulk ingest a CDR file")
+    @Audited(action = AuditAction.BILLING_CREATE, entityType = "UsageRecord", description = "Bulk ingesting usage records")
+    public ResponseEntity<BulkIngestionReport> bulkIngestUsageRecords(
+            @Parameter(description = "File encoding") @RequestParam(defaultValue = "CSV") CdrFormat format,
+            @Parameter(description = "Source file name stored with each record") @RequestParam(defaultValue = "upload") String sourceFile,
+            InputStream body
+    ) {
+        var report = bulkIngestUseCase.handle(body, format, sourceFile, UsageSource.BULK_UPLOAD);
+        return ResponseEntity.ok(report);
+    }
+
     @GetMapping("/usage-records")
     @Operation(
         summary = "Get unrated usage records",
@@ -108,7 +139,8 @@ public class BillingController {
     @PostMapping("/cycles/{cycleId}/process")
     @Operation(
         summary = "Process billing cycle",
-        description = "Process a billing cycle and generate invoices"
+        description = "Process a billing cycle and generate invoices. " +
+                      "Streaming mode pages through usage in fixed-size batches and can resume an interrupted run."
     )
     @ApiResponse(responseCode = "200", description = "Billing cycle processed successfully")
     @ApiResponse(responseCode = "400", description = "Invalid input data")
@@ -118,9 +150,13 @@ public class BillingController {
     @Timed(value = "bss.billing.api.process_billing_cycle", description = "Time to process a billing cycle")
     @Audited(action = AuditAction.BILLING_UPDATE, entityType = "BillingCycle", description = "Processing billing cycle {cycleId}")
     public ResponseEntity<BillingCycleEntity> processBillingCycle(
-            @Parameter(description = "Billing cycle ID", required = true) @PathVariable String cycleId
+            @Parameter(description = "Billing cycle ID", required = true) @PathVariable String cycleId,
+            @Parameter(description = "Use the streaming, resumable billing run") @RequestParam(defaultValue = "false") boolean streaming,
+            @Parameter(description = "Number of customer partitions for a new streaming run") @RequestParam(required = false) Integer partitions
     ) {
-        var cycle = processCycleUseCase.handle(cycleId);
+        var cycle = streaming
+                ? streamingBillingRunUseCase.handle(cycleId, partitions)
+                : processCycleUseCase.handle(cycleId);
         return ResponseEntity.ok(cycle);
     }
 
@@ -0,0 +1,24 @@
+package com.droid.bss.api.graphql;
+
+import java.util.List;
+
+/**
+ * Relay-style connection returned by paginated GraphQL queries
+ *
+ * @param totalCount           number of matching nodes, an estimate when {@code totalCountIsEstimate}
+ * @param totalCountIsEstimate whether the total comes from planner statistics rather than the page
+ */
+public record Connection<T>(
+        List<Edge<T>> edges,
+        PageInfo pageInfo,
+        int totalCount,
+        int totalPages,
+        boolean totalCountIsEstimate
+) {
+
+    public record Edge<T>(T node, String cursor) {
+    }
+
+    public record PageInfo(boolean hasNextPage, boolean hasPreviousPage, String startCursor, String endCursor) {
+    }
+}
@@ -0,0 +1,47 @@
+package com.droid.bss.api.graphql;
+
+import com.droid.bss.infrastructure.read.CustomerConnectionRepository.Keyset;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque cursor of the customer connections: the (created_at, id) keyset of a customer,
+ * as {@code c1:<epoch microseconds>:<id>} in URL-safe Base64
+ */
+final class CustomerCursor {
+
+    private static final String VERSION = "c1";
+
+    private CustomerCursor() {
+    }
+
+    static String encode(Keyset keyset) {
+        long micros = ChronoUnit.MICROS.between(Instant.EPOCH, keyset.createdAt().toInstant());
+        String raw = VERSION + ':' + micros + ':' + keyset.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Keyset decode(String cursor) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 3);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+        if (parts.length != 3 || !VERSION.equals(parts[0])) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        try {
+            Instant createdAt = Instant.EPOCH.plus(Long.parseLong(parts[1]), ChronoUnit.MICROS);
+            return new Keyset(OffsetDateTime.ofInstant(createdAt, ZoneOffset.UTC), UUID.fromString(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
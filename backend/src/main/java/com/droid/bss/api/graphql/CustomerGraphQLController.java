@@ -5,6 +5,12 @@ import com.droid.bss.domain.customer.CustomerStatus;
 import com.droid.bss.domain.invoice.InvoiceEntity;
 import com.droid.bss.domain.payment.PaymentEntity;
 import com.droid.bss.domain.subscription.SubscriptionEntity;
+import com.droid.bss.infrastructure.graphql.BatchLoaders;
+import com.droid.bss.infrastructure.read.CustomerAggregateRepository;
+import com.droid.bss.infrastructure.read.CustomerConnectionRepository;
+import com.droid.bss.infrastructure.read.CustomerConnectionRepository.CustomerFilter;
+import com.droid.bss.infrastructure.read.CustomerConnectionRepository.CustomerRow;
+import com.droid.bss.infrastructure.read.CustomerConnectionRepository.Keyset;
 import com.droid.bss.infrastructure.read.CustomerReadRepository;
 import com.droid.bss.infrastructure.read.InvoiceReadRepository;
 import com.droid.bss.infrastructure.read.PaymentReadRepository;
@@ -21,7 +27,9 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
@@ -35,10 +43,16 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class CustomerGraphQLController {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final CustomerReadRepository customerRepository;
+    private final CustomerConnectionRepository customerConnectionRepository;
+    private final CustomerAggregateRepository customerAggregateRepository;
     private final InvoiceReadRepository invoiceRepository;
     private final PaymentReadRepository paymentRepository;
     private final SubscriptionReadRepository subscriptionRepository;
+    private final BatchLoaders batchLoaders;
 
     // ========== QUERY RESOLVERS ==========
 
@@ -57,60 +71,70 @@ public class CustomerGraphQLController {
 
     @QueryMapping
     @PreAuthorize("hasRole('USER')")
-    public CompletableFuture<List<CustomerEntity>> customers(
+    public CompletableFuture<Connection<CustomerEntity>> customers(
+            @Argument Optional<Integer> first,
+            @Argument Optional<String> after,
+            @Argument Optional<Integer> last,
+            @Argument Optional<String> before,
             @Argument Optional<Integer> page,
             @Argument Optional<Integer> size,
             @Argument Optional<CustomerStatus> status,
             @Argument Optional<String> search) {
 
-        log.debug("Fetching customers with page: {}, size: {}, status: {}, search: {}",
-            page.orElse(0), size.orElse(20), status.orElse(null), search.orElse(null));
-
-        return CompletableFuture.supplyAsync(() -> {
-            int pageNum = page.orElse(0);
-            int sizeNum = size.orElse(20);
-
-            // For now, return all - in production, implement proper pagination
-            List<CustomerEntity> customers = customerRepository.findAll();
+        log.debug("Fetching customers with first: {}, after: {}, last: {}, before: {}, status: {}, search: {}",
+            first.orElse(null), after.orElse(null), last.orElse(null), before.orElse(null),
+            status.orElse(null), search.orElse(null));
 
-            // Apply status filter
-            if (status.isPresent()) {
-                customers = customers.stream()
-                    .filter(c -> c.getStatus() == status.get())
-                    .collect(Collectors.toList());
-            }
+        if (page.orElse(0) != 0) {
+            throw new IllegalArgumentException("Offset pages are not supported, page with first/after instead");
+        }
+        boolean backward = last.isPresent() || before.isPresent();
+        int limit = pageSize(backward ? last : first.or(() -> size));
+        CustomerFilter filter = new CustomerFilter(status.orElse(null), search.orElse(null));
+        Keyset afterKeyset = after.map(CustomerCursor::decode).orElse(null);
+        Keyset beforeKeyset = before.map(CustomerCursor::decode).orElse(null);
 
-            // Apply search filter
-            if (search.isPresent() && !search.get().trim().isEmpty()) {
-                String query = search.get().toLowerCase();
-                customers = customers.stream()
-                    .filter(c -> c.getFirstName().toLowerCase().contains(query) ||
-                                c.getLastName().toLowerCase().contains(query) ||
-                                c.getEmail().toLowerCase().contains(query))
-                    .collect(Collectors.toList());
+        return CompletableFuture.supplyAsync(() -> {
+            // One extra row tells whether there is another page
+            List<CustomerRow> rows = backward
+                ? customerConnectionRepository.findBefore(filter, beforeKeyset, limit + 1)
+                : customerConnectionRepository.findAfter(filter, afterKeyset, limit + 1);
+            boolean hasMore = rows.size() > limit;
+            if (hasMore) {
+                rows = backward ? rows.subList(1, rows.size()) : rows.subList(0, limit);
             }
 
-            return customers;
+            List<Connection.Edge<CustomerEntity>> edges = rows.stream()
+                .map(row -> new Connection.Edge<>(row.customer(), CustomerCursor.encode(row.keyset())))
+                .collect(Collectors.toList());
+            Connection.PageInfo pageInfo = new Connection.PageInfo(
+                backward ? beforeKeyset != null : hasMore,
+                backward ? hasMore : afterKeyset != null,
+                edges.isEmpty() ? null : edges.get(0).cursor(),
+                edges.isEmpty() ? null : edges.get(edges.size() - 1).cursor());
+
+            // A single page holding every match is its own exact count
+            boolean complete = !hasMore && afterKeyset == null && beforeKeyset == null;
+            long total = complete ? edges.size() : Math.max(
+                customerConnectionRepository.estimateCount(filter).count(), edges.size());
+            int totalCount = (int) Math.min(total, Integer.MAX_VALUE);
+            return new Connection<>(edges, pageInfo, totalCount, (int) ((total + limit - 1) / limit), !complete);
         });
     }
 
     @QueryMapping
     @PreAuthorize("hasRole('USER')")
-    public CompletableFuture<List<CustomerEntity>> searchCustomers(@Argument String query) {
+    public CompletableFuture<List<CustomerEntity>> searchCustomers(
+            @Argument String query,
+            @Argument Optional<Integer> first) {
         log.debug("Searching customers with query: {}", query);
 
-        return CompletableFuture.supplyAsync(() -> {
-            List<CustomerEntity> customers = customerRepository.findAll();
-            String lowerQuery = query.toLowerCase();
+        int limit = pageSize(first);
+        return CompletableFuture.supplyAsync(() -> customerConnectionRepository.search(query, limit));
+    }
 
-            return customers.stream()
-                .filter(c -> c.getFirstName().toLowerCase().contains(lowerQuery) ||
-                            c.getLastName().toLowerCase().contains(lowerQuery) ||
-                            c.getEmail().toLowerCase().contains(lowerQuery) ||
-                            (c.getPesel() != null && c.getPesel().contains(query)) ||
-                            (c.getNip() != null && c.getNip().contains(query)))
-                .collect(Collectors.toList());
-        });
+    private static int pageSize(Optional<Integer> requested) {
+        return Math.max(1, Math.min(requested.orElse(DEFAULT_PAGE_SIZE), MAX_PAGE_SIZE));
     }
 
     // ========== MUTATION RESOLVERS ==========
@@ -206,130 +230,122 @@ public class CustomerGraphQLController {
     @BatchMapping
     @PreAuthorize("hasRole('USER')")
     public CompletableFuture<List<List<InvoiceEntity>>> invoices(List<CustomerEntity> customers) {
-        List<UUID> customerIds = customers.stream()
-            .map(CustomerEntity::getId)
-            .collect(Collectors.toList());
+        List<UUID> customerIds = customerIdList(customers);
 
         log.debug("Batch loading invoices for {} customers", customerIds.size());
 
-        return CompletableFuture.supplyAsync(() -> {
-            List<InvoiceEntity> allInvoices = invoiceRepository.findByCustomerIdIn(customerIds);
-
-            return customerIds.stream()
-                .map(customerId -> allInvoices.stream()
-                    .filter(invoice -> invoice.getCustomer().getId().equals(customerId))
-                    .collect(Collectors.toList()))
-                .collect(Collectors.toList());
-        });
+        return batchLoaders.timed("customer.invoices", customerIds.size(), () -> CompletableFuture.supplyAsync(() ->
+            BatchLoaders.inKeyOrder(customerIds, BatchLoaders.group(customerIds,
+                invoiceRepository.findByCustomerIdIn(customerIds), invoice -> invoice.getCustomer().getId()))));
     }
 
     @BatchMapping
     @PreAuthorize("hasRole('USER')")
     public CompletableFuture<List<List<PaymentEntity>>> payments(List<CustomerEntity> customers) {
-        List<UUID> customerIds = customers.stream()
-            .map(CustomerEntity::getId)
-            .collect(Collectors.toList());
+        List<UUID> customerIds = customerIdList(customers);
 
         log.debug("Batch loading payments for {} customers", customerIds.size());
 
-        return CompletableFuture.supplyAsync(() -> {
-            List<PaymentEntity> allPayments = paymentRepository.findByCustomerIdIn(customerIds);
-
-            return customerIds.stream()
-                .map(customerId -> allPayments.stream()
-                    .filter(payment -> payment.getInvoice().getCustomer().getId().equals(customerId))
-                    .collect(Collectors.toList()))
-                .collect(Collectors.toList());
-        });
+        return batchLoaders.timed("customer.payments", customerIds.size(), () -> CompletableFuture.supplyAsync(() ->
+            BatchLoaders.inKeyOrder(customerIds, BatchLoaders.group(customerIds,
+                paymentRepository.findByCustomerIdIn(customerIds), payment -> payment.getCustomer().getId()))));
     }
 
     @BatchMapping
     @PreAuthorize("hasRole('USER')")
     public CompletableFuture<List<List<SubscriptionEntity>>> subscriptions(List<CustomerEntity> customers) {
-        List<UUID> customerIds = customers.stream()
-            .map(CustomerEntity::getId)
-            .collect(Collectors.toList());
+        List<UUID> customerIds = customerIdList(customers);
 
         log.debug("Batch loading subscriptions for {} customers", customerIds.size());
 
-        return CompletableFuture.supplyAsync(() -> {
-            List<SubscriptionEntity> allSubscriptions = subscriptionRepository.findByCustomerIdIn(customerIds);
+        return batchLoaders.timed("customer.subscriptions", customerIds.size(), () -> CompletableFuture.supplyAsync(() ->
+            BatchLoaders.inKeyOrder(customerIds, BatchLoaders.group(customerIds,
+                subscriptionRepository.findByCustomerIdIn(customerIds), sub -> sub.getCustomer().getId()))));
+    }
 
-            return customerIds.stream()
-                .map(customerId -> allSubscriptions.stream()
-                    .filter(sub -> sub.getCustomer().getId().equals(customerId))
-                    .collect(Collectors.toList()))
-                .collect(Collectors.toList());
-        });
+    private static List<UUID> customerIdList(List<CustomerEntity> customers) {
+        return customers.stream()
+            .map(CustomerEntity::getId)
+            .collect(Collectors.toList());
     }
 
     // ========== COMPUTED FIELDS ==========
+    // Aggregates for the whole page of customers come from one grouped query per field
 
-    public CompletableFuture<BigDecimal> getTotalRevenue(CustomerEntity customer) {
-        return CompletableFuture.supplyAsync(() -> {
-            return paymentRepository.findByCustomerId(customer.getId())
-                .stream()
-                .filter(p -> p.getStatus() == com.droid.bss.domain.payment.PaymentStatus.COMPLETED)
-                .map(PaymentEntity::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        });
+    @BatchMapping(typeName = "Customer")
+    @PreAuthorize("hasRole('USER')")
+    public CompletableFuture<List<BigDecimal>> totalRevenue(List<CustomerEntity> customers) {
+        return batchLoaders.timed("customer.totalRevenue", customers.size(), () -> CompletableFuture.supplyAsync(() ->
+            inOrder(customers, customerAggregateRepository.totalRevenue(customerIds(customers)))));
     }
 
-    public CompletableFuture<Integer> getActiveSubscriptionsCount(CustomerEntity customer) {
-        return CompletableFuture.supplyAsync(() -> {
-            return subscriptionRepository.findByCustomerId(customer.getId())
-                .stream()
-                .filter(sub -> sub.getStatus() == com.droid.bss.domain.subscription.SubscriptionStatus.ACTIVE)
-                .mapToInt(sub -> 1)
-                .sum();
-        });
+    @BatchMapping(typeName = "Customer")
+    @PreAuthorize("hasRole('USER')")
+    public CompletableFuture<List<Integer>> activeSubscriptionsCount(List<CustomerEntity> customers) {
+        return batchLoaders.timed("customer.activeSubscriptionsCount", customers.size(), () -> CompletableFuture.supplyAsync(() ->
+            inOrder(customers, customerAggregateRepository.activeSubscriptionsCount(customerIds(customers)))));
     }
 
-    public CompletableFuture<Integer> getOverdueInvoicesCount(CustomerEntity customer) {
-        return CompletableFuture.supplyAsync(() -> {
-            LocalDate today = LocalDate.now();
-            return invoiceRepository.findByCustomerId(customer.getId())
-                .stream()
-                .filter(inv -> inv.getStatus() == com.droid.bss.domain.invoice.InvoiceStatus.OVERDUE)
-                .mapToInt(inv -> 1)
-                .sum();
-        });
+    @BatchMapping(typeName = "Customer")
+    @PreAuthorize("hasRole('USER')")
+    public CompletableFuture<List<Integer>> overdueInvoicesCount(List<CustomerEntity> customers) {
+        return batchLoaders.timed("customer.overdueInvoicesCount", customers.size(), () -> CompletableFuture.supplyAsync(() ->
+            inOrder(customers, customerAggregateRepository.overdueInvoicesCount(customerIds(customers)))));
     }
 
-    public CompletableFuture<LocalDateTime> getLastPaymentDate(CustomerEntity customer) {
-        return CompletableFuture.supplyAsync(() -> {
-            return paymentRepository.findByCustomerId(customer.getId())
-                .stream()
-                .filter(p -> p.getStatus() == com.droid.bss.domain.payment.PaymentStatus.COMPLETED)
-                .map(PaymentEntity::getProcessedAt)
-                .max(LocalDateTime::compareTo)
-                .orElse(null);
-        });
+    @BatchMapping(typeName = "Customer")
+    @PreAuthorize("hasRole('USER')")
+    public CompletableFuture<List<LocalDateTime>> lastPaymentDate(List<CustomerEntity> customers) {
+        return batchLoaders.timed("customer.lastPaymentDate", customers.size(), () -> CompletableFuture.supplyAsync(() -> {
+            Map<UUID, Optional<LocalDateTime>> dates = customerAggregateRepository.lastPaymentDate(customerIds(customers));
+            return customers.stream()
+                .map(customer -> dates.get(customer.getId()).orElse(null))
+                .collect(Collectors.toList());
+        }));
     }
 
-    public CompletableFuture<LocalDate> getCustomerSince(CustomerEntity customer) {
-        return CompletableFuture.supplyAsync(() -> {
-            return customer.getCreatedAt().toLocalDate();
-        });
+    @SchemaMapping(typeName = "Customer")
+    public LocalDate customerSince(CustomerEntity customer) {
+        return customer.getCreatedAt().toLocalDate();
     }
 
-    public CompletableFuture<BigDecimal> getLifetimeValue(CustomerEntity customer) {
-        return getTotalRevenue(customer);
+    @BatchMapping(typeName = "Customer")
+    @PreAuthorize("hasRole('USER')")
+    public CompletableFuture<List<BigDecimal>> lifetimeValue(List<CustomerEntity> customers) {
+        return totalRevenue(customers);
     }
 
-    public CompletableFuture<Float> getRiskScore(CustomerEntity customer) {
-        return CompletableFuture.supplyAsync(() -> {
+    @BatchMapping(typeName = "Customer")
+    @PreAuthorize("hasRole('USER')")
+    public CompletableFuture<List<Float>> riskScore(List<CustomerEntity> customers) {
+        return batchLoaders.timed("customer.riskScore", customers.size(), () -> CompletableFuture.supplyAsync(() -> {
+            Set<UUID> ids = customerIds(customers);
+            Map<UUID, Integer> overdue = customerAggregateRepository.overdueInvoicesCount(ids);
+            Map<UUID, Integer> active = customerAggregateRepository.activeSubscriptionsCount(ids);
+
             // Simple risk score calculation
             // In production, this would be a more sophisticated algorithm
-            int overdueCount = getOverdueInvoicesCount(customer).join();
-            int activeSubs = getActiveSubscriptionsCount(customer).join();
+            return customers.stream()
+                .map(customer -> {
+                    float score = 0.5f; // Base score
+                    score -= (active.get(customer.getId()) * 0.1f); // More subscriptions = lower risk
+                    score += (overdue.get(customer.getId()) * 0.2f); // More overdue = higher risk
+                    return Math.max(0.0f, Math.min(1.0f, score));
+                })
+                .collect(Collectors.toList());
+        }));
+    }
 
-            float score = 0.5f; // Base score
-            score -= (activeSubs * 0.1f); // More subscriptions = lower risk
-            score += (overdueCount * 0.2f); // More overdue = higher risk
+    private static Set<UUID> customerIds(List<CustomerEntity> customers) {
+        return customers.stream()
+            .map(CustomerEntity::getId)
+            .collect(Collectors.toSet());
+    }
 
-            return Math.max(0.0f, Math.min(1.0f, score));
-        });
+    private static <V> List<V> inOrder(List<CustomerEntity> customers, Map<UUID, V> values) {
+        return customers.stream()
+            .map(customer -> values.get(customer.getId()))
+            .collect(Collectors.toList());
     }
 
     // ========== INPUT CLASSES ==========
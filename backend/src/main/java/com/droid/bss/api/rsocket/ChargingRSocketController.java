@@ -0,0 +1,74 @@
+package com.droid.bss.api.rsocket;
+
+import com.droid.bss.application.command.billing.OnlineChargingUseCase;
+import com.droid.bss.application.dto.billing.ChargingResult;
+import com.droid.bss.application.dto.billing.CommitUsageCommand;
+import com.droid.bss.application.dto.billing.ReleaseReservationCommand;
+import com.droid.bss.application.dto.billing.ReserveUnitsCommand;
+import com.droid.bss.application.dto.billing.TopUpBalanceCommand;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Mono;
+
+/**
+ * RSocket Controller for online charging of prepaid subscriptions
+ * Request-response routes for network elements: reserve units at session start,
+ * commit used units at session end, or release the reservation
+ */
+@Slf4j
+@Controller
+@RequiredArgsConstructor
+public class ChargingRSocketController {
+
+    private final OnlineChargingUseCase onlineChargingUseCase;
+
+    /**
+     * Reserve units against the prepaid balance
+     */
+    @MessageMapping("charging.reserve")
+    @PreAuthorize("hasRole('SYSTEM')")
+    public Mono<ChargingResult> reserve(ReserveUnitsCommand command) {
+        return Mono.defer(() -> Mono.fromFuture(onlineChargingUseCase.reserve(command)));
+    }
+
+    /**
+     * Debit used units and end the session
+     */
+    @MessageMapping("charging.commit")
+    @PreAuthorize("hasRole('SYSTEM')")
+    public Mono<ChargingResult> commit(CommitUsageCommand command) {
+        return Mono.defer(() -> Mono.fromFuture(onlineChargingUseCase.commit(command)));
+    }
+
+    /**
+     * End the session without usage
+     */
+    @MessageMapping("charging.release")
+    @PreAuthorize("hasRole('SYSTEM')")
+    public Mono<ChargingResult> release(ReleaseReservationCommand command) {
+        return Mono.defer(() -> Mono.fromFuture(onlineChargingUseCase.release(command)));
+    }
+
+    /**
+     * Credit the prepaid balance
+     */
+    @MessageMapping("charging.topup")
+    @PreAuthorize("hasAnyRole('SYSTEM', 'OPERATOR')")
+    public Mono<ChargingResult> topUp(TopUpBalanceCommand command) {
+        log.info("Prepaid top-up for subscription {}: {} {}", command.subscriptionId(), command.amount(), command.currency());
+        return Mono.defer(() -> Mono.fromFuture(onlineChargingUseCase.topUp(command)));
+    }
+
+    /**
+     * Available balance net of open reservations
+     */
+    @MessageMapping("charging.balance.{subscriptionId}")
+    @PreAuthorize("hasAnyRole('SYSTEM', 'OPERATOR')")
+    public Mono<ChargingResult> balance(@DestinationVariable String subscriptionId) {
+        return Mono.fromCallable(() -> onlineChargingUseCase.balance(subscriptionId));
+    }
+}
@@ -0,0 +1,156 @@
+package com.droid.bss.application.command.billing;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ASN.1 BER CDR decoder.
+ *
+ * A file is a concatenation of CDRs, each a definite-length SEQUENCE of context-specific
+ * primitive fields holding UTF-8 text:
+ * <pre>
+ * UsageCdr ::= SEQUENCE {
+ *     subscriptionId     [0] UTF8String,
+ *     usageType          [1] UTF8String,
+ *     usageUnit          [2] UTF8String,
+ *     usageAmount        [3] UTF8String,   -- decimal, e.g. "125.500"
+ *     usageDate          [4] UTF8String,   -- ISO date
+ *     usageTime          [5] UTF8String,   -- ISO time
+ *     destinationType    [6] UTF8String OPTIONAL,
+ *     destinationNumber  [7] UTF8String OPTIONAL,
+ *     destinationCountry [8] UTF8String OPTIONAL,
+ *     networkId          [9] UTF8String OPTIONAL,
+ *     ratePeriod        [10] UTF8String OPTIONAL,
+ *     source            [11] UTF8String OPTIONAL
+ * }
+ * </pre>
+ * Unknown fields are skipped so mediation can add tags without breaking ingestion. A malformed
+ * field is reported against its record; a broken SEQUENCE header ends the file, since record
+ * boundaries cannot be recovered after it.
+ */
+public class BerCdrReader implements CdrReader {
+
+    private static final int TAG_SEQUENCE = 0x30;
+    private static final int CLASS_CONTEXT_SPECIFIC = 0x80;
+    private static final int CONSTRUCTED = 0x20;
+    private static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+    private final InputStream input;
+    private final String sourceFile;
+    private byte[] buffer = new byte[1024];
+    private long recordNumber;
+    private boolean broken;
+
+    public BerCdrReader(InputStream input, String sourceFile) {
+        this.input = new BufferedInputStream(input, 1 << 16);
+        this.sourceFile = sourceFile;
+    }
+
+    @Override
+    public CdrRecord next() throws IOException {
+        if (broken) {
+            return null;
+        }
+        int tag = input.read();
+        if (tag < 0) {
+            return null;
+        }
+        recordNumber++;
+
+        int length;
+        try {
+            length = readLength();
+        } catch (EOFException e) {
+            broken = true;
+            return CdrRecord.invalid(recordNumber, "Truncated record header");
+        }
+        if (tag != TAG_SEQUENCE || length < 0 || length > MAX_RECORD_LENGTH) {
+            broken = true;
+            return CdrRecord.invalid(recordNumber,
+                    "Expected CDR SEQUENCE, got tag 0x" + Integer.toHexString(tag) + " length " + length);
+        }
+
+        if (buffer.length < length) {
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+        }
+        if (input.readNBytes(buffer, 0, length) < length) {
+            broken = true;
+            return CdrRecord.invalid(recordNumber, "Truncated record");
+        }
+        return decode(buffer, length);
+    }
+
+    private CdrRecord decode(byte[] record, int length) {
+        String[] fields = new String[CdrRecord.FIELD_COUNT];
+        int offset = 0;
+        while (offset < length) {
+            int tag = record[offset++] & 0xFF;
+            if (offset >= length) {
+                return CdrRecord.invalid(recordNumber, "Truncated field header");
+            }
+
+            int fieldLength = record[offset++] & 0xFF;
+            if (fieldLength > 0x80) {
+                int octets = fieldLength & 0x7F;
+                if (octets > 3 || offset + octets > length) {
+                    return CdrRecord.invalid(recordNumber, "Invalid field length");
+                }
+                fieldLength = 0;
+                for (int i = 0; i < octets; i++) {
+                    fieldLength = (fieldLength << 8) | (record[offset++] & 0xFF);
+                }
+            } else if (fieldLength == 0x80) {
+                return CdrRecord.invalid(recordNumber, "Indefinite length fields are not supported");
+            }
+            if (offset + fieldLength > length) {
+                return CdrRecord.invalid(recordNumber, "Field exceeds record length");
+            }
+
+            int fieldNo = tag & 0x1F;
+            boolean contextPrimitive = (tag & 0xC0) == CLASS_CONTEXT_SPECIFIC && (tag & CONSTRUCTED) == 0;
+            if (contextPrimitive && fieldNo < fields.length) {
+                fields[fieldNo] = new String(record, offset, fieldLength, StandardCharsets.UTF_8);
+            }
+            offset += fieldLength;
+        }
+        return CdrRecord.fromFields(recordNumber, fields, sourceFile);
+    }
+
+    /**
+     * Read a definite BER length; -1 for indefinite length
+     */
+    private int readLength() throws IOException {
+        int first = readByte();
+        if (first < 0x80) {
+            return first;
+        }
+        if (first == 0x80) {
+            return -1;
+        }
+        int octets = first & 0x7F;
+        if (octets > 3) {
+            return Integer.MAX_VALUE;
+        }
+        int length = 0;
+        for (int i = 0; i < octets; i++) {
+            length = (length << 8) | readByte();
+        }
+        return length;
+    }
+
+    private int readByte() throws IOException {
+        int value = input.read();
+        if (value < 0) {
+            throw new EOFException();
+        }
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
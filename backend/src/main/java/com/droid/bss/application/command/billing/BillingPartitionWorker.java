@@ -0,0 +1,341 @@
+package com.droid.bss.application.command.billing;
+
+import com.droid.bss.domain.billing.*;
+import com.droid.bss.domain.customer.CustomerEntity;
+import com.droid.bss.domain.invoice.InvoiceEntity;
+import com.droid.bss.domain.invoice.InvoiceItemEntity;
+import com.droid.bss.domain.invoice.InvoiceItemType;
+import com.droid.bss.domain.invoice.InvoiceRepository;
+import com.droid.bss.domain.invoice.InvoiceStatus;
+import com.droid.bss.domain.invoice.InvoiceType;
+import com.droid.bss.domain.invoice.repository.InvoiceEntityRepository;
+import com.droid.bss.domain.subscription.SubscriptionEntity;
+import com.droid.bss.infrastructure.billing.BillingRunCheckpointRepository;
+import com.droid.bss.infrastructure.billing.UsageRecordBatchRepository;
+import com.droid.bss.infrastructure.metrics.BusinessMetrics;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Bills one customer-hash partition of a billing cycle.
+ *
+ * The partition is paged by keyset on (subscription_id, id), rated in memory against a single
+ * {@link RatingRuleIndex} snapshot and invoiced subscription by subscription. Every page commits on
+ * its own together with the partition checkpoint, so heap use is bounded by the batch size and a
+ * crashed partition resumes after its last fully invoiced subscription.
+ *
+ * All checkpoint writes are guarded by the lease owner. If another replica has taken the partition
+ * over, the page transaction is rolled back and the worker stops instead of double-billing.
+ */
+@Component
+@Slf4j
+public class BillingPartitionWorker {
+
+    private static final DateTimeFormatter INVOICE_NUMBER_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final UsageRecordBatchRepository usageRecordBatchRepository;
+    private final BillingRunCheckpointRepository checkpointRepository;
+    private final InvoiceRepository invoiceRepository;
+    private final InvoiceEntityRepository invoiceEntityRepository;
+    private final RatingEngine ratingEngine;
+    private final BusinessMetrics businessMetrics;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long leaseSeconds;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public BillingPartitionWorker(
+            UsageRecordBatchRepository usageRecordBatchRepository,
+            BillingRunCheckpointRepository checkpointRepository,
+            InvoiceRepository invoiceRepository,
+            InvoiceEntityRepository invoiceEntityRepository,
+            RatingEngine ratingEngine,
+            BusinessMetrics businessMetrics,
+            PlatformTransactionManager transactionManager,
+            @Value("${bss.billing.run.batch-size:5000}") int batchSize,
+            @Value("${bss.billing.run.lease-duration-seconds:120}") long leaseSeconds) {
+        this.usageRecordBatchRepository = usageRecordBatchRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.invoiceRepository = invoiceRepository;
+        this.invoiceEntityRepository = invoiceEntityRepository;
+        this.ratingEngine = ratingEngine;
+        this.businessMetrics = businessMetrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.leaseSeconds = leaseSeconds;
+    }
+
+    /**
+     * Bill a claimed partition to completion
+     *
+     * @return the completed checkpoint
+     * @throws IllegalStateException if the lease was lost to another replica
+     */
+    public BillingRunCheckpoint run(BillingCycleEntity billingCycle, BillingRunCheckpoint claimed,
+                                    String owner, RatingRuleIndex index) {
+        PartitionState state = new PartitionState(billingCycle, claimed, owner);
+
+        if (claimed.lastSubscriptionId() != null) {
+            log.info("Resuming billing cycle {} partition {}/{} after subscription {} ({} records already processed)",
+                    state.billingCycleId, claimed.partitionNo(), claimed.partitionCount(),
+                    claimed.lastSubscriptionId(), claimed.recordsProcessed());
+        }
+
+        while (!state.done) {
+            transactionTemplate.executeWithoutResult(status -> processPage(state, index));
+        }
+
+        BillingRunCheckpoint completed = state.checkpoint.withStatus(BillingRunStatus.COMPLETED);
+        saveCheckpoint(state, completed);
+
+        log.info("Billing cycle {} partition {}/{} completed: {} records, {} failed, {} invoices",
+                state.billingCycleId, completed.partitionNo(), completed.partitionCount(),
+                completed.recordsProcessed(), completed.recordsFailed(), completed.invoicesCreated());
+        return completed;
+    }
+
+    /**
+     * Rate and invoice one keyset page
+     */
+    private void processPage(PartitionState state, RatingRuleIndex index) {
+        BillingRunCheckpoint checkpoint = state.checkpoint;
+        if (!checkpointRepository.renewLease(state.billingCycleId, checkpoint.partitionNo(), state.owner, leaseSeconds)) {
+            throw leaseLost(state);
+        }
+
+        List<UsageRecordRow> page = usageRecordBatchRepository.findPage(
+                state.cycleStart, state.cycleEnd, checkpoint.partitionNo(), checkpoint.partitionCount(),
+                state.afterSubscriptionId, state.afterUsageId, batchSize);
+
+        if (page.isEmpty()) {
+            if (state.open != null) {
+                invoiceSubscription(state, state.open);
+                state.open = null;
+            }
+            state.done = true;
+            return;
+        }
+
+        List<UsageRecordRow> ratedRows = new ArrayList<>(page.size());
+        List<UsageCharge> charges = new ArrayList<>(page.size());
+        List<SubscriptionTotals> completed = new ArrayList<>();
+        SubscriptionTotals open = state.open;
+
+        for (UsageRecordRow row : page) {
+            if (open != null && !open.subscriptionId.equals(row.subscriptionId())) {
+                completed.add(open);
+                open = null;
+            }
+            if (open == null) {
+                open = new SubscriptionTotals(row.subscriptionId(), row.customerId());
+            }
+
+            if (row.rated()) {
+                open.add(row.id(), row.usageType(), row.taxRateMicros(), row.chargeMicros());
+            } else {
+                UsageCharge charge = ratingEngine.rate(row.usageType(), row.destinationType(), row.ratePeriod(),
+                        row.subscriptionId(), row.usageEpochDay(), row.usageSecondOfDay(),
+                        row.usageAmountMicros(), row.taxRateMicros(), index);
+                if (charge == null) {
+                    open.failed++;
+                } else {
+                    ratedRows.add(row);
+                    charges.add(charge);
+                    open.add(row.id(), row.usageType(), row.taxRateMicros(), charge.chargeMicros());
+                    businessMetrics.incrementUsageRecordRated();
+                }
+            }
+
+            state.afterSubscriptionId = row.subscriptionId();
+            state.afterUsageId = row.id();
+        }
+
+        // Ratings must be visible before usage is linked to invoices
+        if (!ratedRows.isEmpty()) {
+            usageRecordBatchRepository.updateRatings(ratedRows, charges, LocalDate.now());
+        }
+
+        for (SubscriptionTotals totals : completed) {
+            invoiceSubscription(state, totals);
+        }
+        state.open = open;
+    }
+
+    /**
+     * Add a fully read subscription to its customer's invoice and advance the checkpoint
+     */
+    private void invoiceSubscription(PartitionState state, SubscriptionTotals totals) {
+        boolean invoiceCreated = false;
+        BigDecimal net = BigDecimal.ZERO;
+        BigDecimal tax = BigDecimal.ZERO;
+
+        if (!totals.lines.isEmpty()) {
+            InvoiceEntity invoice = invoiceEntityRepository
+                    .findByCustomerIdAndBillingCycleId(totals.customerId, state.billingCycleId)
+                    .orElse(null);
+
+            if (invoice == null) {
+                invoice = invoiceRepository.save(newInvoice(state, totals.customerId));
+                invoiceCreated = true;
+                businessMetrics.incrementInvoiceCreated();
+            }
+
+            SubscriptionEntity subscription = entityManager.getReference(SubscriptionEntity.class, totals.subscriptionId);
+            for (ChargeLine line : totals.lines) {
+                BigDecimal lineNet = MicroUnits.toBigDecimal(line.netMicros, MicroUnits.MONEY_SCALE);
+                InvoiceItemEntity item = new InvoiceItemEntity(
+                        invoice,
+                        subscription,
+                        InvoiceItemType.USAGE,
+                        line.usageType.getDescription() + " - " + state.cycleStart + " to " + state.cycleEnd
+                                + " (" + line.records + " records)",
+                        BigDecimal.ONE,
+                        lineNet,
+                        BigDecimal.ZERO,
+                        MicroUnits.toBigDecimal(line.taxRateMicros, MicroUnits.MONEY_SCALE)
+                );
+                entityManager.persist(item);
+
+                net = net.add(lineNet);
+                tax = tax.add(zeroIfNull(item.getTaxAmount()));
+            }
+
+            invoice.setSubtotal(zeroIfNull(invoice.getSubtotal()).add(net));
+            invoice.setTaxAmount(zeroIfNull(invoice.getTaxAmount()).add(tax));
+            invoice.setTotalWithTax(invoice.getTotalAmount());
+            invoiceEntityRepository.save(invoice);
+            entityManager.flush();
+
+            usageRecordBatchRepository.linkToInvoice(invoice.getId(), totals.usageIds);
+        }
+
+        saveCheckpoint(state, state.checkpoint.advance(totals.subscriptionId, totals.records, totals.failed,
+                invoiceCreated, net, tax));
+    }
+
+    private void saveCheckpoint(PartitionState state, BillingRunCheckpoint checkpoint) {
+        if (!checkpointRepository.saveProgress(checkpoint, state.owner, leaseSeconds)) {
+            throw leaseLost(state);
+        }
+        state.checkpoint = checkpoint;
+    }
+
+    private InvoiceEntity newInvoice(PartitionState state, UUID customerId) {
+        InvoiceEntity invoice = new InvoiceEntity();
+        // Deterministic per (cycle start, customer) so a resumed run cannot create a second invoice
+        invoice.setInvoiceNumber("INV-" + state.cycleStart.format(INVOICE_NUMBER_DATE) + "-"
+                + customerId.toString().replace("-", ""));
+        invoice.setCustomer(entityManager.getReference(CustomerEntity.class, customerId));
+        invoice.setBillingCycle(entityManager.getReference(BillingCycleEntity.class, state.billingCycleId));
+        invoice.setInvoiceType(InvoiceType.USAGE);
+        invoice.setStatus(InvoiceStatus.DRAFT);
+        invoice.setBillingPeriodStart(state.cycleStart);
+        invoice.setBillingPeriodEnd(state.cycleEnd);
+        invoice.setBillingDate(state.billingDate);
+        invoice.setIssueDate(state.billingDate);
+        invoice.setDueDate(state.billingDate.plusDays(14));
+        invoice.setSubtotal(BigDecimal.ZERO);
+        invoice.setTaxAmount(BigDecimal.ZERO);
+        invoice.setTotalWithTax(BigDecimal.ZERO);
+        return invoice;
+    }
+
+    private static IllegalStateException leaseLost(PartitionState state) {
+        return new IllegalStateException("Lost lease on billing cycle " + state.billingCycleId
+                + " partition " + state.checkpoint.partitionNo());
+    }
+
+    private static BigDecimal zeroIfNull(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
+    /**
+     * Mutable cursor of one partition; lives only for the duration of {@link #run}
+     */
+    private static final class PartitionState {
+        private final UUID billingCycleId;
+        private final LocalDate cycleStart;
+        private final LocalDate cycleEnd;
+        private final LocalDate billingDate;
+        private final String owner;
+        private BillingRunCheckpoint checkpoint;
+        private UUID afterSubscriptionId;
+        private UUID afterUsageId;
+        private SubscriptionTotals open;
+        private boolean done;
+
+        private PartitionState(BillingCycleEntity billingCycle, BillingRunCheckpoint checkpoint, String owner) {
+            this.billingCycleId = billingCycle.getId();
+            this.cycleStart = billingCycle.getCycleStart();
+            this.cycleEnd = billingCycle.getCycleEnd();
+            this.billingDate = billingCycle.getBillingDate();
+            this.owner = owner;
+            this.checkpoint = checkpoint;
+            this.afterSubscriptionId = checkpoint.lastSubscriptionId();
+        }
+    }
+
+    /**
+     * Charges of the subscription currently being read, grouped into invoice lines, and the ids of
+     * the usage records they were summed from, which are the only records linked to the invoice.
+     * A subscription has only a handful of (usage type, tax rate) lines, so they are found by a
+     * linear scan instead of a keyed map.
+     */
+    private static final class SubscriptionTotals {
+        private final UUID subscriptionId;
+        private final UUID customerId;
+        private final List<ChargeLine> lines = new ArrayList<>(4);
+        private final List<UUID> usageIds = new ArrayList<>();
+        private long records;
+        private long failed;
+
+        private SubscriptionTotals(UUID subscriptionId, UUID customerId) {
+            this.subscriptionId = subscriptionId;
+            this.customerId = customerId;
+        }
+
+        private void add(UUID usageId, UsageType usageType, long taxRateMicros, long chargeMicros) {
+            records++;
+            usageIds.add(usageId);
+            ChargeLine line = null;
+            for (int i = 0; i < lines.size() && line == null; i++) {
+                ChargeLine candidate = lines.get(i);
+                if (candidate.usageType == usageType && candidate.taxRateMicros == taxRateMicros) {
+                    line = candidate;
+                }
+            }
+            if (line == null) {
+                line = new ChargeLine(usageType, taxRateMicros);
+                lines.add(line);
+            }
+            line.records++;
+            line.netMicros += chargeMicros;
+        }
+    }
+
+    private static final class ChargeLine {
+        private final UsageType usageType;
+        private final long taxRateMicros;
+        private long records;
+        private long netMicros;
+
+        private ChargeLine(UsageType usageType, long taxRateMicros) {
+            this.usageType = usageType;
+            this.taxRateMicros = taxRateMicros;
+        }
+    }
+}
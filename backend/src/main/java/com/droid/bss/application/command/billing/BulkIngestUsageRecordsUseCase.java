@@ -0,0 +1,160 @@
+package com.droid.bss.application.command.billing;
+
+import com.droid.bss.application.dto.billing.BulkIngestionReport;
+import com.droid.bss.application.dto.billing.BulkIngestionReport.BatchReport;
+import com.droid.bss.application.dto.billing.BulkIngestionReport.RecordError;
+import com.droid.bss.application.dto.billing.CdrFormat;
+import com.droid.bss.application.dto.billing.IngestUsageRecordCommand;
+import com.droid.bss.domain.billing.UsageSource;
+import com.droid.bss.infrastructure.billing.SubscriptionLookupCache;
+import com.droid.bss.infrastructure.billing.UsageRecordCopyWriter;
+import com.droid.bss.infrastructure.metrics.BusinessMetrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Use case for bulk ingestion of CDR files.
+ *
+ * Unlike {@link IngestUsageRecordUseCase}, records never go through JPA. The file is decoded as a
+ * stream, cut into batches, validated against a cached subscription lookup and written with
+ * PostgreSQL COPY, one transaction per batch. Rejected records and failed batches are collected
+ * into the report while the rest of the file keeps flowing.
+ *
+ * Bulk records are stored unrated; they are rated by the billing run like any other unrated usage.
+ */
+@Service
+@Slf4j
+public class BulkIngestUsageRecordsUseCase {
+
+    private final CdrValidator validator;
+    private final SubscriptionLookupCache subscriptionLookupCache;
+    private final UsageRecordCopyWriter copyWriter;
+    private final BusinessMetrics businessMetrics;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxErrorsPerBatch;
+
+    public BulkIngestUsageRecordsUseCase(
+            CdrValidator validator,
+            SubscriptionLookupCache subscriptionLookupCache,
+            UsageRecordCopyWriter copyWriter,
+            BusinessMetrics businessMetrics,
+            PlatformTransactionManager transactionManager,
+            @Value("${bss.billing.ingest.batch-size:10000}") int batchSize,
+            @Value("${bss.billing.ingest.max-errors-per-batch:100}") int maxErrorsPerBatch) {
+        this.validator = validator;
+        this.subscriptionLookupCache = subscriptionLookupCache;
+        this.copyWriter = copyWriter;
+        this.businessMetrics = businessMetrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxErrorsPerBatch = maxErrorsPerBatch;
+    }
+
+    /**
+     * Ingest a CDR file from a stream; the stream is consumed but not closed
+     */
+    public BulkIngestionReport handle(InputStream input, CdrFormat format, String sourceFile, UsageSource source) {
+        long startedAt = System.currentTimeMillis();
+        List<BatchReport> reports = new ArrayList<>();
+        long read = 0;
+        long accepted = 0;
+        long rejected = 0;
+
+        CdrReader reader = CdrReader.open(format, input, sourceFile);
+        List<CdrRecord> batch = new ArrayList<>(batchSize);
+        int batchNo = 0;
+        try {
+            CdrRecord record;
+            do {
+                record = reader.next();
+                if (record != null) {
+                    batch.add(record);
+                    read++;
+                }
+                if (batch.size() == batchSize || (record == null && !batch.isEmpty())) {
+                    BatchReport report = processBatch(sourceFile, ++batchNo, batch, source);
+                    accepted += report.accepted();
+                    rejected += report.rejected();
+                    if (report.rejected() > 0) {
+                        reports.add(report);
+                    }
+                    batch.clear();
+                }
+            } while (record != null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read CDR file " + sourceFile, e);
+        }
+
+        long duration = System.currentTimeMillis() - startedAt;
+        log.info("Ingested CDR file {}: {} records read, {} accepted, {} rejected in {} ms",
+                sourceFile, read, accepted, rejected, duration);
+        return new BulkIngestionReport(sourceFile, format, read, accepted, rejected, duration, reports);
+    }
+
+    /**
+     * Validate and copy one batch; a failing COPY rejects the batch but not the file
+     */
+    private BatchReport processBatch(String sourceFile, int batchNo, List<CdrRecord> batch, UsageSource source) {
+        Timer.Sample sample = businessMetrics.startUsageIngestionBatch();
+        List<RecordError> errors = new ArrayList<>();
+        int rejected = 0;
+
+        Set<UUID> referenced = new HashSet<>();
+        for (CdrRecord record : batch) {
+            if (record.isParsed()) {
+                UUID subscriptionId = CdrValidator.parseUuid(record.command().subscriptionId());
+                if (subscriptionId != null) {
+                    referenced.add(subscriptionId);
+                }
+            }
+        }
+        Set<UUID> existing = subscriptionLookupCache.findExisting(referenced);
+
+        List<IngestUsageRecordCommand> valid = new ArrayList<>(batch.size());
+        for (CdrRecord record : batch) {
+            String reason = record.isParsed() ? validator.validate(record.command(), existing) : record.parseError();
+            if (reason == null) {
+                valid.add(record.command());
+            } else {
+                rejected++;
+                if (errors.size() < maxErrorsPerBatch) {
+                    errors.add(new RecordError(record.position(),
+                            record.isParsed() ? record.command().subscriptionId() : null, reason));
+                }
+            }
+        }
+
+        String failure = null;
+        int accepted = 0;
+        try {
+            Long copied = transactionTemplate.execute(status -> copyWriter.copy(valid, source));
+            accepted = copied != null ? copied.intValue() : 0;
+        } catch (DataAccessException e) {
+            failure = e.getMostSpecificCause().getMessage();
+            rejected += valid.size();
+            log.warn("CDR batch {} of {} rejected: {}", batchNo, sourceFile, failure);
+        }
+
+        businessMetrics.incrementUsageRecordIngested(accepted);
+        businessMetrics.incrementUsageRecordRejected(rejected);
+        businessMetrics.recordUsageIngestionBatch(sample);
+
+        return new BatchReport(batchNo, batch.get(0).position(), batch.get(batch.size() - 1).position(),
+                accepted, rejected, failure, errors);
+    }
+}
@@ -0,0 +1,135 @@
+package com.droid.bss.application.command.billing;
+
+import com.droid.bss.application.dto.billing.BulkIngestionReport;
+import com.droid.bss.application.dto.billing.CdrFormat;
+import com.droid.bss.domain.billing.UsageSource;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * File-drop mode of bulk CDR ingestion.
+ *
+ * Mediation drops files into {@code bss.billing.ingest.drop-directory}. Each file is moved to
+ * {@code processing/} (an atomic rename, so several instances can share the directory), ingested,
+ * and then moved to {@code processed/} or {@code failed/} next to a {@code .report.json} with the
+ * per-batch errors. The format is taken from the extension: {@code .csv} or {@code .ber}/{@code .asn1}.
+ *
+ * Disabled when no drop directory is configured.
+ */
+@Component
+@Slf4j
+public class CdrFileDropIngestor {
+
+    private static final String PROCESSING = "processing";
+    private static final String PROCESSED = "processed";
+    private static final String FAILED = "failed";
+
+    private final BulkIngestUsageRecordsUseCase ingestUseCase;
+    private final ObjectMapper objectMapper;
+    private final String dropDirectory;
+    private final long minFileAgeMillis;
+
+    public CdrFileDropIngestor(
+            BulkIngestUsageRecordsUseCase ingestUseCase,
+            ObjectMapper objectMapper,
+            @Value("${bss.billing.ingest.drop-directory:}") String dropDirectory,
+            @Value("${bss.billing.ingest.drop-min-file-age-ms:5000}") long minFileAgeMillis) {
+        this.ingestUseCase = ingestUseCase;
+        this.objectMapper = objectMapper;
+        this.dropDirectory = dropDirectory;
+        this.minFileAgeMillis = minFileAgeMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${bss.billing.ingest.drop-poll-interval-ms:10000}")
+    public void pollDropDirectory() {
+        if (dropDirectory == null || dropDirectory.isBlank()) {
+            return;
+        }
+
+        Path root = Path.of(dropDirectory);
+        if (!Files.isDirectory(root)) {
+            log.warn("CDR drop directory {} does not exist", root);
+            return;
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(root, Files::isRegularFile)) {
+            for (Path file : files) {
+                CdrFormat format = formatOf(file);
+                if (format != null && isSettled(file)) {
+                    ingest(root, file, format);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed to scan CDR drop directory {}: {}", root, e.getMessage());
+        }
+    }
+
+    private void ingest(Path root, Path file, CdrFormat format) {
+        String fileName = file.getFileName().toString();
+        Path claimed;
+        try {
+            Files.createDirectories(root.resolve(PROCESSING));
+            claimed = Files.move(file, root.resolve(PROCESSING).resolve(fileName), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Claimed by another instance in the meantime
+            log.debug("Skipping CDR file {}: {}", fileName, e.getMessage());
+            return;
+        }
+
+        String target = FAILED;
+        Object report;
+        try (InputStream input = Files.newInputStream(claimed)) {
+            BulkIngestionReport ingestion = ingestUseCase.handle(input, format, fileName, UsageSource.CDR);
+            report = ingestion;
+            target = PROCESSED;
+        } catch (RuntimeException | IOException e) {
+            log.error("Failed to ingest CDR file {}: {}", fileName, e.getMessage(), e);
+            report = Map.of("sourceFile", fileName, "error", String.valueOf(e.getMessage()));
+        }
+
+        try {
+            Path targetDirectory = Files.createDirectories(root.resolve(target));
+            objectMapper.writerWithDefaultPrettyPrinter()
+                    .writeValue(targetDirectory.resolve(fileName + ".report.json").toFile(), report);
+            Files.move(claimed, targetDirectory.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.error("Failed to archive CDR file {}: {}", fileName, e.getMessage());
+        }
+    }
+
+    /**
+     * Skip files that are still being written
+     */
+    private boolean isSettled(Path file) {
+        try {
+            Instant modified = Files.getLastModifiedTime(file).toInstant();
+            return modified.plusMillis(minFileAgeMillis).isBefore(Instant.now());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static CdrFormat formatOf(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return CdrFormat.CSV;
+        }
+        if (name.endsWith(".ber") || name.endsWith(".asn1")) {
+            return CdrFormat.ASN1_BER;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,25 @@
+package com.droid.bss.application.command.billing;
+
+import com.droid.bss.application.dto.billing.CdrFormat;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming decoder of bulk CDR files; records are decoded one at a time so a file is never held in memory
+ */
+public interface CdrReader extends Closeable {
+
+    /**
+     * Next record, or null at the end of the file
+     */
+    CdrRecord next() throws IOException;
+
+    static CdrReader open(CdrFormat format, InputStream input, String sourceFile) {
+        return switch (format) {
+            case CSV -> new CsvCdrReader(input, sourceFile);
+            case ASN1_BER -> new BerCdrReader(input, sourceFile);
+        };
+    }
+}
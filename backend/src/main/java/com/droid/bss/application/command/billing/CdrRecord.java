@@ -0,0 +1,76 @@
+package com.droid.bss.application.command.billing;
+
+import com.droid.bss.application.dto.billing.IngestUsageRecordCommand;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * One decoded CDR of a bulk file.
+ *
+ * {@code position} is the line number (CSV) or record number (ASN.1) used in error reports;
+ * {@code parseError} is set when the record could not be decoded into a command.
+ */
+public record CdrRecord(
+        long position,
+        IngestUsageRecordCommand command,
+        String parseError
+) {
+
+    /**
+     * Number of CDR fields, in {@link IngestUsageRecordCommand} order up to and including source
+     */
+    public static final int FIELD_COUNT = 12;
+
+    /**
+     * Decode positional text fields; missing trailing optional fields are treated as null
+     */
+    public static CdrRecord fromFields(long position, String[] fields, String sourceFile) {
+        if (fields.length < 6) {
+            return invalid(position, "Expected at least 6 fields, got " + fields.length);
+        }
+        try {
+            return parsed(position, new IngestUsageRecordCommand(
+                    field(fields, 0),
+                    field(fields, 1),
+                    field(fields, 2),
+                    field(fields, 3) != null ? new BigDecimal(field(fields, 3)) : null,
+                    field(fields, 4) != null ? LocalDate.parse(field(fields, 4)) : null,
+                    field(fields, 5) != null ? LocalTime.parse(field(fields, 5)) : null,
+                    field(fields, 6),
+                    field(fields, 7),
+                    field(fields, 8),
+                    field(fields, 9),
+                    field(fields, 10),
+                    field(fields, 11),
+                    sourceFile
+            ));
+        } catch (NumberFormatException e) {
+            return invalid(position, "Invalid usage amount: " + field(fields, 3));
+        } catch (DateTimeParseException e) {
+            return invalid(position, "Invalid usage date or time: " + e.getParsedString());
+        }
+    }
+
+    private static String field(String[] fields, int index) {
+        if (index >= fields.length) {
+            return null;
+        }
+        String value = fields[index];
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    public static CdrRecord parsed(long position, IngestUsageRecordCommand command) {
+        return new CdrRecord(position, command, null);
+    }
+
+    public static CdrRecord invalid(long position, String parseError) {
+        return new CdrRecord(position, null, parseError);
+    }
+
+    public boolean isParsed() {
+        return parseError == null;
+    }
+}
@@ -0,0 +1,108 @@
+package com.droid.bss.application.command.billing;
+
+import com.droid.bss.application.dto.billing.IngestUsageRecordCommand;
+import com.droid.bss.domain.billing.DestinationType;
+import com.droid.bss.domain.billing.RatePeriod;
+import com.droid.bss.domain.billing.UsageSource;
+import com.droid.bss.domain.billing.UsageType;
+import com.droid.bss.domain.billing.UsageUnit;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Validation stage of bulk CDR ingestion.
+ *
+ * Applies the same rules the database would enforce (enum values, column lengths, numeric precision)
+ * up front, so a bad record is reported on its own instead of aborting the COPY of its whole batch.
+ */
+@Component
+public class CdrValidator {
+
+    // usage_amount DECIMAL(15,3)
+    private static final BigDecimal MAX_USAGE_AMOUNT = new BigDecimal("999999999999.999");
+
+    /**
+     * Validate a decoded record
+     *
+     * @param existingSubscriptions ids known to reference a subscription
+     * @return rejection reason, or null if the record can be ingested
+     */
+    public String validate(IngestUsageRecordCommand command, Set<UUID> existingSubscriptions) {
+        UUID subscriptionId = parseUuid(command.subscriptionId());
+        if (subscriptionId == null) {
+            return "Invalid subscription id: " + command.subscriptionId();
+        }
+        if (!existingSubscriptions.contains(subscriptionId)) {
+            return "Subscription not found: " + command.subscriptionId();
+        }
+
+        if (!isEnum(UsageType.class, command.usageType(), false)) {
+            return "Invalid usage type: " + command.usageType();
+        }
+        if (!isEnum(UsageUnit.class, command.usageUnit(), false)) {
+            return "Invalid usage unit: " + command.usageUnit();
+        }
+        if (!isEnum(DestinationType.class, command.destinationType(), true)) {
+            return "Invalid destination type: " + command.destinationType();
+        }
+        if (!isEnum(RatePeriod.class, command.ratePeriod(), true)) {
+            return "Invalid rate period: " + command.ratePeriod();
+        }
+        if (!isEnum(UsageSource.class, command.source(), true)) {
+            return "Invalid source: " + command.source();
+        }
+
+        BigDecimal amount = command.usageAmount();
+        if (amount == null || amount.signum() < 0 || amount.compareTo(MAX_USAGE_AMOUNT) > 0 || amount.scale() > 3) {
+            return "Invalid usage amount: " + amount;
+        }
+        if (command.usageDate() == null || command.usageTime() == null) {
+            return "Usage date and time are required";
+        }
+        if (command.usageDate().isAfter(LocalDate.now().plusDays(1))) {
+            return "Usage date is in the future: " + command.usageDate();
+        }
+
+        if (tooLong(command.destinationNumber(), 50)) {
+            return "Destination number longer than 50 characters";
+        }
+        if (tooLong(command.destinationCountry(), 2)) {
+            return "Destination country must be an ISO 3166-1 alpha-2 code";
+        }
+        if (tooLong(command.networkId(), 50)) {
+            return "Network id longer than 50 characters";
+        }
+        return null;
+    }
+
+    static UUID parseUuid(String value) {
+        if (value == null || value.length() != 36) {
+            return null;
+        }
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static <E extends Enum<E>> boolean isEnum(Class<E> type, String value, boolean optional) {
+        if (value == null) {
+            return optional;
+        }
+        try {
+            Enum.valueOf(type, value);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static boolean tooLong(String value, int maxLength) {
+        return value != null && value.length() > maxLength;
+    }
+}
@@ -0,0 +1,88 @@
+package com.droid.bss.application.command.billing;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV CDR decoder.
+ *
+ * One CDR per line with the columns subscription_id, usage_type, usage_unit, usage_amount,
+ * usage_date, usage_time, destination_type, destination_number, destination_country, network_id,
+ * rate_period, source. An optional header line starting with {@code subscription_id} is skipped.
+ * Fields may be double-quoted; quoted fields cannot span lines.
+ */
+public class CsvCdrReader implements CdrReader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final BufferedReader reader;
+    private final String sourceFile;
+    private final List<String> fields = new ArrayList<>(CdrRecord.FIELD_COUNT);
+    private final StringBuilder field = new StringBuilder(64);
+    private long lineNumber;
+
+    public CsvCdrReader(InputStream input, String sourceFile) {
+        this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.sourceFile = sourceFile;
+    }
+
+    @Override
+    public CdrRecord next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || (lineNumber == 1 && line.startsWith("subscription_id"))) {
+                continue;
+            }
+            if (!split(line)) {
+                return CdrRecord.invalid(lineNumber, "Unterminated quoted field");
+            }
+            return CdrRecord.fromFields(lineNumber, fields.toArray(String[]::new), sourceFile);
+        }
+        return null;
+    }
+
+    /**
+     * Split a line into {@link #fields}; returns false on an unterminated quote
+     */
+    private boolean split(String line) {
+        fields.clear();
+        field.setLength(0);
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return !quoted;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,188 @@
+package com.droid.bss.application.command.billing;
+
+import com.droid.bss.application.dto.billing.ChargingResult;
+import com.droid.bss.application.dto.billing.ChargingStatus;
+import com.droid.bss.application.dto.billing.CommitUsageCommand;
+import com.droid.bss.application.dto.billing.ReleaseReservationCommand;
+import com.droid.bss.application.dto.billing.ReserveUnitsCommand;
+import com.droid.bss.application.dto.billing.TopUpBalanceCommand;
+import com.droid.bss.domain.billing.*;
+import com.droid.bss.infrastructure.metrics.BusinessMetrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Use case for online (real-time) charging of prepaid subscriptions.
+ *
+ * A session reserves units before service is delivered, commits the units actually used when it
+ * ends, or releases the reservation; reservations that are never closed expire. Prices come from
+ * the same compiled rule index and {@link RatingEngine} as postpaid rating, balances from the
+ * in-memory {@link PrepaidBalanceStore}, so a request touches the database only through the
+ * group-committed balance journal. Prepaid balances are debited gross; no tax is added.
+ *
+ * Tariff counters consumed while rating a commit are captured and written by the journal writer in
+ * the transaction that appends the debit, so a debit that is never journaled consumes no allowance.
+ */
+@Service
+public class OnlineChargingUseCase {
+
+    private final RatingRuleIndexProvider ratingRuleIndexProvider;
+    private final RatingEngine ratingEngine;
+    private final TariffEngine tariffEngine;
+    private final UsageCounterStore usageCounterStore;
+    private final PrepaidBalanceStore prepaidBalanceStore;
+    private final BusinessMetrics businessMetrics;
+    private final long reservationValidityMillis;
+
+    public OnlineChargingUseCase(
+            RatingRuleIndexProvider ratingRuleIndexProvider,
+            RatingEngine ratingEngine,
+            TariffEngine tariffEngine,
+            UsageCounterStore usageCounterStore,
+            PrepaidBalanceStore prepaidBalanceStore,
+            BusinessMetrics businessMetrics,
+            @Value("${bss.billing.charging.reservation-validity-seconds:300}") long reservationValiditySeconds) {
+        this.ratingRuleIndexProvider = ratingRuleIndexProvider;
+        this.ratingEngine = ratingEngine;
+        this.tariffEngine = tariffEngine;
+        this.usageCounterStore = usageCounterStore;
+        this.prepaidBalanceStore = prepaidBalanceStore;
+        this.businessMetrics = businessMetrics;
+        this.reservationValidityMillis = reservationValiditySeconds * 1000;
+    }
+
+    public CompletableFuture<ChargingResult> reserve(ReserveUnitsCommand command) {
+        return timed(() -> {
+            UUID subscriptionId = parseSubscriptionId(command.subscriptionId());
+            UsageType usageType = UsageType.valueOf(command.usageType());
+            DestinationType destinationType = command.destinationType() != null
+                    ? DestinationType.valueOf(command.destinationType()) : null;
+            long requestedMicros = positiveUnits(command.requestedUnits());
+
+            LocalDateTime now = LocalDateTime.now();
+            long epochDay = now.toLocalDate().toEpochDay();
+            RatePeriod ratePeriod = tariffEngine.classify(epochDay, now.toLocalTime().toSecondOfDay());
+            CompiledRatingRule rule = ratingRuleIndexProvider.current()
+                    .findRule(usageType, destinationType, ratePeriod, epochDay);
+            if (rule == null) {
+                return CompletableFuture.completedFuture(noRatingRule(command.sessionId(), command.subscriptionId()));
+            }
+            if (command.currency() != null && !command.currency().equals(rule.currency())) {
+                return CompletableFuture.completedFuture(new ChargingResult(command.sessionId(),
+                        command.subscriptionId(), ChargingStatus.CURRENCY_MISMATCH, null, null, null, null, null, null));
+            }
+
+            return prepaidBalanceStore.reserve(subscriptionId, command.sessionId(), rule, ratePeriod,
+                    requestedMicros, System.currentTimeMillis() + reservationValidityMillis, rule.currency());
+        });
+    }
+
+    public CompletableFuture<ChargingResult> commit(CommitUsageCommand command) {
+        return timed(() -> {
+            UUID subscriptionId = parseSubscriptionId(command.subscriptionId());
+            long usedMicros = MicroUnits.of(command.usedUnits(), RoundingMode.HALF_UP);
+            if (usedMicros < 0) {
+                throw new IllegalArgumentException("Used units must not be negative: " + command.usedUnits());
+            }
+
+            // Rate as reserved; an expired session can still be charged if the request describes the usage
+            PrepaidBalanceStore.Reservation reservation =
+                    prepaidBalanceStore.findReservation(subscriptionId, command.sessionId());
+            UsageType usageType;
+            DestinationType destinationType;
+            RatePeriod ratePeriod = null;
+            if (reservation != null) {
+                usageType = reservation.usageType();
+                destinationType = reservation.destinationType();
+                ratePeriod = reservation.ratePeriod();
+            } else if (command.usageType() != null) {
+                usageType = UsageType.valueOf(command.usageType());
+                destinationType = command.destinationType() != null
+                        ? DestinationType.valueOf(command.destinationType()) : null;
+            } else {
+                return CompletableFuture.completedFuture(new ChargingResult(command.sessionId(),
+                        command.subscriptionId(), ChargingStatus.UNKNOWN_SESSION, null, null, null, null, null, null));
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            RatePeriod reservedPeriod = ratePeriod;
+            UsageCounterStore.Captured<UsageCharge> rated = usageCounterStore.capture(() -> ratingEngine.rate(
+                    usageType, destinationType, reservedPeriod, subscriptionId, now.toLocalDate().toEpochDay(),
+                    now.toLocalTime().toSecondOfDay(), usedMicros, 0L, ratingRuleIndexProvider.current()));
+            UsageCounterStore.Consumption consumption = rated.consumption();
+            UsageCharge charge = rated.result();
+            if (charge == null) {
+                consumption.complete(false);
+                return CompletableFuture.completedFuture(noRatingRule(command.sessionId(), command.subscriptionId()));
+            }
+            if (usedMicros > 0) {
+                businessMetrics.incrementUsageRecordRated();
+            }
+
+            CompletableFuture<ChargingResult> committed;
+            try {
+                committed = prepaidBalanceStore.commit(subscriptionId, command.sessionId(), usedMicros,
+                        charge.chargeMicros(), consumption.deltas());
+            } catch (RuntimeException e) {
+                consumption.complete(false);
+                throw e;
+            }
+            return committed.whenComplete((result, failure) -> consumption.complete(failure == null));
+        });
+    }
+
+    public CompletableFuture<ChargingResult> release(ReleaseReservationCommand command) {
+        return timed(() -> prepaidBalanceStore.release(parseSubscriptionId(command.subscriptionId()),
+                command.sessionId()));
+    }
+
+    public CompletableFuture<ChargingResult> topUp(TopUpBalanceCommand command) {
+        if (command.amount() == null || command.amount().signum() <= 0 || command.amount().scale() > MicroUnits.MONEY_SCALE) {
+            throw new IllegalArgumentException("Invalid top-up amount: " + command.amount());
+        }
+        return prepaidBalanceStore.topUp(parseSubscriptionId(command.subscriptionId()), command.reference(),
+                MicroUnits.of(command.amount()), command.currency());
+    }
+
+    public ChargingResult balance(String subscriptionId) {
+        return prepaidBalanceStore.balance(parseSubscriptionId(subscriptionId));
+    }
+
+    private CompletableFuture<ChargingResult> timed(Supplier<CompletableFuture<ChargingResult>> request) {
+        Timer.Sample sample = businessMetrics.startOnlineCharging();
+        try {
+            return request.get().whenComplete((result, failure) -> businessMetrics.recordOnlineCharging(sample));
+        } catch (RuntimeException e) {
+            businessMetrics.recordOnlineCharging(sample);
+            throw e;
+        }
+    }
+
+    private static UUID parseSubscriptionId(String subscriptionId) {
+        UUID parsed = CdrValidator.parseUuid(subscriptionId);
+        if (parsed == null) {
+            throw new IllegalArgumentException("Invalid subscription id: " + subscriptionId);
+        }
+        return parsed;
+    }
+
+    private static long positiveUnits(BigDecimal units) {
+        if (units == null || units.signum() <= 0) {
+            throw new IllegalArgumentException("Requested units must be positive: " + units);
+        }
+        return MicroUnits.of(units, RoundingMode.HALF_UP);
+    }
+
+    private static ChargingResult noRatingRule(String sessionId, String subscriptionId) {
+        return new ChargingResult(sessionId, subscriptionId, ChargingStatus.NO_RATING_RULE,
+                null, null, null, null, null, null);
+    }
+}
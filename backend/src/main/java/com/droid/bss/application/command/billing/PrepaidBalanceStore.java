@@ -0,0 +1,498 @@
+package com.droid.bss.application.command.billing;
+
+import com.droid.bss.application.dto.billing.ChargingResult;
+import com.droid.bss.application.dto.billing.ChargingStatus;
+import com.droid.bss.domain.billing.*;
+import com.droid.bss.infrastructure.billing.BalanceJournalWriter;
+import com.droid.bss.infrastructure.billing.PrepaidBalanceRepository;
+import com.droid.bss.infrastructure.billing.PrepaidBalanceRepository.BalanceSnapshot;
+import com.droid.bss.infrastructure.billing.UsageCounterRepository.CounterDelta;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiFunction;
+
+/**
+ * In-memory prepaid balances for online charging, sharded by subscription.
+ *
+ * Every change is applied in memory under the lock of the subscription's shard and written to the
+ * balance journal; the returned future completes only once the journal entry is durable, so an
+ * acknowledged reservation or debit survives a crash. No database row is locked per request, so
+ * hot subscribers only contend on their in-memory shard. Balances are loaded on first use from
+ * the latest snapshot plus the journal after it, and snapshots are written periodically so
+ * recovery replays a short journal tail. A snapshot records where its oldest open reservation was
+ * journaled, so reservations that outlive a snapshot are recovered too.
+ *
+ * A subscription must be charged by one instance at a time: network elements are expected to route
+ * a subscription's sessions to the same charging instance.
+ */
+@Component
+@Slf4j
+public class PrepaidBalanceStore {
+
+    private final PrepaidBalanceRepository prepaidBalanceRepository;
+    private final BalanceJournalWriter balanceJournalWriter;
+    private final long idleEvictionMillis;
+    private final Shard[] shards;
+
+    public PrepaidBalanceStore(
+            PrepaidBalanceRepository prepaidBalanceRepository,
+            BalanceJournalWriter balanceJournalWriter,
+            @Value("${bss.billing.charging.shards:64}") int shardCount,
+            @Value("${bss.billing.charging.balance-idle-eviction-ms:600000}") long idleEvictionMillis) {
+        this.prepaidBalanceRepository = prepaidBalanceRepository;
+        this.balanceJournalWriter = balanceJournalWriter;
+        this.idleEvictionMillis = idleEvictionMillis;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    /**
+     * Reserve the amount for the requested units, or as many whole units as the balance covers.
+     * The amount is estimated at the rule's flat rate; tiers and allowances apply at commit.
+     * Repeating a reservation for an open session returns the existing reservation. A reservation
+     * in another currency than the balance's is rejected.
+     */
+    public CompletableFuture<ChargingResult> reserve(UUID subscriptionId, String sessionId, CompiledRatingRule rule,
+                                                     RatePeriod ratePeriod, long requestedMicros, long expiresAtMillis,
+                                                     String currency) {
+        return withBalance(subscriptionId, (shard, balance) -> {
+            Reservation existing = shard.sessions.get(new SessionKey(subscriptionId, sessionId));
+            if (existing != null) {
+                return CompletableFuture.completedFuture(reservationResult(existing, balance, ChargingStatus.GRANTED));
+            }
+            if (balance.currency != null && !balance.currency.equals(currency)) {
+                return CompletableFuture.completedFuture(result(sessionId, balance,
+                        ChargingStatus.CURRENCY_MISMATCH, 0L, 0L, 0L, null));
+            }
+
+            long unitsMicros = requestedMicros;
+            long amountMicros = RatingEngine.calculateCharge(requestedMicros, rule);
+            ChargingStatus status = ChargingStatus.GRANTED;
+            if (amountMicros > balance.availableMicros()) {
+                unitsMicros = affordableUnits(balance.availableMicros(), rule);
+                if (unitsMicros == 0) {
+                    return CompletableFuture.completedFuture(result(sessionId, balance,
+                            ChargingStatus.INSUFFICIENT_BALANCE, 0L, 0L, 0L, null));
+                }
+                amountMicros = RatingEngine.calculateCharge(unitsMicros, rule);
+                status = ChargingStatus.PARTIALLY_GRANTED;
+            }
+
+            Reservation reservation = new Reservation(sessionId, subscriptionId, amountMicros, unitsMicros,
+                    rule.usageType(), rule.destinationType(), ratePeriod, expiresAtMillis);
+            BalanceJournalEntry entry = BalanceJournalEntry.reserve(subscriptionId, sessionId, amountMicros,
+                    unitsMicros, rule.usageType(), rule.destinationType(), ratePeriod, expiresAtMillis);
+            CompletableFuture<Long> durable = balanceJournalWriter.append(entry);
+
+            shard.open(balance, reservation);
+            return track(shard, balance, entry, durable, reservationResult(reservation, balance, status));
+        });
+    }
+
+    /**
+     * Open reservation of a session, or null if there is none
+     */
+    public Reservation findReservation(UUID subscriptionId, String sessionId) {
+        return withBalance(subscriptionId, (shard, balance) -> {
+            return shard.sessions.get(new SessionKey(subscriptionId, sessionId));
+        });
+    }
+
+    /**
+     * Debit a session's rated usage and end its reservation. The debit never takes the balance
+     * below what other open sessions have reserved; usage beyond that is not charged.
+     * Usage counter deltas of the rating are journaled in the same transaction as the debit.
+     */
+    public CompletableFuture<ChargingResult> commit(UUID subscriptionId, String sessionId, long usedMicros,
+                                                    long chargeMicros, List<CounterDelta> counterDeltas) {
+        return withBalance(subscriptionId, (shard, balance) -> {
+            Reservation reservation = shard.sessions.get(new SessionKey(subscriptionId, sessionId));
+            long ownReserved = reservation != null ? reservation.amountMicros() : 0L;
+            long debitMicros = Math.max(0L, Math.min(chargeMicros, balance.availableMicros() + ownReserved));
+
+            BalanceJournalEntry entry = BalanceJournalEntry.commit(subscriptionId, sessionId, debitMicros, usedMicros);
+            CompletableFuture<Long> durable = balanceJournalWriter.append(entry, counterDeltas);
+
+            if (reservation != null) {
+                shard.close(balance, reservation);
+            }
+            balance.balanceMicros -= debitMicros;
+            return track(shard, balance, entry, durable,
+                    result(sessionId, balance, ChargingStatus.COMMITTED, usedMicros, 0L, debitMicros, null));
+        });
+    }
+
+    /**
+     * Return a session's reservation to the balance without a debit
+     */
+    public CompletableFuture<ChargingResult> release(UUID subscriptionId, String sessionId) {
+        return withBalance(subscriptionId, (shard, balance) -> {
+            Reservation reservation = shard.sessions.get(new SessionKey(subscriptionId, sessionId));
+            if (reservation == null) {
+                return CompletableFuture.completedFuture(result(sessionId, balance,
+                        ChargingStatus.UNKNOWN_SESSION, 0L, 0L, 0L, null));
+            }
+            return releaseLocked(shard, balance, reservation);
+        });
+    }
+
+    /**
+     * Credit a balance; a balance keeps the currency of its first top-up
+     */
+    public CompletableFuture<ChargingResult> topUp(UUID subscriptionId, String reference, long amountMicros,
+                                                   String currency) {
+        return withBalance(subscriptionId, (shard, balance) -> {
+            if (balance.currency != null && !balance.currency.equals(currency)) {
+                return CompletableFuture.completedFuture(result(reference, balance,
+                        ChargingStatus.CURRENCY_MISMATCH, 0L, 0L, 0L, null));
+            }
+
+            BalanceJournalEntry entry = BalanceJournalEntry.topUp(subscriptionId, reference, amountMicros, currency);
+            CompletableFuture<Long> durable = balanceJournalWriter.append(entry);
+
+            balance.currency = currency;
+            balance.balanceMicros += amountMicros;
+            return track(shard, balance, entry, durable,
+                    result(reference, balance, ChargingStatus.TOPPED_UP, 0L, 0L, 0L, null));
+        });
+    }
+
+    public ChargingResult balance(UUID subscriptionId) {
+        return withBalance(subscriptionId, (shard, balance) ->
+                result(null, balance, ChargingStatus.BALANCE, 0L, balance.reservedMicros, 0L, null));
+    }
+
+    /**
+     * Release reservations whose validity has passed, e.g. because the network element never
+     * reported the end of the session
+     */
+    @Scheduled(fixedDelayString = "${bss.billing.charging.reservation-sweep-interval-ms:1000}")
+    public void releaseExpired() {
+        long now = System.currentTimeMillis();
+        int released = 0;
+        try {
+            for (Shard shard : shards) {
+                synchronized (shard) {
+                    List<Reservation> expired = new ArrayList<>();
+                    for (Reservation reservation : shard.sessions.values()) {
+                        if (reservation.expiresAtMillis() <= now) {
+                            expired.add(reservation);
+                        }
+                    }
+                    for (Reservation reservation : expired) {
+                        PrepaidBalance balance = shard.balances.get(reservation.subscriptionId());
+                        if (balance != null) {
+                            releaseLocked(shard, balance, reservation);
+                            released++;
+                        }
+                    }
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            log.warn("Balance journal is backed up, postponing release of expired reservations");
+        }
+        if (released > 0) {
+            log.debug("Released {} expired reservations", released);
+        }
+    }
+
+    /**
+     * Write snapshots of balances that changed since their last snapshot and evict idle balances
+     */
+    @Scheduled(fixedDelayString = "${bss.billing.charging.snapshot-interval-ms:10000}")
+    public void snapshot() {
+        long idleBefore = System.currentTimeMillis() - idleEvictionMillis;
+        List<BalanceSnapshot> snapshots = new ArrayList<>();
+        List<PrepaidBalance> snapshotted = new ArrayList<>();
+
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                Iterator<PrepaidBalance> balances = shard.balances.values().iterator();
+                while (balances.hasNext()) {
+                    PrepaidBalance balance = balances.next();
+                    if (balance.journalSeq > balance.snapshotSeq) {
+                        snapshots.add(new BalanceSnapshot(balance.subscriptionId, balance.currency,
+                                balance.durableBalanceMicros, balance.journalSeq, balance.replayFromSeq()));
+                        snapshotted.add(balance);
+                    } else if (balance.pending == 0 && balance.openSessions == 0 && balance.lastUsedMillis < idleBefore) {
+                        balance.evicted = true;
+                        balances.remove();
+                    }
+                }
+            }
+        }
+        if (snapshots.isEmpty()) {
+            return;
+        }
+
+        try {
+            prepaidBalanceRepository.saveSnapshots(snapshots);
+            for (int i = 0; i < snapshots.size(); i++) {
+                PrepaidBalance balance = snapshotted.get(i);
+                Shard shard = shardOf(balance.subscriptionId);
+                synchronized (shard) {
+                    balance.snapshotSeq = Math.max(balance.snapshotSeq, snapshots.get(i).journalSeq());
+                }
+            }
+            log.debug("Wrote {} prepaid balance snapshots", snapshots.size());
+        } catch (RuntimeException e) {
+            log.warn("Failed to write {} prepaid balance snapshots: {}", snapshots.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void snapshotOnShutdown() {
+        snapshot();
+    }
+
+    /**
+     * Largest number of whole units whose charge the available amount covers, or 0 if that is
+     * below the rule minimum
+     */
+    static long affordableUnits(long availableMicros, CompiledRatingRule rule) {
+        if (availableMicros <= 0 || rule.unitRateMicros() <= 0) {
+            return 0L;
+        }
+        long unitsMicros = MicroUnits.quotient(availableMicros, rule.unitRateMicros(), 0, RoundingMode.DOWN);
+        // The charge is rounded half up and may end a cent above the available amount
+        while (unitsMicros > 0 && RatingEngine.calculateCharge(unitsMicros, rule) > availableMicros) {
+            unitsMicros -= MicroUnits.ONE;
+        }
+        return unitsMicros >= rule.minimumUnitsMicros() ? unitsMicros : 0L;
+    }
+
+    private CompletableFuture<ChargingResult> releaseLocked(Shard shard, PrepaidBalance balance, Reservation reservation) {
+        BalanceJournalEntry entry = BalanceJournalEntry.release(reservation.subscriptionId(), reservation.sessionId());
+        CompletableFuture<Long> durable = balanceJournalWriter.append(entry);
+
+        shard.close(balance, reservation);
+        return track(shard, balance, entry, durable, result(reservation.sessionId(), balance,
+                ChargingStatus.RELEASED, 0L, reservation.amountMicros(), 0L, null));
+    }
+
+    /**
+     * Follow a journal entry until it is durable: advance the balance's durable state, or drop the
+     * balance from memory if the entry was lost so it is reloaded from the journal
+     */
+    private CompletableFuture<ChargingResult> track(Shard shard, PrepaidBalance balance, BalanceJournalEntry entry,
+                                                    CompletableFuture<Long> durable, ChargingResult result) {
+        balance.pending++;
+        durable.whenComplete((seq, failure) -> {
+            synchronized (shard) {
+                balance.pending--;
+                if (failure == null) {
+                    balance.durableBalanceMicros += entry.balanceDeltaMicros();
+                    balance.journalSeq = Math.max(balance.journalSeq, seq);
+                    balance.trackReservation(entry, seq);
+                } else if (!balance.evicted) {
+                    shard.evict(balance);
+                }
+            }
+        });
+        return durable.thenApply(seq -> result);
+    }
+
+    private <T> T withBalance(UUID subscriptionId, BiFunction<Shard, PrepaidBalance, T> operation) {
+        Shard shard = shardOf(subscriptionId);
+        while (true) {
+            synchronized (shard) {
+                PrepaidBalance balance = shard.balances.get(subscriptionId);
+                if (balance != null) {
+                    balance.lastUsedMillis = System.currentTimeMillis();
+                    return operation.apply(shard, balance);
+                }
+            }
+            load(shard, subscriptionId);
+        }
+    }
+
+    /**
+     * Rebuild a balance from its snapshot and journal tail; runs outside the shard lock. Entries up
+     * to the snapshot's position only restore the reservations still open at that position.
+     */
+    private void load(Shard shard, UUID subscriptionId) {
+        BalanceSnapshot snapshot = prepaidBalanceRepository.findSnapshot(subscriptionId);
+        PrepaidBalance balance = new PrepaidBalance(subscriptionId, snapshot);
+        Map<String, Reservation> open = new HashMap<>();
+        long replayFromSeq = Math.min(snapshot.replayFromSeq(), snapshot.journalSeq());
+        for (BalanceJournalEntry entry : prepaidBalanceRepository.findJournalAfter(subscriptionId, replayFromSeq)) {
+            if (entry.seq() > snapshot.journalSeq()) {
+                balance.replay(entry);
+            }
+            balance.trackReservation(entry, entry.seq());
+            switch (entry.type()) {
+                case RESERVE -> open.put(entry.sessionId(), new Reservation(entry.sessionId(), subscriptionId,
+                        entry.amountMicros(), entry.unitsMicros(), entry.usageType(), entry.destinationType(),
+                        entry.ratePeriod(), entry.expiresAtMillis()));
+                case COMMIT, RELEASE -> open.remove(entry.sessionId());
+                case TOPUP -> {
+                }
+            }
+        }
+
+        synchronized (shard) {
+            if (!shard.balances.containsKey(subscriptionId)) {
+                shard.balances.put(subscriptionId, balance);
+                open.values().forEach(reservation -> shard.open(balance, reservation));
+            }
+        }
+    }
+
+    private Shard shardOf(UUID subscriptionId) {
+        return shards[Math.floorMod(subscriptionId.hashCode(), shards.length)];
+    }
+
+    private static ChargingResult reservationResult(Reservation reservation, PrepaidBalance balance,
+                                                    ChargingStatus status) {
+        return result(reservation.sessionId(), balance, status, reservation.unitsMicros(), reservation.amountMicros(),
+                0L, Instant.ofEpochMilli(reservation.expiresAtMillis()));
+    }
+
+    private static ChargingResult result(String sessionId, PrepaidBalance balance, ChargingStatus status,
+                                         long unitsMicros, long reservedMicros, long chargedMicros, Instant expiresAt) {
+        return new ChargingResult(
+                sessionId,
+                balance.subscriptionId.toString(),
+                status,
+                MicroUnits.toBigDecimal(unitsMicros).stripTrailingZeros(),
+                money(reservedMicros),
+                money(chargedMicros),
+                money(balance.availableMicros()),
+                balance.currency,
+                expiresAt
+        );
+    }
+
+    private static BigDecimal money(long micros) {
+        return MicroUnits.toBigDecimal(MicroUnits.round(micros, MicroUnits.MONEY_SCALE, RoundingMode.HALF_UP),
+                MicroUnits.MONEY_SCALE);
+    }
+
+    /**
+     * Units set aside for an open charging session
+     */
+    public record Reservation(
+            String sessionId,
+            UUID subscriptionId,
+            long amountMicros,
+            long unitsMicros,
+            UsageType usageType,
+            DestinationType destinationType,
+            RatePeriod ratePeriod,
+            long expiresAtMillis
+    ) {
+    }
+
+    /**
+     * Session ids are chosen by network elements and are only unique per subscription
+     */
+    private record SessionKey(UUID subscriptionId, String sessionId) {
+    }
+
+    /**
+     * Balances and open sessions of the subscriptions hashed to one shard, guarded by the shard's monitor
+     */
+    private static final class Shard {
+        private final Map<UUID, PrepaidBalance> balances = new HashMap<>();
+        private final Map<SessionKey, Reservation> sessions = new HashMap<>();
+
+        void open(PrepaidBalance balance, Reservation reservation) {
+            sessions.put(new SessionKey(reservation.subscriptionId(), reservation.sessionId()), reservation);
+            balance.reservedMicros += reservation.amountMicros();
+            balance.openSessions++;
+        }
+
+        void close(PrepaidBalance balance, Reservation reservation) {
+            sessions.remove(new SessionKey(reservation.subscriptionId(), reservation.sessionId()));
+            balance.reservedMicros -= reservation.amountMicros();
+            balance.openSessions--;
+        }
+
+        void evict(PrepaidBalance balance) {
+            balance.evicted = true;
+            balances.remove(balance.subscriptionId);
+            sessions.values().removeIf(reservation -> reservation.subscriptionId().equals(balance.subscriptionId));
+        }
+    }
+
+    /**
+     * Live state of one balance. {@code balanceMicros} includes changes not yet journaled;
+     * {@code durableBalanceMicros}, {@code journalSeq} and {@code openReserveSeqs} only what the
+     * journal holds.
+     */
+    private static final class PrepaidBalance {
+        private final UUID subscriptionId;
+        private String currency;
+        private long balanceMicros;
+        private long reservedMicros;
+        private int openSessions;
+        private long durableBalanceMicros;
+        private long journalSeq;
+        private long snapshotSeq;
+        // Journal position of the RESERVE entry of every durably open session
+        private final Map<String, Long> openReserveSeqs = new HashMap<>();
+        private int pending;
+        private long lastUsedMillis;
+        private boolean evicted;
+
+        private PrepaidBalance(UUID subscriptionId, BalanceSnapshot snapshot) {
+            this.subscriptionId = subscriptionId;
+            this.currency = snapshot.currency();
+            this.balanceMicros = snapshot.balanceMicros();
+            this.durableBalanceMicros = snapshot.balanceMicros();
+            this.journalSeq = snapshot.journalSeq();
+            this.snapshotSeq = snapshot.journalSeq();
+            this.lastUsedMillis = System.currentTimeMillis();
+        }
+
+        long availableMicros() {
+            return balanceMicros - reservedMicros;
+        }
+
+        /**
+         * Position a snapshot must replay from to see every reservation open at {@code journalSeq}
+         */
+        long replayFromSeq() {
+            long oldest = journalSeq;
+            for (long seq : openReserveSeqs.values()) {
+                oldest = Math.min(oldest, seq - 1);
+            }
+            return oldest;
+        }
+
+        void trackReservation(BalanceJournalEntry entry, long seq) {
+            switch (entry.type()) {
+                case RESERVE -> openReserveSeqs.put(entry.sessionId(), seq);
+                case COMMIT, RELEASE -> openReserveSeqs.remove(entry.sessionId());
+                case TOPUP -> {
+                }
+            }
+        }
+
+        void replay(BalanceJournalEntry entry) {
+            balanceMicros += entry.balanceDeltaMicros();
+            durableBalanceMicros = balanceMicros;
+            journalSeq = entry.seq();
+            if (entry.type() == BalanceJournalEntryType.TOPUP && currency == null) {
+                currency = entry.currency();
+            }
+        }
+    }
+}
@@ -6,9 +6,10 @@ import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * Engine for rating usage records
@@ -16,17 +17,20 @@ import java.util.List;
 @Service
 public class RatingEngine {
 
-    private final RatingRuleRepository ratingRuleRepository;
+    private final RatingRuleIndexProvider ratingRuleIndexProvider;
     private final UsageRecordRepository usageRecordRepository;
     private final BusinessMetrics businessMetrics;
+    private final TariffEngine tariffEngine;
 
     public RatingEngine(
-            RatingRuleRepository ratingRuleRepository,
+            RatingRuleIndexProvider ratingRuleIndexProvider,
             UsageRecordRepository usageRecordRepository,
-            BusinessMetrics businessMetrics) {
-        this.ratingRuleRepository = ratingRuleRepository;
+            BusinessMetrics businessMetrics,
+            TariffEngine tariffEngine) {
+        this.ratingRuleIndexProvider = ratingRuleIndexProvider;
         this.usageRecordRepository = usageRecordRepository;
         this.businessMetrics = businessMetrics;
+        this.tariffEngine = tariffEngine;
     }
 
     /**
@@ -37,39 +41,9 @@ public class RatingEngine {
         Timer.Sample sample = businessMetrics.startUsageRating();
 
         try {
-            // Find applicable rating rules
-            List<RatingRuleEntity> rules = ratingRuleRepository.findMatchingRules(
-                    usageRecord.getUsageType(),
-                    usageRecord.getDestinationType(),
-                    usageRecord.getRatePeriod(),
-                    usageRecord.getUsageDate()
-            );
-
-            if (rules.isEmpty()) {
-                throw new RuntimeException("No rating rule found for usage: " + usageRecord.getId());
-            }
-
-            // Use first matching rule (in production, would need more sophisticated logic)
-            RatingRuleEntity rule = rules.get(0);
+            applyRating(usageRecord, ratingRuleIndexProvider.current());
             businessMetrics.incrementRatingRuleMatched();
 
-            // Calculate charge
-            BigDecimal chargeAmount = calculateCharge(
-                    usageRecord.getUsageAmount(),
-                    rule.getUnitRate(),
-                    rule.getMinimumUnits()
-            );
-
-            // Apply to usage record
-            usageRecord.setUnitRate(rule.getUnitRate());
-            usageRecord.setChargeAmount(chargeAmount);
-            usageRecord.setCurrency(rule.getCurrency());
-            usageRecord.setRated(true);
-            usageRecord.setRatingDate(LocalDate.now());
-
-            // Calculate totals
-            usageRecord.calculateTotals();
-
             UsageRecordEntity saved = usageRecordRepository.save(usageRecord);
 
             businessMetrics.recordUsageRating(sample);
@@ -81,6 +55,66 @@ public class RatingEngine {
         }
     }
 
+    /**
+     * Rate a usage record in memory against a compiled rule index, without persisting it
+     */
+    public UsageRecordEntity applyRating(UsageRecordEntity usageRecord, RatingRuleIndex index) {
+        long usageEpochDay = usageRecord.getUsageDate().toEpochDay();
+        if (usageRecord.getRatePeriod() == null && usageRecord.getUsageTime() != null) {
+            usageRecord.setRatePeriod(tariffEngine.classify(usageEpochDay, usageRecord.getUsageTime().toSecondOfDay()));
+        }
+
+        // Most specific rule effective on the usage date
+        CompiledRatingRule rule = index.findRule(
+                usageRecord.getUsageType(),
+                usageRecord.getDestinationType(),
+                usageRecord.getRatePeriod(),
+                usageEpochDay
+        );
+
+        if (rule == null) {
+            throw new RuntimeException("No rating rule found for usage: " + usageRecord.getId());
+        }
+
+        // Calculate charge, drawing on the subscription's counters for tiered and volume rules
+        UUID subscriptionId = usageRecord.getSubscription() != null ? usageRecord.getSubscription().getId() : null;
+        long chargeMicros = tariffEngine.charge(rule, subscriptionId, usageEpochDay,
+                MicroUnits.of(usageRecord.getUsageAmount(), RoundingMode.HALF_UP));
+
+        // Apply to usage record
+        usageRecord.setUnitRate(rule.unitRate());
+        usageRecord.setChargeAmount(MicroUnits.toBigDecimal(chargeMicros, MicroUnits.MONEY_SCALE));
+        usageRecord.setCurrency(rule.currency());
+        usageRecord.setRated(true);
+        usageRecord.setRatingDate(LocalDate.now());
+
+        // Calculate totals
+        usageRecord.calculateTotals();
+
+        return usageRecord;
+    }
+
+    /**
+     * Rate raw usage values against a compiled rule index, or return null if no rule applies.
+     * Works on {@link MicroUnits} end to end; the only allocation is the returned charge.
+     * A null rate period is derived from the usage time of day.
+     */
+    public UsageCharge rate(UsageType usageType, DestinationType destinationType, RatePeriod ratePeriod,
+                            UUID subscriptionId, long usageEpochDay, int usageSecondOfDay,
+                            long usageAmountMicros, long taxRateMicros, RatingRuleIndex index) {
+        if (usageType == null) {
+            return null;
+        }
+        RatePeriod period = ratePeriod != null ? ratePeriod : tariffEngine.classify(usageEpochDay, usageSecondOfDay);
+        CompiledRatingRule rule = index.findRule(usageType, destinationType, period, usageEpochDay);
+        if (rule == null) {
+            return null;
+        }
+
+        long chargeMicros = tariffEngine.charge(rule, subscriptionId, usageEpochDay, usageAmountMicros);
+        return UsageCharge.of(rule, period, chargeMicros, taxRateMicros);
+    }
+
     /**
      * Rate all unrated usage records
      */
@@ -106,15 +140,11 @@ public class RatingEngine {
     }
 
     /**
-     * Calculate charge amount based on usage and rate
+     * Calculate the flat charge for usage under a rule: billable units (at least the rule minimum)
+     * times the unit rate, rounded half up to money scale
      */
-    private BigDecimal calculateCharge(BigDecimal usageAmount, BigDecimal unitRate, Long minimumUnits) {
-        BigDecimal units = new BigDecimal(usageAmount.toString());
-        BigDecimal minUnits = new BigDecimal(minimumUnits);
-
-        // Use minimum units if usage is less
-        BigDecimal billableUnits = units.compareTo(minUnits) < 0 ? minUnits : units;
-
-        return billableUnits.multiply(unitRate);
+    public static long calculateCharge(long usageAmountMicros, CompiledRatingRule rule) {
+        long billableMicros = Math.max(usageAmountMicros, rule.minimumUnitsMicros());
+        return MicroUnits.multiply(billableMicros, rule.unitRateMicros(), MicroUnits.MONEY_SCALE, RoundingMode.HALF_UP);
     }
 }
@@ -0,0 +1,87 @@
+package com.droid.bss.application.command.billing;
+
+import com.droid.bss.domain.billing.RatingRuleIndex;
+import com.droid.bss.domain.billing.RatingRuleRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link RatingRuleIndex} and swaps in a freshly compiled one
+ * whenever the rating_rules table changes.
+ *
+ * Readers never lock: {@link #current()} is a single volatile read of a copy-on-write reference.
+ * Changes are detected with a cheap fingerprint query, so edits made by other replicas
+ * or directly in the database are picked up within one refresh interval.
+ */
+@Component
+@Slf4j
+public class RatingRuleIndexProvider {
+
+    private final RatingRuleRepository ratingRuleRepository;
+    private final AtomicReference<RatingRuleIndex> index = new AtomicReference<>();
+    private final Object rebuildLock = new Object();
+
+    private volatile String fingerprint;
+    private long buildVersion;
+
+    public RatingRuleIndexProvider(RatingRuleRepository ratingRuleRepository) {
+        this.ratingRuleRepository = ratingRuleRepository;
+    }
+
+    /**
+     * Current compiled index; compiled on first use if the application has not warmed it yet
+     */
+    public RatingRuleIndex current() {
+        RatingRuleIndex current = index.get();
+        if (current == null) {
+            rebuild();
+            current = index.get();
+        }
+        return current;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild the index if the rating_rules fingerprint has changed
+     */
+    @Scheduled(fixedDelayString = "${bss.billing.rating.index-refresh-interval-ms:30000}")
+    public void refreshIfChanged() {
+        try {
+            String latest = ratingRuleRepository.computeChangeFingerprint();
+            if (!Objects.equals(latest, fingerprint)) {
+                rebuild();
+            }
+        } catch (Exception e) {
+            // Keep serving the last good index
+            log.warn("Failed to check rating rules for changes: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Compile a new index from the database and atomically swap it in
+     */
+    @Transactional(readOnly = true)
+    public RatingRuleIndex rebuild() {
+        synchronized (rebuildLock) {
+            String latestFingerprint = ratingRuleRepository.computeChangeFingerprint();
+            RatingRuleIndex compiled = RatingRuleIndex.compile(ratingRuleRepository.findAllActive(), ++buildVersion);
+
+            index.set(compiled);
+            fingerprint = latestFingerprint;
+
+            log.info("Compiled rating rule index v{} with {} active rules", compiled.getVersion(), compiled.getRuleCount());
+            return compiled;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.droid.bss.application.command.billing;
+
+import com.droid.bss.domain.billing.*;
+import com.droid.bss.infrastructure.billing.BillingRunCheckpointRepository;
+import com.droid.bss.infrastructure.metrics.BusinessMetrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streaming, partitioned billing run for large cycles.
+ *
+ * Unlike {@link ProcessBillingCycleUseCase}, usage is never loaded as a whole. The cycle is split into
+ * customer-hash partitions, each billed by a {@link BillingPartitionWorker} with its own keyset cursor
+ * and checkpoint. Partitions are claimed from billing_run_checkpoints with SKIP LOCKED leases and run
+ * on the bounded {@code billingRunExecutor}, so one replica bills several partitions in parallel and
+ * other replicas join through {@link #joinPendingRuns()}. An expired lease hands a partition over to
+ * whichever replica claims it next.
+ *
+ * When the last partition completes, the partition totals are reconciled into the
+ * {@link BillingCycleEntity} and the cycle is marked processed.
+ */
+@Service
+@Slf4j
+public class StreamingBillingRunUseCase {
+
+    private final BillingCycleRepository billingCycleRepository;
+    private final BillingRunCheckpointRepository checkpointRepository;
+    private final BillingPartitionWorker partitionWorker;
+    private final RatingRuleIndexProvider ratingRuleIndexProvider;
+    private final BusinessMetrics businessMetrics;
+    private final ThreadPoolTaskExecutor billingRunExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final int defaultPartitions;
+    private final int parallelism;
+    private final long leaseSeconds;
+    private final int maxAttempts;
+    private final String replicaId = resolveReplicaId();
+    private final Set<UUID> activeCycles = ConcurrentHashMap.newKeySet();
+
+    public StreamingBillingRunUseCase(
+            BillingCycleRepository billingCycleRepository,
+            BillingRunCheckpointRepository checkpointRepository,
+            BillingPartitionWorker partitionWorker,
+            RatingRuleIndexProvider ratingRuleIndexProvider,
+            BusinessMetrics businessMetrics,
+            @Qualifier("billingRunExecutor") ThreadPoolTaskExecutor billingRunExecutor,
+            PlatformTransactionManager transactionManager,
+            @Value("${bss.billing.run.partitions:8}") int defaultPartitions,
+            @Value("${bss.billing.run.parallelism:4}") int parallelism,
+            @Value("${bss.billing.run.lease-duration-seconds:120}") long leaseSeconds,
+            @Value("${bss.billing.run.max-attempts:3}") int maxAttempts) {
+        this.billingCycleRepository = billingCycleRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.partitionWorker = partitionWorker;
+        this.ratingRuleIndexProvider = ratingRuleIndexProvider;
+        this.businessMetrics = businessMetrics;
+        this.billingRunExecutor = billingRunExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.defaultPartitions = Math.max(1, defaultPartitions);
+        this.parallelism = Math.max(1, parallelism);
+        this.leaseSeconds = leaseSeconds;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Run (or resume) the billing cycle with the configured number of partitions
+     */
+    public BillingCycleEntity handle(String billingCycleId) {
+        return handle(billingCycleId, null);
+    }
+
+    /**
+     * Run (or resume) the billing cycle.
+     *
+     * Blocks until this replica has no partition left to claim. If other replicas still hold
+     * partitions, the cycle is returned unprocessed and reconciled by whichever replica finishes last.
+     *
+     * @param partitions number of partitions for a new run; ignored when resuming an existing run
+     */
+    public BillingCycleEntity handle(String billingCycleId, Integer partitions) {
+        Timer.Sample sample = businessMetrics.startBillingCycleProcessing();
+        int partitionCount = partitions != null ? Math.max(1, partitions) : defaultPartitions;
+
+        BillingCycleEntity billingCycle = transactionTemplate.execute(status -> begin(billingCycleId, partitionCount));
+        UUID cycleId = billingCycle.getId();
+
+        if (!activeCycles.add(cycleId)) {
+            throw new IllegalStateException("Billing cycle is already running on this instance: " + billingCycleId);
+        }
+        try {
+            drain(billingCycle).join();
+        } catch (CompletionException e) {
+            businessMetrics.recordBillingCycleProcessing(sample);
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        } finally {
+            activeCycles.remove(cycleId);
+        }
+
+        BillingRunSummary summary = checkpointRepository.summarize(cycleId, maxAttempts);
+        if (summary.exhaustedPartitions() > 0) {
+            businessMetrics.recordBillingCycleProcessing(sample);
+            throw new IllegalStateException("Billing cycle " + billingCycleId + " has " + summary.exhaustedPartitions()
+                    + " of " + summary.partitions() + " partitions failed after " + maxAttempts + " attempts");
+        }
+
+        BillingCycleEntity result = reconcileIfComplete(billingCycleId, summary);
+        businessMetrics.recordBillingCycleProcessing(sample);
+        return result;
+    }
+
+    /**
+     * Pick up partitions of runs started elsewhere, or of runs abandoned by a crashed replica
+     */
+    @Scheduled(fixedDelayString = "${bss.billing.run.partition-poll-interval-ms:15000}")
+    public void joinPendingRuns() {
+        List<UUID> cycleIds;
+        try {
+            cycleIds = checkpointRepository.findCyclesWithClaimablePartitions(maxAttempts);
+        } catch (RuntimeException e) {
+            log.warn("Failed to look for pending billing run partitions: {}", e.getMessage());
+            return;
+        }
+
+        for (UUID cycleId : cycleIds) {
+            if (!activeCycles.add(cycleId)) {
+                continue;
+            }
+            Optional<BillingCycleEntity> billingCycle = billingCycleRepository.findById(cycleId.toString())
+                    .filter(cycle -> !cycle.isProcessed());
+            if (billingCycle.isEmpty()) {
+                activeCycles.remove(cycleId);
+                continue;
+            }
+
+            log.info("Joining billing run of cycle {}", cycleId);
+            drain(billingCycle.get()).whenComplete((ignored, error) -> {
+                activeCycles.remove(cycleId);
+                if (error != null) {
+                    log.error("Billing run of cycle {} failed on this instance: {}", cycleId, error.getMessage());
+                    return;
+                }
+                reconcileIfComplete(cycleId.toString(), checkpointRepository.summarize(cycleId, maxAttempts));
+            });
+        }
+    }
+
+    private BillingCycleEntity begin(String billingCycleId, int partitionCount) {
+        BillingCycleEntity billingCycle = billingCycleRepository.findById(billingCycleId)
+                .orElseThrow(() -> new RuntimeException("Billing cycle not found: " + billingCycleId));
+
+        if (billingCycle.isProcessed()) {
+            throw new IllegalStateException("Billing cycle is already processed: " + billingCycleId);
+        }
+
+        if (billingCycle.isPending()) {
+            billingCycle.setStatus(BillingCycleStatus.GENERATED);
+            billingCycle.setGeneratedAt(LocalDateTime.now());
+            billingCycle = billingCycleRepository.save(billingCycle);
+        }
+
+        List<BillingRunCheckpoint> existing = checkpointRepository.findByBillingCycleId(billingCycle.getId());
+        if (existing.isEmpty()) {
+            checkpointRepository.createPartitions(billingCycle.getId(), partitionCount);
+        } else {
+            // Partitioning is fixed for the lifetime of a run; an explicit re-run retries exhausted partitions
+            int retried = checkpointRepository.resetFailedAttempts(billingCycle.getId());
+            log.info("Resuming billing cycle {} with {} partitions ({} failed partitions retried)",
+                    billingCycleId, existing.get(0).partitionCount(), retried);
+        }
+
+        return billingCycle;
+    }
+
+    /**
+     * Run up to {@code parallelism} claim loops for the cycle on the billing run executor
+     */
+    private CompletableFuture<Void> drain(BillingCycleEntity billingCycle) {
+        RatingRuleIndex index = ratingRuleIndexProvider.current();
+        List<CompletableFuture<Void>> loops = new ArrayList<>(parallelism);
+        try {
+            for (int i = 0; i < parallelism; i++) {
+                loops.add(CompletableFuture.runAsync(() -> claimLoop(billingCycle, index), billingRunExecutor));
+            }
+        } catch (TaskRejectedException e) {
+            log.warn("Billing run executor saturated, running cycle {} with {} workers", billingCycle.getId(), loops.size());
+            if (loops.isEmpty()) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return CompletableFuture.allOf(loops.toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Claim and bill partitions until none is left for this replica
+     */
+    private void claimLoop(BillingCycleEntity billingCycle, RatingRuleIndex index) {
+        UUID cycleId = billingCycle.getId();
+        String owner = replicaId + "/" + Thread.currentThread().getName();
+
+        Optional<BillingRunCheckpoint> claimed;
+        while ((claimed = checkpointRepository.claimNext(cycleId, owner, leaseSeconds, maxAttempts)).isPresent()) {
+            BillingRunCheckpoint partition = claimed.get();
+            try {
+                partitionWorker.run(billingCycle, partition, owner, index);
+            } catch (RuntimeException e) {
+                log.error("Billing cycle {} partition {}/{} failed: {}",
+                        cycleId, partition.partitionNo(), partition.partitionCount(), e.getMessage(), e);
+                checkpointRepository.markFailed(cycleId, partition.partitionNo(), owner);
+            }
+        }
+    }
+
+    /**
+     * Copy the partition totals into the billing cycle once every partition has completed
+     */
+    private BillingCycleEntity reconcileIfComplete(String billingCycleId, BillingRunSummary summary) {
+        if (!summary.isComplete()) {
+            log.info("Billing cycle {}: {} of {} partitions completed, waiting for other instances",
+                    billingCycleId, summary.completedPartitions(), summary.partitions());
+            return billingCycleRepository.findById(billingCycleId).orElse(null);
+        }
+
+        try {
+            return transactionTemplate.execute(status -> {
+                BillingCycleEntity billingCycle = billingCycleRepository.findById(billingCycleId)
+                        .orElseThrow(() -> new RuntimeException("Billing cycle not found: " + billingCycleId));
+                if (billingCycle.isProcessed()) {
+                    return billingCycle;
+                }
+
+                billingCycle.setTotalAmount(summary.netAmount());
+                billingCycle.setTaxAmount(summary.taxAmount());
+                billingCycle.setTotalWithTax(summary.netAmount().add(summary.taxAmount()));
+                billingCycle.setInvoiceCount(summary.invoicesCreated());
+                billingCycle.setStatus(BillingCycleStatus.PROCESSED);
+                billingCycle.setProcessedAt(LocalDateTime.now());
+                BillingCycleEntity processed = billingCycleRepository.save(billingCycle);
+
+                businessMetrics.incrementBillingCycleProcessed();
+                log.info("Billing cycle {} processed in {} partitions: {} records, {} failed, {} invoices",
+                        billingCycleId, summary.partitions(), summary.recordsProcessed(),
+                        summary.recordsFailed(), summary.invoicesCreated());
+                return processed;
+            });
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // Another instance reconciled the cycle concurrently
+            return billingCycleRepository.findById(billingCycleId).orElse(null);
+        }
+    }
+
+    private static String resolveReplicaId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
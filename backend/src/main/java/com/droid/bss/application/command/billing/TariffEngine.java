@@ -0,0 +1,54 @@
+package com.droid.bss.application.command.billing;
+
+import com.droid.bss.domain.billing.CompiledRatingRule;
+import com.droid.bss.domain.billing.CompiledTariff;
+import com.droid.bss.domain.billing.RatePeriod;
+import com.droid.bss.domain.billing.RatePeriodClassifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Applies time-of-day classification and volume-dependent tariffs (tiers, allowances, bundles)
+ * on top of rule lookup.
+ *
+ * Flat rules are priced without touching counters. Tiered and volume rules draw on the
+ * subscription's {@link UsageCounterStore} counter for the usage month.
+ */
+@Component
+public class TariffEngine {
+
+    private final UsageCounterStore usageCounterStore;
+    private final RatePeriodClassifier ratePeriodClassifier;
+
+    public TariffEngine(
+            UsageCounterStore usageCounterStore,
+            @Value("${bss.billing.tariff.peak-start-hour:8}") int peakStartHour,
+            @Value("${bss.billing.tariff.peak-end-hour:20}") int peakEndHour) {
+        this.usageCounterStore = usageCounterStore;
+        this.ratePeriodClassifier = RatePeriodClassifier.ofHours(peakStartHour, peakEndHour);
+    }
+
+    /**
+     * Rate period of usage that was recorded without one
+     */
+    public RatePeriod classify(long usageEpochDay, int usageSecondOfDay) {
+        return ratePeriodClassifier.classify(usageEpochDay, usageSecondOfDay);
+    }
+
+    /**
+     * Charge for usage under a rule, rounded half up to money scale.
+     * Usage without a subscription cannot be counted and is priced at the rule's flat rate.
+     */
+    public long charge(CompiledRatingRule rule, UUID subscriptionId, long usageEpochDay, long usageAmountMicros) {
+        CompiledTariff tariff = rule.tariff();
+        if (tariff == null || subscriptionId == null) {
+            return RatingEngine.calculateCharge(usageAmountMicros, rule);
+        }
+
+        long billableMicros = Math.max(usageAmountMicros, rule.minimumUnitsMicros());
+        long consumedBefore = usageCounterStore.consume(subscriptionId, tariff.counterKey(), usageEpochDay, billableMicros);
+        return tariff.charge(consumedBefore, billableMicros, rule.unitRateMicros());
+    }
+}
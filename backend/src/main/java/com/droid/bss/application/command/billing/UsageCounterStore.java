@@ -0,0 +1,287 @@
+package com.droid.bss.application.command.billing;
+
+import com.droid.bss.infrastructure.billing.UsageCounterRepository;
+import com.droid.bss.infrastructure.billing.UsageCounterRepository.CounterDelta;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * In-memory per-subscription usage counters for volume-dependent tariffs.
+ *
+ * A counter holds what a subscription has consumed on one counter key (rule code or bundle code)
+ * in one calendar month. It is loaded from usage_counters on first use and then updated in memory
+ * only, so tier positions and allowances are applied incrementally instead of re-aggregating usage
+ * for every record. Consumption inside a transaction is undone if the transaction rolls back and
+ * becomes flushable only once it commits; committed deltas are added to usage_counters periodically.
+ * Consumption can instead be captured with {@link #capture}, so that it is persisted together with
+ * the write that charges it (online charging writes it with the balance journal entry).
+ *
+ * A subscription is expected to be rated by one instance at a time (billing partitions are leased
+ * per customer). Idle counters are evicted, so another instance picks up the persisted value after
+ * at most one flush and eviction interval.
+ */
+@Component
+@Slf4j
+public class UsageCounterStore {
+
+    private final UsageCounterRepository usageCounterRepository;
+    private final long idleEvictionMillis;
+    private final Map<CounterKey, UsageCounter> counters = new ConcurrentHashMap<>();
+    private final ThreadLocal<Consumption> captured = new ThreadLocal<>();
+
+    public UsageCounterStore(
+            UsageCounterRepository usageCounterRepository,
+            @Value("${bss.billing.tariff.counter-idle-eviction-ms:600000}") long idleEvictionMillis) {
+        this.usageCounterRepository = usageCounterRepository;
+        this.idleEvictionMillis = idleEvictionMillis;
+    }
+
+    /**
+     * Add usage to a counter
+     *
+     * @return units consumed on the counter in the period before this usage, in micro-units
+     */
+    public long consume(UUID subscriptionId, String counterKey, long usageEpochDay, long unitsMicros) {
+        CounterKey key = new CounterKey(subscriptionId, counterKey, periodStart(usageEpochDay));
+        while (true) {
+            UsageCounter counter = counters.get(key);
+            if (counter == null) {
+                counter = load(key);
+            }
+            Consumption capture = captured.get();
+            boolean deferred = capture != null || TransactionSynchronizationManager.isSynchronizationActive();
+            long consumedBefore;
+            synchronized (counter) {
+                if (counter.evicted) {
+                    continue;
+                }
+                consumedBefore = counter.total;
+                counter.total += unitsMicros;
+                counter.lastUsedMillis = System.currentTimeMillis();
+                if (deferred) {
+                    counter.inFlight++;
+                } else {
+                    counter.unflushed += unitsMicros;
+                }
+            }
+            if (capture != null) {
+                capture.add(key, counter, unitsMicros);
+            } else if (deferred) {
+                pendingConsumption().add(key, counter, unitsMicros);
+            }
+            return consumedBefore;
+        }
+    }
+
+    /**
+     * Run rating and capture the counter consumption it makes instead of flushing it.
+     *
+     * The caller persists {@link Consumption#deltas()} in the transaction that records the charge and
+     * then calls {@link Consumption#complete(boolean)} with its outcome. Consumption is undone if
+     * rating fails.
+     */
+    public <T> Captured<T> capture(Supplier<T> rating) {
+        Consumption consumption = new Consumption();
+        Consumption outer = captured.get();
+        captured.set(consumption);
+        try {
+            return new Captured<>(rating.get(), consumption);
+        } catch (RuntimeException e) {
+            consumption.complete(false);
+            throw e;
+        } finally {
+            if (outer != null) {
+                captured.set(outer);
+            } else {
+                captured.remove();
+            }
+        }
+    }
+
+    /**
+     * Persist committed consumption and evict idle counters
+     */
+    @Scheduled(fixedDelayString = "${bss.billing.tariff.counter-flush-interval-ms:5000}")
+    public void flush() {
+        long idleBefore = System.currentTimeMillis() - idleEvictionMillis;
+        List<CounterDelta> deltas = new ArrayList<>();
+        List<UsageCounter> flushed = new ArrayList<>();
+
+        for (Map.Entry<CounterKey, UsageCounter> entry : counters.entrySet()) {
+            CounterKey key = entry.getKey();
+            UsageCounter counter = entry.getValue();
+            synchronized (counter) {
+                if (counter.unflushed != 0) {
+                    deltas.add(new CounterDelta(key.subscriptionId(), key.counterKey(),
+                            LocalDate.ofEpochDay(key.periodStartEpochDay()), counter.unflushed));
+                    flushed.add(counter);
+                    counter.unflushed = 0;
+                } else if (counter.inFlight == 0 && counter.lastUsedMillis < idleBefore) {
+                    counter.evicted = true;
+                    counters.remove(key, counter);
+                }
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        try {
+            usageCounterRepository.addConsumed(deltas);
+            log.debug("Flushed {} usage counters", deltas.size());
+        } catch (RuntimeException e) {
+            // Keep the deltas for the next flush
+            for (int i = 0; i < flushed.size(); i++) {
+                UsageCounter counter = flushed.get(i);
+                synchronized (counter) {
+                    counter.unflushed += deltas.get(i).unitsMicros();
+                }
+            }
+            log.warn("Failed to flush {} usage counters: {}", deltas.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * First day of the calendar month of the usage date, as an epoch day
+     */
+    static long periodStart(long usageEpochDay) {
+        return LocalDate.ofEpochDay(usageEpochDay).withDayOfMonth(1).toEpochDay();
+    }
+
+    private UsageCounter load(CounterKey key) {
+        // Loaded outside the map so a slow query does not block other counters
+        long persisted = usageCounterRepository.findConsumedMicros(key.subscriptionId(), key.counterKey(),
+                LocalDate.ofEpochDay(key.periodStartEpochDay()));
+        UsageCounter loaded = new UsageCounter(persisted);
+        UsageCounter existing = counters.putIfAbsent(key, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private PendingConsumption pendingConsumption() {
+        PendingConsumption pending = (PendingConsumption) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingConsumption();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        return pending;
+    }
+
+    record CounterKey(UUID subscriptionId, String counterKey, long periodStartEpochDay) {
+    }
+
+    private static final class UsageCounter {
+        private long total;
+        private long unflushed;
+        private int inFlight;
+        private long lastUsedMillis;
+        private boolean evicted;
+
+        private UsageCounter(long total) {
+            this.total = total;
+            this.lastUsedMillis = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Result of rating together with the counter consumption it captured
+     */
+    public record Captured<T>(T result, Consumption consumption) {
+    }
+
+    /**
+     * Counter consumption not yet persisted, summed per counter
+     */
+    public class Consumption {
+
+        private final Map<UsageCounter, Delta> deltas = new LinkedHashMap<>();
+        private boolean completed;
+
+        void add(CounterKey key, UsageCounter counter, long unitsMicros) {
+            Delta delta = deltas.computeIfAbsent(counter, c -> new Delta(key));
+            delta.unitsMicros += unitsMicros;
+            delta.count++;
+        }
+
+        /**
+         * Deltas to add to usage_counters in the transaction that records the charge
+         */
+        public List<CounterDelta> deltas() {
+            List<CounterDelta> counterDeltas = new ArrayList<>(deltas.size());
+            for (Delta delta : deltas.values()) {
+                counterDeltas.add(new CounterDelta(delta.key.subscriptionId(), delta.key.counterKey(),
+                        LocalDate.ofEpochDay(delta.key.periodStartEpochDay()), delta.unitsMicros));
+            }
+            return counterDeltas;
+        }
+
+        /**
+         * Settle captured consumption once the transaction that persisted {@link #deltas()} has ended
+         *
+         * @param persisted whether that transaction committed; otherwise the consumption is undone
+         */
+        public void complete(boolean persisted) {
+            settle(persisted, false);
+        }
+
+        void settle(boolean committed, boolean flushLater) {
+            synchronized (this) {
+                if (completed) {
+                    return;
+                }
+                completed = true;
+            }
+            deltas.forEach((counter, delta) -> {
+                synchronized (counter) {
+                    counter.inFlight -= delta.count;
+                    if (!committed) {
+                        counter.total -= delta.unitsMicros;
+                    } else if (flushLater) {
+                        counter.unflushed += delta.unitsMicros;
+                    }
+                }
+            });
+        }
+    }
+
+    private static final class Delta {
+        private final CounterKey key;
+        private long unitsMicros;
+        private int count;
+
+        private Delta(CounterKey key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Consumption of the current transaction, flushed periodically once the transaction commits
+     */
+    private final class PendingConsumption extends Consumption implements TransactionSynchronization {
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(UsageCounterStore.this);
+            settle(status == STATUS_COMMITTED, true);
+        }
+    }
+}
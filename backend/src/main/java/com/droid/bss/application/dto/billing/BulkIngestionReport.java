@@ -0,0 +1,48 @@
+package com.droid.bss.application.dto.billing;
+
+import java.util.List;
+
+/**
+ * Result of a bulk CDR ingestion.
+ *
+ * Every batch is validated and copied independently; a rejected record or a failed batch
+ * never fails the rest of the file.
+ */
+public record BulkIngestionReport(
+        String sourceFile,
+        CdrFormat format,
+        long recordsRead,
+        long recordsAccepted,
+        long recordsRejected,
+        long durationMillis,
+        List<BatchReport> batches
+) {
+
+    public boolean hasErrors() {
+        return recordsRejected > 0;
+    }
+
+    /**
+     * Outcome of one batch; only batches with rejected records are reported
+     */
+    public record BatchReport(
+            int batchNo,
+            long firstPosition,
+            long lastPosition,
+            int accepted,
+            int rejected,
+            String failure,
+            List<RecordError> errors
+    ) {
+    }
+
+    /**
+     * A rejected record, identified by line (CSV) or record number (ASN.1)
+     */
+    public record RecordError(
+            long position,
+            String subscriptionId,
+            String reason
+    ) {
+    }
+}
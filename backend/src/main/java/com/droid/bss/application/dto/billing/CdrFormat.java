@@ -0,0 +1,16 @@
+package com.droid.bss.application.dto.billing;
+
+/**
+ * Encoding of a bulk CDR file
+ */
+public enum CdrFormat {
+    /**
+     * Comma separated, one CDR per line, columns in {@link IngestUsageRecordCommand} order
+     */
+    CSV,
+
+    /**
+     * Concatenated BER-encoded CDR SEQUENCEs as produced by mediation
+     */
+    ASN1_BER
+}
@@ -0,0 +1,24 @@
+package com.droid.bss.application.dto.billing;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Response to an online charging request.
+ *
+ * {@code grantedUnits}, {@code reservedAmount} and {@code expiresAt} are set for reservations,
+ * {@code chargedAmount} for commits; {@code availableBalance} is the balance left after the request
+ * net of all open reservations.
+ */
+public record ChargingResult(
+        String sessionId,
+        String subscriptionId,
+        ChargingStatus status,
+        BigDecimal grantedUnits,
+        BigDecimal reservedAmount,
+        BigDecimal chargedAmount,
+        BigDecimal availableBalance,
+        String currency,
+        Instant expiresAt
+) {
+}
@@ -0,0 +1,17 @@
+package com.droid.bss.application.dto.billing;
+
+/**
+ * Outcome of an online charging request
+ */
+public enum ChargingStatus {
+    GRANTED,
+    PARTIALLY_GRANTED,
+    INSUFFICIENT_BALANCE,
+    NO_RATING_RULE,
+    COMMITTED,
+    RELEASED,
+    UNKNOWN_SESSION,
+    TOPPED_UP,
+    CURRENCY_MISMATCH,
+    BALANCE
+}
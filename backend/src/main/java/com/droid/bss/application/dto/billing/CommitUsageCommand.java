@@ -0,0 +1,24 @@
+package com.droid.bss.application.dto.billing;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.math.BigDecimal;
+
+/**
+ * Command to debit the units used in a charging session and end its reservation.
+ * The usage type and destination are only needed if the reservation has already expired.
+ */
+public record CommitUsageCommand(
+        @NotNull
+        String sessionId,
+
+        @NotNull
+        String subscriptionId,
+
+        @NotNull
+        BigDecimal usedUnits,
+
+        String usageType,
+        String destinationType
+) {
+}
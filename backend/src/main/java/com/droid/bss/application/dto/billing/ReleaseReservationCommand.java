@@ -0,0 +1,15 @@
+package com.droid.bss.application.dto.billing;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Command to end a charging session without usage and return its reservation to the balance
+ */
+public record ReleaseReservationCommand(
+        @NotNull
+        String sessionId,
+
+        @NotNull
+        String subscriptionId
+) {
+}
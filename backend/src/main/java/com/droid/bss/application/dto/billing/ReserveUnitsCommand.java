@@ -0,0 +1,28 @@
+package com.droid.bss.application.dto.billing;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.math.BigDecimal;
+
+/**
+ * Command to reserve units against a prepaid balance at the start of a charging session.
+ * The currency defaults to the currency of the rating rule.
+ */
+public record ReserveUnitsCommand(
+        @NotNull
+        String sessionId,
+
+        @NotNull
+        String subscriptionId,
+
+        @NotNull
+        String usageType,
+
+        String destinationType,
+
+        @NotNull
+        BigDecimal requestedUnits,
+
+        String currency
+) {
+}
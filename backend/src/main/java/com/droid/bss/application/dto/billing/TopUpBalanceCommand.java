@@ -0,0 +1,22 @@
+package com.droid.bss.application.dto.billing;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.math.BigDecimal;
+
+/**
+ * Command to credit a prepaid balance
+ */
+public record TopUpBalanceCommand(
+        @NotNull
+        String subscriptionId,
+
+        @NotNull
+        BigDecimal amount,
+
+        @NotNull
+        String currency,
+
+        String reference
+) {
+}
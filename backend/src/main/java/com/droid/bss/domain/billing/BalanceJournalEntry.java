@@ -0,0 +1,63 @@
+package com.droid.bss.domain.billing;
+
+import java.util.UUID;
+
+/**
+ * One change to a prepaid balance, written to the journal before the change is acknowledged.
+ *
+ * {@code amountMicros} is the credited amount for TOPUP, the reserved amount for RESERVE and the
+ * debited amount for COMMIT, in {@link MicroUnits} at money scale. Rating attributes are only set
+ * on RESERVE entries, so a reservation can be rebuilt and committed after a restart.
+ */
+public record BalanceJournalEntry(
+        long seq,
+        UUID subscriptionId,
+        String sessionId,
+        BalanceJournalEntryType type,
+        long amountMicros,
+        long unitsMicros,
+        String currency,
+        UsageType usageType,
+        DestinationType destinationType,
+        RatePeriod ratePeriod,
+        long expiresAtMillis
+) {
+
+    /**
+     * Sequence of entries not yet written
+     */
+    public static final long UNASSIGNED = 0L;
+
+    public static BalanceJournalEntry topUp(UUID subscriptionId, String reference, long amountMicros, String currency) {
+        return new BalanceJournalEntry(UNASSIGNED, subscriptionId, reference, BalanceJournalEntryType.TOPUP,
+                amountMicros, 0L, currency, null, null, null, 0L);
+    }
+
+    public static BalanceJournalEntry reserve(UUID subscriptionId, String sessionId, long amountMicros, long unitsMicros,
+                                              UsageType usageType, DestinationType destinationType,
+                                              RatePeriod ratePeriod, long expiresAtMillis) {
+        return new BalanceJournalEntry(UNASSIGNED, subscriptionId, sessionId, BalanceJournalEntryType.RESERVE,
+                amountMicros, unitsMicros, null, usageType, destinationType, ratePeriod, expiresAtMillis);
+    }
+
+    public static BalanceJournalEntry commit(UUID subscriptionId, String sessionId, long amountMicros, long unitsMicros) {
+        return new BalanceJournalEntry(UNASSIGNED, subscriptionId, sessionId, BalanceJournalEntryType.COMMIT,
+                amountMicros, unitsMicros, null, null, null, null, 0L);
+    }
+
+    public static BalanceJournalEntry release(UUID subscriptionId, String sessionId) {
+        return new BalanceJournalEntry(UNASSIGNED, subscriptionId, sessionId, BalanceJournalEntryType.RELEASE,
+                0L, 0L, null, null, null, null, 0L);
+    }
+
+    /**
+     * Change of the committed balance caused by this entry; reservations do not change it
+     */
+    public long balanceDeltaMicros() {
+        return switch (type) {
+            case TOPUP -> amountMicros;
+            case COMMIT -> -amountMicros;
+            case RESERVE, RELEASE -> 0L;
+        };
+    }
+}
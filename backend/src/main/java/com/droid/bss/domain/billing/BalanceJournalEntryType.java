@@ -0,0 +1,21 @@
+package com.droid.bss.domain.billing;
+
+/**
+ * Kind of change recorded in the prepaid balance journal
+ */
+public enum BalanceJournalEntryType {
+    TOPUP("Credit added to the balance"),
+    RESERVE("Amount set aside for an online charging session"),
+    COMMIT("Session usage debited from the balance; ends the reservation"),
+    RELEASE("Reservation returned to the balance without a debit");
+
+    private final String description;
+
+    BalanceJournalEntryType(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
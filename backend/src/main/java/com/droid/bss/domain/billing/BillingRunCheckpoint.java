@@ -0,0 +1,50 @@
+package com.droid.bss.domain.billing;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Durable progress marker of one partition of a streaming billing run.
+ *
+ * A cycle is split into {@code partitionCount} customer-hash partitions, each with its own checkpoint.
+ * {@code lastSubscriptionId} is the last subscription whose usage has been fully invoiced;
+ * a resumed partition continues with the next subscription in keyset order. Running totals are
+ * committed in the same transaction as the invoices they describe.
+ */
+public record BillingRunCheckpoint(
+        UUID billingCycleId,
+        int partitionNo,
+        int partitionCount,
+        BillingRunStatus status,
+        UUID lastSubscriptionId,
+        long recordsProcessed,
+        long recordsFailed,
+        int invoicesCreated,
+        BigDecimal netAmount,
+        BigDecimal taxAmount,
+        LocalDateTime startedAt,
+        LocalDateTime completedAt
+) {
+
+    /**
+     * Advance past a fully invoiced subscription
+     */
+    public BillingRunCheckpoint advance(UUID subscriptionId, long records, long failed, boolean invoiceCreated,
+                                        BigDecimal net, BigDecimal tax) {
+        return new BillingRunCheckpoint(billingCycleId, partitionNo, partitionCount, status, subscriptionId,
+                recordsProcessed + records, recordsFailed + failed,
+                invoicesCreated + (invoiceCreated ? 1 : 0),
+                netAmount.add(net), taxAmount.add(tax), startedAt, completedAt);
+    }
+
+    public BillingRunCheckpoint withStatus(BillingRunStatus newStatus) {
+        return new BillingRunCheckpoint(billingCycleId, partitionNo, partitionCount, newStatus, lastSubscriptionId,
+                recordsProcessed, recordsFailed, invoicesCreated, netAmount, taxAmount, startedAt,
+                newStatus == BillingRunStatus.COMPLETED ? LocalDateTime.now() : completedAt);
+    }
+
+    public boolean isCompleted() {
+        return status == BillingRunStatus.COMPLETED;
+    }
+}
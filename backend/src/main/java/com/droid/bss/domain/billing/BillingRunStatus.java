@@ -0,0 +1,21 @@
+package com.droid.bss.domain.billing;
+
+/**
+ * Status of a streaming billing run partition
+ */
+public enum BillingRunStatus {
+    PENDING("Pending - Partition is waiting to be claimed"),
+    RUNNING("Running - Usage is being rated and invoiced"),
+    COMPLETED("Completed - All usage in the partition has been invoiced"),
+    FAILED("Failed - Run stopped and can be resumed from its checkpoint");
+
+    private final String description;
+
+    BillingRunStatus(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
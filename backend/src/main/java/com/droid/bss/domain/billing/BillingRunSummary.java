@@ -0,0 +1,22 @@
+package com.droid.bss.domain.billing;
+
+import java.math.BigDecimal;
+
+/**
+ * Totals of all partitions of a billing run, used to reconcile the billing cycle
+ */
+public record BillingRunSummary(
+        int partitions,
+        int completedPartitions,
+        int exhaustedPartitions,
+        long recordsProcessed,
+        long recordsFailed,
+        int invoicesCreated,
+        BigDecimal netAmount,
+        BigDecimal taxAmount
+) {
+
+    public boolean isComplete() {
+        return partitions > 0 && completedPartitions == partitions;
+    }
+}
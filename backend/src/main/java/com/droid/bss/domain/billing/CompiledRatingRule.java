@@ -0,0 +1,76 @@
+package com.droid.bss.domain.billing;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Immutable snapshot of a rating rule, detached from JPA, used by {@link RatingRuleIndex}.
+ * Effective dates are kept as epoch days and the rate and minimum as {@link MicroUnits}, so the rating
+ * path works on plain longs. {@code tariff} is null for rules priced flat without an allowance.
+ */
+public record CompiledRatingRule(
+        UUID ruleId,
+        String ruleCode,
+        UsageType usageType,
+        DestinationType destinationType,
+        RatePeriod ratePeriod,
+        BigDecimal unitRate,
+        long unitRateMicros,
+        String currency,
+        long minimumUnits,
+        long minimumUnitsMicros,
+        Long maximumUnits,
+        long effectiveFromEpochDay,
+        long effectiveToEpochDay,
+        CompiledTariff tariff
+) {
+
+    /**
+     * Sentinel used for open-ended rules (no effective_to)
+     */
+    public static final long OPEN_END = Long.MAX_VALUE;
+
+    public static CompiledRatingRule from(RatingRuleEntity rule) {
+        long minimumUnits = rule.getMinimumUnits() != null ? rule.getMinimumUnits() : 0L;
+        return new CompiledRatingRule(
+                rule.getId(),
+                rule.getRuleCode(),
+                rule.getUsageType(),
+                rule.getDestinationType(),
+                rule.getRatePeriod(),
+                rule.getUnitRate(),
+                MicroUnits.of(rule.getUnitRate(), RoundingMode.HALF_UP),
+                rule.getCurrency(),
+                minimumUnits,
+                MicroUnits.ofUnits(minimumUnits),
+                rule.getMaximumUnits(),
+                rule.getEffectiveFrom() != null ? rule.getEffectiveFrom().toEpochDay() : Long.MIN_VALUE,
+                rule.getEffectiveTo() != null ? rule.getEffectiveTo().toEpochDay() : OPEN_END,
+                CompiledTariff.from(rule)
+        );
+    }
+
+    public boolean isEffectiveOn(long epochDay) {
+        return epochDay >= effectiveFromEpochDay && epochDay <= effectiveToEpochDay;
+    }
+
+    public boolean isEffectiveOn(LocalDate date) {
+        return date != null && isEffectiveOn(date.toEpochDay());
+    }
+
+    /**
+     * Whether the charge depends on the subscription's usage counter for the period
+     */
+    public boolean isVolumeDependent() {
+        return tariff != null;
+    }
+
+    /**
+     * Number of wildcard dimensions; lower means more specific
+     */
+    int wildcardCount() {
+        return (destinationType == null ? 1 : 0) + (ratePeriod == null ? 1 : 0);
+    }
+}
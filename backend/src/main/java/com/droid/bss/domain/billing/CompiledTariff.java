@@ -0,0 +1,109 @@
+package com.droid.bss.domain.billing;
+
+import java.math.RoundingMode;
+import java.util.List;
+
+/**
+ * Volume-dependent part of a compiled rating rule: included allowance and price tiers.
+ *
+ * Tier boundaries and rates are kept as parallel {@link MicroUnits} arrays sorted by start, so
+ * {@link #charge(long, long, long)} walks them without allocating. Units below the first tier start
+ * are priced at the rule's own unit rate. Positions are measured on the subscription's cumulative
+ * usage in the counter period, including units covered by the allowance.
+ */
+public record CompiledTariff(
+        TariffMode mode,
+        long includedUnitsMicros,
+        String counterKey,
+        long[] tierStartMicros,
+        long[] tierRateMicros
+) {
+
+    /**
+     * Compile the tariff of a rule, or return null if the rule is priced flat without an allowance
+     */
+    public static CompiledTariff from(RatingRuleEntity rule) {
+        if (!rule.isVolumeDependent()) {
+            return null;
+        }
+
+        List<RatingTierEntity> tiers = rule.getTiers().stream()
+                .sorted((a, b) -> a.getFromUnits().compareTo(b.getFromUnits()))
+                .toList();
+        long[] starts = new long[tiers.size()];
+        long[] rates = new long[tiers.size()];
+        for (int i = 0; i < tiers.size(); i++) {
+            starts[i] = MicroUnits.of(tiers.get(i).getFromUnits(), RoundingMode.HALF_UP);
+            rates[i] = MicroUnits.of(tiers.get(i).getUnitRate(), RoundingMode.HALF_UP);
+        }
+
+        // Rules in one bundle share their counter, so the allowance is drawn down across usage types
+        String counterKey = rule.getBundleCode() != null ? rule.getBundleCode() : rule.getRuleCode();
+        return new CompiledTariff(
+                rule.getTariffMode() != null ? rule.getTariffMode() : TariffMode.FLAT,
+                MicroUnits.of(rule.getIncludedUnits(), RoundingMode.HALF_UP),
+                counterKey,
+                starts,
+                rates
+        );
+    }
+
+    /**
+     * Charge for {@code unitsMicros} of usage when the subscription has already consumed
+     * {@code consumedBeforeMicros} in the period, rounded half up to money scale
+     *
+     * @param baseRateMicros unit rate of the rule, used below the first tier and for flat rules
+     */
+    public long charge(long consumedBeforeMicros, long unitsMicros, long baseRateMicros) {
+        long end = consumedBeforeMicros + unitsMicros;
+        // The allowance is consumed first and is free
+        long start = Math.max(consumedBeforeMicros, includedUnitsMicros);
+        if (start >= end) {
+            return 0L;
+        }
+
+        long chargeMicros;
+        if (mode == TariffMode.TIERED) {
+            chargeMicros = graduatedCharge(start, end, baseRateMicros);
+        } else {
+            // FLAT and VOLUME: one rate for the whole record, VOLUME taking the tier its last unit reaches
+            long rate = mode == TariffMode.VOLUME ? rateAt(end - 1, baseRateMicros) : baseRateMicros;
+            chargeMicros = MicroUnits.multiply(end - start, rate, MicroUnits.SCALE, RoundingMode.HALF_UP);
+        }
+        return MicroUnits.round(chargeMicros, MicroUnits.MONEY_SCALE, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Sum of each tier's rate over the part of [start, end) that falls into it
+     */
+    private long graduatedCharge(long start, long end, long baseRateMicros) {
+        long chargeMicros = 0L;
+        long segmentStart = start;
+        int tier = tierAt(start);
+        while (segmentStart < end) {
+            long tierEnd = tier + 1 < tierStartMicros.length ? tierStartMicros[tier + 1] : Long.MAX_VALUE;
+            long segmentEnd = Math.min(end, tierEnd);
+            long rate = tier < 0 ? baseRateMicros : tierRateMicros[tier];
+            chargeMicros += MicroUnits.multiply(segmentEnd - segmentStart, rate, MicroUnits.SCALE, RoundingMode.HALF_UP);
+            segmentStart = segmentEnd;
+            tier++;
+        }
+        return chargeMicros;
+    }
+
+    private long rateAt(long positionMicros, long baseRateMicros) {
+        int tier = tierAt(positionMicros);
+        return tier < 0 ? baseRateMicros : tierRateMicros[tier];
+    }
+
+    /**
+     * Index of the last tier starting at or before the position, or -1 if it is below the first tier
+     */
+    private int tierAt(long positionMicros) {
+        int tier = -1;
+        while (tier + 1 < tierStartMicros.length && tierStartMicros[tier + 1] <= positionMicros) {
+            tier++;
+        }
+        return tier;
+    }
+}
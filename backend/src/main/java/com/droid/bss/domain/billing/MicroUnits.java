@@ -0,0 +1,147 @@
+package com.droid.bss.domain.billing;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point arithmetic on {@code long} values scaled by 10^6 (micro-units).
+ *
+ * Used for quantities, rates and money on the rating hot path so that rating a record does not
+ * allocate. Six decimals cover every numeric column involved in rating (usage_amount scale 3,
+ * unit_rate scale 4, tax_rate and money scale 2) exactly; values are converted from and to
+ * {@link BigDecimal} only where they enter or leave persistence.
+ *
+ * All rounding is explicit. Intermediate products are computed in 64 bits and fall back to
+ * {@link BigDecimal} only if they would overflow, which real CDR values do not reach.
+ */
+public final class MicroUnits {
+
+    public static final int SCALE = 6;
+    public static final long ONE = 1_000_000L;
+
+    /**
+     * Scale of money amounts (charges, taxes, totals)
+     */
+    public static final int MONEY_SCALE = 2;
+
+    private static final long HUNDRED_PERCENT = 100 * ONE;
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L
+    };
+
+    private MicroUnits() {
+    }
+
+    /**
+     * Convert a decimal into micro-units, rounding beyond six decimals with the given mode
+     */
+    public static long of(BigDecimal value, RoundingMode roundingMode) {
+        return value.setScale(SCALE, roundingMode).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Convert a decimal with at most six decimals into micro-units; null is treated as zero
+     */
+    public static long of(BigDecimal value) {
+        return value != null ? of(value, RoundingMode.UNNECESSARY) : 0L;
+    }
+
+    /**
+     * Whole units as micro-units
+     */
+    public static long ofUnits(long units) {
+        return Math.multiplyExact(units, ONE);
+    }
+
+    /**
+     * Convert micro-units to a decimal with the given number of decimals; the value must already be
+     * rounded to that scale
+     */
+    public static BigDecimal toBigDecimal(long micros, int scale) {
+        long divisor = POWERS_OF_TEN[SCALE - scale];
+        if (micros % divisor != 0) {
+            throw new ArithmeticException("Value " + micros + " micro-units is not rounded to scale " + scale);
+        }
+        return BigDecimal.valueOf(micros / divisor, scale);
+    }
+
+    /**
+     * Convert micro-units to a decimal with six decimals
+     */
+    public static BigDecimal toBigDecimal(long micros) {
+        return BigDecimal.valueOf(micros, SCALE);
+    }
+
+    /**
+     * {@code a * b}, rounded to {@code scale} decimals
+     */
+    public static long multiply(long aMicros, long bMicros, int scale, RoundingMode roundingMode) {
+        long step = POWERS_OF_TEN[SCALE - scale];
+        return Math.multiplyExact(mulDiv(aMicros, bMicros, ONE * step, roundingMode), step);
+    }
+
+    /**
+     * {@code amount * percent / 100}, rounded to {@code scale} decimals
+     */
+    public static long percentOf(long amountMicros, long percentMicros, int scale, RoundingMode roundingMode) {
+        long step = POWERS_OF_TEN[SCALE - scale];
+        return Math.multiplyExact(mulDiv(amountMicros, percentMicros, HUNDRED_PERCENT * step, roundingMode), step);
+    }
+
+    /**
+     * {@code dividend / divisor} for a positive divisor, rounded to {@code scale} decimals
+     */
+    public static long quotient(long dividendMicros, long divisorMicros, int scale, RoundingMode roundingMode) {
+        long step = POWERS_OF_TEN[SCALE - scale];
+        return Math.multiplyExact(mulDiv(dividendMicros, ONE, Math.multiplyExact(divisorMicros, step), roundingMode), step);
+    }
+
+    /**
+     * Round micro-units to {@code scale} decimals
+     */
+    public static long round(long micros, int scale, RoundingMode roundingMode) {
+        long step = POWERS_OF_TEN[SCALE - scale];
+        return Math.multiplyExact(divide(micros, step, roundingMode), step);
+    }
+
+    /**
+     * {@code a * b / divisor} with a single rounding of the exact quotient
+     */
+    static long mulDiv(long a, long b, long divisor, RoundingMode roundingMode) {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        if ((high == 0 && low >= 0) || (high == -1 && low < 0)) {
+            return divide(low, divisor, roundingMode);
+        }
+        return BigDecimal.valueOf(a)
+                .multiply(BigDecimal.valueOf(b))
+                .divide(BigDecimal.valueOf(divisor), 0, roundingMode)
+                .longValueExact();
+    }
+
+    /**
+     * {@code dividend / divisor} for a positive divisor, rounded with the given mode
+     */
+    static long divide(long dividend, long divisor, RoundingMode roundingMode) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder == 0) {
+            return quotient;
+        }
+
+        int signum = dividend < 0 ? -1 : 1;
+        boolean awayFromZero = switch (roundingMode) {
+            case DOWN -> false;
+            case UP -> true;
+            case FLOOR -> signum < 0;
+            case CEILING -> signum > 0;
+            case HALF_UP, HALF_DOWN, HALF_EVEN -> {
+                int half = Long.compare(Math.abs(remainder), divisor - Math.abs(remainder));
+                yield half > 0 || (half == 0 && (roundingMode == RoundingMode.HALF_UP
+                        || (roundingMode == RoundingMode.HALF_EVEN && (quotient & 1) != 0)));
+            }
+            case UNNECESSARY -> throw new ArithmeticException("Rounding necessary");
+        };
+        return awayFromZero ? quotient + signum : quotient;
+    }
+}
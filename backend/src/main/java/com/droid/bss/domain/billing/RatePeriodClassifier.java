@@ -0,0 +1,42 @@
+package com.droid.bss.domain.billing;
+
+/**
+ * Derives the {@link RatePeriod} of usage that arrived without one from its date and time of day.
+ *
+ * Saturdays and Sundays are {@link RatePeriod#WEEKEND}; on weekdays the peak window is
+ * {@code [peakStartSecond, peakEndSecond)} seconds after midnight and everything else is off-peak.
+ * Works on epoch days and seconds so classification does not allocate.
+ */
+public final class RatePeriodClassifier {
+
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final int peakStartSecond;
+    private final int peakEndSecond;
+
+    public RatePeriodClassifier(int peakStartSecond, int peakEndSecond) {
+        if (peakStartSecond < 0 || peakEndSecond > SECONDS_PER_DAY || peakStartSecond > peakEndSecond) {
+            throw new IllegalArgumentException("Invalid peak window: " + peakStartSecond + "-" + peakEndSecond);
+        }
+        this.peakStartSecond = peakStartSecond;
+        this.peakEndSecond = peakEndSecond;
+    }
+
+    public static RatePeriodClassifier ofHours(int peakStartHour, int peakEndHour) {
+        return new RatePeriodClassifier(peakStartHour * 3600, peakEndHour * 3600);
+    }
+
+    public RatePeriod classify(long epochDay, int secondOfDay) {
+        if (isWeekend(epochDay)) {
+            return RatePeriod.WEEKEND;
+        }
+        return secondOfDay >= peakStartSecond && secondOfDay < peakEndSecond ? RatePeriod.PEAK : RatePeriod.OFF_PEAK;
+    }
+
+    /**
+     * 1970-01-01 was a Thursday, so {@code (epochDay + 3) mod 7} is 0 on Mondays
+     */
+    static boolean isWeekend(long epochDay) {
+        return Math.floorMod(epochDay + 3, 7) >= 5;
+    }
+}
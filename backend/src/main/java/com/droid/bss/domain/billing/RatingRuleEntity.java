@@ -8,6 +8,8 @@ import jakarta.validation.constraints.Size;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Rating rules for usage charges
@@ -71,6 +73,20 @@ public class RatingRuleEntity extends BaseEntity {
     @JoinColumn(name = "product_id")
     private ProductEntity product;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "tariff_mode", nullable = false, length = 20)
+    private TariffMode tariffMode = TariffMode.FLAT;
+
+    @Column(name = "included_units", precision = 15, scale = 3)
+    private BigDecimal includedUnits;
+
+    @Column(name = "bundle_code", length = 100)
+    private String bundleCode;
+
+    @OneToMany(mappedBy = "rule", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("fromUnits ASC")
+    private List<RatingTierEntity> tiers = new ArrayList<>();
+
     protected RatingRuleEntity() {
     }
 
@@ -200,11 +216,51 @@ public class RatingRuleEntity extends BaseEntity {
         this.product = product;
     }
 
+    public TariffMode getTariffMode() {
+        return tariffMode;
+    }
+
+    public void setTariffMode(TariffMode tariffMode) {
+        this.tariffMode = tariffMode;
+    }
+
+    public BigDecimal getIncludedUnits() {
+        return includedUnits;
+    }
+
+    public void setIncludedUnits(BigDecimal includedUnits) {
+        this.includedUnits = includedUnits;
+    }
+
+    public String getBundleCode() {
+        return bundleCode;
+    }
+
+    public void setBundleCode(String bundleCode) {
+        this.bundleCode = bundleCode;
+    }
+
+    public List<RatingTierEntity> getTiers() {
+        return tiers;
+    }
+
+    public void addTier(BigDecimal fromUnits, BigDecimal unitRate) {
+        this.tiers.add(new RatingTierEntity(this, fromUnits, unitRate));
+    }
+
     // Business methods
     public boolean isActive() {
         return Boolean.TRUE.equals(this.active);
     }
 
+    /**
+     * Whether the charge depends on the subscription's running volume in the billing period
+     */
+    public boolean isVolumeDependent() {
+        return (tariffMode != null && tariffMode != TariffMode.FLAT && !tiers.isEmpty())
+                || (includedUnits != null && includedUnits.signum() > 0);
+    }
+
     public boolean isEffectiveOn(LocalDate date) {
         if (date == null) return false;
         if (date.isBefore(this.effectiveFrom)) return false;
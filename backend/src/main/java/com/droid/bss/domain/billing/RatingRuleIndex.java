@@ -0,0 +1,135 @@
+package com.droid.bss.domain.billing;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Compiled, immutable index of active rating rules.
+ *
+ * Rules are pre-resolved for every (UsageType, DestinationType, RatePeriod) combination a usage record
+ * can carry, including the wildcard semantics of {@link RatingRuleRepository#findMatchingRules}
+ * (a rule without destination or period matches any value). Each slot holds the candidate rules
+ * ordered most specific first, then by latest effective_from, so a lookup is an array index
+ * plus a short scan over effective-date intervals - no database access and no allocation.
+ *
+ * Instances are never mutated after {@link #compile(Collection)}; a new index is built and swapped in
+ * whenever the underlying rating_rules table changes.
+ */
+public final class RatingRuleIndex {
+
+    private static final UsageType[] USAGE_TYPES = UsageType.values();
+    private static final DestinationType[] DESTINATION_TYPES = DestinationType.values();
+    private static final RatePeriod[] RATE_PERIODS = RatePeriod.values();
+
+    // One extra slot per dimension for "not specified" (null)
+    private static final int DESTINATION_SLOTS = DESTINATION_TYPES.length + 1;
+    private static final int PERIOD_SLOTS = RATE_PERIODS.length + 1;
+
+    private static final CompiledRatingRule[] NO_RULES = new CompiledRatingRule[0];
+
+    private static final Comparator<CompiledRatingRule> PRECEDENCE = Comparator
+            .comparingInt(CompiledRatingRule::wildcardCount)
+            .thenComparing(Comparator.comparingLong(CompiledRatingRule::effectiveFromEpochDay).reversed())
+            .thenComparing(CompiledRatingRule::ruleCode, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private static final RatingRuleIndex EMPTY = compile(List.of());
+
+    private final CompiledRatingRule[][] slots;
+    private final int ruleCount;
+    private final long version;
+
+    private RatingRuleIndex(CompiledRatingRule[][] slots, int ruleCount, long version) {
+        this.slots = slots;
+        this.ruleCount = ruleCount;
+        this.version = version;
+    }
+
+    public static RatingRuleIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Compile active rules into an index
+     */
+    public static RatingRuleIndex compile(Collection<RatingRuleEntity> rules) {
+        return compile(rules, 0L);
+    }
+
+    /**
+     * Compile active rules into an index tagged with a build version
+     */
+    public static RatingRuleIndex compile(Collection<RatingRuleEntity> rules, long version) {
+        List<CompiledRatingRule> compiled = new ArrayList<>(rules.size());
+        for (RatingRuleEntity rule : rules) {
+            if (rule.isActive() && rule.getUsageType() != null && rule.getUnitRate() != null) {
+                compiled.add(CompiledRatingRule.from(rule));
+            }
+        }
+
+        CompiledRatingRule[][] slots = new CompiledRatingRule[USAGE_TYPES.length * DESTINATION_SLOTS * PERIOD_SLOTS][];
+        for (UsageType usageType : USAGE_TYPES) {
+            for (int d = 0; d < DESTINATION_SLOTS; d++) {
+                DestinationType destination = d < DESTINATION_TYPES.length ? DESTINATION_TYPES[d] : null;
+                for (int p = 0; p < PERIOD_SLOTS; p++) {
+                    RatePeriod period = p < RATE_PERIODS.length ? RATE_PERIODS[p] : null;
+
+                    List<CompiledRatingRule> candidates = new ArrayList<>();
+                    for (CompiledRatingRule rule : compiled) {
+                        if (rule.usageType() == usageType
+                                && (rule.destinationType() == null || rule.destinationType() == destination)
+                                && (rule.ratePeriod() == null || rule.ratePeriod() == period)) {
+                            candidates.add(rule);
+                        }
+                    }
+                    candidates.sort(PRECEDENCE);
+                    slots[slot(usageType, destination, period)] =
+                            candidates.isEmpty() ? NO_RULES : candidates.toArray(NO_RULES);
+                }
+            }
+        }
+
+        return new RatingRuleIndex(slots, compiled.size(), version);
+    }
+
+    /**
+     * Find the rule that applies to usage on the given date, or null if none matches
+     */
+    public CompiledRatingRule findRule(UsageType usageType, DestinationType destinationType,
+                                       RatePeriod ratePeriod, LocalDate usageDate) {
+        if (usageType == null || usageDate == null) {
+            return null;
+        }
+        return findRule(usageType, destinationType, ratePeriod, usageDate.toEpochDay());
+    }
+
+    /**
+     * Find the rule that applies to usage on the given epoch day, or null if none matches
+     */
+    public CompiledRatingRule findRule(UsageType usageType, DestinationType destinationType,
+                                       RatePeriod ratePeriod, long usageEpochDay) {
+        CompiledRatingRule[] candidates = slots[slot(usageType, destinationType, ratePeriod)];
+        for (CompiledRatingRule candidate : candidates) {
+            if (candidate.isEffectiveOn(usageEpochDay)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    public int getRuleCount() {
+        return ruleCount;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    private static int slot(UsageType usageType, DestinationType destinationType, RatePeriod ratePeriod) {
+        int d = destinationType != null ? destinationType.ordinal() : DESTINATION_TYPES.length;
+        int p = ratePeriod != null ? ratePeriod.ordinal() : RATE_PERIODS.length;
+        return (usageType.ordinal() * DESTINATION_SLOTS + d) * PERIOD_SLOTS + p;
+    }
+}
@@ -51,6 +51,21 @@ public interface RatingRuleRepository extends JpaRepository<RatingRuleEntity, St
             @Param("date") LocalDate date
     );
 
+    /**
+     * Find all active rating rules with their tiers, used to compile the in-memory rating index
+     */
+    @Query("SELECT DISTINCT r FROM RatingRuleEntity r LEFT JOIN FETCH r.tiers WHERE r.active = true")
+    List<RatingRuleEntity> findAllActive();
+
+    /**
+     * Cheap change fingerprint of the rating_rules and rating_rule_tiers tables (row count, last update,
+     * version sum). Any insert, update or delete changes the value.
+     */
+    @Query(value = "SELECT (SELECT COUNT(*) || ':' || COALESCE(MAX(updated_at)::text, '') || ':' || COALESCE(SUM(version), 0) " +
+                   "FROM rating_rules) || '/' || " +
+                   "(SELECT COUNT(*) || ':' || COALESCE(MAX(updated_at)::text, '') FROM rating_rule_tiers)", nativeQuery = true)
+    String computeChangeFingerprint();
+
     /**
      * Find by rule code
      */
@@ -0,0 +1,62 @@
+package com.droid.bss.domain.billing;
+
+import com.droid.bss.domain.common.BaseEntity;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+
+import java.math.BigDecimal;
+
+/**
+ * Price tier of a tiered or volume rating rule.
+ * A tier starts at {@code fromUnits} of cumulative usage in the billing period and ends where the next tier starts.
+ */
+@Entity
+@Table(name = "rating_rule_tiers")
+public class RatingTierEntity extends BaseEntity {
+
+    @NotNull
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "rule_id", nullable = false)
+    private RatingRuleEntity rule;
+
+    @NotNull
+    @Column(name = "from_units", nullable = false, precision = 15, scale = 3)
+    private BigDecimal fromUnits;
+
+    @NotNull
+    @Column(name = "unit_rate", nullable = false, precision = 8, scale = 4)
+    private BigDecimal unitRate;
+
+    protected RatingTierEntity() {
+    }
+
+    public RatingTierEntity(RatingRuleEntity rule, BigDecimal fromUnits, BigDecimal unitRate) {
+        this.rule = rule;
+        this.fromUnits = fromUnits;
+        this.unitRate = unitRate;
+    }
+
+    public RatingRuleEntity getRule() {
+        return rule;
+    }
+
+    public void setRule(RatingRuleEntity rule) {
+        this.rule = rule;
+    }
+
+    public BigDecimal getFromUnits() {
+        return fromUnits;
+    }
+
+    public void setFromUnits(BigDecimal fromUnits) {
+        this.fromUnits = fromUnits;
+    }
+
+    public BigDecimal getUnitRate() {
+        return unitRate;
+    }
+
+    public void setUnitRate(BigDecimal unitRate) {
+        this.unitRate = unitRate;
+    }
+}
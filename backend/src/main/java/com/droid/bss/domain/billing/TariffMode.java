@@ -0,0 +1,20 @@
+package com.droid.bss.domain.billing;
+
+/**
+ * How a rating rule prices usage against the subscription's running volume in a billing period
+ */
+public enum TariffMode {
+    FLAT("Every unit at the rule's unit rate"),
+    TIERED("Each unit at the rate of the tier its cumulative position falls into"),
+    VOLUME("Each record at the rate of the tier reached by the cumulative volume");
+
+    private final String description;
+
+    TariffMode(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
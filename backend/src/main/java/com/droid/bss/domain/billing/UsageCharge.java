@@ -0,0 +1,49 @@
+package com.droid.bss.domain.billing;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Result of rating a single usage record against a compiled rule.
+ * {@code ratePeriod} is the period the record was rated in, derived from its time of day if it had none.
+ *
+ * Amounts are {@link MicroUnits} rounded to {@link MicroUnits#MONEY_SCALE}; use the
+ * {@code *Amount()} accessors when writing them to persistence.
+ */
+public record UsageCharge(
+        CompiledRatingRule rule,
+        RatePeriod ratePeriod,
+        long chargeMicros,
+        long taxMicros
+) {
+
+    /**
+     * Build a charge, applying tax the same way as {@link UsageRecordEntity#calculateTotals()}
+     */
+    public static UsageCharge of(CompiledRatingRule rule, RatePeriod ratePeriod, long chargeMicros, long taxRateMicros) {
+        return new UsageCharge(rule, ratePeriod, chargeMicros, taxOf(chargeMicros, taxRateMicros));
+    }
+
+    /**
+     * Tax on a charge, rounded half up to money scale
+     */
+    public static long taxOf(long chargeMicros, long taxRateMicros) {
+        return MicroUnits.percentOf(chargeMicros, taxRateMicros, MicroUnits.MONEY_SCALE, RoundingMode.HALF_UP);
+    }
+
+    public long totalMicros() {
+        return chargeMicros + taxMicros;
+    }
+
+    public BigDecimal chargeAmount() {
+        return MicroUnits.toBigDecimal(chargeMicros, MicroUnits.MONEY_SCALE);
+    }
+
+    public BigDecimal taxAmount() {
+        return MicroUnits.toBigDecimal(taxMicros, MicroUnits.MONEY_SCALE);
+    }
+
+    public BigDecimal totalAmount() {
+        return MicroUnits.toBigDecimal(totalMicros(), MicroUnits.MONEY_SCALE);
+    }
+}
@@ -7,6 +7,7 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalTime;
 
@@ -311,10 +312,17 @@ public class UsageRecordEntity extends BaseEntity {
         return Boolean.TRUE.equals(this.processed);
     }
 
+    /**
+     * Derive tax and total from the charge; tax is rounded half up to money scale
+     */
     public void calculateTotals() {
         if (this.chargeAmount != null && this.taxRate != null) {
-            this.taxAmount = this.chargeAmount.multiply(this.taxRate).divide(new BigDecimal("100"));
-            this.totalAmount = this.chargeAmount.add(this.taxAmount != null ? this.taxAmount : BigDecimal.ZERO);
+            long chargeMicros = MicroUnits.of(this.chargeAmount, RoundingMode.HALF_UP);
+            long taxMicros = UsageCharge.taxOf(chargeMicros, MicroUnits.of(this.taxRate, RoundingMode.HALF_UP));
+            this.taxAmount = MicroUnits.toBigDecimal(taxMicros, MicroUnits.MONEY_SCALE);
+            this.totalAmount = MicroUnits.toBigDecimal(
+                    MicroUnits.round(chargeMicros, MicroUnits.MONEY_SCALE, RoundingMode.HALF_UP) + taxMicros,
+                    MicroUnits.MONEY_SCALE);
         }
     }
 }
@@ -0,0 +1,28 @@
+package com.droid.bss.domain.billing;
+
+import java.util.UUID;
+
+/**
+ * Flat, read-only view of a usage record used by the streaming billing run.
+ * Carries only the columns needed for rating and invoicing, so pages can be read
+ * without materializing JPA entities or their subscription/customer graphs.
+ *
+ * Numeric columns are carried as {@link MicroUnits}, the usage date as an epoch day and the usage
+ * time as seconds since midnight, so rating a row does not allocate.
+ */
+public record UsageRecordRow(
+        UUID id,
+        UUID subscriptionId,
+        UUID customerId,
+        UsageType usageType,
+        UsageUnit usageUnit,
+        long usageAmountMicros,
+        long usageEpochDay,
+        int usageSecondOfDay,
+        DestinationType destinationType,
+        RatePeriod ratePeriod,
+        long taxRateMicros,
+        boolean rated,
+        long chargeMicros
+) {
+}
@@ -39,6 +39,14 @@ public interface InvoiceEntityRepository extends JpaRepository<InvoiceEntity, UU
     @Query("SELECT i FROM InvoiceEntity i WHERE i.customer.id = :customerId")
     Page<InvoiceEntity> findByCustomerId(@Param("customerId") UUID customerId, Pageable pageable);
 
+    /**
+     * Find the invoice generated for a customer within a billing cycle
+     */
+    @Query("SELECT i FROM InvoiceEntity i WHERE i.customer.id = :customerId AND i.billingCycle.id = :billingCycleId")
+    Optional<InvoiceEntity> findByCustomerIdAndBillingCycleId(
+            @Param("customerId") UUID customerId,
+            @Param("billingCycleId") UUID billingCycleId);
+
     /**
      * Find invoices by status
      */
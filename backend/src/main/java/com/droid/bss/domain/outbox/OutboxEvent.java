@@ -20,9 +20,6 @@ import java.util.UUID;
     @Index(name = "idx_outbox_status", columnList = "status"),
     @Index(name = "idx_outbox_type", columnList = "event_type"),
     @Index(name = "idx_outbox_aggregate", columnList = "aggregate_id"),
-    @Index(name = "idx_outbox_created", columnList = "created_at"),
-    @Index(name = "idx_outbox_status_type", columnList = "status,event_type"),
-    @Index(name = "idx_outbox_retry", columnList = "status,next_retry_at,retry_count"),
     @Index(name = "idx_outbox_trace", columnList = "trace_id"),
 }, uniqueConstraints = {
     @UniqueConstraint(name = "uk_outbox_event_id", columnNames = {"event_id"})
@@ -55,9 +52,14 @@ public class OutboxEvent extends BaseEntity {
     @Column(name = "aggregate_type", length = 100)
     private String aggregateType;
 
-    @Column(name = "event_data", columnDefinition = "JSONB", nullable = false)
+    // JSON of events written before event_payload
+    @Column(name = "event_data", columnDefinition = "JSONB")
     private String eventData;
 
+    // Codec id followed by the encoded event data
+    @Column(name = "event_payload")
+    private byte[] eventPayload;
+
     @Column(name = "metadata", columnDefinition = "JSONB")
     private String metadata;
 
@@ -0,0 +1,160 @@
+package com.droid.bss.infrastructure.billing;
+
+import com.droid.bss.domain.billing.BalanceJournalEntry;
+import com.droid.bss.infrastructure.billing.UsageCounterRepository.CounterDelta;
+import com.droid.bss.infrastructure.metrics.BusinessMetrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group-commit writer of the prepaid balance journal.
+ *
+ * Entries are queued by the balance store and written by a single thread: everything that queued up
+ * while the previous group was being written goes into the next JDBC batch and transaction, so the
+ * cost of a commit is shared by all concurrent charging requests. The future of an entry completes
+ * with its journal sequence once it is durable, or exceptionally if the group failed.
+ *
+ * Entries are written in queue order, so entries of one balance become durable in the order they
+ * were applied. Usage counter deltas queued with an entry are added to usage_counters in the same
+ * transaction, so tariff consumption is persisted exactly when the debit it priced is.
+ */
+@Component
+@Slf4j
+public class BalanceJournalWriter {
+
+    private final PrepaidBalanceRepository prepaidBalanceRepository;
+    private final UsageCounterRepository usageCounterRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BusinessMetrics businessMetrics;
+    private final int maxBatchSize;
+    private final BlockingQueue<PendingEntry> queue;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public BalanceJournalWriter(
+            PrepaidBalanceRepository prepaidBalanceRepository,
+            UsageCounterRepository usageCounterRepository,
+            PlatformTransactionManager transactionManager,
+            BusinessMetrics businessMetrics,
+            @Value("${bss.billing.charging.journal-batch-size:1000}") int maxBatchSize,
+            @Value("${bss.billing.charging.journal-queue-capacity:100000}") int queueCapacity) {
+        this.prepaidBalanceRepository = prepaidBalanceRepository;
+        this.usageCounterRepository = usageCounterRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.businessMetrics = businessMetrics;
+        this.maxBatchSize = maxBatchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writerThread = Thread.ofPlatform().name("balance-journal-writer").daemon().start(this::writeLoop);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // The writer drains the queue before it exits
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Queue an entry for the next group commit
+     *
+     * @return future completed with the entry's journal sequence once it is durable
+     * @throws RejectedExecutionException if the writer is stopped or too far behind
+     */
+    public CompletableFuture<Long> append(BalanceJournalEntry entry) {
+        return append(entry, List.of());
+    }
+
+    /**
+     * Queue an entry together with the usage counter consumption it charges
+     *
+     * @return future completed with the entry's journal sequence once the entry and the counter
+     * deltas are durable
+     * @throws RejectedExecutionException if the writer is stopped or too far behind
+     */
+    public CompletableFuture<Long> append(BalanceJournalEntry entry, List<CounterDelta> counterDeltas) {
+        PendingEntry pending = new PendingEntry(entry, counterDeltas, new CompletableFuture<>());
+        if (!running || !queue.offer(pending)) {
+            throw new RejectedExecutionException("Balance journal is not accepting entries");
+        }
+        return pending.durable();
+    }
+
+    private void writeLoop() {
+        List<PendingEntry> group = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingEntry first = running ? queue.poll(100, TimeUnit.MILLISECONDS) : queue.poll();
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group, maxBatchSize - 1);
+                write(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Balance journal writer failed: {}", e.getMessage(), e);
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingEntry> group) {
+        Timer.Sample sample = businessMetrics.startBalanceJournalFlush();
+        List<BalanceJournalEntry> entries = new ArrayList<>(group.size());
+        List<CounterDelta> counterDeltas = new ArrayList<>();
+        for (PendingEntry pending : group) {
+            entries.add(pending.entry());
+            counterDeltas.addAll(pending.counterDeltas());
+        }
+
+        long[] seqs;
+        try {
+            seqs = transactionTemplate.execute(status -> {
+                long[] appended = prepaidBalanceRepository.appendJournal(entries);
+                if (!counterDeltas.isEmpty()) {
+                    usageCounterRepository.addConsumed(counterDeltas);
+                }
+                return appended;
+            });
+        } catch (RuntimeException e) {
+            log.error("Failed to write {} balance journal entries: {}", group.size(), e.getMessage());
+            for (PendingEntry pending : group) {
+                pending.durable().completeExceptionally(e);
+            }
+            return;
+        } finally {
+            businessMetrics.recordBalanceJournalFlush(sample);
+        }
+
+        for (int i = 0; i < group.size(); i++) {
+            group.get(i).durable().complete(seqs[i]);
+        }
+    }
+
+    private record PendingEntry(BalanceJournalEntry entry, List<CounterDelta> counterDeltas,
+                                CompletableFuture<Long> durable) {
+    }
+}
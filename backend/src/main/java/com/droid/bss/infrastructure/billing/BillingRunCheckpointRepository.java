@@ -0,0 +1,188 @@
+package com.droid.bss.infrastructure.billing;
+
+import com.droid.bss.domain.billing.BillingRunCheckpoint;
+import com.droid.bss.domain.billing.BillingRunStatus;
+import com.droid.bss.domain.billing.BillingRunSummary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * JDBC repository for billing_run_checkpoints.
+ *
+ * Each row is both the checkpoint and the lease of one partition of a billing run. Replicas claim
+ * partitions with {@code FOR UPDATE SKIP LOCKED}, so concurrent claimers never block each other,
+ * and every progress write is guarded by the lease owner so a replica that lost its lease cannot
+ * overwrite the work of the one that took over.
+ */
+@Repository
+public class BillingRunCheckpointRepository {
+
+    private static final String CLAIMABLE =
+            "(status = 'PENDING' " +
+            "OR (status = 'FAILED' AND attempts < ?) " +
+            "OR (status = 'RUNNING' AND lease_expires_at < NOW() AND attempts < ?))";
+
+    private static final RowMapper<BillingRunCheckpoint> ROW_MAPPER = (rs, rowNum) -> {
+        Timestamp startedAt = rs.getTimestamp("started_at");
+        Timestamp completedAt = rs.getTimestamp("completed_at");
+        return new BillingRunCheckpoint(
+                rs.getObject("billing_cycle_id", UUID.class),
+                rs.getInt("partition_no"),
+                rs.getInt("partition_count"),
+                BillingRunStatus.valueOf(rs.getString("status")),
+                rs.getObject("last_subscription_id", UUID.class),
+                rs.getLong("records_processed"),
+                rs.getLong("records_failed"),
+                rs.getInt("invoices_created"),
+                rs.getBigDecimal("net_amount"),
+                rs.getBigDecimal("tax_amount"),
+                startedAt != null ? startedAt.toLocalDateTime() : null,
+                completedAt != null ? completedAt.toLocalDateTime() : null
+        );
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BillingRunCheckpointRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Create the partition rows of a run; existing partitions are left untouched
+     */
+    public void createPartitions(UUID billingCycleId, int partitionCount) {
+        jdbcTemplate.update(
+                "INSERT INTO billing_run_checkpoints (billing_cycle_id, partition_no, partition_count, status) " +
+                "SELECT ?, g, ?, 'PENDING' FROM generate_series(0, ? - 1) g " +
+                "ON CONFLICT (billing_cycle_id, partition_no) DO NOTHING",
+                billingCycleId, partitionCount, partitionCount);
+    }
+
+    /**
+     * Find all partition checkpoints of a billing cycle run
+     */
+    public List<BillingRunCheckpoint> findByBillingCycleId(UUID billingCycleId) {
+        return jdbcTemplate.query(
+                "SELECT * FROM billing_run_checkpoints WHERE billing_cycle_id = ? ORDER BY partition_no",
+                ROW_MAPPER, billingCycleId);
+    }
+
+    /**
+     * Claim the next available partition of a run for this replica
+     */
+    public Optional<BillingRunCheckpoint> claimNext(UUID billingCycleId, String owner, long leaseSeconds, int maxAttempts) {
+        List<BillingRunCheckpoint> claimed = jdbcTemplate.query(
+                "UPDATE billing_run_checkpoints c SET status = 'RUNNING', lease_owner = ?, " +
+                "lease_expires_at = NOW() + make_interval(secs => ?), attempts = c.attempts + 1, " +
+                "started_at = COALESCE(c.started_at, NOW()), updated_at = NOW() " +
+                "WHERE (c.billing_cycle_id, c.partition_no) = (" +
+                "SELECT billing_cycle_id, partition_no FROM billing_run_checkpoints " +
+                "WHERE billing_cycle_id = ? AND " + CLAIMABLE + " " +
+                "ORDER BY partition_no LIMIT 1 FOR UPDATE SKIP LOCKED) " +
+                "RETURNING c.*",
+                ROW_MAPPER, owner, leaseSeconds, billingCycleId, maxAttempts, maxAttempts);
+        return claimed.stream().findFirst();
+    }
+
+    /**
+     * Persist partition progress and extend the lease.
+     *
+     * @return false if this replica no longer holds the lease
+     */
+    public boolean saveProgress(BillingRunCheckpoint checkpoint, String owner, long leaseSeconds) {
+        int updated = jdbcTemplate.update(
+                "UPDATE billing_run_checkpoints SET status = ?, last_subscription_id = ?, " +
+                "records_processed = ?, records_failed = ?, invoices_created = ?, net_amount = ?, tax_amount = ?, " +
+                "completed_at = ?, lease_expires_at = NOW() + make_interval(secs => ?), updated_at = NOW() " +
+                "WHERE billing_cycle_id = ? AND partition_no = ? AND lease_owner = ?",
+                checkpoint.status().name(),
+                checkpoint.lastSubscriptionId(),
+                checkpoint.recordsProcessed(),
+                checkpoint.recordsFailed(),
+                checkpoint.invoicesCreated(),
+                checkpoint.netAmount(),
+                checkpoint.taxAmount(),
+                checkpoint.completedAt() != null ? Timestamp.valueOf(checkpoint.completedAt()) : null,
+                leaseSeconds,
+                checkpoint.billingCycleId(),
+                checkpoint.partitionNo(),
+                owner);
+        return updated == 1;
+    }
+
+    /**
+     * Extend the lease of a partition held by this replica
+     *
+     * @return false if this replica no longer holds the lease
+     */
+    public boolean renewLease(UUID billingCycleId, int partitionNo, String owner, long leaseSeconds) {
+        int updated = jdbcTemplate.update(
+                "UPDATE billing_run_checkpoints SET lease_expires_at = NOW() + make_interval(secs => ?), updated_at = NOW() " +
+                "WHERE billing_cycle_id = ? AND partition_no = ? AND lease_owner = ? AND status = 'RUNNING'",
+                leaseSeconds, billingCycleId, partitionNo, owner);
+        return updated == 1;
+    }
+
+    /**
+     * Mark a partition failed and release its lease so it can be retried
+     */
+    public void markFailed(UUID billingCycleId, int partitionNo, String owner) {
+        jdbcTemplate.update(
+                "UPDATE billing_run_checkpoints SET status = 'FAILED', lease_owner = NULL, lease_expires_at = NULL, " +
+                "updated_at = NOW() WHERE billing_cycle_id = ? AND partition_no = ? AND lease_owner = ?",
+                billingCycleId, partitionNo, owner);
+    }
+
+    /**
+     * Give partitions that ran out of attempts a fresh set, used when a run is explicitly restarted
+     */
+    public int resetFailedAttempts(UUID billingCycleId) {
+        return jdbcTemplate.update(
+                "UPDATE billing_run_checkpoints SET attempts = 0, updated_at = NOW() " +
+                "WHERE billing_cycle_id = ? AND status = 'FAILED'",
+                billingCycleId);
+    }
+
+    /**
+     * Billing cycles that still have partitions this replica could claim
+     */
+    public List<UUID> findCyclesWithClaimablePartitions(int maxAttempts) {
+        return jdbcTemplate.queryForList(
+                "SELECT DISTINCT billing_cycle_id FROM billing_run_checkpoints WHERE " + CLAIMABLE,
+                UUID.class, maxAttempts, maxAttempts);
+    }
+
+    /**
+     * Aggregate the totals of all partitions of a run
+     */
+    public BillingRunSummary summarize(UUID billingCycleId, int maxAttempts) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) AS partitions, " +
+                "COUNT(*) FILTER (WHERE status = 'COMPLETED') AS completed_partitions, " +
+                "COUNT(*) FILTER (WHERE status <> 'COMPLETED' AND attempts >= ? " +
+                "AND (lease_expires_at IS NULL OR lease_expires_at < NOW())) AS exhausted_partitions, " +
+                "COALESCE(SUM(records_processed), 0) AS records_processed, " +
+                "COALESCE(SUM(records_failed), 0) AS records_failed, " +
+                "COALESCE(SUM(invoices_created), 0) AS invoices_created, " +
+                "COALESCE(SUM(net_amount), 0) AS net_amount, " +
+                "COALESCE(SUM(tax_amount), 0) AS tax_amount " +
+                "FROM billing_run_checkpoints WHERE billing_cycle_id = ?",
+                (rs, rowNum) -> new BillingRunSummary(
+                        rs.getInt("partitions"),
+                        rs.getInt("completed_partitions"),
+                        rs.getInt("exhausted_partitions"),
+                        rs.getLong("records_processed"),
+                        rs.getLong("records_failed"),
+                        rs.getInt("invoices_created"),
+                        rs.getBigDecimal("net_amount"),
+                        rs.getBigDecimal("tax_amount")
+                ),
+                maxAttempts, billingCycleId);
+    }
+}
@@ -0,0 +1,31 @@
+package com.droid.bss.infrastructure.billing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Billing Run Configuration
+ * Bounded executor for partitioned billing runs
+ */
+@Configuration
+public class BillingRunConfig {
+
+    /**
+     * Executor running billing partitions; bounded so a large cycle cannot exhaust the connection pool
+     */
+    @Bean(name = "billingRunExecutor")
+    public ThreadPoolTaskExecutor billingRunExecutor(
+            @Value("${bss.billing.run.parallelism:4}") int parallelism) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(parallelism * 4);
+        executor.setThreadNamePrefix("billing-run-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+}
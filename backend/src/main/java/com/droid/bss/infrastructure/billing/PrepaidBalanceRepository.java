@@ -0,0 +1,169 @@
+package com.droid.bss.infrastructure.billing;
+
+import com.droid.bss.domain.billing.*;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * JDBC access to prepaid balances: the append-only journal and the periodic snapshots.
+ *
+ * A balance is recovered as its snapshot plus every journal entry after the snapshot's
+ * {@code journal_seq}. The snapshot balance does not deduct open reservations, so recovery reads
+ * the journal from {@code replay_from_seq}, before the oldest reservation still open, to restore
+ * them. Journal entries are appended in batches within one transaction, so one
+ * commit makes a whole group of online charging requests durable.
+ */
+@Repository
+public class PrepaidBalanceRepository {
+
+    private static final String FIND_SNAPSHOT =
+            "SELECT currency, (balance * 1000000)::bigint AS balance_micros, journal_seq, replay_from_seq " +
+            "FROM prepaid_balances WHERE subscription_id = ?";
+
+    private static final String FIND_JOURNAL_AFTER =
+            "SELECT seq, subscription_id, session_id, entry_type, (amount * 1000000)::bigint AS amount_micros, " +
+            "(units * 1000000)::bigint AS units_micros, currency, usage_type, destination_type, rate_period, expires_at " +
+            "FROM prepaid_balance_journal WHERE subscription_id = ? AND seq > ? ORDER BY seq";
+
+    private static final String APPEND_JOURNAL =
+            "INSERT INTO prepaid_balance_journal (subscription_id, session_id, entry_type, amount, units, currency, " +
+            "usage_type, destination_type, rate_period, expires_at, created_at) " +
+            "VALUES (?, ?, ?, ? / 1000000.0, ? / 1000000.0, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)";
+
+    // Snapshots never move backwards, whichever instance writes last
+    private static final String UPSERT_SNAPSHOT =
+            "INSERT INTO prepaid_balances (subscription_id, currency, balance, journal_seq, replay_from_seq, updated_at) " +
+            "VALUES (?, ?, ? / 1000000.0, ?, ?, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (subscription_id) DO UPDATE SET currency = EXCLUDED.currency, balance = EXCLUDED.balance, " +
+            "journal_seq = EXCLUDED.journal_seq, replay_from_seq = EXCLUDED.replay_from_seq, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE prepaid_balances.journal_seq < EXCLUDED.journal_seq";
+
+    private static final RowMapper<BalanceJournalEntry> JOURNAL_MAPPER = (rs, rowNum) -> {
+        Timestamp expiresAt = rs.getTimestamp("expires_at");
+        return new BalanceJournalEntry(
+                rs.getLong("seq"),
+                rs.getObject("subscription_id", UUID.class),
+                rs.getString("session_id"),
+                BalanceJournalEntryType.valueOf(rs.getString("entry_type")),
+                rs.getLong("amount_micros"),
+                rs.getLong("units_micros"),
+                rs.getString("currency"),
+                enumOrNull(UsageType.class, rs.getString("usage_type")),
+                enumOrNull(DestinationType.class, rs.getString("destination_type")),
+                enumOrNull(RatePeriod.class, rs.getString("rate_period")),
+                expiresAt != null ? expiresAt.getTime() : 0L
+        );
+    };
+
+    /**
+     * Persisted state of a balance up to a journal position. Reservations open at {@code journalSeq}
+     * were all journaled after {@code replayFromSeq}.
+     */
+    public record BalanceSnapshot(UUID subscriptionId, String currency, long balanceMicros, long journalSeq,
+                                  long replayFromSeq) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PrepaidBalanceRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Latest snapshot of a balance; an empty balance at position 0 if it has never been snapshotted
+     */
+    public BalanceSnapshot findSnapshot(UUID subscriptionId) {
+        List<BalanceSnapshot> snapshots = jdbcTemplate.query(FIND_SNAPSHOT, (rs, rowNum) -> new BalanceSnapshot(
+                subscriptionId, rs.getString("currency"), rs.getLong("balance_micros"), rs.getLong("journal_seq"),
+                rs.getLong("replay_from_seq")),
+                subscriptionId);
+        return snapshots.isEmpty() ? new BalanceSnapshot(subscriptionId, null, 0L, 0L, 0L) : snapshots.get(0);
+    }
+
+    /**
+     * Journal entries of a balance written after the given position, in order
+     */
+    public List<BalanceJournalEntry> findJournalAfter(UUID subscriptionId, long seq) {
+        return jdbcTemplate.query(FIND_JOURNAL_AFTER, JOURNAL_MAPPER, subscriptionId, seq);
+    }
+
+    /**
+     * Append entries in one JDBC batch; must run in a transaction for the batch to commit once
+     *
+     * @return journal sequence assigned to each entry, in input order
+     */
+    public long[] appendJournal(List<BalanceJournalEntry> entries) {
+        return jdbcTemplate.execute((ConnectionCallback<long[]>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(APPEND_JOURNAL, new String[]{"seq"})) {
+                for (BalanceJournalEntry entry : entries) {
+                    ps.setObject(1, entry.subscriptionId());
+                    ps.setString(2, entry.sessionId());
+                    ps.setString(3, entry.type().name());
+                    ps.setLong(4, entry.amountMicros());
+                    ps.setLong(5, entry.unitsMicros());
+                    ps.setString(6, entry.currency());
+                    ps.setString(7, nameOrNull(entry.usageType()));
+                    ps.setString(8, nameOrNull(entry.destinationType()));
+                    ps.setString(9, nameOrNull(entry.ratePeriod()));
+                    if (entry.expiresAtMillis() > 0) {
+                        ps.setTimestamp(10, Timestamp.from(Instant.ofEpochMilli(entry.expiresAtMillis())));
+                    } else {
+                        ps.setNull(10, Types.TIMESTAMP);
+                    }
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                long[] seqs = new long[entries.size()];
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (int i = 0; i < seqs.length && keys.next(); i++) {
+                        seqs[i] = keys.getLong(1);
+                    }
+                }
+                return seqs;
+            }
+        });
+    }
+
+    /**
+     * Write balance snapshots in a single JDBC batch
+     */
+    public int[] saveSnapshots(List<BalanceSnapshot> snapshots) {
+        return jdbcTemplate.batchUpdate(UPSERT_SNAPSHOT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                BalanceSnapshot snapshot = snapshots.get(i);
+                ps.setObject(1, snapshot.subscriptionId());
+                ps.setString(2, snapshot.currency());
+                ps.setLong(3, snapshot.balanceMicros());
+                ps.setLong(4, snapshot.journalSeq());
+                ps.setLong(5, snapshot.replayFromSeq());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return snapshots.size();
+            }
+        });
+    }
+
+    private static String nameOrNull(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+
+    private static <E extends Enum<E>> E enumOrNull(Class<E> type, String value) {
+        return value != null ? Enum.valueOf(type, value) : null;
+    }
+}
@@ -0,0 +1,69 @@
+package com.droid.bss.infrastructure.billing;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Array;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Cached existence check of subscriptions for bulk CDR ingestion.
+ *
+ * Mediation files reference the same subscriptions over and over, so ids are resolved once per
+ * batch with a single {@code = ANY(?)} query for the cache misses. Only existing subscriptions are
+ * cached: an unknown id may belong to a subscription created a moment later, and caching it would
+ * reject that subscription's CDRs until the entry expired. Unknown ids cost one lookup per batch.
+ */
+@Component
+public class SubscriptionLookupCache {
+
+    private static final String FIND_EXISTING = "SELECT id FROM subscriptions WHERE id = ANY(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<UUID, Boolean> cache;
+
+    public SubscriptionLookupCache(
+            JdbcTemplate jdbcTemplate,
+            @Value("${bss.billing.ingest.subscription-cache-size:500000}") long maximumSize,
+            @Value("${bss.billing.ingest.subscription-cache-ttl-seconds:300}") long ttlSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    /**
+     * Return the subset of ids that reference an existing subscription
+     */
+    public Set<UUID> findExisting(Collection<UUID> subscriptionIds) {
+        // Ids missing from the loaded map are returned as absent and not cached
+        return new HashSet<>(cache.getAll(subscriptionIds, this::load).keySet());
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private Map<UUID, Boolean> load(Set<? extends UUID> missing) {
+        Map<UUID, Boolean> loaded = new HashMap<>(missing.size() * 2);
+        jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(FIND_EXISTING);
+            Array ids = connection.createArrayOf("uuid", missing.toArray());
+            statement.setArray(1, ids);
+            return statement;
+        }, rs -> {
+            loaded.put(rs.getObject(1, UUID.class), Boolean.TRUE);
+        });
+        return loaded;
+    }
+}
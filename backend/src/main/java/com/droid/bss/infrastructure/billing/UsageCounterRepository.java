@@ -0,0 +1,75 @@
+package com.droid.bss.infrastructure.billing;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * JDBC access to usage_counters, the persisted per-subscription consumption used by tiered,
+ * volume and allowance tariffs.
+ *
+ * Counters are only ever incremented: flushes add deltas with a single upsert per counter, so
+ * several instances can flush the same counter without reading it first.
+ */
+@Repository
+public class UsageCounterRepository {
+
+    private static final String FIND_CONSUMED =
+            "SELECT (consumed_units * 1000000)::bigint FROM usage_counters " +
+            "WHERE subscription_id = ? AND counter_key = ? AND period_start = ?";
+
+    private static final String ADD_CONSUMED =
+            "INSERT INTO usage_counters (subscription_id, counter_key, period_start, consumed_units, updated_at) " +
+            "VALUES (?, ?, ?, ? / 1000000.0, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (subscription_id, counter_key, period_start) DO UPDATE " +
+            "SET consumed_units = usage_counters.consumed_units + EXCLUDED.consumed_units, updated_at = CURRENT_TIMESTAMP";
+
+    /**
+     * Units consumed on a counter since it was last persisted
+     */
+    public record CounterDelta(UUID subscriptionId, String counterKey, LocalDate periodStart, long unitsMicros) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UsageCounterRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Persisted consumption of a counter in micro-units, 0 if it has none yet
+     */
+    public long findConsumedMicros(UUID subscriptionId, String counterKey, LocalDate periodStart) {
+        List<Long> consumed = jdbcTemplate.queryForList(FIND_CONSUMED, Long.class,
+                subscriptionId, counterKey, Date.valueOf(periodStart));
+        return consumed.isEmpty() ? 0L : consumed.get(0);
+    }
+
+    /**
+     * Add consumption deltas to their counters in a single JDBC batch
+     */
+    public int[] addConsumed(List<CounterDelta> deltas) {
+        return jdbcTemplate.batchUpdate(ADD_CONSUMED, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                CounterDelta delta = deltas.get(i);
+                ps.setObject(1, delta.subscriptionId());
+                ps.setString(2, delta.counterKey());
+                ps.setDate(3, Date.valueOf(delta.periodStart()));
+                ps.setLong(4, delta.unitsMicros());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return deltas.size();
+            }
+        });
+    }
+}
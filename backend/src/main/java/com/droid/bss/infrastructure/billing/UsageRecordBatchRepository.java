@@ -0,0 +1,175 @@
+package com.droid.bss.infrastructure.billing;
+
+import com.droid.bss.domain.billing.*;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * JDBC access to usage_records for the streaming billing run.
+ *
+ * Pages are read by keyset on (subscription_id, id) so every page costs the same regardless of
+ * how far into the cycle the run is, and rating results are written back with JDBC batch updates
+ * instead of one JPA merge per record. Large runs are split into customer-hash partitions that are
+ * paged independently: every row carries its customer's bucket (hash_partition, V1058), a partition
+ * is a contiguous bucket range, and the keyset leads with the bucket, so a worker seeks into its own
+ * range of the index rather than filtering the usage of all partitions.
+ */
+@Repository
+public class UsageRecordBatchRepository {
+
+    // Numeric columns are read as micro-units, the date as an epoch day and the time in seconds, see UsageRecordRow
+    private static final String SELECT_COLUMNS =
+            "SELECT u.id, u.subscription_id, s.customer_id, u.usage_type, u.usage_unit, " +
+            "(u.usage_amount * 1000000)::bigint AS usage_amount_micros, " +
+            "(u.usage_date - DATE '1970-01-01') AS usage_epoch_day, " +
+            "EXTRACT(EPOCH FROM u.usage_time)::int AS usage_second_of_day, " +
+            "u.destination_type, u.rate_period, (u.tax_rate * 1000000)::bigint AS tax_rate_micros, u.rated, " +
+            "(u.charge_amount * 1000000)::bigint AS charge_micros " +
+            "FROM usage_records u JOIN subscriptions s ON s.id = u.subscription_id " +
+            "WHERE u.usage_date BETWEEN ? AND ? AND u.invoice_id IS NULL ";
+
+    /**
+     * Number of customer-hash buckets; must match usage_hash_partition() in V1058
+     */
+    static final int HASH_PARTITIONS = 1024;
+
+    private static final String PARTITION_RANGE = "AND u.hash_partition >= ? AND u.hash_partition < ? ";
+
+    // All usage of a subscription is in its customer's bucket, so the cursor's bucket follows from its subscription
+    private static final String BUCKET_OF_SUBSCRIPTION =
+            "(SELECT usage_hash_partition(customer_id) FROM subscriptions WHERE id = ?)";
+
+    private static final String ORDER_AND_LIMIT = "ORDER BY u.hash_partition, u.subscription_id, u.id LIMIT ?";
+
+    private static final String UPDATE_RATING =
+            "UPDATE usage_records SET unit_rate = ?, charge_amount = ?, currency = ?, tax_amount = ?, " +
+            "total_amount = ?, rate_period = COALESCE(rate_period, ?), rated = true, rating_date = ? WHERE id = ?";
+
+    private static final String LINK_TO_INVOICE =
+            "UPDATE usage_records SET invoice_id = ?, processed = true WHERE id = ANY(?) AND invoice_id IS NULL";
+
+    private static final RowMapper<UsageRecordRow> ROW_MAPPER = (rs, rowNum) -> new UsageRecordRow(
+            rs.getObject("id", UUID.class),
+            rs.getObject("subscription_id", UUID.class),
+            rs.getObject("customer_id", UUID.class),
+            UsageType.valueOf(rs.getString("usage_type")),
+            UsageUnit.valueOf(rs.getString("usage_unit")),
+            rs.getLong("usage_amount_micros"),
+            rs.getLong("usage_epoch_day"),
+            rs.getInt("usage_second_of_day"),
+            enumOrNull(DestinationType.class, rs.getString("destination_type")),
+            enumOrNull(RatePeriod.class, rs.getString("rate_period")),
+            rs.getLong("tax_rate_micros"),
+            rs.getBoolean("rated"),
+            rs.getLong("charge_micros")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UsageRecordBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Read the next page of not yet invoiced usage in a date range, ordered by (hash_partition,
+     * subscription_id, id). Usage of one subscription, and of one customer, is always contiguous.
+     *
+     * @param partitionNo         customer-hash partition to read, 0..partitionCount-1
+     * @param partitionCount      number of partitions the run is split into
+     * @param afterSubscriptionId exclusive lower bound on subscription, or null to start from the beginning
+     * @param afterUsageId        exclusive lower bound on id within {@code afterSubscriptionId}, or null to
+     *                            skip the whole subscription
+     */
+    public List<UsageRecordRow> findPage(LocalDate startDate, LocalDate endDate, int partitionNo, int partitionCount,
+                                         UUID afterSubscriptionId, UUID afterUsageId, int limit) {
+        StringBuilder sql = new StringBuilder(SELECT_COLUMNS);
+        List<Object> args = new ArrayList<>(8);
+        args.add(Date.valueOf(startDate));
+        args.add(Date.valueOf(endDate));
+
+        // Partition by customer so that all usage of one invoice is billed by the same worker
+        sql.append(PARTITION_RANGE);
+        args.add(bucketBound(partitionNo, partitionCount));
+        args.add(bucketBound(partitionNo + 1, partitionCount));
+
+        if (afterSubscriptionId != null && afterUsageId == null) {
+            sql.append("AND (u.hash_partition, u.subscription_id) > (").append(BUCKET_OF_SUBSCRIPTION).append(", ?) ");
+            args.add(afterSubscriptionId);
+            args.add(afterSubscriptionId);
+        } else if (afterSubscriptionId != null) {
+            sql.append("AND (u.hash_partition, u.subscription_id, u.id) > (").append(BUCKET_OF_SUBSCRIPTION).append(", ?, ?) ");
+            args.add(afterSubscriptionId);
+            args.add(afterSubscriptionId);
+            args.add(afterUsageId);
+        }
+        sql.append(ORDER_AND_LIMIT);
+        args.add(limit);
+
+        return jdbcTemplate.query(sql.toString(), ROW_MAPPER, args.toArray());
+    }
+
+    /**
+     * Persist rating results for a batch of usage records in a single JDBC batch
+     */
+    public int[] updateRatings(List<UsageRecordRow> rows, List<UsageCharge> charges, LocalDate ratingDate) {
+        return jdbcTemplate.batchUpdate(UPDATE_RATING, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                UsageCharge charge = charges.get(i);
+                ps.setBigDecimal(1, charge.rule().unitRate());
+                // Micro-units become decimals only here, at the persistence boundary
+                ps.setBigDecimal(2, charge.chargeAmount());
+                ps.setString(3, charge.rule().currency());
+                ps.setBigDecimal(4, charge.taxAmount());
+                ps.setBigDecimal(5, charge.totalAmount());
+                // Untyped so the server casts it to the column type
+                ps.setObject(6, charge.ratePeriod() != null ? charge.ratePeriod().name() : null, Types.OTHER);
+                ps.setDate(7, Date.valueOf(ratingDate));
+                ps.setObject(8, rows.get(i).id());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+    }
+
+    /**
+     * Attach the usage records whose charges were added to an invoice.
+     *
+     * Only the given ids are linked: usage rated after the invoice lines were summed, such as a late
+     * CDR, stays uninvoiced for the next run instead of being marked invoiced without a charge.
+     */
+    public int linkToInvoice(UUID invoiceId, List<UUID> usageIds) {
+        if (usageIds.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(LINK_TO_INVOICE, ps -> {
+            ps.setObject(1, invoiceId);
+            ps.setArray(2, ps.getConnection().createArrayOf("uuid", usageIds.toArray()));
+        });
+    }
+
+    /**
+     * First bucket of a partition; partition {@code partitionCount} gives the end of the last one
+     */
+    static int bucketBound(int partitionNo, int partitionCount) {
+        return (int) ((long) partitionNo * HASH_PARTITIONS / partitionCount);
+    }
+
+    private static <E extends Enum<E>> E enumOrNull(Class<E> type, String value) {
+        return value != null ? Enum.valueOf(type, value) : null;
+    }
+}
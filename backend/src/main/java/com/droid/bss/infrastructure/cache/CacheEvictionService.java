@@ -2,6 +2,7 @@ package com.droid.bss.infrastructure.cache;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
@@ -77,6 +78,29 @@ public class CacheEvictionService {
         }
     }
 
+    /**
+     * Apply the invalidations collected for a batch of events, one operation per cache or key
+     */
+    public void apply(CacheInvalidationBatch batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (String cacheName : batch.getClearedCaches()) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+        batch.getEvictedKeys().forEach((cacheName, keys) -> {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache != null) {
+                keys.forEach(cache::evict);
+            }
+        });
+        log.debug("Applied {} cache invalidations as {} operations",
+                batch.getRequestCount(), batch.getOperationCount());
+    }
+
     /**
      * Evict all caches across all cache managers
      */
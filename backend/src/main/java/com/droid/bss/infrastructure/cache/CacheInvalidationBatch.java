@@ -0,0 +1,71 @@
+package com.droid.bss.infrastructure.cache;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache invalidations collected while a batch of events is processed.
+ *
+ * Repeated requests for the same cache or key are recorded once, and clearing a cache makes the
+ * key evictions for that cache unnecessary, so a batch of N events touching one cache costs one
+ * cache operation instead of N. Apply it with {@link CacheEvictionService#apply}. Not thread-safe;
+ * a batch belongs to the listener thread processing it.
+ */
+public final class CacheInvalidationBatch {
+
+    private final Set<String> clearedCaches = new LinkedHashSet<>();
+    private final Map<String, Set<Object>> evictedKeys = new LinkedHashMap<>();
+    private int requestCount;
+
+    /**
+     * Clear all entries of a cache
+     */
+    public void clear(String cacheName) {
+        requestCount++;
+        if (clearedCaches.add(cacheName)) {
+            evictedKeys.remove(cacheName);
+        }
+    }
+
+    /**
+     * Evict a single key from a cache
+     */
+    public void evict(String cacheName, Object key) {
+        requestCount++;
+        if (!clearedCaches.contains(cacheName)) {
+            evictedKeys.computeIfAbsent(cacheName, name -> new LinkedHashSet<>()).add(key);
+        }
+    }
+
+    public boolean isEmpty() {
+        return clearedCaches.isEmpty() && evictedKeys.isEmpty();
+    }
+
+    /**
+     * Number of invalidations requested
+     */
+    public int getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * Number of cache operations left after coalescing
+     */
+    public int getOperationCount() {
+        int operations = clearedCaches.size();
+        for (Set<Object> keys : evictedKeys.values()) {
+            operations += keys.size();
+        }
+        return operations;
+    }
+
+    Set<String> getClearedCaches() {
+        return clearedCaches;
+    }
+
+    Map<String, Set<Object>> getEvictedKeys() {
+        return evictedKeys;
+    }
+}
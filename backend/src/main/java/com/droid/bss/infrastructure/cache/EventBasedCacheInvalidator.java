@@ -4,6 +4,8 @@ import com.droid.bss.domain.customer.event.CustomerEvent;
 import com.droid.bss.domain.order.event.OrderEvent;
 import com.droid.bss.domain.invoice.event.InvoiceEvent;
 import com.droid.bss.domain.payment.event.PaymentEvent;
+import com.droid.bss.infrastructure.cache.advanced.CacheKeyGenerator;
+import com.droid.bss.infrastructure.cache.advanced.MultiLayerCacheManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.annotation.KafkaListener;
@@ -16,15 +18,23 @@ import java.util.UUID;
  *
  * Listens to domain events and triggers cache eviction to ensure data consistency
  * This is the critical missing link between the event system and cache invalidation
+ *
+ * Events are consumed by one replica of the group; entity entries of the multi-layer cache are
+ * evicted through {@link MultiLayerCacheManager}, which broadcasts the eviction so the other
+ * replicas drop their L1 copies too.
  */
 @Component
 public class EventBasedCacheInvalidator {
 
     private static final Logger log = LoggerFactory.getLogger(EventBasedCacheInvalidator.class);
     private final CacheEvictionService cacheEvictionService;
+    private final MultiLayerCacheManager multiLayerCacheManager;
+    private final CacheKeyGenerator keyGenerator = new CacheKeyGenerator();
 
-    public EventBasedCacheInvalidator(CacheEvictionService cacheEvictionService) {
+    public EventBasedCacheInvalidator(CacheEvictionService cacheEvictionService,
+                                      MultiLayerCacheManager multiLayerCacheManager) {
         this.cacheEvictionService = cacheEvictionService;
+        this.multiLayerCacheManager = multiLayerCacheManager;
     }
 
     /**
@@ -40,6 +50,7 @@ public class EventBasedCacheInvalidator {
 
             // Evict specific customer cache
             cacheEvictionService.evictCustomerCache(customerId);
+            evictEntity("customer", customerId);
 
             // Evict all customer list caches (since list might be affected)
             cacheEvictionService.evictAllCustomerListCaches();
@@ -65,6 +76,7 @@ public class EventBasedCacheInvalidator {
 
             // Evict specific order cache
             cacheEvictionService.evictOrderCache(orderId);
+            evictEntity("order", orderId.toString());
 
             // Evict all order caches
             cacheEvictionService.evictAllOrderCaches();
@@ -72,6 +84,7 @@ public class EventBasedCacheInvalidator {
             // If order is for a customer, also evict customer-related caches
             if (event.getCustomerId() != null) {
                 cacheEvictionService.evictCustomerCache(event.getCustomerId().toString());
+                evictEntity("customer", event.getCustomerId().toString());
                 cacheEvictionService.evictAllCustomerListCaches();
             }
 
@@ -96,6 +109,7 @@ public class EventBasedCacheInvalidator {
 
             // Evict specific invoice cache
             cacheEvictionService.evictInvoiceCache(invoiceId);
+            evictEntity("invoice", invoiceId.toString());
 
             // Evict all invoice caches
             cacheEvictionService.evictAllInvoiceCaches();
@@ -103,6 +117,7 @@ public class EventBasedCacheInvalidator {
             // If invoice is for a customer, also evict customer-related caches
             if (event.getCustomerId() != null) {
                 cacheEvictionService.evictCustomerCache(event.getCustomerId().toString());
+                evictEntity("customer", event.getCustomerId().toString());
                 cacheEvictionService.evictAllCustomerListCaches();
             }
 
@@ -130,6 +145,7 @@ public class EventBasedCacheInvalidator {
             // If payment is for a customer, also evict customer-related caches
             if (event.getCustomerId() != null) {
                 cacheEvictionService.evictCustomerCache(event.getCustomerId().toString());
+                evictEntity("customer", event.getCustomerId().toString());
                 cacheEvictionService.evictAllCustomerListCaches();
             }
 
@@ -140,4 +156,12 @@ public class EventBasedCacheInvalidator {
             log.error("Failed to invalidate cache for payment event: {}", event.getType(), e);
         }
     }
+
+    /**
+     * Evict an entity and the entries tagged with it from the multi-layer cache on every replica
+     */
+    private void evictEntity(String entityType, String id) {
+        multiLayerCacheManager.evict(keyGenerator.generateEntityKey(entityType, id));
+        multiLayerCacheManager.evictTag(keyGenerator.generateTag(entityType, id));
+    }
 }
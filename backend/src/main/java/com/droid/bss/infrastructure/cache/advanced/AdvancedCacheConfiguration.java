@@ -5,12 +5,17 @@ import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -23,15 +28,21 @@ public class AdvancedCacheConfiguration {
 
     /**
      * L1 Cache (Caffeine) - In-memory, fast access
+     *
+     * Kept coherent across replicas by the near-cache invalidation bus, so entries can live as long
+     * as their L2 copies would; hot keys are pinned for longer
      */
     @Bean
     @Qualifier("l1Cache")
-    public Cache<String, Object> l1Cache() {
-        log.info("Initializing L1 Cache (Caffeine)");
+    public Cache<String, Object> l1Cache(
+            @Value("${bss.cache.near-cache.l1-maximum-size:100000}") long maximumSize,
+            @Value("${bss.cache.near-cache.l1-expire-after-write:30m}") Duration expireAfterWrite,
+            @Value("${bss.cache.hot-keys.pinned-l1-ttl:2h}") Duration pinnedTtl) {
+        log.info("Initializing L1 Cache (Caffeine): maximumSize={}, expireAfterWrite={}, pinnedTtl={}",
+            maximumSize, expireAfterWrite, pinnedTtl);
         return Caffeine.newBuilder()
-            .maximumSize(10_000)
-            .expireAfterWrite(Duration.ofMinutes(10))
-            .expireAfterAccess(Duration.ofMinutes(5))
+            .maximumSize(maximumSize)
+            .expireAfter(MultiLayerCacheManager.l1Expiry(expireAfterWrite, pinnedTtl))
             .recordStats()
             .build();
     }
@@ -49,13 +60,50 @@ public class AdvancedCacheConfiguration {
     }
 
     /**
-     * Multi-layer cache manager
+     * Near-cache invalidation bus - broadcasts L1 invalidations over Redis pub/sub
+     */
+    @Bean
+    public NearCacheInvalidationBus nearCacheInvalidationBus(
+            @Qualifier("l2Cache") RedisTemplate<String, Object> l2Cache,
+            @Value("${bss.cache.invalidation.redis-listener.key-channel:cache:invalidation:key}") String keyChannel,
+            @Value("${bss.cache.invalidation.redis-listener.pattern-channel:cache:invalidation:pattern}") String patternChannel) {
+        return new NearCacheInvalidationBus(l2Cache, keyChannel, patternChannel);
+    }
+
+    /**
+     * Subscription of the near-cache invalidation bus to its channels
      */
     @Bean
+    @ConditionalOnProperty(name = "bss.cache.invalidation.redis-listener.enabled", havingValue = "true", matchIfMissing = true)
+    public RedisMessageListenerContainer nearCacheInvalidationListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            NearCacheInvalidationBus invalidationBus) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(invalidationBus, List.of(
+            new ChannelTopic(invalidationBus.getKeyChannel()),
+            new ChannelTopic(invalidationBus.getPatternChannel())));
+        return container;
+    }
+
+    /**
+     * Multi-layer cache manager
+     */
+    @Bean(destroyMethod = "shutdown")
     public MultiLayerCacheManager multiLayerCacheManager(
             @Qualifier("l1Cache") Cache<String, Object> l1Cache,
-            @Qualifier("l2Cache") RedisTemplate<String, Object> l2Cache) {
-        return new MultiLayerCacheManager(l1Cache, l2Cache);
+            @Qualifier("l2Cache") RedisTemplate<String, Object> l2Cache,
+            NearCacheInvalidationBus invalidationBus,
+            HotKeyDetector hotKeyDetector,
+            @Value("${bss.cache.near-cache.invalidation-memory:30s}") Duration invalidationMemory,
+            @Value("${bss.cache.load.stale-while-revalidate:60s}") Duration staleWhileRevalidate,
+            @Value("${bss.cache.load.early-refresh-beta:1.0}") double earlyRefreshBeta,
+            @Value("${bss.cache.load.load-timeout:10s}") Duration loadTimeout,
+            @Value("${bss.cache.load.refresh-threads:4}") int refreshThreads,
+            @Value("${bss.cache.hot-keys.l2-replicas:1}") int hotKeyL2Replicas) {
+        return new MultiLayerCacheManager(l1Cache, l2Cache, invalidationBus, invalidationMemory,
+            new MultiLayerCacheManager.LoadOptions(staleWhileRevalidate, earlyRefreshBeta, loadTimeout, refreshThreads),
+            hotKeyDetector, hotKeyL2Replicas);
     }
 
     /**
@@ -105,11 +153,17 @@ public class AdvancedCacheConfiguration {
     }
 
     /**
-     * Hot key detector
+     * Hot key detector - fed by the multi-layer cache manager's reads, merged across replicas in Redis
      */
     @Bean
-    public HotKeyDetector hotKeyDetector() {
-        return new HotKeyDetector();
+    public HotKeyDetector hotKeyDetector(
+            @Qualifier("l2Cache") RedisTemplate<String, Object> l2Cache,
+            @Value("${bss.cache.hot-keys.sketch-width:16384}") int sketchWidth,
+            @Value("${bss.cache.hot-keys.sketch-depth:4}") int sketchDepth,
+            @Value("${bss.cache.hot-keys.top-k:100}") int topK,
+            @Value("${bss.cache.hot-keys.threshold:200}") long threshold,
+            @Value("${bss.cache.hot-keys.detect-interval-ms:10000}") long detectIntervalMs) {
+        return new HotKeyDetector(l2Cache, sketchWidth, sketchDepth, topK, threshold, detectIntervalMs);
     }
 
     /**
@@ -9,6 +9,8 @@ import org.springframework.stereotype.Component;
 import java.lang.reflect.Method;
 import java.time.Duration;
 import java.util.Arrays;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * Cache Decorator
@@ -62,7 +64,7 @@ public class CacheDecorator {
 
         // Store in cache
         if (result != null) {
-            cacheManager.put(cacheKey, result, ttl);
+            cacheManager.put(cacheKey, result, ttl, keyGenerator.resolveTags(cacheable.tags(), args));
             statisticsService.recordCachePut(cacheKey);
             log.trace("Cached result: {}", cacheKey);
         }
@@ -89,6 +91,12 @@ public class CacheDecorator {
         cacheManager.evict(cacheKey);
         log.trace("Evicted cache: {}", cacheKey);
 
+        // Evict entries registered under the tags
+        Set<String> tags = keyGenerator.resolveTags(cacheEvict.tags(), args);
+        for (String tag : tags) {
+            cacheManager.evictTag(tag);
+        }
+
         // Execute method
         return joinPoint.proceed();
     }
@@ -112,7 +120,7 @@ public class CacheDecorator {
         // Store in cache
         if (result != null) {
             String cacheKey = keyGenerator.generateKey(className, methodName, args);
-            cacheManager.put(cacheKey, result, ttl);
+            cacheManager.put(cacheKey, result, ttl, keyGenerator.resolveTags(cachePut.tags(), args));
             log.trace("Cache put: {}", cacheKey);
         }
 
@@ -26,4 +26,9 @@ public @interface CacheEvict {
      * Cache namespace
      */
     String namespace() default "";
+
+    /**
+     * Tags to evict, e.g. {@code "customer:{0}"}; {n} is replaced by the n-th argument
+     */
+    String[] tags() default {};
 }
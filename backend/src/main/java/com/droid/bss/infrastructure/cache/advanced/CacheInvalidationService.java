@@ -3,6 +3,7 @@ package com.droid.bss.infrastructure.cache.advanced;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
@@ -11,6 +12,10 @@ import java.util.concurrent.atomic.AtomicInteger;
 /**
  * Cache Invalidation Service
  * Manages cache invalidation strategies
+ *
+ * Entity changes evict by tag: entries that depend on an entity are put under its tag
+ * ({@link CacheKeyGenerator#generateTag}), list and aggregate views under {@code <type>:list}
+ * and {@code <type>:aggregate}.
  */
 @Slf4j
 @Service
@@ -22,6 +27,7 @@ public class CacheInvalidationService {
     private final Map<String, Long> lastInvalidationTime = new ConcurrentHashMap<>();
     private final AtomicInteger totalInvalidations = new AtomicInteger(0);
     private final AtomicInteger totalPatternInvalidations = new AtomicInteger(0);
+    private final AtomicInteger totalTagInvalidations = new AtomicInteger(0);
 
     public CacheInvalidationService(
             MultiLayerCacheManager cacheManager,
@@ -58,6 +64,16 @@ public class CacheInvalidationService {
         log.info("Invalidated cache pattern: {}", pattern);
     }
 
+    /**
+     * Invalidate all entries registered under a tag
+     */
+    public void invalidateTag(String tag) {
+        int evicted = cacheManager.evictTag(tag);
+        totalTagInvalidations.incrementAndGet();
+        lastInvalidationTime.put("tag:" + tag, System.currentTimeMillis());
+        log.debug("Invalidated {} cache keys tagged: {}", evicted, tag);
+    }
+
     /**
      * Invalidate when entity changes
      */
@@ -73,13 +89,14 @@ public class CacheInvalidationService {
             }
         }
 
+        // Invalidate entries that depend on the entity
+        invalidateTag(keyGenerator.generateTag(entityType, entityId));
+
         // Invalidate list views
-        String listPattern = keyGenerator.generatePattern(entityType, "list");
-        invalidatePattern(listPattern);
+        invalidateTag(keyGenerator.generateTag(entityType, "list"));
 
         // Invalidate aggregates
-        String aggregatePattern = keyGenerator.generatePattern(entityType, "aggregate");
-        invalidatePattern(aggregatePattern);
+        invalidateTag(keyGenerator.generateTag(entityType, "aggregate"));
 
         log.info("Invalidated entity cache: {}:{}", entityType, entityId);
     }
@@ -88,21 +105,10 @@ public class CacheInvalidationService {
      * Invalidate all related to a customer
      */
     public void invalidateCustomerData(String customerId) {
-        // Invalidate customer entity
+        // Invalidate customer entity and its orders, invoices, payments and subscriptions,
+        // which are all tagged with the customer
         invalidateEntity("customer", customerId);
 
-        // Invalidate customer orders
-        invalidatePattern("order:customer:" + customerId + ":*");
-
-        // Invalidate customer invoices
-        invalidatePattern("invoice:customer:" + customerId + ":*");
-
-        // Invalidate customer payments
-        invalidatePattern("payment:customer:" + customerId + ":*");
-
-        // Invalidate customer subscriptions
-        invalidatePattern("subscription:customer:" + customerId + ":*");
-
         log.info("Invalidated all customer data for: {}", customerId);
     }
 
@@ -113,14 +119,7 @@ public class CacheInvalidationService {
         // Invalidate product entity
         invalidateEntity("product", productId);
 
-        // Invalidate product in orders
-        invalidatePattern("order:*:product:" + productId);
-
-        // Invalidate inventory
-        invalidatePattern("inventory:product:" + productId);
-
-        // Invalidate recommendations
-        invalidatePattern("recommendation:product:" + productId);
+        // Product entries in orders, inventory and recommendations are tagged with the product
 
         log.info("Invalidated all product data for: {}", productId);
     }
@@ -142,6 +141,7 @@ public class CacheInvalidationService {
         return new CacheInvalidationStatistics(
             totalInvalidations.get(),
             totalPatternInvalidations.get(),
+            totalTagInvalidations.get(),
             cacheDependencies.size(),
             lastInvalidationTime.size()
         );
@@ -171,6 +171,7 @@ public class CacheInvalidationService {
         lastInvalidationTime.clear();
         totalInvalidations.set(0);
         totalPatternInvalidations.set(0);
+        totalTagInvalidations.set(0);
         log.info("Cleared cache invalidation data");
     }
 
@@ -180,30 +181,35 @@ public class CacheInvalidationService {
     public static class CacheInvalidationStatistics {
         private final int totalKeyInvalidations;
         private final int totalPatternInvalidations;
+        private final int totalTagInvalidations;
         private final int registeredDependencies;
         private final int trackedKeys;
 
         public CacheInvalidationStatistics(
                 int totalKeyInvalidations,
                 int totalPatternInvalidations,
+                int totalTagInvalidations,
                 int registeredDependencies,
                 int trackedKeys) {
             this.totalKeyInvalidations = totalKeyInvalidations;
             this.totalPatternInvalidations = totalPatternInvalidations;
+            this.totalTagInvalidations = totalTagInvalidations;
             this.registeredDependencies = registeredDependencies;
             this.trackedKeys = trackedKeys;
         }
 
         public int getTotalKeyInvalidations() { return totalKeyInvalidations; }
         public int getTotalPatternInvalidations() { return totalPatternInvalidations; }
+        public int getTotalTagInvalidations() { return totalTagInvalidations; }
         public int getRegisteredDependencies() { return registeredDependencies; }
         public int getTrackedKeys() { return trackedKeys; }
 
         @Override
         public String toString() {
             return String.format(
-                "Invalidations: %d key, %d pattern | Dependencies: %d | Tracked keys: %d",
-                totalKeyInvalidations, totalPatternInvalidations, registeredDependencies, trackedKeys
+                "Invalidations: %d key, %d pattern, %d tag | Dependencies: %d | Tracked keys: %d",
+                totalKeyInvalidations, totalPatternInvalidations, totalTagInvalidations, registeredDependencies,
+                trackedKeys
             );
         }
     }
@@ -123,6 +123,28 @@ public class CacheKeyGenerator {
         return String.format("bss%s%s%s*", SEPARATOR, className, SEPARATOR, methodPrefix);
     }
 
+    /**
+     * Generate tag for the entries that depend on an entity, e.g. {@code customer:123}
+     */
+    public String generateTag(String entityType, String id) {
+        return entityType + SEPARATOR + id;
+    }
+
+    /**
+     * Resolve tag templates, replacing {n} with the n-th parameter
+     */
+    public Set<String> resolveTags(String[] templates, Object[] parameters) {
+        Set<String> tags = new LinkedHashSet<>();
+        for (String template : templates) {
+            String tag = template;
+            for (int i = 0; i < parameters.length; i++) {
+                tag = tag.replace("{" + i + "}", String.valueOf(parameters[i]));
+            }
+            tags.add(tag);
+        }
+        return tags;
+    }
+
     /**
      * Generate key for entity by ID
      */
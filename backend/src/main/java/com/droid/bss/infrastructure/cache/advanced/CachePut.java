@@ -26,4 +26,9 @@ public @interface CachePut {
      * Cache namespace
      */
     String namespace() default "";
+
+    /**
+     * Tags to register the entry under, e.g. {@code "customer:{0}"}; {n} is replaced by the n-th argument
+     */
+    String[] tags() default {};
 }
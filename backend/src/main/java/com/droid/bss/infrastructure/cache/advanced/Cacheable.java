@@ -36,4 +36,9 @@ public @interface Cacheable {
      * Whether to use L2 cache only
      */
     boolean l2Only() default false;
+
+    /**
+     * Tags to register the entry under, e.g. {@code "customer:{0}"}; {n} is replaced by the n-th argument
+     */
+    String[] tags() default {};
 }
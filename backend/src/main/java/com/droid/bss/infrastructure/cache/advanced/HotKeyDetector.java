@@ -1,77 +1,263 @@
 package com.droid.bss.infrastructure.cache.advanced;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.stereotype.Component;
+import org.springframework.data.redis.connection.zset.Tuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
  * Hot Key Detector
  * Identifies frequently accessed cache keys
+ *
+ * Reads are counted in a count-min sketch of fixed size, and the keys with the highest estimates
+ * are kept in a top-K min-heap, so memory does not grow with the keyspace. All counts are halved
+ * every decay interval, which makes them a measure of recent traffic.
+ *
+ * Each replica adds its top-K to a Redis sorted set per detection window; the previous window's
+ * set, summed over all replicas, is the merged view. A key is hot when its local or merged count
+ * reaches the threshold.
  */
 @Slf4j
-@Component
 public class HotKeyDetector {
 
-    private final Map<String, AtomicInteger> accessCounts = new ConcurrentHashMap<>();
-    private final Set<String> hotKeys = new HashSet<>();
-    private final int hotKeyThreshold = 20; // Access count threshold
-    private final int hotKeyWindowMinutes = 10;
+    private static final String MERGED_KEY_PREFIX = "bss:hotkeys:";
+
+    /**
+     * Top-K member with its count when it was (re)added to the heap
+     */
+    private record Candidate(String key, long count) {
+    }
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final int width;
+    private final int depth;
+    private final int topK;
+    private final long detectIntervalMs;
+    private final AtomicIntegerArray sketch;
+    private final Map<String, Long> topCounts = new ConcurrentHashMap<>();
+    private final PriorityQueue<Candidate> topHeap = new PriorityQueue<>(Comparator.comparingLong(Candidate::count));
+    private final AtomicLong accesses = new AtomicLong(0);
+    private final AtomicLong mergeFailures = new AtomicLong(0);
+
+    private volatile long hotKeyThreshold;
+    private volatile long admissionThreshold;
+    private volatile Set<String> hotKeys = Set.of();
+    private volatile Map<String, Long> mergedCounts = Map.of();
+
+    public HotKeyDetector() {
+        this(null, 16_384, 4, 100, 20, 10_000);
+    }
+
+    public HotKeyDetector(
+            RedisTemplate<String, Object> redisTemplate,
+            int width,
+            int depth,
+            int topK,
+            long hotKeyThreshold,
+            long detectIntervalMs) {
+        this.redisTemplate = redisTemplate;
+        this.width = Integer.highestOneBit(Math.max(width, 64));
+        this.depth = depth;
+        this.topK = topK;
+        this.hotKeyThreshold = hotKeyThreshold;
+        this.detectIntervalMs = detectIntervalMs;
+        this.sketch = new AtomicIntegerArray(this.width * depth);
+    }
 
     /**
      * Record key access
      */
     public void recordAccess(String key) {
-        accessCounts.computeIfAbsent(key, k -> new AtomicInteger(0)).incrementAndGet();
+        accesses.incrementAndGet();
+        offer(key, increment(key));
+    }
+
+    /**
+     * Add one to the key's counter in every row and return the new estimate (the row minimum)
+     */
+    private long increment(String key) {
+        int h1 = spread(key.hashCode());
+        int h2 = spread(h1 ^ 0x9E3779B9) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int count = sketch.incrementAndGet(row * width + ((h1 + row * h2) & (width - 1)));
+            estimate = Math.min(estimate, count);
+        }
+        return estimate;
+    }
+
+    private long estimate(String key) {
+        int h1 = spread(key.hashCode());
+        int h2 = spread(h1 ^ 0x9E3779B9) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, sketch.get(row * width + ((h1 + row * h2) & (width - 1))));
+        }
+        return estimate;
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Update the key's count if it is in the top K, or admit it if it beats the smallest member
+     */
+    private void offer(String key, long estimate) {
+        if (topCounts.computeIfPresent(key, (k, count) -> Math.max(count, estimate)) != null) {
+            return;
+        }
+        if (topCounts.size() >= topK && estimate <= admissionThreshold) {
+            return;
+        }
+        synchronized (topHeap) {
+            if (topCounts.containsKey(key)) {
+                return;
+            }
+            while (topCounts.size() >= topK && !topHeap.isEmpty()) {
+                Candidate smallest = topHeap.poll();
+                Long current = topCounts.get(smallest.key());
+                if (current == null) {
+                    continue;
+                }
+                if (current > smallest.count()) {
+                    // Counted up since it was added; re-add it with its current priority
+                    topHeap.add(new Candidate(smallest.key(), current));
+                    continue;
+                }
+                if (current >= estimate) {
+                    topHeap.add(smallest);
+                    admissionThreshold = current;
+                    return;
+                }
+                topCounts.remove(smallest.key());
+            }
+            topCounts.put(key, estimate);
+            topHeap.add(new Candidate(key, estimate));
+            admissionThreshold = topCounts.size() >= topK ? topHeap.peek().count() : 0;
+        }
     }
 
     /**
      * Detect hot keys
      */
+    @Scheduled(fixedDelayString = "${bss.cache.hot-keys.detect-interval-ms:10000}")
     public void detectHotKeys() {
         log.debug("Detecting hot keys");
 
-        Set<String> detectedHotKeys = accessCounts.entrySet().stream()
-            .filter(entry -> entry.getValue().get() >= hotKeyThreshold)
-            .map(Map.Entry::getKey)
-            .collect(Collectors.toSet());
+        Map<String, Long> localCounts = new HashMap<>(topCounts);
+        if (redisTemplate != null) {
+            mergedCounts = mergeAcrossReplicas(localCounts);
+        }
 
-        // Update hot keys set
-        hotKeys.addAll(detectedHotKeys);
+        long threshold = hotKeyThreshold;
+        Set<String> detected = new HashSet<>();
+        localCounts.forEach((key, count) -> {
+            if (count >= threshold) {
+                detected.add(key);
+            }
+        });
+        mergedCounts.forEach((key, count) -> {
+            if (count >= threshold) {
+                detected.add(key);
+            }
+        });
+        hotKeys = Set.copyOf(detected);
 
-        log.info("Detected {} hot keys", hotKeys.size());
+        log.debug("Detected {} hot keys", detected.size());
+    }
+
+    /**
+     * Add the local top K to the current window and read the previous, complete window
+     */
+    private Map<String, Long> mergeAcrossReplicas(Map<String, Long> localCounts) {
+        long window = System.currentTimeMillis() / detectIntervalMs;
+        byte[] currentKey = (MERGED_KEY_PREFIX + window).getBytes(StandardCharsets.UTF_8);
+        byte[] previousKey = (MERGED_KEY_PREFIX + (window - 1)).getBytes(StandardCharsets.UTF_8);
+        long retentionSeconds = Math.max(1, detectIntervalMs * 3 / 1000);
+        try {
+            if (!localCounts.isEmpty()) {
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    localCounts.forEach((key, count) -> connection.zSetCommands()
+                        .zIncrBy(currentKey, count, key.getBytes(StandardCharsets.UTF_8)));
+                    connection.keyCommands().expire(currentKey, retentionSeconds);
+                    return null;
+                });
+            }
+            Set<Tuple> merged = redisTemplate.execute((RedisCallback<Set<Tuple>>)
+                connection -> connection.zSetCommands().zRevRangeWithScores(previousKey, 0, topK - 1));
+            if (merged == null) {
+                return Map.of();
+            }
+            Map<String, Long> counts = new HashMap<>();
+            for (Tuple tuple : merged) {
+                counts.put(new String(tuple.getValue(), StandardCharsets.UTF_8), tuple.getScore().longValue());
+            }
+            return counts;
+        } catch (Exception e) {
+            // Keep the last merged view; local detection goes on
+            mergeFailures.incrementAndGet();
+            log.warn("Failed to merge hot keys across replicas: {}", e.getMessage());
+            return mergedCounts;
+        }
+    }
+
+    /**
+     * Halve all counts, so keys that are no longer read cool down
+     */
+    @Scheduled(fixedDelayString = "${bss.cache.hot-keys.decay-interval-ms:60000}")
+    public void decay() {
+        for (int i = 0; i < sketch.length(); i++) {
+            sketch.getAndUpdate(i, count -> count >>> 1);
+        }
+        synchronized (topHeap) {
+            topCounts.replaceAll((key, count) -> count >>> 1);
+            topCounts.values().removeIf(count -> count == 0);
+            topHeap.clear();
+            topCounts.forEach((key, count) -> topHeap.add(new Candidate(key, count)));
+            admissionThreshold = topCounts.size() >= topK && !topHeap.isEmpty() ? topHeap.peek().count() : 0;
+        }
     }
 
     /**
      * Get hot keys
      */
     public Set<String> getHotKeys() {
-        return new HashSet<>(hotKeys);
+        return hotKeys;
     }
 
     /**
      * Check if a key is hot
      */
     public boolean isHotKey(String key) {
-        return hotKeys.contains(key) || accessCounts.getOrDefault(key, new AtomicInteger(0)).get() >= hotKeyThreshold;
+        return hotKeys.contains(key);
     }
 
     /**
-     * Get access count for a key
+     * Get the estimated (decayed) access count for a key
      */
     public int getAccessCount(String key) {
-        return accessCounts.getOrDefault(key, new AtomicInteger(0)).get();
+        return (int) Math.min(estimate(key), Integer.MAX_VALUE);
     }
 
     /**
      * Get top N hot keys
      */
     public List<String> getTopHotKeys(int limit) {
-        return accessCounts.entrySet().stream()
-            .sorted(Map.Entry.<String, AtomicInteger>comparingByValue().reversed())
+        return new HashMap<>(topCounts).entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
             .limit(limit)
             .map(Map.Entry::getKey)
             .collect(Collectors.toList());
@@ -81,8 +267,16 @@ public class HotKeyDetector {
      * Clear access counts
      */
     public void clearAccessCounts() {
-        accessCounts.clear();
-        hotKeys.clear();
+        for (int i = 0; i < sketch.length(); i++) {
+            sketch.set(i, 0);
+        }
+        synchronized (topHeap) {
+            topCounts.clear();
+            topHeap.clear();
+            admissionThreshold = 0;
+        }
+        hotKeys = Set.of();
+        mergedCounts = Map.of();
         log.info("Cleared hot key detector data");
     }
 
@@ -90,6 +284,7 @@ public class HotKeyDetector {
      * Configure hot key threshold
      */
     public void setHotKeyThreshold(int threshold) {
+        this.hotKeyThreshold = threshold;
         log.info("Updated hot key threshold: {}", threshold);
     }
 
@@ -98,7 +293,12 @@ public class HotKeyDetector {
      */
     public Map<String, Object> getStatistics() {
         Map<String, Object> stats = new HashMap<>();
-        stats.put("totalKeys", accessCounts.size());
+        stats.put("accesses", accesses.get());
+        stats.put("sketchWidth", width);
+        stats.put("sketchDepth", depth);
+        stats.put("trackedKeys", topCounts.size());
+        stats.put("mergedKeys", mergedCounts.size());
+        stats.put("mergeFailures", mergeFailures.get());
         stats.put("hotKeys", hotKeys.size());
         stats.put("threshold", hotKeyThreshold);
         stats.put("topKeys", getTopHotKeys(5));
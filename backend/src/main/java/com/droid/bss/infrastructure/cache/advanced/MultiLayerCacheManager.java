@@ -1,56 +1,261 @@
 package com.droid.bss.infrastructure.cache.advanced;
 
 import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
 
 /**
  * Multi-Layer Cache Manager
  * Manages L1 (Caffeine) and L2 (Redis) caches
+ *
+ * L1 is a near-cache kept coherent across replicas: every L1 entry is stamped with a version from
+ * a hybrid logical clock (milliseconds shifted left, advanced past every version seen), taken when
+ * the write or the L2 read that produced it started. Writes and evictions are broadcast with their
+ * version through the {@link NearCacheInvalidationBus}, and receivers drop their L1 entries: clocks
+ * of different replicas are not synchronized, so an invalidation from another replica always wins,
+ * while local invalidations only drop entries older than their version. Invalidated keys are
+ * remembered for a short while, so a concurrent L2 read that started before the invalidation does
+ * not put the stale value back into L1; a remote invalidation fences them with a version of the
+ * local clock taken on arrival, after the sender's version has been observed, so reads in flight
+ * are held off even when the sender's clock lags. L1 entries never outlive the TTL they were put
+ * with: values go to L2 in an envelope that carries their expiry, which bounds the L1 copy of an
+ * L2 hit without asking Redis for the TTL.
+ *
+ * Entries can be put under tags such as {@code customer:123}. In L2 every tag is a Redis set of
+ * the keys written under it ({@code bss:tag:<tag>}), maintained atomically with the write, and L1
+ * keeps a secondary index from tag to key. {@link #evictTag(String)} therefore costs time
+ * proportional to the entries of the tag rather than to the keyspace, and replaces pattern
+ * eviction, which has to SCAN the whole keyspace.
+ *
+ * {@link #getOrLoad} protects the source from stampedes: concurrent misses of a key share one
+ * loader call (single flight), values are kept for a stale-while-revalidate window past their
+ * TTL and served while one caller reloads them in the background, and values are refreshed
+ * early with a probability that grows as the expiry approaches and with the time the last load
+ * took (XFetch), so hot keys are usually reloaded before they expire at all.
+ *
+ * Reads feed the {@link HotKeyDetector}. Entries of hot keys are pinned in L1 with a longer TTL
+ * (see {@link #l1Expiry}), and with more than one L2 replica configured, writes of hot keys are
+ * copied to extra Redis keys that reads pick from at random, spreading a hot key over shards.
  */
 @Slf4j
-public class MultiLayerCacheManager {
+public class MultiLayerCacheManager implements NearCacheInvalidationBus.Listener {
+
+    private static final Duration DEFAULT_INVALIDATION_MEMORY = Duration.ofSeconds(30);
+    private static final int CLOCK_SHIFT = 16;
+    private static final String TAG_KEY_PREFIX = "bss:tag:";
+    private static final int TAG_INDEX_PRUNE_INTERVAL = 10_000;
+    private static final int SCAN_COUNT = 1000;
+    private static final int DELETE_BATCH_SIZE = 500;
+    private static final String REPLICA_SUFFIX = ":replica:";
+    private static final long NO_EXPIRY = Long.MAX_VALUE;
+
+    /**
+     * Sets the value (KEYS[1]) and adds its key to the tag sets (KEYS[2..]), extending a tag set's
+     * TTL to the value's TTL if it would expire earlier
+     */
+    private static final DefaultRedisScript<Long> PUT_TAGGED_SCRIPT = new DefaultRedisScript<>(
+        "redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2]) " +
+        "local ttl = tonumber(ARGV[2]) " +
+        "for i = 2, #KEYS do " +
+        "  redis.call('SADD', KEYS[i], KEYS[1]) " +
+        "  if redis.call('PTTL', KEYS[i]) < ttl then redis.call('PEXPIRE', KEYS[i], ttl) end " +
+        "end " +
+        "return #KEYS - 1",
+        Long.class);
+
+    /**
+     * Deletes the keys of a tag set (KEYS[1]) in batches and removes them from the set, so keys
+     * added concurrently stay tagged; returns the deleted keys separated by newlines
+     */
+    private static final DefaultRedisScript<String> EVICT_TAG_SCRIPT = new DefaultRedisScript<>(
+        "local members = redis.call('SMEMBERS', KEYS[1]) " +
+        "for i = 1, #members, 500 do " +
+        "  local last = math.min(i + 499, #members) " +
+        "  redis.call('UNLINK', unpack(members, i, last)) " +
+        "  redis.call('SREM', KEYS[1], unpack(members, i, last)) " +
+        "end " +
+        "return table.concat(members, '\\n')",
+        String.class);
+
+    /**
+     * L1 value with the version it was read or written at, and the wall-clock time its TTL ends
+     */
+    private record NearCacheEntry(Object value, long version, Set<String> tags, boolean pinned,
+                                  long expiresAtMillis) {
+    }
+
+    /**
+     * L2 value stored by {@link #put}, with the wall-clock time its TTL ends
+     */
+    public record ExpiringValue(Object value, long expiresAt) {
+    }
+
+    /**
+     * Value stored by {@link #getOrLoad}, with its logical expiry and how long loading it took
+     */
+    public record LoadedValue(Object value, long expiresAt, long loadMillis) {
+    }
+
+    /**
+     * Stampede protection settings of {@link #getOrLoad}
+     *
+     * @param staleWhileRevalidate how long past its TTL a value is served while it is reloaded
+     * @param earlyRefreshBeta     XFetch beta; higher refreshes earlier, 0 disables early refresh
+     * @param loadTimeout          how long callers wait for a concurrent load before loading themselves
+     * @param refreshThreads       threads reloading stale values in the background
+     */
+    public record LoadOptions(Duration staleWhileRevalidate, double earlyRefreshBeta, Duration loadTimeout,
+                              int refreshThreads) {
+
+        public static final LoadOptions DEFAULTS = new LoadOptions(Duration.ofSeconds(60), 1.0,
+            Duration.ofSeconds(10), 4);
+    }
 
     private final Cache<String, Object> l1Cache;
     private final RedisTemplate<String, Object> l2Cache;
+    private final NearCacheInvalidationBus invalidationBus;
+    private final Cache<String, Long> invalidatedVersions;
+    private final Map<String, Set<String>> l1TagIndex = new ConcurrentHashMap<>();
+    private final AtomicLong tagRegistrations = new AtomicLong(0);
+    private final ReentrantLock tagIndexPruneLock = new ReentrantLock();
+    private final LoadOptions loadOptions;
+    private final ExecutorService refreshExecutor;
+    private final Map<String, CompletableFuture<Object>> inFlightLoads = new ConcurrentHashMap<>();
+    private final AtomicLong loads = new AtomicLong(0);
+    private final AtomicLong coalescedLoads = new AtomicLong(0);
+    private final AtomicLong staleHits = new AtomicLong(0);
+    private final AtomicLong earlyRefreshes = new AtomicLong(0);
+    private final AtomicLong refreshFailures = new AtomicLong(0);
+    private final HotKeyDetector hotKeyDetector;
+    private final int hotKeyL2Replicas;
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong remoteInvalidations = new AtomicLong(0);
+    private final AtomicLong staleFillsSkipped = new AtomicLong(0);
     private final Duration defaultTtl = Duration.ofMinutes(30);
     private final boolean enableWriteThrough = true;
     private final boolean enableCacheAside = true;
 
+    private volatile long clearedVersion;
+
     public MultiLayerCacheManager(
             Cache<String, Object> l1Cache,
             RedisTemplate<String, Object> l2Cache) {
+        this(l1Cache, l2Cache, null, DEFAULT_INVALIDATION_MEMORY);
+    }
+
+    public MultiLayerCacheManager(
+            Cache<String, Object> l1Cache,
+            RedisTemplate<String, Object> l2Cache,
+            NearCacheInvalidationBus invalidationBus,
+            Duration invalidationMemory) {
+        this(l1Cache, l2Cache, invalidationBus, invalidationMemory, LoadOptions.DEFAULTS);
+    }
+
+    public MultiLayerCacheManager(
+            Cache<String, Object> l1Cache,
+            RedisTemplate<String, Object> l2Cache,
+            NearCacheInvalidationBus invalidationBus,
+            Duration invalidationMemory,
+            LoadOptions loadOptions) {
+        this(l1Cache, l2Cache, invalidationBus, invalidationMemory, loadOptions, null, 1);
+    }
+
+    public MultiLayerCacheManager(
+            Cache<String, Object> l1Cache,
+            RedisTemplate<String, Object> l2Cache,
+            NearCacheInvalidationBus invalidationBus,
+            Duration invalidationMemory,
+            LoadOptions loadOptions,
+            HotKeyDetector hotKeyDetector,
+            int hotKeyL2Replicas) {
         this.l1Cache = l1Cache;
         this.l2Cache = l2Cache;
+        this.invalidationBus = invalidationBus;
+        this.invalidatedVersions = Caffeine.newBuilder()
+            .expireAfterWrite(invalidationMemory)
+            .maximumSize(100_000)
+            .build();
+        this.loadOptions = loadOptions;
+        this.hotKeyDetector = hotKeyDetector;
+        this.hotKeyL2Replicas = Math.max(1, hotKeyL2Replicas);
+        this.refreshExecutor = Executors.newFixedThreadPool(loadOptions.refreshThreads(),
+            Thread.ofPlatform().name("cache-refresh-", 0).daemon().factory());
+        if (invalidationBus != null) {
+            invalidationBus.setListener(this);
+        }
     }
 
     /**
      * Get value from cache (L1 first, then L2)
      */
     public <T> Optional<T> get(String key, Class<T> type) {
+        Object value = lookup(key);
+        if (value instanceof LoadedValue loaded) {
+            // Only getOrLoad serves values past their TTL, while it reloads them
+            value = System.currentTimeMillis() < loaded.expiresAt() ? loaded.value() : null;
+        }
+        return Optional.ofNullable(value).map(type::cast);
+    }
+
+    private Object lookup(String key) {
+        boolean hot = recordAccess(key);
+
         // Try L1 cache
-        Object value = l1Cache.getIfPresent(key);
-        if (value != null) {
+        Object cached = l1Cache.getIfPresent(key);
+        if (cached instanceof NearCacheEntry entry) {
             log.trace("Cache hit (L1): {}", key);
-            return Optional.of(type.cast(value));
+            if (hot && !entry.pinned()) {
+                pinL1(key, entry);
+            }
+            return entry.value();
         }
 
-        // Try L2 cache
-        value = l2Cache.opsForValue().get(key);
+        // Try L2 cache, a random copy for hot keys
+        long readVersion = nextVersion();
+        String l2Key = hot ? l2ReadKey(key) : key;
+        Object value = l2Cache.opsForValue().get(l2Key);
+        if (value == null && !l2Key.equals(key)) {
+            // Copies are only written when the key is written while hot
+            value = l2Cache.opsForValue().get(key);
+        }
         if (value != null) {
             log.trace("Cache hit (L2): {}", key);
-            // Populate L1 cache
-            l1Cache.put(key, value);
-            return Optional.of(type.cast(value));
+            // Populate L1 cache, for no longer than the L2 copy lives
+            long expiresAt = l2ExpiresAt(value);
+            if (value instanceof ExpiringValue expiring) {
+                value = expiring.value();
+            }
+            fillL1(key, value, readVersion, Set.of(), hot, expiresAt);
+            return value;
         }
 
         log.trace("Cache miss: {}", key);
-        return Optional.empty();
+        return null;
     }
 
     /**
@@ -64,21 +269,61 @@ public class MultiLayerCacheManager {
      * Put value in both caches with TTL
      */
     public void put(String key, Object value, Duration ttl) {
+        put(key, value, ttl, Set.of());
+    }
+
+    /**
+     * Put value in both caches with TTL, registered under the given tags
+     */
+    public void put(String key, Object value, Duration ttl, Collection<String> tags) {
+        long version = nextVersion();
+        Set<String> entryTags = Set.copyOf(tags);
+
+        boolean hot = isHotKey(key);
+
         // Put in L1 cache
-        l1Cache.put(key, value);
+        long expiresAt = System.currentTimeMillis() + ttl.toMillis();
+        fillL1(key, value, version, entryTags, hot, expiresAt);
+
+        // Put in L2 cache, with copies for hot keys; loaded values carry their expiry already
+        Object l2Value = value instanceof LoadedValue ? value : new ExpiringValue(value, expiresAt);
+        List<String> l2Keys = hot ? l2Copies(key) : List.of(key);
+        for (String l2Key : l2Keys) {
+            if (entryTags.isEmpty()) {
+                l2Cache.opsForValue().set(l2Key, l2Value, ttl.toMillis(), TimeUnit.MILLISECONDS);
+            } else {
+                putTagged(l2Key, l2Value, ttl, entryTags);
+            }
+        }
+        publishKey(key, version);
 
-        // Put in L2 cache
-        l2Cache.opsForValue().set(key, value, ttl.toMillis(), TimeUnit.MILLISECONDS);
+        log.trace("Cache put: {} (TTL: {}ms, tags: {})", key, ttl.toMillis(), entryTags);
+    }
 
-        log.trace("Cache put: {} (TTL: {}ms)", key, ttl.toMillis());
+    @SuppressWarnings("unchecked")
+    private void putTagged(String key, Object value, Duration ttl, Set<String> tags) {
+        List<String> keys = new ArrayList<>(tags.size() + 1);
+        keys.add(key);
+        for (String tag : tags) {
+            keys.add(tagKey(tag));
+        }
+        byte[] serializedValue = ((RedisSerializer<Object>) l2Cache.getValueSerializer()).serialize(value);
+        l2Cache.execute(PUT_TAGGED_SCRIPT, RedisSerializer.byteArray(), new GenericToStringSerializer<>(Long.class),
+            keys, serializedValue, Long.toString(ttl.toMillis()).getBytes(StandardCharsets.UTF_8));
     }
 
     /**
      * Remove value from both caches
      */
     public void evict(String key) {
-        l1Cache.invalidate(key);
-        l2Cache.delete(key);
+        long version = nextVersion();
+        invalidateL1(key, version, false);
+        if (hotKeyL2Replicas > 1) {
+            l2Cache.delete(l2Copies(key));
+        } else {
+            l2Cache.delete(key);
+        }
+        publishKey(key, version);
         log.trace("Cache evict: {}", key);
     }
 
@@ -86,8 +331,12 @@ public class MultiLayerCacheManager {
      * Clear all caches
      */
     public void clear() {
-        l1Cache.invalidateAll();
+        long version = nextVersion();
+        clearL1(version, false);
         l2Cache.getConnectionFactory().getConnection().flushDb();
+        if (invalidationBus != null) {
+            invalidationBus.publishPattern("*", version);
+        }
         log.info("Cache cleared");
     }
 
@@ -95,41 +344,445 @@ public class MultiLayerCacheManager {
      * Get or load pattern (Cache-Aside)
      */
     public <T> T getOrLoad(String key, Function<String, T> loader, Duration ttl, Class<T> type) {
+        return getOrLoad(key, loader, ttl, type, Set.of());
+    }
+
+    /**
+     * Get or load pattern (Cache-Aside), storing loaded values under the given tags
+     *
+     * Concurrent misses of a key run the loader once. Values past their TTL but within the
+     * stale-while-revalidate window, and values picked for early refresh, are returned at once
+     * while the loader runs in the background.
+     */
+    public <T> T getOrLoad(String key, Function<String, T> loader, Duration ttl, Class<T> type,
+                           Collection<String> tags) {
         // Try cache first
-        Optional<T> cached = get(key, type);
-        if (cached.isPresent()) {
-            return cached.get();
+        Object cached = lookup(key);
+        if (cached instanceof LoadedValue loaded) {
+            long now = System.currentTimeMillis();
+            if (now < loaded.expiresAt()) {
+                if (shouldRefreshEarly(loaded, now)) {
+                    earlyRefreshes.incrementAndGet();
+                    refreshAsync(key, loader, ttl, tags);
+                }
+                return type.cast(loaded.value());
+            }
+            if (now < loaded.expiresAt() + loadOptions.staleWhileRevalidate().toMillis()) {
+                staleHits.incrementAndGet();
+                refreshAsync(key, loader, ttl, tags);
+                return type.cast(loaded.value());
+            }
+            // Past the stale window; only L1 can still hold it
+        } else if (cached != null) {
+            return type.cast(cached);
         }
 
-        // Load from source
+        // Load from source, once for all concurrent callers
         log.trace("Cache miss, loading: {}", key);
-        T value = loader.apply(key);
+        return type.cast(loadSingleFlight(key, loader, ttl, tags));
+    }
 
-        // Store in cache
-        if (value != null) {
-            put(key, value, ttl);
+    /**
+     * XFetch: refresh when now - loadMillis * beta * ln(random) reaches the expiry, i.e. with a
+     * probability that rises towards the expiry, earlier for values that are slow to load
+     */
+    private boolean shouldRefreshEarly(LoadedValue loaded, long now) {
+        double beta = loadOptions.earlyRefreshBeta();
+        if (beta <= 0) {
+            return false;
+        }
+        double gap = -Math.max(loaded.loadMillis(), 1) * beta * Math.log(ThreadLocalRandom.current().nextDouble());
+        return now + gap >= loaded.expiresAt();
+    }
+
+    private Object loadSingleFlight(String key, Function<String, ?> loader, Duration ttl, Collection<String> tags) {
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = inFlightLoads.putIfAbsent(key, load);
+        if (inFlight != null) {
+            coalescedLoads.incrementAndGet();
+            return awaitLoad(key, inFlight, loader, ttl, tags);
+        }
+        try {
+            Object value = load(key, loader, ttl, tags);
+            load.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(key, load);
         }
+    }
+
+    private Object awaitLoad(String key, CompletableFuture<Object> inFlight, Function<String, ?> loader,
+                             Duration ttl, Collection<String> tags) {
+        try {
+            return inFlight.get(loadOptions.loadTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Load of {} did not finish within {}, loading it again", key, loadOptions.loadTimeout());
+            return load(key, loader, ttl, tags);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Reload a value in the background unless a load of the key is already running
+     */
+    private void refreshAsync(String key, Function<String, ?> loader, Duration ttl, Collection<String> tags) {
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        if (inFlightLoads.putIfAbsent(key, load) != null) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    load.complete(load(key, loader, ttl, tags));
+                } catch (RuntimeException | Error e) {
+                    // The current value is served until it leaves the stale window
+                    refreshFailures.incrementAndGet();
+                    load.completeExceptionally(e);
+                    log.warn("Background refresh of {} failed: {}", key, e.getMessage());
+                } finally {
+                    inFlightLoads.remove(key, load);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlightLoads.remove(key, load);
+            load.completeExceptionally(e);
+        }
+    }
 
+    private Object load(String key, Function<String, ?> loader, Duration ttl, Collection<String> tags) {
+        long start = System.nanoTime();
+        Object value = loader.apply(key);
+        long loadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        loads.incrementAndGet();
+
+        // Store in cache, kept past the TTL for the stale-while-revalidate window
+        if (value != null) {
+            LoadedValue loaded = new LoadedValue(value, System.currentTimeMillis() + ttl.toMillis(), loadMillis);
+            put(key, loaded, ttl.plus(loadOptions.staleWhileRevalidate()), tags);
+        }
         return value;
     }
 
+    /**
+     * Evict all entries put under a tag from both caches
+     *
+     * @return the number of keys evicted
+     */
+    public int evictTag(String tag) {
+        long version = nextVersion();
+        Set<String> keys = new HashSet<>();
+
+        // L1 cache
+        Set<String> indexed = l1TagIndex.remove(tag);
+        if (indexed != null) {
+            keys.addAll(indexed);
+        }
+
+        // L2 cache, which also knows the keys other replicas put under the tag
+        String l2Keys = l2Cache.execute(EVICT_TAG_SCRIPT, RedisSerializer.string(), RedisSerializer.string(),
+            List.of(tagKey(tag)));
+        if (l2Keys != null && !l2Keys.isEmpty()) {
+            keys.addAll(Arrays.asList(l2Keys.split("\n")));
+        }
+
+        for (String key : keys) {
+            invalidateL1(key, version, false);
+        }
+        if (invalidationBus != null && !keys.isEmpty()) {
+            invalidationBus.publishKeys(keys, version);
+        }
+
+        log.debug("Evicted {} keys tagged: {}", keys.size(), tag);
+        return keys.size();
+    }
+
     /**
      * Batch evict by pattern
+     *
+     * Pattern eviction has to walk the whole keyspace (with SCAN, so Redis is not blocked); prefer
+     * {@link #evictTag(String)} for entries that can be put under a tag.
      */
     public void evictPattern(String pattern) {
+        long version = nextVersion();
+
         // L1 cache
-        Set<String> l1Keys = l1Cache.asMap().keySet().stream()
-            .filter(k -> k.contains(pattern.replace("*", "")))
-            .collect(HashSet::new, HashSet::add, HashSet::addAll);
-        l1Keys.forEach(l1Cache::invalidate);
+        int l1Evicted = invalidateL1Matching(pattern, version, false);
 
         // L2 cache
-        Set<String> l2Keys = l2Cache.keys("*" + pattern + "*");
-        if (l2Keys != null && !l2Keys.isEmpty()) {
-            l2Cache.delete(l2Keys);
+        int l2Evicted = deleteL2Matching("*" + pattern + "*");
+        if (invalidationBus != null) {
+            invalidationBus.publishPattern(pattern, version);
+        }
+
+        log.info("Evicted {} keys matching pattern: {}", l1Evicted + l2Evicted, pattern);
+    }
+
+    private int deleteL2Matching(String match) {
+        ScanOptions options = ScanOptions.scanOptions().match(match).count(SCAN_COUNT).build();
+        List<String> batch = new ArrayList<>(DELETE_BATCH_SIZE);
+        int deleted = 0;
+        try (Cursor<String> cursor = l2Cache.scan(options)) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == DELETE_BATCH_SIZE) {
+                    deleted += unlink(batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            deleted += unlink(batch);
+        }
+        return deleted;
+    }
+
+    private int unlink(List<String> keys) {
+        Long unlinked = l2Cache.unlink(keys);
+        return unlinked != null ? unlinked.intValue() : 0;
+    }
+
+    @Override
+    public void onKeyInvalidated(String key, long version) {
+        remoteInvalidations.incrementAndGet();
+        invalidateL1(key, arrivalVersion(version), true);
+    }
+
+    @Override
+    public void onPatternInvalidated(String pattern, long version) {
+        remoteInvalidations.incrementAndGet();
+        long fence = arrivalVersion(version);
+        if ("*".equals(pattern)) {
+            clearL1(fence, true);
+        } else {
+            invalidateL1Matching(pattern, fence, true);
+        }
+    }
+
+    /**
+     * Version fencing a remote invalidation: the sender's version may lag reads that started here
+     * before the message arrived, while a version taken after observing it is later than all of them
+     */
+    private long arrivalVersion(long remoteVersion) {
+        observeVersion(remoteVersion);
+        return nextVersion();
+    }
+
+    @Override
+    public void onMissedInvalidations() {
+        clearL1(nextVersion(), true);
+    }
+
+    /**
+     * Wall-clock time the L2 copy of a value expires, from its envelope, or {@link #NO_EXPIRY} for
+     * values not written by this cache
+     */
+    private long l2ExpiresAt(Object value) {
+        if (value instanceof LoadedValue loaded) {
+            return loaded.expiresAt() + loadOptions.staleWhileRevalidate().toMillis();
+        }
+        if (value instanceof ExpiringValue expiring) {
+            return expiring.expiresAt();
+        }
+        return NO_EXPIRY;
+    }
+
+    /**
+     * Put a value read or written at the given version into L1, unless the key was invalidated
+     * after that or L1 already holds a newer value
+     */
+    private void fillL1(String key, Object value, long version, Set<String> tags, boolean pinned,
+                        long expiresAtMillis) {
+        l1Cache.asMap().compute(key, (k, existing) -> {
+            Long invalidatedAt = invalidatedVersions.getIfPresent(k);
+            if (version < clearedVersion || (invalidatedAt != null && invalidatedAt > version)) {
+                staleFillsSkipped.incrementAndGet();
+                return existing;
+            }
+            if (existing instanceof NearCacheEntry entry && entry.version() > version) {
+                return existing;
+            }
+            for (String tag : tags) {
+                l1TagIndex.computeIfAbsent(tag, t -> ConcurrentHashMap.newKeySet()).add(k);
+            }
+            return new NearCacheEntry(value, version, tags, pinned, expiresAtMillis);
+        });
+        if (!tags.isEmpty() && tagRegistrations.addAndGet(tags.size()) % TAG_INDEX_PRUNE_INTERVAL < tags.size()) {
+            pruneTagIndex();
+        }
+    }
+
+    /**
+     * Drop the L1 entry of a key, and keep fills that started before the version out of L1. A local
+     * invalidation keeps entries newer than its version; a remote one drops the entry regardless,
+     * as versions of different replicas only compare as far as their clocks agree.
+     */
+    private void invalidateL1(String key, long version, boolean remote) {
+        invalidatedVersions.asMap().merge(key, version, Math::max);
+        l1Cache.asMap().computeIfPresent(key, (k, existing) -> {
+            if (existing instanceof NearCacheEntry entry) {
+                if (!remote && entry.version() > version) {
+                    return existing;
+                }
+                unindexTags(k, entry.tags());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Replace an L1 entry with a pinned copy, unless it changed in the meantime
+     */
+    private void pinL1(String key, NearCacheEntry entry) {
+        l1Cache.asMap().computeIfPresent(key, (k, existing) -> existing == entry
+            ? new NearCacheEntry(entry.value(), entry.version(), entry.tags(), true, entry.expiresAtMillis())
+            : existing);
+    }
+
+    /**
+     * L1 expiry that keeps pinned (hot) entries for longer, but never past the TTL of the entry
+     */
+    public static Expiry<String, Object> l1Expiry(Duration ttl, Duration pinnedTtl) {
+        long ttlNanos = ttl.toNanos();
+        long pinnedTtlNanos = pinnedTtl.toNanos();
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(String key, Object value, long currentTime) {
+                if (!(value instanceof NearCacheEntry entry)) {
+                    return ttlNanos;
+                }
+                long limit = entry.pinned() ? pinnedTtlNanos : ttlNanos;
+                if (entry.expiresAtMillis() == NO_EXPIRY) {
+                    return limit;
+                }
+                long remainingMillis = Math.max(0, entry.expiresAtMillis() - System.currentTimeMillis());
+                return Math.min(limit, TimeUnit.MILLISECONDS.toNanos(remainingMillis));
+            }
+
+            @Override
+            public long expireAfterUpdate(String key, Object value, long currentTime, long currentDuration) {
+                return expireAfterCreate(key, value, currentTime);
+            }
+
+            @Override
+            public long expireAfterRead(String key, Object value, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+
+    private boolean recordAccess(String key) {
+        if (hotKeyDetector == null) {
+            return false;
+        }
+        hotKeyDetector.recordAccess(key);
+        return hotKeyDetector.isHotKey(key);
+    }
+
+    private boolean isHotKey(String key) {
+        return hotKeyDetector != null && hotKeyDetector.isHotKey(key);
+    }
+
+    /**
+     * The L2 key and its copies
+     */
+    private List<String> l2Copies(String key) {
+        List<String> keys = new ArrayList<>(hotKeyL2Replicas);
+        keys.add(key);
+        for (int i = 1; i < hotKeyL2Replicas; i++) {
+            keys.add(key + REPLICA_SUFFIX + i);
         }
+        return keys;
+    }
 
-        log.info("Evicted {} keys matching pattern: {}", l1Keys.size() + l2Keys.size(), pattern);
+    private String l2ReadKey(String key) {
+        int replica = hotKeyL2Replicas > 1 ? ThreadLocalRandom.current().nextInt(hotKeyL2Replicas) : 0;
+        return replica == 0 ? key : key + REPLICA_SUFFIX + replica;
+    }
+
+    private void unindexTags(String key, Set<String> tags) {
+        for (String tag : tags) {
+            l1TagIndex.computeIfPresent(tag, (t, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    /**
+     * Drop index entries of keys that left L1 through its size or expiry limits, which happens
+     * without the index noticing
+     */
+    private void pruneTagIndex() {
+        if (!tagIndexPruneLock.tryLock()) {
+            return;
+        }
+        try {
+            var entries = l1Cache.asMap();
+            l1TagIndex.forEach((tag, keys) -> {
+                keys.removeIf(key -> !(entries.get(key) instanceof NearCacheEntry entry && entry.tags().contains(tag)));
+                l1TagIndex.computeIfPresent(tag, (t, current) -> current.isEmpty() ? null : current);
+            });
+        } finally {
+            tagIndexPruneLock.unlock();
+        }
+    }
+
+    private int invalidateL1Matching(String pattern, long version, boolean remote) {
+        String fragment = pattern.replace("*", "");
+        int[] evicted = {0};
+        l1Cache.asMap().entrySet().removeIf(e -> {
+            boolean stale = e.getKey().contains(fragment)
+                && (remote || !(e.getValue() instanceof NearCacheEntry entry && entry.version() > version));
+            if (stale) {
+                evicted[0]++;
+            }
+            return stale;
+        });
+        return evicted[0];
+    }
+
+    private void clearL1(long version, boolean remote) {
+        synchronized (this) {
+            clearedVersion = Math.max(clearedVersion, version);
+        }
+        l1Cache.asMap().values().removeIf(value ->
+            remote || !(value instanceof NearCacheEntry entry && entry.version() > version));
+        pruneTagIndex();
+    }
+
+    private static String tagKey(String tag) {
+        return TAG_KEY_PREFIX + tag;
+    }
+
+    private void publishKey(String key, long version) {
+        if (invalidationBus != null) {
+            invalidationBus.publishKey(key, version);
+        }
+    }
+
+    /**
+     * Next version of the hybrid logical clock
+     */
+    private long nextVersion() {
+        long physical = System.currentTimeMillis() << CLOCK_SHIFT;
+        return clock.accumulateAndGet(physical, (last, now) -> Math.max(last + 1, now));
+    }
+
+    private void observeVersion(long version) {
+        clock.accumulateAndGet(version, Math::max);
     }
 
     /**
@@ -140,15 +793,17 @@ public class MultiLayerCacheManager {
         var l1Size = l1Cache.estimatedSize();
 
         try {
-            var l2Info = l2Cache.getConnectionFactory().getConnection().info("memory");
-            var l2Size = l2Cache.keys("*").size();
+            Properties l2Info = l2Cache.execute((RedisCallback<Properties>) connection ->
+                connection.serverCommands().info("memory"));
+            Long l2Size = l2Cache.execute((RedisCallback<Long>) connection ->
+                connection.serverCommands().dbSize());
 
             return new CacheStatistics(
                 l1Size,
                 l1Stats.hitCount(),
                 l1Stats.missCount(),
                 l1Stats.evictionCount(),
-                l2Size,
+                l2Size != null ? l2Size : 0,
                 extractUsedMemory(l2Info)
             );
         } catch (Exception e) {
@@ -157,25 +812,70 @@ public class MultiLayerCacheManager {
         }
     }
 
-    private long extractUsedMemory(String info) {
-        // Simple parsing of Redis INFO memory
-        String[] lines = info.split("\r\n");
-        for (String line : lines) {
-            if (line.startsWith("used_memory_human:")) {
-                return parseMemory(line.substring("used_memory_human:".length()).trim());
-            }
-        }
-        return 0;
+    private long extractUsedMemory(Properties info) {
+        // Redis INFO memory reports used_memory in bytes
+        String usedMemory = info != null ? info.getProperty("used_memory") : null;
+        return usedMemory != null ? Long.parseLong(usedMemory.trim()) : 0;
     }
 
-    private long parseMemory(String value) {
-        // Parse values like "1.2M", "500K", etc.
-        if (value.endsWith("M")) {
-            return (long) (Double.parseDouble(value.substring(0, value.length() - 1)) * 1024 * 1024);
-        } else if (value.endsWith("K")) {
-            return (long) (Double.parseDouble(value.substring(0, value.length() - 1)) * 1024);
-        }
-        return Long.parseLong(value);
+    /**
+     * Loader calls made by getOrLoad
+     */
+    public long getLoads() {
+        return loads.get();
+    }
+
+    /**
+     * getOrLoad misses that waited for another caller's load instead of loading themselves
+     */
+    public long getCoalescedLoads() {
+        return coalescedLoads.get();
+    }
+
+    /**
+     * getOrLoad hits served past their TTL while being reloaded
+     */
+    public long getStaleHits() {
+        return staleHits.get();
+    }
+
+    /**
+     * getOrLoad hits that triggered a probabilistic early refresh
+     */
+    public long getEarlyRefreshes() {
+        return earlyRefreshes.get();
+    }
+
+    /**
+     * Background refreshes whose loader failed
+     */
+    public long getRefreshFailures() {
+        return refreshFailures.get();
+    }
+
+    public LoadOptions getLoadOptions() {
+        return loadOptions;
+    }
+
+    /**
+     * Stop the background refresh threads
+     */
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * Invalidations received from other replicas
+     */
+    public long getRemoteInvalidations() {
+        return remoteInvalidations.get();
+    }
+
+    /**
+     * L2 reads not put into L1 because the key was invalidated while they were in flight
+     */
+    public long getStaleFillsSkipped() {
+        return staleFillsSkipped.get();
     }
 
     /**
@@ -0,0 +1,175 @@
+package com.droid.bss.infrastructure.cache.advanced;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.SubscriptionListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Near-Cache Invalidation Bus
+ *
+ * Broadcasts L1 invalidations of {@link MultiLayerCacheManager} to the other replicas over Redis
+ * pub/sub. A message carries the sending replica, the version of the write or eviction and the
+ * key or pattern, as {@code origin TAB version TAB key}; a tag eviction sends its keys in one
+ * message, separated by newlines. Replicas drop their L1 copies older than the version on
+ * receipt; their own messages are ignored.
+ *
+ * Pub/sub delivery is at most once, so a replica whose subscription was interrupted may have
+ * missed invalidations and drops its whole L1 when the subscription is re-established.
+ */
+@Slf4j
+public class NearCacheInvalidationBus implements MessageListener, SubscriptionListener {
+
+    /**
+     * Applies invalidations received from other replicas
+     */
+    public interface Listener {
+
+        void onKeyInvalidated(String key, long version);
+
+        void onPatternInvalidated(String pattern, long version);
+
+        void onMissedInvalidations();
+    }
+
+    private static final int MAX_KEYS_PER_MESSAGE = 1000;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final String keyChannel;
+    private final String patternChannel;
+    private final String origin = UUID.randomUUID().toString();
+    private final Set<String> subscribedChannels = ConcurrentHashMap.newKeySet();
+    private final AtomicLong published = new AtomicLong(0);
+    private final AtomicLong received = new AtomicLong(0);
+    private final AtomicLong publishFailures = new AtomicLong(0);
+
+    private volatile Listener listener;
+
+    public NearCacheInvalidationBus(RedisTemplate<String, Object> redisTemplate,
+                                    String keyChannel, String patternChannel) {
+        this.redisTemplate = redisTemplate;
+        this.keyChannel = keyChannel;
+        this.patternChannel = patternChannel;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public String getKeyChannel() { return keyChannel; }
+    public String getPatternChannel() { return patternChannel; }
+
+    /**
+     * Tell the other replicas that a key was written or evicted at the given version
+     */
+    public void publishKey(String key, long version) {
+        publish(keyChannel, key, version);
+    }
+
+    /**
+     * Tell the other replicas that several keys were evicted at the given version
+     */
+    public void publishKeys(Collection<String> keys, long version) {
+        List<String> batch = new ArrayList<>(Math.min(keys.size(), MAX_KEYS_PER_MESSAGE));
+        for (String key : keys) {
+            batch.add(key);
+            if (batch.size() == MAX_KEYS_PER_MESSAGE) {
+                publish(keyChannel, String.join("\n", batch), version);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            publish(keyChannel, String.join("\n", batch), version);
+        }
+    }
+
+    /**
+     * Tell the other replicas that keys matching a pattern were evicted; {@code *} clears all
+     */
+    public void publishPattern(String pattern, long version) {
+        publish(patternChannel, pattern, version);
+    }
+
+    private void publish(String channel, String value, long version) {
+        byte[] message = (origin + '\t' + version + '\t' + value).getBytes(StandardCharsets.UTF_8);
+        try {
+            redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(
+                    channel.getBytes(StandardCharsets.UTF_8), message), true);
+            published.incrementAndGet();
+        } catch (Exception e) {
+            // Other replicas keep their copy until it expires from L1
+            publishFailures.incrementAndGet();
+            log.warn("Failed to publish cache invalidation of {} on {}: {}", value, channel, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int first = body.indexOf('\t');
+        int second = first < 0 ? -1 : body.indexOf('\t', first + 1);
+        if (second < 0) {
+            log.warn("Ignoring malformed cache invalidation: {}", body);
+            return;
+        }
+        if (first == origin.length() && body.startsWith(origin)) {
+            return;
+        }
+
+        long version;
+        try {
+            version = Long.parseLong(body, first + 1, second, 10);
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring cache invalidation with malformed version: {}", body);
+            return;
+        }
+        String value = body.substring(second + 1);
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+
+        Listener target = listener;
+        if (target == null) {
+            return;
+        }
+        received.incrementAndGet();
+        if (channel.equals(patternChannel)) {
+            target.onPatternInvalidated(value, version);
+        } else {
+            for (String key : value.split("\n")) {
+                target.onKeyInvalidated(key, version);
+            }
+        }
+    }
+
+    @Override
+    public void onChannelSubscribed(byte[] channel, long count) {
+        // The first subscription to a channel happens at startup with an empty L1
+        String name = new String(channel, StandardCharsets.UTF_8);
+        if (!subscribedChannels.add(name)) {
+            Listener target = listener;
+            if (target != null) {
+                log.info("Resubscribed to cache invalidations on {}, dropping L1", name);
+                target.onMissedInvalidations();
+            }
+        }
+    }
+
+    @Override
+    public void onChannelUnsubscribed(byte[] channel, long count) {
+        log.warn("Unsubscribed from cache invalidations on {}", new String(channel, StandardCharsets.UTF_8));
+    }
+
+    public long getPublishedInvalidations() { return published.get(); }
+    public long getReceivedInvalidations() { return received.get(); }
+    public long getPublishFailures() { return publishFailures.get(); }
+}
@@ -1,16 +1,19 @@
 package com.droid.bss.infrastructure.event.sourcing;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
- * Abstract base class for projections
+ * Abstract base class for projections; the event count is safe to update from the concurrent
+ * partitions of a rebuild
  */
 public abstract class AbstractProjection implements Projection {
 
-    protected long version = 0;
-    protected boolean upToDate = true;
+    private final AtomicLong version = new AtomicLong();
+    protected volatile boolean upToDate = true;
 
     @Override
     public long getVersion() {
-        return version;
+        return version.get();
     }
 
     @Override
@@ -18,6 +21,13 @@ public abstract class AbstractProjection implements Projection {
         return upToDate;
     }
 
+    /**
+     * Count a handled event
+     */
+    protected void updateVersion() {
+        version.incrementAndGet();
+    }
+
     /**
      * Mark projection as out of date
      */
@@ -55,6 +55,13 @@ public abstract class AggregateRoot {
         return new ArrayList<>(domainEvents);
     }
 
+    /**
+     * Move the version past events that have been saved, so the next save continues after them
+     */
+    protected void markCommitted(long committedVersion) {
+        version = committedVersion;
+    }
+
     /**
      * Clear all uncommitted domain events
      */
@@ -66,10 +73,37 @@ public abstract class AggregateRoot {
      * Load from history of events
      */
     public void loadFromHistory(List<StoredEvent> events) {
-        events.forEach(event -> {
-            applyEvent(event);
-            version++;
-        });
+        events.forEach(this::replay);
+    }
+
+    /**
+     * Apply a single historical event, used when events are streamed from the store
+     */
+    public void replay(StoredEvent event) {
+        applyEvent(event);
+        version++;
+    }
+
+    /**
+     * Restore state and version from a snapshot
+     */
+    public void loadFromSnapshot(Snapshot snapshot) {
+        restoreSnapshotState(snapshot.getState());
+        version = snapshot.getVersion();
+    }
+
+    /**
+     * Serialized state for a snapshot, or null if the aggregate does not support snapshots
+     */
+    protected String snapshotState() {
+        return null;
+    }
+
+    /**
+     * Restore state written by {@link #snapshotState()}
+     */
+    protected void restoreSnapshotState(String state) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support snapshots");
     }
 
     /**
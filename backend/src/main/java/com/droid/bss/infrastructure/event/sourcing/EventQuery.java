@@ -0,0 +1,67 @@
+package com.droid.bss.infrastructure.event.sourcing;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filter for streaming reads from the event store. Events are always returned in global position order.
+ *
+ * @param afterPosition  exclusive lower bound on the global position, 0 for the beginning of the store
+ * @param toPosition     inclusive upper bound on the global position, {@link Long#MAX_VALUE} for no bound
+ * @param fromTime       inclusive lower bound on the event timestamp, or null
+ * @param toTime         inclusive upper bound on the event timestamp, or null
+ * @param eventType      event type to match, or null for all types
+ * @param partition      aggregate-id hash partition to read, 0 when not partitioned
+ * @param partitionCount number of aggregate-id hash partitions, 1 when not partitioned
+ */
+public record EventQuery(
+        long afterPosition,
+        long toPosition,
+        LocalDateTime fromTime,
+        LocalDateTime toTime,
+        String eventType,
+        int partition,
+        int partitionCount
+) {
+
+    public EventQuery {
+        if (partitionCount < 1 || partition < 0 || partition >= partitionCount) {
+            throw new IllegalArgumentException("Invalid partition " + partition + " of " + partitionCount);
+        }
+    }
+
+    public static EventQuery all() {
+        return afterPosition(0L);
+    }
+
+    public static EventQuery afterPosition(long position) {
+        return new EventQuery(position, Long.MAX_VALUE, null, null, null, 0, 1);
+    }
+
+    public static EventQuery inTimeRange(LocalDateTime from, LocalDateTime to) {
+        return new EventQuery(0L, Long.MAX_VALUE, from, to, null, 0, 1);
+    }
+
+    public static EventQuery ofType(String eventType) {
+        return new EventQuery(0L, Long.MAX_VALUE, null, null, eventType, 0, 1);
+    }
+
+    /**
+     * Events of one aggregate-id partition up to a position; all events of an aggregate fall into
+     * the same partition
+     */
+    public static EventQuery partition(int partition, int partitionCount, long toPosition) {
+        return new EventQuery(0L, toPosition, null, null, null, partition, partitionCount);
+    }
+
+    public EventQuery withAfterPosition(long position) {
+        return new EventQuery(position, toPosition, fromTime, toTime, eventType, partition, partitionCount);
+    }
+
+    public EventQuery withToPosition(long position) {
+        return new EventQuery(afterPosition, position, fromTime, toTime, eventType, partition, partitionCount);
+    }
+
+    public boolean isPartitioned() {
+        return partitionCount > 1;
+    }
+}
@@ -12,6 +12,7 @@ import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -24,6 +25,8 @@ public class EventReplayService {
     private final EventSerializer serializer;
     private final Executor replayExecutor = ForkJoinPool.commonPool();
 
+    private static final int MAX_REPORT_LINES = 1000;
+
     public EventReplayService(EventStore eventStore, EventSerializer serializer) {
         this.eventStore = eventStore;
         this.serializer = serializer;
@@ -34,13 +37,9 @@ public class EventReplayService {
      */
     @Transactional(readOnly = true)
     public ReplayResult replayAggregateEvents(String aggregateId) {
-        List<StoredEvent> events = eventStore.getEventsForAggregate(aggregateId);
-
-        if (events.isEmpty()) {
-            return new ReplayResult(0, 0, "No events found for aggregate: " + aggregateId);
-        }
-
-        return replayEvents(events);
+        Replay replay = new Replay();
+        eventStore.streamEventsForAggregate(aggregateId, 0L, replay);
+        return replay.result("No events found for aggregate: " + aggregateId);
     }
 
     /**
@@ -48,13 +47,9 @@ public class EventReplayService {
      */
     @Transactional(readOnly = true)
     public ReplayResult replayEventsByType(String eventType) {
-        List<StoredEvent> events = eventStore.getEventsByType(eventType);
-
-        if (events.isEmpty()) {
-            return new ReplayResult(0, 0, "No events found for type: " + eventType);
-        }
-
-        return replayEvents(events);
+        Replay replay = new Replay();
+        eventStore.streamEvents(EventQuery.ofType(eventType), replay);
+        return replay.result("No events found for type: " + eventType);
     }
 
     /**
@@ -62,35 +57,19 @@ public class EventReplayService {
      */
     @Transactional(readOnly = true)
     public ReplayResult replayEventsByCorrelationId(String correlationId) {
-        List<StoredEvent> events = eventStore.getEventsByCorrelationId(correlationId);
-
-        if (events.isEmpty()) {
-            return new ReplayResult(0, 0, "No events found for correlation ID: " + correlationId);
-        }
-
-        return replayEvents(events);
+        Replay replay = new Replay();
+        eventStore.getEventsByCorrelationId(correlationId).forEach(replay);
+        return replay.result("No events found for correlation ID: " + correlationId);
     }
 
     /**
-     * Replay events in a time range
+     * Replay events in a time range; the range is filtered by the database
      */
     @Transactional(readOnly = true)
     public ReplayResult replayEventsInTimeRange(LocalDateTime start, LocalDateTime end) {
-        // This would require a query by time range
-        // For now, we'll return all events
-        List<StoredEvent> allEvents = eventStore.getEventsSince(UUID.randomUUID());
-        List<StoredEvent> filteredEvents = allEvents.stream()
-                .filter(event -> {
-                    LocalDateTime eventTime = event.getTimestamp();
-                    return !eventTime.isBefore(start) && !eventTime.isAfter(end);
-                })
-                .collect(Collectors.toList());
-
-        if (filteredEvents.isEmpty()) {
-            return new ReplayResult(0, 0, "No events found in time range: " + start + " to " + end);
-        }
-
-        return replayEvents(filteredEvents);
+        Replay replay = new Replay();
+        eventStore.streamEvents(EventQuery.inTimeRange(start, end), replay);
+        return replay.result("No events found in time range: " + start + " to " + end);
     }
 
     /**
@@ -98,13 +77,12 @@ public class EventReplayService {
      */
     @Transactional(readOnly = true)
     public ReplayResult replayEventsSince(UUID eventId) {
-        List<StoredEvent> events = eventStore.getEventsSince(eventId);
-
-        if (events.isEmpty()) {
-            return new ReplayResult(0, 0, "No events found since: " + eventId);
+        Replay replay = new Replay();
+        long position = eventStore.getGlobalPosition(eventId);
+        if (position >= 0) {
+            eventStore.streamEvents(EventQuery.afterPosition(position), replay);
         }
-
-        return replayEvents(events);
+        return replay.result("No events found since: " + eventId);
     }
 
     /**
@@ -173,20 +151,23 @@ public class EventReplayService {
     }
 
     /**
-     * Replay a list of events
+     * Replays streamed events one at a time. Only counts and the first report lines are kept,
+     * so replaying the whole store does not grow the heap.
      */
-    private ReplayResult replayEvents(List<StoredEvent> events) {
-        long successCount = 0;
-        long failureCount = 0;
-        StringBuilder report = new StringBuilder();
-
-        for (StoredEvent event : events) {
+    private final class Replay implements Consumer<StoredEvent> {
+        private long successCount;
+        private long failureCount;
+        private long reportLines;
+        private final StringBuilder report = new StringBuilder();
+
+        @Override
+        public void accept(StoredEvent event) {
             try {
                 // Reconstruct CloudEvent
                 CloudEvent cloudEvent = serializer.toCloudEvent(event);
 
                 // Log the event (in a real implementation, you might apply it to a test aggregate)
-                report.append(String.format("Replayed: %s for aggregate %s at version %d\n",
+                appendReport(String.format("Replayed: %s for aggregate %s at version %d\n",
                         event.getEventType(),
                         event.getAggregateId(),
                         event.getVersion()));
@@ -194,13 +175,27 @@ public class EventReplayService {
                 successCount++;
             } catch (Exception e) {
                 failureCount++;
-                report.append(String.format("Failed to replay event: %s - %s\n",
+                appendReport(String.format("Failed to replay event: %s - %s\n",
                         event.getEventType(),
                         e.getMessage()));
             }
         }
 
-        return new ReplayResult(successCount, failureCount, report.toString());
+        private void appendReport(String line) {
+            if (reportLines++ < MAX_REPORT_LINES) {
+                report.append(line);
+            }
+        }
+
+        ReplayResult result(String emptyMessage) {
+            if (successCount + failureCount == 0) {
+                return new ReplayResult(0, 0, emptyMessage);
+            }
+            if (reportLines > MAX_REPORT_LINES) {
+                report.append(String.format("... %d more\n", reportLines - MAX_REPORT_LINES));
+            }
+            return new ReplayResult(successCount, failureCount, report.toString());
+        }
     }
 
     /**
@@ -1,5 +1,7 @@
 package com.droid.bss.infrastructure.event.sourcing;
 
+import com.droid.bss.infrastructure.serialization.EventPayload;
+import com.droid.bss.infrastructure.serialization.PayloadCodecRegistry;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.cloudevents.CloudEvent;
@@ -9,19 +11,23 @@ import org.springframework.stereotype.Component;
 
 import java.net.URI;
 import java.time.OffsetDateTime;
-import java.util.Base64;
 import java.util.UUID;
 
 /**
- * Event serializer for converting between domain events and stored events
+ * Event serializer for converting between domain events and stored events.
+ *
+ * Event data is stored with the configured payload codec. CloudEvents carry the encoded bytes
+ * with the codec's content type, so data already in that format is stored without conversion.
  */
 @Component
 public class EventSerializer {
 
     private final ObjectMapper objectMapper;
+    private final PayloadCodecRegistry payloadCodecs;
 
-    public EventSerializer(ObjectMapper objectMapper) {
+    public EventSerializer(ObjectMapper objectMapper, PayloadCodecRegistry payloadCodecs) {
         this.objectMapper = objectMapper;
+        this.payloadCodecs = payloadCodecs;
     }
 
     /**
@@ -55,7 +61,7 @@ public class EventSerializer {
                 .withType(storedEvent.getEventType())
                 .withSource(URI.create("urn:droid:bss:event-sourcing"))
                 .withTime(OffsetDateTime.from(storedEvent.getTimestamp().atZone(java.time.ZoneId.systemDefault())))
-                .withData("application/json", storedEvent.getEventData().getBytes())
+                .withData(storedEvent.getPayload().getContentType(), storedEvent.getPayload().getData())
                 .build();
     }
 
@@ -69,13 +75,13 @@ public class EventSerializer {
             String userId,
             String correlationId,
             long version) {
-        String eventData = new String(cloudEvent.getData().toBytes());
+        EventPayload payload = payloadCodecs.fromData(cloudEvent.getDataContentType(), cloudEvent.getData().toBytes());
         return StoredEvent.fromDomainEvent(
                 UUID.fromString(cloudEvent.getId()),
                 aggregateId,
                 aggregateType,
                 cloudEvent.getType(),
-                eventData,
+                payload,
                 userId,
                 correlationId,
                 version
@@ -3,7 +3,9 @@ package com.droid.bss.infrastructure.event.sourcing;
 import io.cloudevents.CloudEvent;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -40,76 +42,64 @@ public class EventSourcingService {
         }
 
         // Convert to stored events
-        List<StoredEvent> storedEvents = events.stream()
-                .map(event -> serializer.fromCloudEvent(
-                        event,
-                        aggregateId,
-                        aggregateType,
-                        userId,
-                        getCorrelationIdFromEvent(event),
-                        aggregate.getVersion() + 1
-                ))
-                .collect(java.util.stream.Collectors.toList());
+        List<StoredEvent> storedEvents = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            CloudEvent event = events.get(i);
+            storedEvents.add(serializer.fromCloudEvent(
+                    event,
+                    aggregateId,
+                    aggregateType,
+                    userId,
+                    getCorrelationIdFromEvent(event),
+                    aggregate.getVersion() + 1 + i
+            ));
+        }
 
         // Save events
         eventStore.saveEvents(aggregateId, storedEvents, (int) aggregate.getVersion());
 
-        // Create snapshot if needed
+        // Snapshot whenever the save crosses a multiple of the interval, also when it skips past one
         long newVersion = aggregate.getVersion() + events.size();
-        if (newVersion % SNAPSHOT_INTERVAL == 0) {
+        if (newVersion / SNAPSHOT_INTERVAL > aggregate.getVersion() / SNAPSHOT_INTERVAL) {
             createSnapshot(aggregate, newVersion);
         }
 
-        // Clear uncommitted events
+        // The saved events are now the aggregate's history
+        aggregate.markCommitted(newVersion);
         aggregate.clearDomainEvents();
     }
 
     /**
-     * Load aggregate from event store
+     * Load aggregate from event store. Starts from the latest snapshot if there is one and streams
+     * only the events recorded after it, so long-lived aggregates are not read back in full.
      */
     public <T extends AggregateRoot> T loadAggregate(
             String aggregateId,
             Class<T> aggregateType,
             java.util.function.Function<String, T> factory) {
 
+        T aggregate = factory.apply(aggregateId);
+
         // Try to load from snapshot first
         Optional<Snapshot> snapshotOpt = snapshotStore.getLatestSnapshot(aggregateId);
-
-        T aggregate;
-        long version = 0;
-
         if (snapshotOpt.isPresent()) {
-            Snapshot snapshot = snapshotOpt.get();
-            version = snapshot.getVersion();
-            // Recreate aggregate from snapshot
-            aggregate = recreateFromSnapshot(aggregateId, snapshot, aggregateType, factory);
-        } else {
-            // Create new aggregate instance
-            aggregate = factory.apply(aggregateId);
+            aggregate.loadFromSnapshot(snapshotOpt.get());
         }
 
-        // Load events since snapshot
-        List<StoredEvent> events = eventStore.getEventsForAggregateSinceVersion(aggregateId, version);
-        aggregate.loadFromHistory(events);
+        // Apply events since snapshot
+        eventStore.streamEventsForAggregate(aggregateId, aggregate.getVersion(), aggregate::replay);
 
         return aggregate;
     }
 
     /**
-     * Replay events for an aggregate
-     */
-    public void replayEvents(String aggregateId, long fromVersion, long toVersion) {
-        // Implementation for event replay
-        List<StoredEvent> events = eventStore.getEventsForAggregateSinceVersion(aggregateId, fromVersion);
-        // Replay logic would be implemented here
-    }
-
-    /**
-     * Create snapshot of aggregate
+     * Create snapshot of aggregate; aggregates without snapshot support are skipped
      */
     private <T extends AggregateRoot> void createSnapshot(T aggregate, long version) {
-        // Serialize aggregate state
-        String state = serializeAggregateState(aggregate);
+        String state = aggregate.snapshotState();
+        if (state == null) {
+            return;
+        }
         Snapshot snapshot = Snapshot.create(
                 aggregate.getId(),
                 aggregate.getClass().getSimpleName(),
@@ -119,39 +109,6 @@ public class EventSourcingService {
         snapshotStore.saveSnapshot(snapshot);
     }
 
-    /**
-     * Recreate aggregate from snapshot
-     */
-    private <T extends AggregateRoot> T recreateFromSnapshot(
-            String aggregateId,
-            Snapshot snapshot,
-            Class<T> aggregateType,
-            java.util.function.Function<String, T> factory) {
-
-        T aggregate = factory.apply(aggregateId);
-        // Deserialize state and apply to aggregate
-        deserializeAggregateState(aggregate, snapshot.getState());
-        return aggregate;
-    }
-
-    /**
-     * Serialize aggregate state (to be implemented by subclasses)
-     */
-    private <T extends AggregateRoot> String serializeAggregateState(T aggregate) {
-        // This would be implemented based on aggregate type
-        // Could use Jackson to serialize the aggregate state
-        throw new UnsupportedOperationException("Aggregate state serialization not implemented");
-    }
-
-    /**
-     * Deserialize aggregate state (to be implemented by subclasses)
-     */
-    private <T extends AggregateRoot> void deserializeAggregateState(T aggregate, String state) {
-        // This would be implemented based on aggregate type
-        // Could use Jackson to deserialize the aggregate state
-        throw new UnsupportedOperationException("Aggregate state deserialization not implemented");
-    }
-
     private String getCorrelationIdFromEvent(CloudEvent event) {
         try {
             return serializer.getCorrelationIdFromEvent(event);
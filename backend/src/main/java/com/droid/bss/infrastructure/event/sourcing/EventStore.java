@@ -3,6 +3,7 @@ package com.droid.bss.infrastructure.event.sourcing;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * Event Store interface for managing events
@@ -40,12 +41,38 @@ public interface EventStore {
     boolean aggregateExists(String aggregateId);
 
     /**
-     * Get events by type
+     * Get events by type, in global order
      */
     List<StoredEvent> getEventsByType(String eventType);
 
     /**
-     * Get events by correlation ID
+     * Get events by correlation ID, in global order
      */
     List<StoredEvent> getEventsByCorrelationId(String correlationId);
+
+    /**
+     * Stream events matching a query in global position order over a server-side cursor.
+     * Events are handed to the consumer one at a time and never collected, so the result may be
+     * larger than memory.
+     *
+     * @return number of events read
+     */
+    long streamEvents(EventQuery query, Consumer<StoredEvent> consumer);
+
+    /**
+     * Stream the events of an aggregate with a version greater than {@code afterVersion}, in version order
+     *
+     * @return number of events read
+     */
+    long streamEventsForAggregate(String aggregateId, long afterVersion, Consumer<StoredEvent> consumer);
+
+    /**
+     * Global position of the most recently stored event, 0 if the store is empty
+     */
+    long getLatestPosition();
+
+    /**
+     * Global position of an event, or -1 if there is no such event
+     */
+    long getGlobalPosition(UUID eventId);
 }
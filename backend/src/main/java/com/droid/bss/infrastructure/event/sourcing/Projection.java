@@ -1,7 +1,11 @@
 package com.droid.bss.infrastructure.event.sourcing;
 
 /**
- * Interface for building projections from events
+ * Interface for building projections from events.
+ *
+ * Projections are fed by {@link ProjectionManager} from the event store, off the command path.
+ * During a rebuild {@link #handleEvent} is called concurrently for events of different aggregates;
+ * events of one aggregate are always handled in order by one thread.
  */
 public interface Projection {
 
@@ -24,4 +28,24 @@ public interface Projection {
      * Check if projection is up to date
      */
     boolean isUpToDate();
+
+    /**
+     * Whether the projection keeps its state outside the JVM. Only durable projections resume from
+     * their persisted checkpoint after a restart; in-memory ones are rebuilt.
+     */
+    default boolean isDurable() {
+        return false;
+    }
+
+    /**
+     * Called when this instance, built by a rebuild, becomes the live read model
+     */
+    default void activate() {
+    }
+
+    /**
+     * Called when this instance is replaced by a rebuilt one, or when its rebuild is abandoned
+     */
+    default void discard() {
+    }
 }
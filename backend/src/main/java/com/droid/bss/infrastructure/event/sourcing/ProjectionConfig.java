@@ -1,8 +1,11 @@
 package com.droid.bss.infrastructure.event.sourcing;
 
 import com.droid.bss.infrastructure.event.sourcing.projections.CustomerReadModel;
+import com.droid.bss.infrastructure.event.sourcing.repository.ProjectionCheckpointRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
 
 /**
  * Configuration for projections
@@ -11,17 +14,20 @@ import org.springframework.context.annotation.Configuration;
 public class ProjectionConfig {
 
     @Bean
-    public ProjectionManager projectionManager(EventStore eventStore) {
-        ProjectionManager manager = new ProjectionManager(eventStore);
+    public ProjectionManager projectionManager(
+            EventStore eventStore,
+            ProjectionCheckpointRepository checkpointRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${bss.event-store.projections.threads:4}") int threads,
+            @Value("${bss.event-store.projections.rebuild-parallelism:8}") int rebuildParallelism,
+            @Value("${bss.event-store.projections.rebuild-partitions:32}") int rebuildPartitions,
+            @Value("${bss.event-store.projections.checkpoint-interval:1000}") int checkpointInterval) {
+        ProjectionManager manager = new ProjectionManager(eventStore, checkpointRepository, transactionManager,
+                threads, rebuildParallelism, rebuildPartitions, checkpointInterval);
 
         // Register built-in projections
-        manager.registerProjection(new CustomerReadModel());
+        manager.registerProjection(CustomerReadModel::new);
 
         return manager;
     }
-
-    @Bean
-    public Projection customerReadModel() {
-        return new CustomerReadModel();
-    }
 }
@@ -3,6 +3,7 @@ package com.droid.bss.infrastructure.event.sourcing;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -58,16 +59,18 @@ public class ProjectionController {
     @PostMapping("/rebuild/{name}")
     @Operation(
         summary = "Rebuild projection",
-        description = "Rebuilds a specific projection from events"
+        description = "Starts rebuilding a specific projection from events; the current read model is served until the rebuilt one replaces it"
     )
     public ResponseEntity<Void> rebuildProjection(
             @Parameter(description = "Projection name", required = true)
             @PathVariable String name) {
         try {
             projectionManager.rebuildProjection(name);
-            return ResponseEntity.ok().build();
+            return ResponseEntity.accepted().build();
         } catch (IllegalArgumentException e) {
             return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         }
     }
 
@@ -77,11 +80,15 @@ public class ProjectionController {
     @PostMapping("/rebuild/all")
     @Operation(
         summary = "Rebuild all projections",
-        description = "Rebuilds all registered projections from events"
+        description = "Starts rebuilding all registered projections from events"
     )
     public ResponseEntity<Void> rebuildAllProjections() {
-        projectionManager.rebuildAllProjections();
-        return ResponseEntity.ok().build();
+        try {
+            projectionManager.rebuildAllProjections();
+            return ResponseEntity.accepted().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
     }
 
     /**
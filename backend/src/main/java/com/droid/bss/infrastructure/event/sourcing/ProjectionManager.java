@@ -1,80 +1,141 @@
 package com.droid.bss.infrastructure.event.sourcing;
 
-import org.springframework.stereotype.Service;
+import com.droid.bss.infrastructure.event.sourcing.entity.ProjectionCheckpointEntity;
+import com.droid.bss.infrastructure.event.sourcing.repository.ProjectionCheckpointRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 /**
- * Manages projections and their updates
+ * Manages projections and their updates.
+ *
+ * Every projection follows the event store on its own: a catch-up reads the events after the
+ * projection's checkpoint (a global position) on a projection thread and stores the new checkpoint
+ * every {@code checkpointInterval} events. Command handling never waits for a projection; a
+ * projection that is slow or failing only falls behind, which shows in its status.
+ *
+ * A rebuild builds a new instance of the projection next to the live one. The store is split into
+ * aggregate-id hash partitions that are replayed in parallel on a fork-join pool, the new instance
+ * catches up with events written meanwhile, and then replaces the live instance (blue/green), so
+ * readers keep seeing the old read model until the new one is complete.
  */
-@Service
+@Slf4j
 public class ProjectionManager {
 
     private final EventStore eventStore;
-    private final Map<String, Projection> projections = new ConcurrentHashMap<>();
-    private final List<ProjectionStatus> projectionStatuses = new CopyOnWriteArrayList<>();
-    private final Executor projectionExecutor = ForkJoinPool.commonPool();
+    private final ProjectionCheckpointRepository checkpointRepository;
+    private final TransactionTemplate checkpointTransaction;
+    private final Map<String, ProjectionRunner> projections = new ConcurrentHashMap<>();
+    private final ExecutorService projectionExecutor;
+    private final ForkJoinPool rebuildPool;
+    private final int rebuildPartitions;
+    private final int checkpointInterval;
 
-    public ProjectionManager(EventStore eventStore) {
+    public ProjectionManager(
+            EventStore eventStore,
+            ProjectionCheckpointRepository checkpointRepository,
+            PlatformTransactionManager transactionManager,
+            int threads,
+            int rebuildParallelism,
+            int rebuildPartitions,
+            int checkpointInterval) {
         this.eventStore = eventStore;
+        this.checkpointRepository = checkpointRepository;
+        this.checkpointTransaction = new TransactionTemplate(transactionManager);
+        // Checkpoints are written while the event stream's read-only transaction is open
+        this.checkpointTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.projectionExecutor = Executors.newFixedThreadPool(threads,
+                Thread.ofPlatform().name("projection-", 0).daemon().factory());
+        this.rebuildPool = new ForkJoinPool(rebuildParallelism);
+        this.rebuildPartitions = rebuildPartitions;
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        projectionExecutor.shutdownNow();
+        rebuildPool.shutdownNow();
+        projectionExecutor.awaitTermination(10, TimeUnit.SECONDS);
     }
 
     /**
-     * Register a projection
+     * Register a projection; the factory is also used to create the instances built by rebuilds
      */
-    public void registerProjection(Projection projection) {
-        projections.put(projection.getName(), projection);
-        projectionStatuses.add(new ProjectionStatus(
-                projection.getName(),
-                projection.getVersion(),
-                projection.isUpToDate()
-        ));
+    public void registerProjection(Supplier<? extends Projection> factory) {
+        Projection projection = factory.get();
+        projections.put(projection.getName(), new ProjectionRunner(projection, factory));
     }
 
     /**
      * Unregister a projection
      */
     public void unregisterProjection(String name) {
-        projections.remove(name);
-        projectionStatuses.removeIf(status -> status.getName().equals(name));
+        ProjectionRunner runner = projections.remove(name);
+        if (runner != null) {
+            runner.live.get().discard();
+        }
     }
 
     /**
-     * Update all projections with an event
+     * Live instance of a projection, to be looked up on every read since rebuilds replace it
+     */
+    public Optional<Projection> getProjection(String name) {
+        return Optional.ofNullable(projections.get(name)).map(runner -> runner.live.get());
+    }
+
+    /**
+     * Notify projections that an event was stored; returns immediately, the projections catch up
+     * on their own threads
      */
     public void updateProjections(StoredEvent event) {
-        projections.values().forEach(projection -> {
-            try {
-                projection.handleEvent(event);
-            } catch (Exception e) {
-                // Log error but continue with other projections
-                System.err.println("Error updating projection " + projection.getName() + ": " + e.getMessage());
-            }
-        });
+        projections.values().forEach(this::scheduleCatchUp);
+    }
 
-        // Update status
-        updateProjectionStatus(event);
+    /**
+     * Catch up all projections with the event store
+     */
+    @Scheduled(fixedDelayString = "${bss.event-store.projections.poll-interval-ms:500}")
+    public void pollEventStore() {
+        projections.values().forEach(this::scheduleCatchUp);
     }
 
     /**
      * Rebuild a specific projection
+     *
+     * @return future completed once the rebuilt instance is live
      */
-    public void rebuildProjection(String name) {
-        Projection projection = projections.get(name);
-        if (projection == null) {
+    public CompletableFuture<Void> rebuildProjection(String name) {
+        ProjectionRunner runner = projections.get(name);
+        if (runner == null) {
             throw new IllegalArgumentException("Projection not found: " + name);
         }
-
-        // Clear projection data
-        // Note: This would require a clear() method on the projection
-
-        // Load all events and apply to projection
-        // Note: This would need to load events by aggregate type or all events
-        // For now, we'll update the version
+        if (!runner.rebuilding.compareAndSet(false, true)) {
+            throw new IllegalStateException("Projection is already being rebuilt: " + name);
+        }
+        return CompletableFuture.runAsync(() -> rebuild(runner), projectionExecutor)
+                .whenComplete((ignored, e) -> {
+                    runner.rebuilding.set(false);
+                    if (e != null) {
+                        runner.lastError = e.getMessage();
+                        log.error("Rebuild of projection {} failed: {}", name, e.getMessage(), e);
+                    }
+                });
     }
 
     /**
@@ -88,42 +149,178 @@ public class ProjectionManager {
      * Get projection status
      */
     public List<ProjectionStatus> getProjectionStatuses() {
-        return new ArrayList<>(projectionStatuses);
+        long head = eventStore.getLatestPosition();
+        return projections.values().stream()
+                .map(runner -> runner.status(head))
+                .toList();
     }
 
     /**
      * Get status of a specific projection
      */
     public Optional<ProjectionStatus> getProjectionStatus(String name) {
-        return projectionStatuses.stream()
-                .filter(status -> status.getName().equals(name))
-                .findFirst();
+        return Optional.ofNullable(projections.get(name))
+                .map(runner -> runner.status(eventStore.getLatestPosition()));
     }
 
     /**
      * Check if all projections are up to date
      */
     public boolean areAllProjectionsUpToDate() {
-        return projectionStatuses.stream().allMatch(ProjectionStatus::isUpToDate);
+        return getProjectionStatuses().stream().allMatch(ProjectionStatus::isUpToDate);
+    }
+
+    private void scheduleCatchUp(ProjectionRunner runner) {
+        if (runner.rebuilding.get() || !runner.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        projectionExecutor.execute(() -> {
+            try {
+                if (!runner.started) {
+                    start(runner);
+                } else {
+                    catchUp(runner);
+                }
+            } catch (RuntimeException e) {
+                runner.lastError = e.getMessage();
+                log.error("Error updating projection {}: {}", runner.name, e.getMessage(), e);
+            } finally {
+                runner.scheduled.set(false);
+            }
+        });
+    }
+
+    /**
+     * Durable projections resume from their checkpoint; in-memory ones start with a rebuild
+     */
+    private void start(ProjectionRunner runner) {
+        runner.started = true;
+        if (runner.live.get().isDurable()) {
+            runner.position = checkpointRepository.findById(runner.name)
+                    .map(ProjectionCheckpointEntity::getPosition)
+                    .orElse(0L);
+            catchUp(runner);
+        } else if (eventStore.getLatestPosition() > 0) {
+            rebuildProjection(runner.name);
+        }
     }
 
     /**
-     * Update projection status
+     * Apply events after the checkpoint to the live instance. On failure the projection stops at the
+     * last event it applied and retries from there on the next poll.
      */
-    private void updateProjectionStatus(StoredEvent event) {
-        String projectionName = event.getAggregateType();
-        if (projections.containsKey(projectionName)) {
-            Projection projection = projections.get(projectionName);
-            projectionStatuses.replaceAll(status -> {
-                if (status.getName().equals(projectionName)) {
-                    return new ProjectionStatus(
-                            projectionName,
-                            projection.getVersion(),
-                            projection.isUpToDate()
-                    );
+    private void catchUp(ProjectionRunner runner) {
+        if (!runner.lock.tryLock()) {
+            return;
+        }
+        try {
+            Projection projection = runner.live.get();
+            long head = eventStore.getLatestPosition();
+            if (head > runner.position) {
+                runner.position = apply(runner, projection, runner.position, head);
+                runner.lastError = null;
+            }
+        } finally {
+            runner.lock.unlock();
+        }
+    }
+
+    private void rebuild(ProjectionRunner runner) {
+        Projection green = runner.factory.get();
+        long target = eventStore.getLatestPosition();
+        long started = System.currentTimeMillis();
+        try {
+            // Events of one aggregate always fall into the same partition, so they stay in order
+            rebuildPool.submit(() -> IntStream.range(0, rebuildPartitions).parallel().forEach(partition ->
+                    eventStore.streamEvents(EventQuery.partition(partition, rebuildPartitions, target),
+                            green::handleEvent))).join();
+
+            // Most events written during the rebuild are applied before the live instance is paused
+            long position = apply(null, green, target, eventStore.getLatestPosition());
+
+            runner.lock.lock();
+            try {
+                position = apply(null, green, position, eventStore.getLatestPosition());
+                Projection blue = runner.live.getAndSet(green);
+                runner.position = position;
+                saveCheckpoint(runner.name, position);
+                green.activate();
+                blue.discard();
+                runner.lastError = null;
+            } finally {
+                runner.lock.unlock();
+            }
+            log.info("Rebuilt projection {} up to position {} in {} ms using {} partitions",
+                    runner.name, position, System.currentTimeMillis() - started, rebuildPartitions);
+        } catch (RuntimeException e) {
+            green.discard();
+            throw e;
+        }
+    }
+
+    /**
+     * Stream events in (after, to] into a projection
+     *
+     * @param runner runner whose checkpoint is saved along the way, or null for an instance that is
+     *               not live yet
+     * @return position of the last event applied
+     */
+    private long apply(ProjectionRunner runner, Projection projection, long after, long to) {
+        if (to <= after) {
+            return after;
+        }
+        long[] applied = {after, 0};
+        try {
+            eventStore.streamEvents(EventQuery.afterPosition(after).withToPosition(to), event -> {
+                projection.handleEvent(event);
+                applied[0] = event.getGlobalPosition();
+                if (runner != null && ++applied[1] % checkpointInterval == 0) {
+                    runner.position = applied[0];
+                    saveCheckpoint(runner.name, applied[0]);
                 }
-                return status;
             });
+        } finally {
+            if (runner != null && applied[0] > after) {
+                runner.position = applied[0];
+                saveCheckpoint(runner.name, applied[0]);
+            }
+        }
+        return applied[0];
+    }
+
+    private void saveCheckpoint(String name, long position) {
+        checkpointTransaction.executeWithoutResult(status -> checkpointRepository.saveCheckpoint(name, position));
+    }
+
+    private static final class ProjectionRunner {
+        private final String name;
+        private final Supplier<? extends Projection> factory;
+        private final AtomicReference<Projection> live;
+        // Held while events are applied to the live instance and while it is swapped
+        private final ReentrantLock lock = new ReentrantLock();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean rebuilding = new AtomicBoolean();
+        private volatile boolean started;
+        private volatile long position;
+        private volatile String lastError;
+
+        ProjectionRunner(Projection projection, Supplier<? extends Projection> factory) {
+            this.name = projection.getName();
+            this.factory = factory;
+            this.live = new AtomicReference<>(projection);
+        }
+
+        ProjectionStatus status(long head) {
+            Projection projection = live.get();
+            return new ProjectionStatus(
+                    name,
+                    projection.getVersion(),
+                    projection.isUpToDate() && !rebuilding.get() && lastError == null && position >= head,
+                    position,
+                    Math.max(0, head - position),
+                    rebuilding.get(),
+                    lastError
+            );
         }
     }
 
@@ -134,11 +331,30 @@ public class ProjectionManager {
         private final String name;
         private final long version;
         private final boolean upToDate;
+        private final long position;
+        private final long lag;
+        private final boolean rebuilding;
+        private final String lastError;
 
         public ProjectionStatus(String name, long version, boolean upToDate) {
+            this(name, version, upToDate, 0, 0, false, null);
+        }
+
+        public ProjectionStatus(
+                String name,
+                long version,
+                boolean upToDate,
+                long position,
+                long lag,
+                boolean rebuilding,
+                String lastError) {
             this.name = name;
             this.version = version;
             this.upToDate = upToDate;
+            this.position = position;
+            this.lag = lag;
+            this.rebuilding = rebuilding;
+            this.lastError = lastError;
         }
 
         public String getName() {
@@ -152,5 +368,27 @@ public class ProjectionManager {
         public boolean isUpToDate() {
             return upToDate;
         }
+
+        /**
+         * Global position of the last event applied
+         */
+        public long getPosition() {
+            return position;
+        }
+
+        /**
+         * Number of positions the projection is behind the event store
+         */
+        public long getLag() {
+            return lag;
+        }
+
+        public boolean isRebuilding() {
+            return rebuilding;
+        }
+
+        public String getLastError() {
+            return lastError;
+        }
     }
 }
@@ -1,22 +1,27 @@
 package com.droid.bss.infrastructure.event.sourcing;
 
+import com.droid.bss.infrastructure.serialization.EventPayload;
+
 import java.time.LocalDateTime;
 import java.util.Objects;
 import java.util.UUID;
 
 /**
- * Represents a stored event in the event store
+ * Represents a stored event in the event store.
+ * {@code globalPosition} orders events across all aggregates; it is 0 until the event has been stored.
+ * The payload is kept encoded as stored; {@link #getEventData()} decodes it to JSON on first use.
  */
 public class StoredEvent {
     private final UUID id;
     private final String aggregateId;
     private final String aggregateType;
     private final String eventType;
-    private final String eventData;
+    private final EventPayload payload;
     private final LocalDateTime timestamp;
     private final String userId;
     private final String correlationId;
     private final long version;
+    private final long globalPosition;
 
     public StoredEvent(
             UUID id,
@@ -28,15 +33,46 @@ public class StoredEvent {
             String userId,
             String correlationId,
             long version) {
+        this(id, aggregateId, aggregateType, eventType, eventData, timestamp, userId, correlationId, version, 0L);
+    }
+
+    public StoredEvent(
+            UUID id,
+            String aggregateId,
+            String aggregateType,
+            String eventType,
+            String eventData,
+            LocalDateTime timestamp,
+            String userId,
+            String correlationId,
+            long version,
+            long globalPosition) {
+        this(id, aggregateId, aggregateType, eventType,
+                EventPayload.ofJson(Objects.requireNonNull(eventData, "Event data cannot be null")),
+                timestamp, userId, correlationId, version, globalPosition);
+    }
+
+    public StoredEvent(
+            UUID id,
+            String aggregateId,
+            String aggregateType,
+            String eventType,
+            EventPayload payload,
+            LocalDateTime timestamp,
+            String userId,
+            String correlationId,
+            long version,
+            long globalPosition) {
         this.id = Objects.requireNonNull(id, "Event ID cannot be null");
         this.aggregateId = Objects.requireNonNull(aggregateId, "Aggregate ID cannot be null");
         this.aggregateType = Objects.requireNonNull(aggregateType, "Aggregate type cannot be null");
         this.eventType = Objects.requireNonNull(eventType, "Event type cannot be null");
-        this.eventData = Objects.requireNonNull(eventData, "Event data cannot be null");
+        this.payload = Objects.requireNonNull(payload, "Event data cannot be null");
         this.timestamp = Objects.requireNonNull(timestamp, "Timestamp cannot be null");
         this.userId = userId;
         this.correlationId = correlationId;
         this.version = version;
+        this.globalPosition = globalPosition;
     }
 
     public static StoredEvent fromDomainEvent(
@@ -61,6 +97,29 @@ public class StoredEvent {
         );
     }
 
+    public static StoredEvent fromDomainEvent(
+            UUID eventId,
+            String aggregateId,
+            String aggregateType,
+            String eventType,
+            EventPayload payload,
+            String userId,
+            String correlationId,
+            long version) {
+        return new StoredEvent(
+                eventId,
+                aggregateId,
+                aggregateType,
+                eventType,
+                payload,
+                LocalDateTime.now(),
+                userId,
+                correlationId,
+                version,
+                0L
+        );
+    }
+
     public UUID getId() {
         return id;
     }
@@ -77,8 +136,18 @@ public class StoredEvent {
         return eventType;
     }
 
+    /**
+     * Payload as JSON text
+     */
     public String getEventData() {
-        return eventData;
+        return payload.toJson();
+    }
+
+    /**
+     * Payload as stored
+     */
+    public EventPayload getPayload() {
+        return payload;
     }
 
     public LocalDateTime getTimestamp() {
@@ -97,6 +166,10 @@ public class StoredEvent {
         return version;
     }
 
+    public long getGlobalPosition() {
+        return globalPosition;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -118,6 +191,7 @@ public class StoredEvent {
                 ", eventType='" + eventType + '\'' +
                 ", timestamp=" + timestamp +
                 ", version=" + version +
+                ", globalPosition=" + globalPosition +
                 '}';
     }
 }
@@ -0,0 +1,180 @@
+package com.droid.bss.infrastructure.event.sourcing.aggregates;
+
+import com.droid.bss.infrastructure.event.sourcing.AggregateRoot;
+import com.droid.bss.infrastructure.event.sourcing.StoredEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.cloudevents.core.builder.CloudEventBuilder;
+
+import java.net.URI;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Event-sourced customer, built from the customer.* events that {@code CustomerReadModel} projects.
+ *
+ * Commands apply their event to the aggregate straight away and queue it for
+ * {@code EventSourcingService.saveAggregate}. The whole state fits in a small JSON document, so the
+ * aggregate is snapshotted and loads replay only the events recorded after the latest snapshot.
+ */
+public class CustomerAggregate extends AggregateRoot {
+
+    static final String CREATED = "customer.created";
+    static final String UPDATED = "customer.updated";
+    static final String STATUS_CHANGED = "customer.statusChanged";
+    static final String DELETED = "customer.deleted";
+
+    private static final URI SOURCE = URI.create("urn:droid:bss:customer");
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Snapshot form of the aggregate state
+     */
+    record State(String firstName, String lastName, String email, String status, boolean deleted) {
+    }
+
+    private String firstName;
+    private String lastName;
+    private String email;
+    private String status;
+    private boolean deleted;
+
+    public CustomerAggregate(String id) {
+        this.id = id;
+    }
+
+    public void create(String firstName, String lastName, String email) {
+        if (status != null) {
+            throw new IllegalStateException("Customer " + id + " already exists");
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("customerId", id);
+        data.put("firstName", firstName);
+        data.put("lastName", lastName);
+        data.put("email", email);
+        data.put("status", "ACTIVE");
+        record(CREATED, data);
+    }
+
+    public void update(String firstName, String lastName, String email) {
+        requireActive();
+        Map<String, Object> data = new HashMap<>();
+        data.put("customerId", id);
+        data.put("firstName", firstName);
+        data.put("lastName", lastName);
+        data.put("email", email);
+        record(UPDATED, data);
+    }
+
+    public void changeStatus(String newStatus) {
+        requireActive();
+        record(STATUS_CHANGED, Map.of("customerId", id, "status", newStatus));
+    }
+
+    @Override
+    public void markAsDeleted() {
+        requireActive();
+        record(DELETED, Map.of("customerId", id));
+    }
+
+    @Override
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    @Override
+    protected void applyEvent(StoredEvent event) {
+        apply(event.getEventType(), event.getPayload().decode(Map.class));
+    }
+
+    @Override
+    protected String snapshotState() {
+        try {
+            return objectMapper.writeValueAsString(new State(firstName, lastName, email, status, deleted));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to write snapshot of customer " + id, e);
+        }
+    }
+
+    @Override
+    protected void restoreSnapshotState(String state) {
+        State snapshot;
+        try {
+            snapshot = objectMapper.readValue(state, State.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to read snapshot of customer " + id, e);
+        }
+        firstName = snapshot.firstName();
+        lastName = snapshot.lastName();
+        email = snapshot.email();
+        status = snapshot.status();
+        deleted = snapshot.deleted();
+    }
+
+    private void apply(String eventType, Map<?, ?> data) {
+        switch (eventType) {
+            case CREATED:
+            case UPDATED:
+                firstName = stringOr(data, "firstName", firstName);
+                lastName = stringOr(data, "lastName", lastName);
+                email = stringOr(data, "email", email);
+                status = stringOr(data, "status", status);
+                break;
+            case STATUS_CHANGED:
+                status = stringOr(data, "status", status);
+                break;
+            case DELETED:
+                deleted = true;
+                break;
+            default:
+                // Ignore other event types
+                break;
+        }
+    }
+
+    private void record(String eventType, Map<String, Object> data) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(data);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to write " + eventType + " of customer " + id, e);
+        }
+        apply(eventType, data);
+        addDomainEvent(CloudEventBuilder.v1()
+                .withId(UUID.randomUUID().toString())
+                .withType(eventType)
+                .withSource(SOURCE)
+                .withTime(OffsetDateTime.now())
+                .withData("application/json", json)
+                .build());
+    }
+
+    private void requireActive() {
+        if (status == null || deleted) {
+            throw new IllegalStateException("Customer " + id + " does not exist");
+        }
+    }
+
+    private static String stringOr(Map<?, ?> data, String field, String fallback) {
+        Object value = data.get(field);
+        return value != null ? value.toString() : fallback;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+}
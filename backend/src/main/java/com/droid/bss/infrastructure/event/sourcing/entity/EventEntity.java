@@ -26,9 +26,14 @@ public class EventEntity {
     @Column(name = "event_type", nullable = false)
     private String eventType;
 
-    @Column(name = "event_data", nullable = false, columnDefinition = "TEXT")
+    // JSON text of events stored before event_payload
+    @Column(name = "event_data", columnDefinition = "TEXT")
     private String eventData;
 
+    // Codec id followed by the encoded payload, see EventPayload
+    @Column(name = "event_payload")
+    private byte[] eventPayload;
+
     @Column(name = "timestamp", nullable = false)
     private LocalDateTime timestamp;
 
@@ -41,6 +46,10 @@ public class EventEntity {
     @Column(name = "version", nullable = false)
     private long version;
 
+    // Assigned by the database on insert
+    @Column(name = "global_position", insertable = false, updatable = false)
+    private Long globalPosition;
+
     public EventEntity() {
     }
 
@@ -67,17 +76,19 @@ public class EventEntity {
 
     public static EventEntity fromStoredEvent(
             com.droid.bss.infrastructure.event.sourcing.StoredEvent storedEvent) {
-        return new EventEntity(
+        EventEntity entity = new EventEntity(
                 storedEvent.getId(),
                 storedEvent.getAggregateId(),
                 storedEvent.getAggregateType(),
                 storedEvent.getEventType(),
-                storedEvent.getEventData(),
+                null,
                 storedEvent.getTimestamp(),
                 storedEvent.getUserId(),
                 storedEvent.getCorrelationId(),
                 storedEvent.getVersion()
         );
+        entity.setEventPayload(storedEvent.getPayload().getBytes());
+        return entity;
     }
 
     public UUID getId() {
@@ -120,6 +131,14 @@ public class EventEntity {
         this.eventData = eventData;
     }
 
+    public byte[] getEventPayload() {
+        return eventPayload;
+    }
+
+    public void setEventPayload(byte[] eventPayload) {
+        this.eventPayload = eventPayload;
+    }
+
     public LocalDateTime getTimestamp() {
         return timestamp;
     }
@@ -152,6 +171,10 @@ public class EventEntity {
         this.version = version;
     }
 
+    public Long getGlobalPosition() {
+        return globalPosition;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,38 @@
+package com.droid.bss.infrastructure.event.sourcing.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * JPA entity for the last event store position applied to a projection
+ */
+@Entity
+@Table(name = "projection_checkpoints")
+public class ProjectionCheckpointEntity {
+
+    @Id
+    @Column(name = "projection_name", nullable = false, updatable = false)
+    private String projectionName;
+
+    @Column(name = "position", nullable = false)
+    private long position;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public ProjectionCheckpointEntity() {
+    }
+
+    public String getProjectionName() {
+        return projectionName;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -0,0 +1,152 @@
+package com.droid.bss.infrastructure.event.sourcing.impl;
+
+import com.droid.bss.infrastructure.event.sourcing.StoredEvent;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * JDBC append path of the event store.
+ *
+ * A group of events is inserted with one statement over parallel arrays. Appends take a
+ * transaction-scoped advisory lock first; holding it, the caller looks up which versions are taken
+ * and inserts only the appends that won, so the unique (aggregate_id, version) index is a safety net
+ * rather than the conflict check.
+ *
+ * Global positions are numbered on from the highest committed position while the lock is held, so
+ * they are gap-free (no position is consumed by a losing append or a rolled-back transaction) and a
+ * transaction can never commit a lower position after a subscriber has read past it. The lock is held
+ * until commit, so appends run only in short transactions: the group-commit writer's own, or the
+ * before-commit phase of a caller's transaction (see {@link EventAppendWriter}).
+ */
+@Repository
+public class EventAppendRepository {
+
+    // Arbitrary application-wide key of the append lock
+    private static final long APPEND_LOCK_KEY = 0x6576656e7473L;
+
+    private static final String LOCK_APPENDS = "SELECT pg_advisory_xact_lock(?)";
+
+    private static final String FIND_TAKEN =
+            "SELECT e.id FROM unnest(?::uuid[], ?::varchar[], ?::bigint[]) AS e(id, aggregate_id, version) " +
+            "JOIN event_store s ON s.aggregate_id = e.aggregate_id AND s.version = e.version";
+
+    private static final String APPEND_EVENTS =
+            "INSERT INTO event_store (id, aggregate_id, aggregate_type, event_type, event_payload, \"timestamp\", " +
+            "user_id, correlation_id, version, global_position) " +
+            "SELECT e.id, e.aggregate_id, e.aggregate_type, e.event_type, e.event_payload, e.ts, " +
+            "e.user_id, e.correlation_id, e.version, " +
+            "(SELECT COALESCE(MAX(global_position), 0) FROM event_store) + e.ord " +
+            "FROM unnest(?::uuid[], ?::varchar[], ?::varchar[], ?::varchar[], ?::bytea[], ?::timestamp[], " +
+            "?::varchar[], ?::varchar[], ?::bigint[]) WITH ORDINALITY " +
+            "AS e(id, aggregate_id, aggregate_type, event_type, event_payload, ts, user_id, correlation_id, version, ord) " +
+            "RETURNING id, global_position";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public EventAppendRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Take the append lock for the rest of the current transaction and find the events whose
+     * (aggregate_id, version) is already taken by a committed event
+     *
+     * @return ids of the events that conflict
+     */
+    public Set<UUID> lockAndFindTaken(List<StoredEvent> events) {
+        return jdbcTemplate.execute((ConnectionCallback<Set<UUID>>) connection -> {
+            try (PreparedStatement lock = connection.prepareStatement(LOCK_APPENDS)) {
+                lock.setLong(1, APPEND_LOCK_KEY);
+                lock.execute();
+            }
+
+            int size = events.size();
+            UUID[] ids = new UUID[size];
+            String[] aggregateIds = new String[size];
+            Long[] versions = new Long[size];
+            for (int i = 0; i < size; i++) {
+                StoredEvent event = events.get(i);
+                ids[i] = event.getId();
+                aggregateIds[i] = event.getAggregateId();
+                versions[i] = event.getVersion();
+            }
+
+            Set<UUID> taken = new HashSet<>();
+            try (PreparedStatement ps = connection.prepareStatement(FIND_TAKEN)) {
+                ps.setArray(1, connection.createArrayOf("uuid", ids));
+                ps.setArray(2, connection.createArrayOf("varchar", aggregateIds));
+                ps.setArray(3, connection.createArrayOf("bigint", versions));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        taken.add(rs.getObject(1, UUID.class));
+                    }
+                }
+            }
+            return taken;
+        });
+    }
+
+    /**
+     * Insert events in list order within the current transaction, numbering their global positions
+     * on from the highest one. The caller must hold the append lock (see {@link #lockAndFindTaken})
+     * and must only pass events whose versions are free.
+     *
+     * @return global position of every inserted event by event id
+     */
+    public Map<UUID, Long> append(List<StoredEvent> events) {
+        return jdbcTemplate.execute((ConnectionCallback<Map<UUID, Long>>) connection -> {
+            int size = events.size();
+            UUID[] ids = new UUID[size];
+            String[] aggregateIds = new String[size];
+            String[] aggregateTypes = new String[size];
+            String[] eventTypes = new String[size];
+            byte[][] payloads = new byte[size][];
+            Timestamp[] timestamps = new Timestamp[size];
+            String[] userIds = new String[size];
+            String[] correlationIds = new String[size];
+            Long[] versions = new Long[size];
+            for (int i = 0; i < size; i++) {
+                StoredEvent event = events.get(i);
+                ids[i] = event.getId();
+                aggregateIds[i] = event.getAggregateId();
+                aggregateTypes[i] = event.getAggregateType();
+                eventTypes[i] = event.getEventType();
+                payloads[i] = event.getPayload().getBytes();
+                timestamps[i] = Timestamp.valueOf(event.getTimestamp());
+                userIds[i] = event.getUserId();
+                correlationIds[i] = event.getCorrelationId();
+                versions[i] = event.getVersion();
+            }
+
+            Map<UUID, Long> positions = new HashMap<>(size * 2);
+            try (PreparedStatement ps = connection.prepareStatement(APPEND_EVENTS)) {
+                ps.setArray(1, connection.createArrayOf("uuid", ids));
+                ps.setArray(2, connection.createArrayOf("varchar", aggregateIds));
+                ps.setArray(3, connection.createArrayOf("varchar", aggregateTypes));
+                ps.setArray(4, connection.createArrayOf("varchar", eventTypes));
+                ps.setArray(5, connection.createArrayOf("bytea", payloads));
+                ps.setArray(6, connection.createArrayOf("timestamp", timestamps));
+                ps.setArray(7, connection.createArrayOf("varchar", userIds));
+                ps.setArray(8, connection.createArrayOf("varchar", correlationIds));
+                ps.setArray(9, connection.createArrayOf("bigint", versions));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        positions.put(rs.getObject(1, UUID.class), rs.getLong(2));
+                    }
+                }
+            }
+            return positions;
+        });
+    }
+}
@@ -0,0 +1,286 @@
+package com.droid.bss.infrastructure.event.sourcing.impl;
+
+import com.droid.bss.infrastructure.event.sourcing.StoredEvent;
+import com.droid.bss.infrastructure.metrics.BusinessMetrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group-commit writer of the event store.
+ *
+ * Appends from concurrent writers are queued and written by a single thread: everything that queued
+ * up while the previous group was being written goes into the next statement and transaction. The
+ * future of an append completes with the global position of its last event once it is durable,
+ * exceptionally with {@link OptimisticLockingFailureException} if another writer got one of its
+ * versions first, or with the failure of the whole group.
+ *
+ * An append is all-or-nothing within its group: if any of its events conflicts, none of them is
+ * inserted, so a losing append consumes no global position.
+ *
+ * Appends made inside a caller's transaction are inserted just before that transaction commits, so
+ * the append lock is only held for the insert and the commit, not for the caller's business logic.
+ */
+@Component
+@Slf4j
+public class EventAppendWriter {
+
+    private final EventAppendRepository appendRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BusinessMetrics businessMetrics;
+    private final int maxBatchSize;
+    private final BlockingQueue<PendingAppend> queue;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public EventAppendWriter(
+            EventAppendRepository appendRepository,
+            PlatformTransactionManager transactionManager,
+            BusinessMetrics businessMetrics,
+            @Value("${bss.event-store.append-batch-size:2000}") int maxBatchSize,
+            @Value("${bss.event-store.append-queue-capacity:50000}") int queueCapacity) {
+        this.appendRepository = appendRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.businessMetrics = businessMetrics;
+        this.maxBatchSize = maxBatchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writerThread = Thread.ofPlatform().name("event-append-writer").daemon().start(this::writeLoop);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // The writer drains the queue before it exits
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Queue the events of one aggregate for the next group commit
+     *
+     * @return future completed with the global position of the last event once it is durable
+     * @throws RejectedExecutionException if the writer is stopped or too far behind
+     */
+    public CompletableFuture<Long> submit(String aggregateId, List<StoredEvent> events) {
+        PendingAppend pending = new PendingAppend(aggregateId, events, new CompletableFuture<>());
+        if (!running || !queue.offer(pending)) {
+            throw new RejectedExecutionException("Event store is not accepting appends");
+        }
+        return pending.durable();
+    }
+
+    /**
+     * Append the events of one aggregate as part of the caller's transaction. The events are
+     * inserted when the transaction commits, together with the other appends it made; until then
+     * they are not visible to reads in the same transaction. If one of the versions already exists,
+     * the commit fails with {@link OptimisticLockingFailureException} and the transaction is rolled back.
+     */
+    public void appendInCurrentTransaction(String aggregateId, List<StoredEvent> events) {
+        CommitGroup group = (CommitGroup) TransactionSynchronizationManager.getResource(this);
+        if (group == null) {
+            group = new CommitGroup();
+            TransactionSynchronizationManager.bindResource(this, group);
+            TransactionSynchronizationManager.registerSynchronization(group);
+        }
+        group.appends.add(new PendingAppend(aggregateId, events, new CompletableFuture<>()));
+    }
+
+    private void writeLoop() {
+        List<PendingAppend> group = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingAppend first = running ? queue.poll(100, TimeUnit.MILLISECONDS) : queue.poll();
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group, maxBatchSize - 1);
+                write(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Event append writer failed: {}", e.getMessage(), e);
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingAppend> group) {
+        Timer.Sample sample = businessMetrics.startEventStoreAppend();
+        int eventCount = 0;
+        for (PendingAppend pending : group) {
+            eventCount += pending.events().size();
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> appendGroup(group));
+        } catch (RuntimeException e) {
+            log.error("Failed to append {} events: {}", eventCount, e.getMessage());
+            for (PendingAppend pending : group) {
+                pending.durable().completeExceptionally(e);
+            }
+            return;
+        } finally {
+            businessMetrics.recordEventStoreAppend(sample, eventCount);
+        }
+
+        for (PendingAppend pending : group) {
+            if (pending.conflict() != null) {
+                pending.durable().completeExceptionally(pending.conflict());
+            } else {
+                pending.durable().complete(pending.lastPosition());
+            }
+        }
+    }
+
+    /**
+     * Decide each append of a group under the append lock and insert the ones that won, in the
+     * current transaction; outcomes are only recorded, futures are completed once the transaction
+     * has committed. Within a group, an earlier append wins over a later one for the same version.
+     */
+    private void appendGroup(List<PendingAppend> group) {
+        List<StoredEvent> events = new ArrayList<>();
+        for (PendingAppend pending : group) {
+            events.addAll(pending.events());
+        }
+
+        Set<UUID> taken = appendRepository.lockAndFindTaken(events);
+        Set<String> claimed = new HashSet<>();
+        List<StoredEvent> accepted = new ArrayList<>(events.size());
+        for (PendingAppend pending : group) {
+            StoredEvent conflict = null;
+            Set<String> versions = new HashSet<>();
+            for (StoredEvent event : pending.events()) {
+                String version = event.getAggregateId() + '@' + event.getVersion();
+                if (taken.contains(event.getId()) || claimed.contains(version) || !versions.add(version)) {
+                    conflict = event;
+                    break;
+                }
+            }
+
+            if (conflict == null) {
+                claimed.addAll(versions);
+                accepted.addAll(pending.events());
+            } else {
+                pending.recordConflict(new OptimisticLockingFailureException(String.format(
+                        "Optimistic locking conflict. Version %d of aggregate %s already exists",
+                        conflict.getVersion(), pending.aggregateId())));
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        Map<UUID, Long> positions = appendRepository.append(accepted);
+        for (PendingAppend pending : group) {
+            if (pending.conflict() != null) {
+                continue;
+            }
+            long lastPosition = 0L;
+            for (StoredEvent event : pending.events()) {
+                lastPosition = Math.max(lastPosition, positions.get(event.getId()));
+            }
+            pending.recordPosition(lastPosition);
+        }
+    }
+
+    /**
+     * Appends of one caller transaction, inserted in its before-commit phase
+     */
+    private final class CommitGroup implements TransactionSynchronization {
+        private final List<PendingAppend> appends = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            int eventCount = 0;
+            for (PendingAppend pending : appends) {
+                eventCount += pending.events().size();
+            }
+            Timer.Sample sample = businessMetrics.startEventStoreAppend();
+            try {
+                appendGroup(appends);
+            } finally {
+                businessMetrics.recordEventStoreAppend(sample, eventCount);
+            }
+            for (PendingAppend pending : appends) {
+                if (pending.conflict() != null) {
+                    throw pending.conflict();
+                }
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(EventAppendWriter.this);
+        }
+    }
+
+    private static final class PendingAppend {
+        private final String aggregateId;
+        private final List<StoredEvent> events;
+        private final CompletableFuture<Long> durable;
+        private long lastPosition;
+        private OptimisticLockingFailureException conflict;
+
+        PendingAppend(String aggregateId, List<StoredEvent> events, CompletableFuture<Long> durable) {
+            this.aggregateId = aggregateId;
+            this.events = events;
+            this.durable = durable;
+        }
+
+        String aggregateId() {
+            return aggregateId;
+        }
+
+        List<StoredEvent> events() {
+            return events;
+        }
+
+        CompletableFuture<Long> durable() {
+            return durable;
+        }
+
+        long lastPosition() {
+            return lastPosition;
+        }
+
+        OptimisticLockingFailureException conflict() {
+            return conflict;
+        }
+
+        void recordPosition(long position) {
+            this.lastPosition = position;
+        }
+
+        void recordConflict(OptimisticLockingFailureException conflict) {
+            this.conflict = conflict;
+        }
+    }
+}
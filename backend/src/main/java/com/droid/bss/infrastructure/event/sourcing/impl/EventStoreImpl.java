@@ -1,47 +1,125 @@
 package com.droid.bss.infrastructure.event.sourcing.impl;
 
+import com.droid.bss.infrastructure.event.sourcing.EventQuery;
 import com.droid.bss.infrastructure.event.sourcing.EventStore;
 import com.droid.bss.infrastructure.event.sourcing.StoredEvent;
 import com.droid.bss.infrastructure.event.sourcing.entity.EventEntity;
 import com.droid.bss.infrastructure.event.sourcing.repository.EventEntityRepository;
+import com.droid.bss.infrastructure.serialization.PayloadCodecRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
- * Implementation of EventStore using JPA
+ * Implementation of EventStore using JPA for lookups and JDBC for appends and streaming reads.
+ *
+ * Appends go through {@link EventAppendWriter}, which groups concurrent appends into one insert
+ * statement and commit and assigns global positions in commit order.
+ *
+ * Streaming reads bypass JPA and run over a JDBC cursor: inside a read-only transaction the
+ * PostgreSQL driver fetches {@code bss.event-store.stream-fetch-size} rows per round trip instead of
+ * the whole result, and each row is handed to the consumer without being kept.
  */
 @Service
 public class EventStoreImpl implements EventStore {
 
+    private static final String SELECT_COLUMNS =
+            "SELECT id, aggregate_id, aggregate_type, event_type, event_data, event_payload, \"timestamp\", user_id, " +
+            "correlation_id, version, global_position FROM event_store ";
+
+    private static final String SELECT_AGGREGATE_TAIL =
+            SELECT_COLUMNS + "WHERE aggregate_id = ? AND version > ? ORDER BY version";
+
+    private static final String SELECT_BY_TYPE =
+            SELECT_COLUMNS + "WHERE event_type = ? ORDER BY global_position";
+
+    private static final String SELECT_BY_CORRELATION_ID =
+            SELECT_COLUMNS + "WHERE correlation_id = ? ORDER BY global_position";
+
+    private static final String SELECT_LATEST_POSITION = "SELECT COALESCE(MAX(global_position), 0) FROM event_store";
+
+    private static final String SELECT_POSITION_OF = "SELECT global_position FROM event_store WHERE id = ?";
+
     private final EventEntityRepository repository;
+    private final EventAppendWriter appendWriter;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final PayloadCodecRegistry payloadCodecs;
+    private final RowMapper<StoredEvent> rowMapper;
 
-    public EventStoreImpl(EventEntityRepository repository) {
+    public EventStoreImpl(
+            EventEntityRepository repository,
+            EventAppendWriter appendWriter,
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            PayloadCodecRegistry payloadCodecs,
+            @Value("${bss.event-store.stream-fetch-size:1000}") int fetchSize) {
         this.repository = repository;
+        this.appendWriter = appendWriter;
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.payloadCodecs = payloadCodecs;
+        this.rowMapper = (rs, rowNum) -> new StoredEvent(
+                rs.getObject("id", UUID.class),
+                rs.getString("aggregate_id"),
+                rs.getString("aggregate_type"),
+                rs.getString("event_type"),
+                payloadCodecs.fromColumns(rs.getBytes("event_payload"), rs.getString("event_data")),
+                rs.getTimestamp("timestamp").toLocalDateTime(),
+                rs.getString("user_id"),
+                rs.getString("correlation_id"),
+                rs.getLong("version"),
+                rs.getLong("global_position")
+        );
     }
 
+    /**
+     * Appends in one statement; concurrent writers are detected by the unique (aggregate_id, version)
+     * index rather than by reading the current version first. Inside a transaction the events are
+     * written when the caller's transaction commits, otherwise they join the next group commit.
+     */
     @Override
-    @Transactional
     public void saveEvents(String aggregateId, List<StoredEvent> events, int expectedVersion) {
-        // Verify expected version
-        long currentVersion = repository.getLatestVersion(aggregateId);
-        if (currentVersion != expectedVersion) {
-            throw new RuntimeException(
-                    String.format("Optimistic locking conflict. Expected version: %d, Current version: %d",
-                            expectedVersion, currentVersion)
-            );
+        if (events.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < events.size(); i++) {
+            StoredEvent event = events.get(i);
+            if (!aggregateId.equals(event.getAggregateId()) || event.getVersion() != expectedVersion + 1L + i) {
+                throw new IllegalArgumentException(String.format(
+                        "Event %d of aggregate %s must have version %d, got %d",
+                        i, aggregateId, expectedVersion + 1L + i, event.getVersion()));
+            }
         }
 
-        // Save events
-        List<EventEntity> eventEntities = events.stream()
-                .map(EventEntity::fromStoredEvent)
-                .collect(Collectors.toList());
-
-        repository.saveAll(eventEntities);
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            appendWriter.appendInCurrentTransaction(aggregateId, events);
+            return;
+        }
+        try {
+            appendWriter.submit(aggregateId, events).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
     }
 
     @Override
@@ -56,10 +134,12 @@ public class EventStoreImpl implements EventStore {
     @Override
     @Transactional(readOnly = true)
     public List<StoredEvent> getEventsSince(UUID eventId) {
-        return repository.findEventsAfterId(eventId)
-                .stream()
-                .map(this::toStoredEvent)
-                .collect(Collectors.toList());
+        List<StoredEvent> events = new ArrayList<>();
+        long position = getGlobalPosition(eventId);
+        if (position >= 0) {
+            streamEvents(EventQuery.afterPosition(position), events::add);
+        }
+        return events;
     }
 
     @Override
@@ -86,19 +166,83 @@ public class EventStoreImpl implements EventStore {
     @Override
     @Transactional(readOnly = true)
     public List<StoredEvent> getEventsByType(String eventType) {
-        return repository.findByEventType(eventType)
-                .stream()
-                .map(this::toStoredEvent)
-                .collect(Collectors.toList());
+        List<StoredEvent> events = new ArrayList<>();
+        stream(SELECT_BY_TYPE, events::add, eventType);
+        return events;
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<StoredEvent> getEventsByCorrelationId(String correlationId) {
-        return repository.findByCorrelationId(correlationId)
-                .stream()
-                .map(this::toStoredEvent)
-                .collect(Collectors.toList());
+        List<StoredEvent> events = new ArrayList<>();
+        stream(SELECT_BY_CORRELATION_ID, events::add, correlationId);
+        return events;
+    }
+
+    @Override
+    public long streamEvents(EventQuery query, Consumer<StoredEvent> consumer) {
+        StringBuilder sql = new StringBuilder(SELECT_COLUMNS).append("WHERE global_position > ? ");
+        List<Object> args = new ArrayList<>(8);
+        args.add(query.afterPosition());
+        if (query.toPosition() != Long.MAX_VALUE) {
+            sql.append("AND global_position <= ? ");
+            args.add(query.toPosition());
+        }
+        if (query.isPartitioned()) {
+            sql.append("AND (hashtext(aggregate_id) & 2147483647) % ? = ? ");
+            args.add(query.partitionCount());
+            args.add(query.partition());
+        }
+        if (query.fromTime() != null) {
+            sql.append("AND \"timestamp\" >= ? ");
+            args.add(Timestamp.valueOf(query.fromTime()));
+        }
+        if (query.toTime() != null) {
+            sql.append("AND \"timestamp\" <= ? ");
+            args.add(Timestamp.valueOf(query.toTime()));
+        }
+        if (query.eventType() != null) {
+            sql.append("AND event_type = ? ");
+            args.add(query.eventType());
+        }
+        sql.append("ORDER BY global_position");
+
+        return stream(sql.toString(), consumer, args.toArray());
+    }
+
+    @Override
+    public long streamEventsForAggregate(String aggregateId, long afterVersion, Consumer<StoredEvent> consumer) {
+        return stream(SELECT_AGGREGATE_TAIL, consumer, aggregateId, afterVersion);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long getLatestPosition() {
+        Long position = streamingJdbcTemplate.queryForObject(SELECT_LATEST_POSITION, Long.class);
+        return position != null ? position : 0L;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long getGlobalPosition(UUID eventId) {
+        List<Long> position = streamingJdbcTemplate.queryForList(SELECT_POSITION_OF, Long.class, eventId);
+        return position.isEmpty() ? -1L : position.get(0);
+    }
+
+    /**
+     * Run a query over a cursor; the driver only uses the fetch size with auto-commit off,
+     * hence the (joined or new) read-only transaction
+     */
+    private long stream(String sql, Consumer<StoredEvent> consumer, Object... args) {
+        Long count = readOnlyTransaction.execute(status -> {
+            long[] read = new long[1];
+            streamingJdbcTemplate.query(sql, rs -> {
+                consumer.accept(rowMapper.mapRow(rs, (int) read[0]));
+                read[0]++;
+            }, args);
+            return read[0];
+        });
+        return count != null ? count : 0L;
     }
 
     private StoredEvent toStoredEvent(EventEntity entity) {
@@ -107,11 +251,12 @@ public class EventStoreImpl implements EventStore {
                 entity.getAggregateId(),
                 entity.getAggregateType(),
                 entity.getEventType(),
-                entity.getEventData(),
+                payloadCodecs.fromColumns(entity.getEventPayload(), entity.getEventData()),
                 entity.getTimestamp(),
                 entity.getUserId(),
                 entity.getCorrelationId(),
-                entity.getVersion()
+                entity.getVersion(),
+                entity.getGlobalPosition() != null ? entity.getGlobalPosition() : 0L
         );
     }
 }
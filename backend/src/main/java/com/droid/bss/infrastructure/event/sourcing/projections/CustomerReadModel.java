@@ -3,17 +3,53 @@ package com.droid.bss.infrastructure.event.sourcing.projections;
 import com.droid.bss.infrastructure.event.sourcing.AbstractProjection;
 import com.droid.bss.infrastructure.event.sourcing.StoredEvent;
 
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Customer read model projection
+ *
+ * One view per customer, keyed by customer id in a concurrent map, so rebuild partitions are
+ * applied in parallel. Events of other aggregates (completed orders) reach a customer's view from
+ * other partitions; every handler merges its fields into the view atomically and the order
+ * statistics are sums, so the result does not depend on the order partitions are applied in.
  */
 public class CustomerReadModel extends AbstractProjection {
 
-    private String firstName;
-    private String lastName;
-    private String email;
-    private String status;
-    private int totalOrders;
-    private double totalSpent;
+    /**
+     * Projected state of one customer
+     */
+    public record CustomerView(
+            String customerId,
+            String firstName,
+            String lastName,
+            String email,
+            String status,
+            int totalOrders,
+            BigDecimal totalSpent
+    ) {
+        static CustomerView empty(String customerId) {
+            return new CustomerView(customerId, null, null, null, null, 0, BigDecimal.ZERO);
+        }
+
+        CustomerView withDetails(Map<?, ?> data) {
+            return new CustomerView(customerId,
+                    stringOr(data, "firstName", firstName),
+                    stringOr(data, "lastName", lastName),
+                    stringOr(data, "email", email),
+                    stringOr(data, "status", status),
+                    totalOrders, totalSpent);
+        }
+
+        CustomerView withCompletedOrder(BigDecimal amount) {
+            return new CustomerView(customerId, firstName, lastName, email, status,
+                    totalOrders + 1, totalSpent.add(amount));
+        }
+    }
+
+    private final Map<String, CustomerView> customers = new ConcurrentHashMap<>();
 
     @Override
     public String getName() {
@@ -26,13 +62,9 @@ public class CustomerReadModel extends AbstractProjection {
 
         switch (eventType) {
             case "customer.created":
-                handleCustomerCreated(event);
-                break;
             case "customer.updated":
-                handleCustomerUpdated(event);
-                break;
             case "customer.statusChanged":
-                handleCustomerStatusChanged(event);
+                handleCustomerChanged(event);
                 break;
             case "order.completed":
                 handleOrderCompleted(event);
@@ -45,53 +77,36 @@ public class CustomerReadModel extends AbstractProjection {
         updateVersion();
     }
 
-    private void handleCustomerCreated(StoredEvent event) {
-        // Parse event data and update read model
-        // In a real implementation, you would parse the JSON event data
-        String eventData = event.getEventData();
-        markUpToDate();
-    }
-
-    private void handleCustomerUpdated(StoredEvent event) {
-        // Update customer information
-        String eventData = event.getEventData();
-        markUpToDate();
-    }
-
-    private void handleCustomerStatusChanged(StoredEvent event) {
-        // Update customer status
-        String eventData = event.getEventData();
-        markUpToDate();
+    private void handleCustomerChanged(StoredEvent event) {
+        Map<?, ?> data = event.getPayload().decode(Map.class);
+        String customerId = stringOr(data, "customerId", event.getAggregateId());
+        customers.compute(customerId, (id, view) ->
+                (view != null ? view : CustomerView.empty(id)).withDetails(data));
     }
 
     private void handleOrderCompleted(StoredEvent event) {
-        // Update statistics when order is completed
-        totalOrders++;
-        markOutOfDate();
-    }
-
-    // Getters
-    public String getFirstName() {
-        return firstName;
-    }
-
-    public String getLastName() {
-        return lastName;
-    }
-
-    public String getEmail() {
-        return email;
+        Map<?, ?> data = event.getPayload().decode(Map.class);
+        String customerId = stringOr(data, "customerId", null);
+        if (customerId == null) {
+            return;
+        }
+        BigDecimal amount = data.get("totalAmount") != null
+                ? new BigDecimal(data.get("totalAmount").toString())
+                : BigDecimal.ZERO;
+        customers.compute(customerId, (id, view) ->
+                (view != null ? view : CustomerView.empty(id)).withCompletedOrder(amount));
     }
 
-    public String getStatus() {
-        return status;
+    public Optional<CustomerView> getCustomer(String customerId) {
+        return Optional.ofNullable(customers.get(customerId));
     }
 
-    public int getTotalOrders() {
-        return totalOrders;
+    public int getCustomerCount() {
+        return customers.size();
     }
 
-    public double getTotalSpent() {
-        return totalSpent;
+    private static String stringOr(Map<?, ?> data, String field, String fallback) {
+        Object value = data.get(field);
+        return value != null ? value.toString() : fallback;
     }
 }
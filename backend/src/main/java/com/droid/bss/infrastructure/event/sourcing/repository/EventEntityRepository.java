@@ -29,18 +29,6 @@ public interface EventEntityRepository extends JpaRepository<EventEntity, UUID>
             @Param("aggregateId") String aggregateId,
             @Param("version") long version);
 
-    /**
-     * Find events by type
-     */
-    @Query("SELECT e FROM EventEntity e WHERE e.eventType = :eventType ORDER BY e.timestamp DESC")
-    List<EventEntity> findByEventType(@Param("eventType") String eventType);
-
-    /**
-     * Find events by correlation ID
-     */
-    @Query("SELECT e FROM EventEntity e WHERE e.correlationId = :correlationId ORDER BY e.timestamp ASC")
-    List<EventEntity> findByCorrelationId(@Param("correlationId") String correlationId);
-
     /**
      * Get latest version for an aggregate
      */
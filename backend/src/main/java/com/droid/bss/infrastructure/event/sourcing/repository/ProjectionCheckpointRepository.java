@@ -0,0 +1,25 @@
+package com.droid.bss.infrastructure.event.sourcing.repository;
+
+import com.droid.bss.infrastructure.event.sourcing.entity.ProjectionCheckpointEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for projection checkpoints
+ */
+@Repository
+public interface ProjectionCheckpointRepository extends JpaRepository<ProjectionCheckpointEntity, String> {
+
+    /**
+     * Insert or move the checkpoint of a projection
+     */
+    @Modifying
+    @Query(value = "INSERT INTO projection_checkpoints (projection_name, position, updated_at) " +
+            "VALUES (:name, :position, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (projection_name) DO UPDATE SET position = EXCLUDED.position, updated_at = EXCLUDED.updated_at",
+            nativeQuery = true)
+    int saveCheckpoint(@Param("name") String projectionName, @Param("position") long position);
+}
@@ -1,28 +1,52 @@
 package com.droid.bss.infrastructure.eventsourcing;
 
+import com.droid.bss.infrastructure.eventsourcing.EventStore.EventHandler;
+import com.droid.bss.infrastructure.serialization.KafkaCloudEvents;
+import com.droid.bss.infrastructure.serialization.PayloadCodecRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
 
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
 /**
- * Publishes events to Redis Streams and Kafka
+ * Publishes events to Redis Streams and Kafka.
+ *
+ * Kafka events go to {@code bss.events.<aggregate type>}, where {@code EventStreamService} reads
+ * them, as CloudEvents in Kafka binary mode with the data encoded by the active payload codec.
  */
 @Component
+@Slf4j
 public class EventPublisher {
 
     private final EventStore eventStore;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final PayloadCodecRegistry payloadCodecs;
+    private final DefaultKafkaProducerFactory<String, byte[]> producerFactory;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
     private final List<EventHandler> eventHandlers;
 
-    public EventPublisher(EventStore eventStore, KafkaTemplate<String, Object> kafkaTemplate) {
+    public EventPublisher(EventStore eventStore, PayloadCodecRegistry payloadCodecs, KafkaProperties kafkaProperties) {
         this.eventStore = eventStore;
-        this.kafkaTemplate = kafkaTemplate;
+        this.payloadCodecs = payloadCodecs;
+        // The configured value serializer writes JSON; records of this publisher carry encoded bytes
+        this.producerFactory = new DefaultKafkaProducerFactory<>(kafkaProperties.buildProducerProperties(null),
+                new StringSerializer(), new ByteArraySerializer());
+        this.kafkaTemplate = new KafkaTemplate<>(producerFactory);
         this.eventHandlers = new ArrayList<>();
     }
 
+    @PreDestroy
+    public void stop() {
+        producerFactory.destroy();
+    }
+
     public void registerHandler(EventHandler handler) {
         eventHandlers.add(handler);
     }
@@ -35,7 +59,7 @@ public class EventPublisher {
         publishToRedisStream(aggregateType, event);
 
         // Publish to Kafka (for other services)
-        publishToKafka(aggregateType, eventId, event);
+        publishToKafka(aggregateType, aggregateId, eventId, event);
 
         // Notify local handlers
         notifyHandlers(event);
@@ -48,13 +72,15 @@ public class EventPublisher {
         // This is a placeholder for additional stream logic
     }
 
-    private void publishToKafka(String aggregateType, String eventId, DomainEvent event) {
+    private void publishToKafka(String aggregateType, String aggregateId, String eventId, DomainEvent event) {
         try {
             String topic = "bss.events." + aggregateType.toLowerCase();
-            kafkaTemplate.send(topic, eventId, event);
+            kafkaTemplate.send(KafkaCloudEvents.toRecord(topic, eventId, payloadCodecs.encode(event),
+                    eventId, event.getEventType(), "/bss/" + aggregateType.toLowerCase(), aggregateId,
+                    event.getTimestamp() != null ? event.getTimestamp().atOffset(ZoneOffset.UTC) : null));
         } catch (Exception e) {
             // Log but don't fail
-            System.err.println("Failed to publish event to Kafka: " + e.getMessage());
+            log.error("Failed to publish event to Kafka: {}", e.getMessage(), e);
         }
     }
 
@@ -64,7 +90,7 @@ public class EventPublisher {
                 handler.handle(event);
             } catch (Exception e) {
                 // Log but continue
-                System.err.println("Error in event handler: " + e.getMessage());
+                log.error("Error in event handler: {}", e.getMessage(), e);
             }
         }
     }
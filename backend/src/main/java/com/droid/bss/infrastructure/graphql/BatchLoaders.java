@@ -0,0 +1,137 @@
+package com.droid.bss.infrastructure.graphql;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.dataloader.MappedBatchLoader;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Shared batch loading for GraphQL DataLoaders and {@code @BatchMapping} resolvers.
+ *
+ * A batch fetches its results in one query and assigns them to the requested keys through a hash
+ * index, in O(keys + results) rather than scanning all results for every key. Loaders follow
+ * {@link MappedBatchLoader} semantics: a key without results maps to null (single results) or to
+ * an empty list (grouped results). Every batch records its size and latency per loader, as
+ * {@code bss.graphql.batch_loader.size} and {@code bss.graphql.batch_loader.duration}.
+ */
+@Component
+public class BatchLoaders {
+
+    private record LoaderMeters(DistributionSummary batchSize, Timer latency) {
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, LoaderMeters> meters = new ConcurrentHashMap<>();
+
+    public BatchLoaders(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Loader with at most one result per key, e.g. entities by id
+     */
+    public <K, V> MappedBatchLoader<K, V> byKey(
+            String loader,
+            Function<List<K>, CompletionStage<? extends Collection<V>>> fetch,
+            Function<V, K> keyOf) {
+        return keys -> timed(loader, keys.size(),
+            () -> fetch.apply(new ArrayList<>(keys)).toCompletableFuture()
+                .thenApply(results -> index(keys, results, keyOf)));
+    }
+
+    /**
+     * Loader with any number of results per key, e.g. the invoices of customers
+     */
+    public <K, V> MappedBatchLoader<K, List<V>> groupedBy(
+            String loader,
+            Function<List<K>, CompletionStage<? extends Collection<V>>> fetch,
+            Function<V, K> keyOf) {
+        return keys -> timed(loader, keys.size(),
+            () -> fetch.apply(new ArrayList<>(keys)).toCompletableFuture()
+                .thenApply(results -> group(keys, results, keyOf)));
+    }
+
+    /**
+     * Run one batch and record its size and latency, including failed batches
+     */
+    public <T> CompletableFuture<T> timed(String loader, int batchSize, Supplier<CompletableFuture<T>> batch) {
+        LoaderMeters loaderMeters = meters.computeIfAbsent(loader, this::register);
+        loaderMeters.batchSize().record(batchSize);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<T> result;
+        try {
+            result = batch.get();
+        } catch (RuntimeException e) {
+            sample.stop(loaderMeters.latency());
+            return CompletableFuture.failedFuture(e);
+        }
+        return result.whenComplete((value, error) -> sample.stop(loaderMeters.latency()));
+    }
+
+    private LoaderMeters register(String loader) {
+        return new LoaderMeters(
+            DistributionSummary.builder("bss.graphql.batch_loader.size")
+                .description("Number of keys per GraphQL batch load")
+                .tag("loader", loader)
+                .register(meterRegistry),
+            Timer.builder("bss.graphql.batch_loader.duration")
+                .description("Latency of GraphQL batch loads")
+                .tag("loader", loader)
+                .register(meterRegistry));
+    }
+
+    /**
+     * Index results by key; results for keys that were not requested are dropped
+     */
+    public static <K, V> Map<K, V> index(Set<K> keys, Collection<V> results, Function<V, K> keyOf) {
+        Map<K, V> indexed = new HashMap<>(Math.max(16, keys.size() * 2));
+        for (V result : results) {
+            K key = keyOf.apply(result);
+            if (keys.contains(key)) {
+                indexed.putIfAbsent(key, result);
+            }
+        }
+        return indexed;
+    }
+
+    /**
+     * Group results by key, with an empty list for every requested key without results
+     */
+    public static <K, V> Map<K, List<V>> group(Collection<K> keys, Collection<V> results, Function<V, K> keyOf) {
+        Map<K, List<V>> grouped = new HashMap<>(Math.max(16, keys.size() * 2));
+        for (K key : keys) {
+            grouped.put(key, new ArrayList<>());
+        }
+        for (V result : results) {
+            List<V> group = grouped.get(keyOf.apply(result));
+            if (group != null) {
+                group.add(result);
+            }
+        }
+        return grouped;
+    }
+
+    /**
+     * Results in the order of the keys, for list-returning {@code @BatchMapping} resolvers
+     */
+    public static <K, V> List<V> inKeyOrder(List<K> keys, Map<K, V> results) {
+        List<V> ordered = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            ordered.add(results.get(key));
+        }
+        return ordered;
+    }
+}
@@ -8,21 +8,21 @@ import com.droid.bss.infrastructure.read.CustomerReadRepository;
 import com.droid.bss.infrastructure.read.InvoiceReadRepository;
 import com.droid.bss.infrastructure.read.PaymentReadRepository;
 import com.droid.bss.infrastructure.read.SubscriptionReadRepository;
-import org.dataloader.DataLoader;
+import lombok.extern.slf4j.Slf4j;
+import org.dataloader.DataLoaderFactory;
 import org.dataloader.DataLoaderOptions;
 import org.dataloader.DataLoaderRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
 
 /**
  * Configuration for GraphQL DataLoaders
- * Prevents N+1 problem by batching database queries
+ * Prevents N+1 problem by batching database queries; results are matched to keys by
+ * {@link BatchLoaders}
  */
+@Slf4j
 @Configuration
 public class DataLoaderConfig {
 
@@ -30,16 +30,19 @@ public class DataLoaderConfig {
     private final InvoiceReadRepository invoiceRepository;
     private final PaymentReadRepository paymentRepository;
     private final SubscriptionReadRepository subscriptionRepository;
+    private final BatchLoaders batchLoaders;
 
     public DataLoaderConfig(
             CustomerReadRepository customerRepository,
             InvoiceReadRepository invoiceRepository,
             PaymentReadRepository paymentRepository,
-            SubscriptionReadRepository subscriptionRepository) {
+            SubscriptionReadRepository subscriptionRepository,
+            BatchLoaders batchLoaders) {
         this.customerRepository = customerRepository;
         this.invoiceRepository = invoiceRepository;
         this.paymentRepository = paymentRepository;
         this.subscriptionRepository = subscriptionRepository;
+        this.batchLoaders = batchLoaders;
     }
 
     /**
@@ -56,74 +59,36 @@ public class DataLoaderConfig {
             .setMaxBatchSize(100);
 
         // Customer DataLoader
-        DataLoader<UUID, CustomerEntity> customerDataLoader = DataLoader.newDataLoader(
-            (List<UUID> ids) -> {
+        registry.register("customer", DataLoaderFactory.newMappedDataLoader(
+            batchLoaders.<UUID, CustomerEntity>byKey("customer", ids -> {
                 log.debug("Batch loading customers for IDs: {}", ids.size());
-                return customerRepository.findByIdIn(ids)
-                    .thenApply(customers -> {
-                        // Ensure we return results in the same order as requested IDs
-                        return ids.stream()
-                            .map(id -> customers.stream()
-                                .filter(c -> c.getId().equals(id))
-                                .findFirst()
-                                .orElse(null))
-                            .collect(Collectors.toList());
-                    });
-            },
-            options
-        );
-        registry.register("customer", customerDataLoader);
+                return customerRepository.findByIdIn(ids);
+            }, CustomerEntity::getId),
+            options));
 
         // Invoice DataLoader
-        DataLoader<UUID, List<InvoiceEntity>> invoiceDataLoader = DataLoader.newDataLoader(
-            (List<UUID> customerIds) -> {
+        registry.register("invoices", DataLoaderFactory.newMappedDataLoader(
+            batchLoaders.<UUID, InvoiceEntity>groupedBy("invoices", customerIds -> {
                 log.debug("Batch loading invoices for {} customers", customerIds.size());
-                return invoiceRepository.findByCustomerIdIn(customerIds)
-                    .thenApply(invoices -> {
-                        return customerIds.stream()
-                            .map(customerId -> invoices.stream()
-                                .filter(inv -> inv.getCustomer().getId().equals(customerId))
-                                .collect(Collectors.toList()))
-                            .collect(Collectors.toList());
-                    });
-            },
-            options
-        );
-        registry.register("invoices", invoiceDataLoader);
+                return invoiceRepository.findByCustomerIdIn(customerIds);
+            }, invoice -> invoice.getCustomer().getId()),
+            options));
 
         // Payment DataLoader
-        DataLoader<UUID, List<PaymentEntity>> paymentDataLoader = DataLoader.newDataLoader(
-            (List<UUID> customerIds) -> {
+        registry.register("payments", DataLoaderFactory.newMappedDataLoader(
+            batchLoaders.<UUID, PaymentEntity>groupedBy("payments", customerIds -> {
                 log.debug("Batch loading payments for {} customers", customerIds.size());
-                return paymentRepository.findByCustomerIdIn(customerIds)
-                    .thenApply(payments -> {
-                        return customerIds.stream()
-                            .map(customerId -> payments.stream()
-                                .filter(payment -> payment.getInvoice().getCustomer().getId().equals(customerId))
-                                .collect(Collectors.toList()))
-                            .collect(Collectors.toList());
-                    });
-            },
-            options
-        );
-        registry.register("payments", paymentDataLoader);
+                return paymentRepository.findByCustomerIdIn(customerIds);
+            }, payment -> payment.getCustomer().getId()),
+            options));
 
         // Subscription DataLoader
-        DataLoader<UUID, List<SubscriptionEntity>> subscriptionDataLoader = DataLoader.newDataLoader(
-            (List<UUID> customerIds) -> {
+        registry.register("subscriptions", DataLoaderFactory.newMappedDataLoader(
+            batchLoaders.<UUID, SubscriptionEntity>groupedBy("subscriptions", customerIds -> {
                 log.debug("Batch loading subscriptions for {} customers", customerIds.size());
-                return subscriptionRepository.findByCustomerIdIn(customerIds)
-                    .thenApply(subscriptions -> {
-                        return customerIds.stream()
-                            .map(customerId -> subscriptions.stream()
-                                .filter(sub -> sub.getCustomer().getId().equals(customerId))
-                                .collect(Collectors.toList()))
-                            .collect(Collectors.toList());
-                    });
-            },
-            options
-        );
-        registry.register("subscriptions", subscriptionDataLoader);
+                return subscriptionRepository.findByCustomerIdIn(customerIds);
+            }, subscription -> subscription.getCustomer().getId()),
+            options));
 
         return registry;
     }
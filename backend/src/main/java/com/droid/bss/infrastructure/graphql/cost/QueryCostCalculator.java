@@ -0,0 +1,159 @@
+package com.droid.bss.infrastructure.graphql.cost;
+
+import graphql.execution.RawVariables;
+import graphql.language.Document;
+import graphql.normalized.ExecutableNormalizedField;
+import graphql.normalized.ExecutableNormalizedOperation;
+import graphql.normalized.ExecutableNormalizedOperationFactory;
+import graphql.parser.Parser;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLList;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.GraphQLType;
+import graphql.schema.GraphQLTypeUtil;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Static cost of GraphQL operations.
+ *
+ * The cost of a field is its weight plus its item count times the cost of its selections, so
+ * nested lists multiply: customers(first: 50) → invoices(size: 20) → items costs per item, not per
+ * field. The item count comes from a size argument (first, last, size, limit), capped at
+ * maxListSize; lists without one count defaultListSize items, except the edges of a connection,
+ * which are sized by the connection's own argument. Fragments and variables are resolved through
+ * graphql-java's normalized operation, so the estimate matches what will execute.
+ *
+ * The same weights applied to a response give the actual cost, to compare against the estimate.
+ */
+public class QueryCostCalculator {
+
+    private static final String CONNECTION_SUFFIX = "Connection";
+
+    /**
+     * Normalized operation and its estimated cost
+     */
+    public record Analysis(ExecutableNormalizedOperation operation, long estimatedCost) {
+    }
+
+    private final QueryCostProperties properties;
+
+    public QueryCostCalculator(QueryCostProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Estimate the cost of an operation before it is executed
+     *
+     * @throws graphql.execution.AbortExecutionException if the operation selects more fields than
+     *         graphql-java normalizes
+     */
+    public Analysis analyze(GraphQLSchema schema, String query, String operationName, Map<String, Object> variables) {
+        Document document = new Parser().parseDocument(query);
+        ExecutableNormalizedOperation operation = ExecutableNormalizedOperationFactory
+            .createExecutableNormalizedOperationWithRawVariables(
+                schema, document, operationName, RawVariables.of(variables != null ? variables : Map.of()));
+        long cost = 0;
+        for (ExecutableNormalizedField field : operation.getTopLevelFields()) {
+            cost = add(cost, estimate(schema, field));
+        }
+        return new Analysis(operation, cost);
+    }
+
+    private long estimate(GraphQLSchema schema, ExecutableNormalizedField field) {
+        if (field.getName().startsWith("__")) {
+            return 0;
+        }
+        long selections = 0;
+        for (ExecutableNormalizedField child : field.getChildren()) {
+            selections = add(selections, estimate(schema, child));
+        }
+        GraphQLFieldDefinition definition = field.getFieldDefinitions(schema).get(0);
+        return add(weight(field, definition), multiply(itemCount(field, definition), selections));
+    }
+
+    /**
+     * Cost of a response for the operation of an analysis
+     */
+    public long actualCost(Analysis analysis, Object data) {
+        return data instanceof Map<?, ?> result ? actual(analysis.operation().getTopLevelFields(), result) : 0;
+    }
+
+    private long actual(List<ExecutableNormalizedField> fields, Map<?, ?> result) {
+        long cost = 0;
+        for (ExecutableNormalizedField field : fields) {
+            if (field.getName().startsWith("__") || !result.containsKey(field.getResultKey())) {
+                continue;
+            }
+            long weight = weight(field, null);
+            cost = add(cost, add(weight, actualSelections(field.getChildren(), result.get(field.getResultKey()))));
+        }
+        return cost;
+    }
+
+    private long actualSelections(List<ExecutableNormalizedField> children, Object value) {
+        if (children.isEmpty() || value == null) {
+            return 0;
+        }
+        if (value instanceof Collection<?> items) {
+            long cost = 0;
+            for (Object item : items) {
+                cost = add(cost, actualSelections(children, item));
+            }
+            return cost;
+        }
+        return value instanceof Map<?, ?> object ? actual(children, object) : 0;
+    }
+
+    /**
+     * Configured weight of the field on any of its types; otherwise 1 for objects and 0 for leaves
+     *
+     * @param definition field definition, or null to tell leaves by their missing selections
+     */
+    private long weight(ExecutableNormalizedField field, GraphQLFieldDefinition definition) {
+        Map<String, Long> weights = properties.getFieldWeights();
+        if (!weights.isEmpty()) {
+            long weight = -1;
+            for (String typeName : field.getObjectTypeNames()) {
+                weight = Math.max(weight, weights.getOrDefault(typeName + "." + field.getName(), -1L));
+            }
+            if (weight >= 0) {
+                return weight;
+            }
+        }
+        boolean leaf = definition != null
+            ? GraphQLTypeUtil.isLeaf(GraphQLTypeUtil.unwrapAll(definition.getType()))
+            : field.getChildren().isEmpty();
+        return leaf ? 0 : 1;
+    }
+
+    private long itemCount(ExecutableNormalizedField field, GraphQLFieldDefinition definition) {
+        Map<String, Object> arguments = field.getResolvedArguments();
+        for (String name : properties.getSizeArguments()) {
+            if (arguments.get(name) instanceof Number size) {
+                return Math.max(0, Math.min(size.longValue(), properties.getMaxListSize()));
+            }
+        }
+        GraphQLType type = GraphQLTypeUtil.unwrapNonNull(definition.getType());
+        if (!(type instanceof GraphQLList)) {
+            return 1;
+        }
+        boolean connectionEdges = field.getObjectTypeNames().stream().anyMatch(name -> name.endsWith(CONNECTION_SUFFIX));
+        return connectionEdges ? 1 : properties.getDefaultListSize();
+    }
+
+    private static long add(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    private static long multiply(long a, long b) {
+        try {
+            return Math.multiplyExact(a, b);
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.droid.bss.infrastructure.graphql.cost;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.graphql.execution.GraphQlSource;
+
+/**
+ * GraphQL query cost analysis and admission control
+ */
+@Configuration
+@EnableConfigurationProperties(QueryCostProperties.class)
+public class QueryCostConfiguration {
+
+    @Bean
+    public QueryCostCalculator queryCostCalculator(QueryCostProperties properties) {
+        return new QueryCostCalculator(properties);
+    }
+
+    @Bean
+    public TenantCostBudget tenantCostBudget(RedisTemplate<String, String> redisTemplate) {
+        return new TenantCostBudget(redisTemplate);
+    }
+
+    @Bean
+    public QueryCostInterceptor queryCostInterceptor(
+            GraphQlSource graphQlSource,
+            QueryCostCalculator queryCostCalculator,
+            TenantCostBudget tenantCostBudget,
+            QueryCostProperties properties,
+            MeterRegistry meterRegistry) {
+        return new QueryCostInterceptor(graphQlSource, queryCostCalculator, tenantCostBudget, properties, meterRegistry);
+    }
+}
@@ -0,0 +1,166 @@
+package com.droid.bss.infrastructure.graphql.cost;
+
+import graphql.ExecutionResultImpl;
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.AbortExecutionException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.graphql.execution.ErrorType;
+import org.springframework.graphql.execution.GraphQlSource;
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.graphql.support.DefaultExecutionGraphQlResponse;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Admission control of GraphQL requests by estimated cost.
+ *
+ * Before execution, a request is rejected if its estimated cost is over the tenant's per-query
+ * budget, and throttled if it would take the tenant over its cost per minute; both come back as a
+ * GraphQL error without touching a resolver. Admitted requests record their estimated and actual
+ * cost as {@code bss.graphql.query.cost}, tagged {@code kind=estimated|actual}.
+ *
+ * The tenant is taken from the authenticated caller: the JWT tenant claim
+ * ({@code bss.graphql.cost.tenant-claim}), or else the principal name. The {@code X-Tenant-ID}
+ * header is client-controlled and only accepted when it names the same tenant; anonymous
+ * requests share the default tenant.
+ */
+@Slf4j
+public class QueryCostInterceptor implements WebGraphQlInterceptor {
+
+    static final String TENANT_HEADER = "X-Tenant-ID";
+    static final String DEFAULT_TENANT = "default";
+
+    private final GraphQlSource graphQlSource;
+    private final QueryCostCalculator calculator;
+    private final TenantCostBudget budget;
+    private final QueryCostProperties properties;
+    private final DistributionSummary estimatedCost;
+    private final DistributionSummary actualCost;
+    private final Counter overBudget;
+    private final Counter throttled;
+
+    public QueryCostInterceptor(
+            GraphQlSource graphQlSource,
+            QueryCostCalculator calculator,
+            TenantCostBudget budget,
+            QueryCostProperties properties,
+            MeterRegistry meterRegistry) {
+        this.graphQlSource = graphQlSource;
+        this.calculator = calculator;
+        this.budget = budget;
+        this.properties = properties;
+        this.estimatedCost = DistributionSummary.builder("bss.graphql.query.cost")
+            .description("Estimated cost of admitted GraphQL queries")
+            .tag("kind", "estimated")
+            .register(meterRegistry);
+        this.actualCost = DistributionSummary.builder("bss.graphql.query.cost")
+            .description("Actual cost of GraphQL responses")
+            .tag("kind", "actual")
+            .register(meterRegistry);
+        this.overBudget = Counter.builder("bss.graphql.query.rejected")
+            .description("GraphQL queries rejected before execution")
+            .tag("reason", "over_budget")
+            .register(meterRegistry);
+        this.throttled = Counter.builder("bss.graphql.query.rejected")
+            .description("GraphQL queries rejected before execution")
+            .tag("reason", "throttled")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<WebGraphQlResponse> intercept(WebGraphQlRequest request, Chain chain) {
+        if (!properties.isEnabled() || !StringUtils.hasText(request.getDocument())) {
+            return chain.next(request);
+        }
+        String tenant = tenantOf(request);
+
+        QueryCostCalculator.Analysis analysis;
+        try {
+            analysis = calculator.analyze(
+                graphQlSource.schema(), request.getDocument(), request.getOperationName(), request.getVariables());
+        } catch (AbortExecutionException e) {
+            overBudget.increment();
+            return reject(request, "QUERY_TOO_LARGE", e.getMessage(), Map.of());
+        } catch (Exception e) {
+            // Invalid documents are reported by validation during execution
+            log.debug("Skipping cost analysis of invalid GraphQL document: {}", e.getMessage());
+            return chain.next(request);
+        }
+
+        long cost = analysis.estimatedCost();
+        long queryBudget = properties.queryBudget(tenant);
+        if (cost > queryBudget) {
+            overBudget.increment();
+            log.warn("GraphQL query over budget for tenant {}: cost {} (budget {}), operation: {}",
+                tenant, cost, queryBudget, request.getOperationName());
+            return reject(request, "QUERY_COST_EXCEEDED",
+                "Query cost " + cost + " exceeds the budget of " + queryBudget,
+                Map.of("cost", cost, "budget", queryBudget));
+        }
+
+        return Mono.fromCallable(() -> budget.tryCharge(tenant, cost, properties.costPerMinute(tenant)))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(admitted -> {
+                if (!admitted) {
+                    throttled.increment();
+                    long retryAfter = budget.secondsUntilReset();
+                    return reject(request, "QUERY_COST_THROTTLED",
+                        "Query cost budget per minute exhausted, retry in " + retryAfter + "s",
+                        Map.of("cost", cost, "retryAfterSeconds", retryAfter))
+                        .doOnNext(response -> response.getResponseHeaders().set("Retry-After", String.valueOf(retryAfter)));
+                }
+                estimatedCost.record(cost);
+                return chain.next(request)
+                    .doOnNext(response -> actualCost.record(calculator.actualCost(analysis, response.getData())));
+            });
+    }
+
+    private String tenantOf(WebGraphQlRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return DEFAULT_TENANT;
+        }
+
+        String tenant = null;
+        if (authentication instanceof JwtAuthenticationToken jwt) {
+            tenant = jwt.getToken().getClaimAsString(properties.getTenantClaim());
+        }
+        if (!StringUtils.hasText(tenant)) {
+            tenant = authentication.getName();
+        }
+
+        String header = request.getHeaders().getFirst(TENANT_HEADER);
+        if (StringUtils.hasText(header) && !header.equals(tenant)) {
+            log.debug("Ignoring {} header {} of caller with tenant {}", TENANT_HEADER, header, tenant);
+        }
+        return tenant;
+    }
+
+    private static Mono<WebGraphQlResponse> reject(
+            WebGraphQlRequest request, String code, String message, Map<String, Object> details) {
+        Map<String, Object> extensions = new HashMap<>(details);
+        extensions.put("code", code);
+        GraphQLError error = GraphqlErrorBuilder.newError()
+            .message(message)
+            .errorType(ErrorType.BAD_REQUEST)
+            .extensions(extensions)
+            .build();
+        return Mono.just(new WebGraphQlResponse(new DefaultExecutionGraphQlResponse(
+            request.toExecutionInput(), ExecutionResultImpl.newExecutionResult().addError(error).build())));
+    }
+}
@@ -0,0 +1,72 @@
+package com.droid.bss.infrastructure.graphql.cost;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Min;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GraphQL Query Cost Configuration Properties
+ */
+@Data
+@ConfigurationProperties(prefix = "bss.graphql.cost")
+@Validated
+public class QueryCostProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Weights by "Type.field"; composite fields default to 1 and leaf fields to 0
+     */
+    private Map<String, Long> fieldWeights = new HashMap<>();
+
+    /**
+     * Arguments that give the number of items a field returns, in order of precedence
+     */
+    private List<String> sizeArguments = List.of("first", "last", "size", "limit");
+
+    /**
+     * Assumed item count of list fields without a size argument
+     */
+    @Min(1)
+    private int defaultListSize = 10;
+
+    /**
+     * Cap on size arguments, so a huge "first" cannot overflow the estimate
+     */
+    @Min(1)
+    private int maxListSize = 1000;
+
+    /**
+     * Highest estimated cost of a single query, per tenant
+     */
+    @Min(1)
+    private long defaultQueryBudget = 10_000;
+
+    private Map<String, Long> tenantQueryBudgets = new HashMap<>();
+
+    /**
+     * Estimated cost a tenant may spend per minute before its queries are throttled
+     */
+    @Min(1)
+    private long defaultCostPerMinute = 500_000;
+
+    private Map<String, Long> tenantCostPerMinute = new HashMap<>();
+
+    /**
+     * JWT claim with the tenant of the caller; callers without it are budgeted by principal name
+     */
+    private String tenantClaim = "tenant_id";
+
+    public long queryBudget(String tenant) {
+        return tenantQueryBudgets.getOrDefault(tenant, defaultQueryBudget);
+    }
+
+    public long costPerMinute(String tenant) {
+        return tenantCostPerMinute.getOrDefault(tenant, defaultCostPerMinute);
+    }
+}
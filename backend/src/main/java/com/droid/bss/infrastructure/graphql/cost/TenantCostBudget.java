@@ -0,0 +1,72 @@
+package com.droid.bss.infrastructure.graphql.cost;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-tenant GraphQL cost spent per minute, shared by all replicas through Redis.
+ *
+ * A query is charged its estimated cost when it is admitted. Queries that would take the tenant
+ * over its budget for the current minute are throttled and charged nothing. Without Redis the
+ * budget is not enforced, so a Redis outage does not take the API down with it.
+ */
+@Slf4j
+public class TenantCostBudget {
+
+    private static final String KEY_PREFIX = "bss:graphql:cost:";
+    private static final long WINDOW_MILLIS = 60_000;
+
+    private static final DefaultRedisScript<Long> CHARGE_SCRIPT = new DefaultRedisScript<>(
+        "local cost = tonumber(ARGV[1]) " +
+        "local spent = tonumber(redis.call('GET', KEYS[1]) or '0') " +
+        "if spent + cost > tonumber(ARGV[2]) then " +
+        "  return -1 " +
+        "end " +
+        "spent = redis.call('INCRBY', KEYS[1], cost) " +
+        "if spent == cost then " +
+        "  redis.call('PEXPIRE', KEYS[1], ARGV[3]) " +
+        "end " +
+        "return spent",
+        Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final AtomicLong failures = new AtomicLong(0);
+
+    public TenantCostBudget(RedisTemplate<String, String> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Charge a query to the tenant's budget for the current minute
+     *
+     * @return false if the query would exceed the budget and must be throttled
+     */
+    public boolean tryCharge(String tenant, long cost, long costPerMinute) {
+        long window = System.currentTimeMillis() / WINDOW_MILLIS;
+        try {
+            Long spent = redisTemplate.execute(CHARGE_SCRIPT, List.of(KEY_PREFIX + tenant + ":" + window),
+                String.valueOf(cost), String.valueOf(costPerMinute), String.valueOf(2 * WINDOW_MILLIS));
+            return spent == null || spent >= 0;
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            log.warn("GraphQL cost budget unavailable, admitting query for tenant {}: {}", tenant, e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * Seconds until the current budget window ends
+     */
+    public long secondsUntilReset() {
+        long now = System.currentTimeMillis();
+        return Math.max(1, (WINDOW_MILLIS - now % WINDOW_MILLIS + 999) / 1000);
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+}
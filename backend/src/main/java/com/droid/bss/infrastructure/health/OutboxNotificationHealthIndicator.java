@@ -0,0 +1,45 @@
+package com.droid.bss.infrastructure.health;
+
+import com.droid.bss.infrastructure.outbox.OutboxNotificationListener;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+/**
+ * Health indicator for the LISTEN connection of the outbox relay
+ *
+ * The relay keeps working by polling while the listener is disconnected, so a lost connection is
+ * reported as DEGRADED rather than DOWN, with the error of the last attempt.
+ */
+@Component
+public class OutboxNotificationHealthIndicator implements HealthIndicator {
+
+    static final Status DEGRADED = new Status("DEGRADED", "Outbox relay is polling without notifications");
+
+    private final OutboxNotificationListener listener;
+
+    public OutboxNotificationHealthIndicator(OutboxNotificationListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public Health health() {
+        if (!listener.isEnabled()) {
+            return Health.up()
+                    .withDetail("status", "Outbox notifications disabled, the relay polls only")
+                    .build();
+        }
+        if (listener.isListening()) {
+            return Health.up()
+                    .withDetail("target", listener.getTarget())
+                    .build();
+        }
+        Health.Builder health = Health.status(DEGRADED)
+                .withDetail("target", listener.getTarget());
+        if (listener.getLastError() != null) {
+            health.withDetail("error", listener.getLastError());
+        }
+        return health.build();
+    }
+}
@@ -0,0 +1,51 @@
+package com.droid.bss.infrastructure.health;
+
+import com.droid.bss.infrastructure.outbox.OutboxRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * Health indicator for the daily partitions of outbox_event
+ *
+ * Down when a partition is missing for today or the next {@code min-days-ahead} days, i.e. the
+ * partition job has not run for a while; events of such days go to the default partition until it does.
+ */
+@Component
+public class OutboxPartitionHealthIndicator implements HealthIndicator {
+
+    private final OutboxRepository outboxRepository;
+    private final int minDaysAhead;
+
+    public OutboxPartitionHealthIndicator(
+            OutboxRepository outboxRepository,
+            @Value("${bss.outbox.partitions.min-days-ahead:2}") int minDaysAhead) {
+        this.outboxRepository = outboxRepository;
+        this.minDaysAhead = minDaysAhead;
+    }
+
+    @Override
+    public Health health() {
+        try {
+            LocalDate today = LocalDate.now(ZoneOffset.UTC);
+            long missing = outboxRepository.countMissingPartitions(today, today.plusDays(minDaysAhead));
+            long defaultPartitionEvents = outboxRepository.countDefaultPartitionEvents();
+
+            Health.Builder health = missing > 0 ? Health.down() : Health.up();
+            return health
+                    .withDetail("missingPartitions", missing)
+                    .withDetail("checkedUpTo", today.plusDays(minDaysAhead).toString())
+                    .withDetail("defaultPartitionEvents", defaultPartitionEvents)
+                    .build();
+        } catch (Exception e) {
+            return Health.down()
+                    .withDetail("status", "Outbox partitions could not be checked")
+                    .withDetail("error", e.getMessage())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.droid.bss.infrastructure.messaging;
+
+import com.droid.bss.infrastructure.cache.CacheEvictionService;
+import com.droid.bss.infrastructure.cache.CacheInvalidationBatch;
+import com.droid.bss.infrastructure.messaging.deadletter.DeadLetterQueue;
+import com.droid.bss.infrastructure.messaging.idempotency.EventDeduplicator;
+import io.cloudevents.CloudEvent;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Processes one poll of CloudEvents for a domain event consumer.
+ *
+ * Records are handled in order on the listener thread. Events repeated within the batch, or already
+ * processed according to the {@link EventDeduplicator}, are skipped. A record whose handler fails
+ * does not hold back the rest of the batch; the failed records of a batch are stored in the
+ * {@link DeadLetterQueue} together once the batch has been handled. Cache invalidations requested by
+ * the handlers are coalesced and applied once, and the batch is acknowledged once, so the container
+ * commits the offsets of the whole poll in one commit.
+ *
+ * Processed events are recorded with the deduplicator after the invalidations are applied and
+ * before the batch is acknowledged. If storing the failures, applying the invalidations or
+ * recording the events fails, the batch is not acknowledged and the container redelivers it.
+ *
+ * The processor registers its handler with the DLQ under its domain, so events replayed from the
+ * DLQ are handled the same way.
+ */
+public class CloudEventBatchProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(CloudEventBatchProcessor.class);
+
+    /**
+     * Handles a single event, recording the cache invalidations it needs into the batch
+     */
+    @FunctionalInterface
+    public interface EventHandler {
+        void handle(CloudEvent cloudEvent, CacheInvalidationBatch invalidations) throws Exception;
+    }
+
+    private final String domain;
+    private final EventHandler handler;
+    private final DeadLetterQueue deadLetterQueue;
+    private final CacheEvictionService cacheEvictionService;
+    private final EventDeduplicator eventDeduplicator;
+    private final AtomicLong totalEventsProcessed = new AtomicLong(0);
+    private final AtomicLong totalEventsFailed = new AtomicLong(0);
+    private final AtomicLong totalEventsSentToDLQ = new AtomicLong(0);
+    private final AtomicLong totalDuplicateEvents = new AtomicLong(0);
+    private final AtomicLong totalBatches = new AtomicLong(0);
+
+    public CloudEventBatchProcessor(String domain, EventHandler handler, DeadLetterQueue deadLetterQueue,
+                                    CacheEvictionService cacheEvictionService,
+                                    EventDeduplicator eventDeduplicator) {
+        this.domain = domain;
+        this.handler = handler;
+        this.deadLetterQueue = deadLetterQueue;
+        this.cacheEvictionService = cacheEvictionService;
+        this.eventDeduplicator = eventDeduplicator;
+        deadLetterQueue.registerReplayHandler(domain, this::replay);
+    }
+
+    /**
+     * Process a batch of records and acknowledge it
+     */
+    public void process(List<ConsumerRecord<String, CloudEvent>> records, Acknowledgment acknowledgment) {
+        long started = System.currentTimeMillis();
+        CacheInvalidationBatch invalidations = new CacheInvalidationBatch();
+        List<ConsumerRecord<String, CloudEvent>> candidates = new ArrayList<>(records.size());
+        Set<String> batchEventIds = new HashSet<>(records.size() * 2);
+        List<String> processedIds = new ArrayList<>(records.size());
+        List<DeadLetterQueue.FailedEvent> failedEvents = new ArrayList<>();
+        int failed = 0;
+        int duplicates = 0;
+
+        for (ConsumerRecord<String, CloudEvent> record : records) {
+            CloudEvent cloudEvent = record.value();
+            if (cloudEvent == null) {
+                log.warn("Skipping {} record without event from topic: {} partition: {} offset: {}",
+                        domain, record.topic(), record.partition(), record.offset());
+                failed++;
+            } else if (!batchEventIds.add(cloudEvent.getId())) {
+                log.debug("Duplicate event in batch, skipping: {}", cloudEvent.getId());
+                duplicates++;
+            } else {
+                candidates.add(record);
+            }
+        }
+
+        Set<String> alreadyProcessed = eventDeduplicator.findProcessed(domain, batchEventIds);
+
+        for (ConsumerRecord<String, CloudEvent> record : candidates) {
+            CloudEvent cloudEvent = record.value();
+            String eventId = cloudEvent.getId();
+            if (alreadyProcessed.contains(eventId)) {
+                log.debug("Duplicate event detected, skipping: {}", eventId);
+                duplicates++;
+                continue;
+            }
+
+            try {
+                log.debug("Processing {} event: {} - {} from topic: {} partition: {} offset: {}",
+                        domain, cloudEvent.getType(), eventId, record.topic(), record.partition(), record.offset());
+                handler.handle(cloudEvent, invalidations);
+                processedIds.add(eventId);
+            } catch (Exception e) {
+                failed++;
+                failedEvents.add(toFailedEvent(record, cloudEvent, e));
+            }
+        }
+
+        if (!failedEvents.isEmpty()) {
+            deadLetterQueue.storeFailedEvents(failedEvents);
+            totalEventsSentToDLQ.addAndGet(failedEvents.size());
+        }
+        cacheEvictionService.apply(invalidations);
+        eventDeduplicator.markProcessed(domain, processedIds);
+        acknowledgment.acknowledge();
+
+        totalBatches.incrementAndGet();
+        totalEventsProcessed.addAndGet(processedIds.size());
+        totalEventsFailed.addAndGet(failed);
+        totalDuplicateEvents.addAndGet(duplicates);
+
+        log.info("Processed {} batch of {} records in {} ms: {} processed, {} failed, {} duplicates, " +
+                        "{} cache invalidations as {} operations",
+                domain, records.size(), System.currentTimeMillis() - started, processedIds.size(), failed, duplicates,
+                invalidations.getRequestCount(), invalidations.getOperationCount());
+    }
+
+    /**
+     * Handle an event replayed from the Dead Letter Queue, applying its invalidations and recording
+     * it with the deduplicator at once
+     */
+    private void replay(CloudEvent cloudEvent) throws Exception {
+        List<String> eventIds = List.of(cloudEvent.getId());
+        if (!eventDeduplicator.findProcessed(domain, eventIds).isEmpty()) {
+            log.debug("Replayed event already processed, skipping: {}", cloudEvent.getId());
+            return;
+        }
+
+        CacheInvalidationBatch invalidations = new CacheInvalidationBatch();
+        handler.handle(cloudEvent, invalidations);
+        cacheEvictionService.apply(invalidations);
+        eventDeduplicator.markProcessed(domain, eventIds);
+        log.debug("Replayed {} event from DLQ: {} - {}", domain, cloudEvent.getType(), cloudEvent.getId());
+    }
+
+    private DeadLetterQueue.FailedEvent toFailedEvent(ConsumerRecord<String, CloudEvent> record,
+                                                      CloudEvent cloudEvent, Exception failure) {
+        log.error("Failed to process {} event: {} - {} from topic: {} partition: {} offset: {}. Error: {}",
+                domain, cloudEvent.getType(), cloudEvent.getId(), record.topic(), record.partition(),
+                record.offset(), failure.getMessage(), failure);
+        String errorMessage = failure.getMessage() != null ? failure.getMessage() : failure.getClass().getName();
+        return new DeadLetterQueue.FailedEvent(domain, record, errorMessage);
+    }
+
+    // Metrics getters for monitoring
+
+    public long getTotalEventsProcessed() {
+        return totalEventsProcessed.get();
+    }
+
+    public long getTotalEventsFailed() {
+        return totalEventsFailed.get();
+    }
+
+    public long getTotalEventsSentToDLQ() {
+        return totalEventsSentToDLQ.get();
+    }
+
+    public long getTotalDuplicateEvents() {
+        return totalDuplicateEvents.get();
+    }
+
+    public long getTotalBatches() {
+        return totalBatches.get();
+    }
+
+    public double getSuccessRate() {
+        long total = totalEventsProcessed.get() + totalEventsFailed.get();
+        if (total == 0) {
+            return 0.0;
+        }
+        return (double) totalEventsProcessed.get() / total * 100.0;
+    }
+}
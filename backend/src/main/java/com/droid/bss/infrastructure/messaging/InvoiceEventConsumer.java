@@ -1,21 +1,19 @@
 package com.droid.bss.infrastructure.messaging;
 
 import com.droid.bss.infrastructure.cache.CacheEvictionService;
+import com.droid.bss.infrastructure.cache.CacheInvalidationBatch;
+import com.droid.bss.infrastructure.messaging.config.KafkaBatchListenerConfig;
+import com.droid.bss.infrastructure.messaging.deadletter.DeadLetterQueue;
+import com.droid.bss.infrastructure.messaging.idempotency.EventDeduplicator;
 import io.cloudevents.CloudEvent;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.handler.annotation.Header;
-import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.List;
 
 /**
  * Invoice Event Consumer
@@ -33,13 +31,12 @@ public class InvoiceEventConsumer {
 
     private static final Logger log = LoggerFactory.getLogger(InvoiceEventConsumer.class);
 
-    private final ConcurrentMap<String, Long> processedEventIds = new ConcurrentHashMap<>();
-    private final AtomicLong totalEventsProcessed = new AtomicLong(0);
-    private final AtomicLong totalEventsFailed = new AtomicLong(0);
-    private final CacheEvictionService cacheEvictionService;
+    private final CloudEventBatchProcessor batchProcessor;
 
-    public InvoiceEventConsumer(CacheEvictionService cacheEvictionService) {
-        this.cacheEvictionService = cacheEvictionService;
+    public InvoiceEventConsumer(DeadLetterQueue deadLetterQueue, CacheEvictionService cacheEvictionService,
+            EventDeduplicator eventDeduplicator) {
+        this.batchProcessor = new CloudEventBatchProcessor(
+                "invoice", this::processEvent, deadLetterQueue, cacheEvictionService, eventDeduplicator);
     }
 
     @KafkaListener(
@@ -52,162 +49,88 @@ public class InvoiceEventConsumer {
                     "invoice.cancelled"
             },
             groupId = "${KAFKA_CONSUMER_GROUP_ID:bss-backend}",
-            containerFactory = "kafkaListenerContainerFactory"
+            containerFactory = KafkaBatchListenerConfig.BATCH_LISTENER_CONTAINER_FACTORY
     )
-    public void handleInvoiceEvent(
-            @Payload CloudEvent cloudEvent,
-            @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
-            ConsumerRecord<String, CloudEvent> record,
+    public void handleInvoiceEvents(
+            List<ConsumerRecord<String, CloudEvent>> records,
             Acknowledgment acknowledgment
     ) {
-        int partition = record.partition();
-        long offset = record.offset();
-        String eventId = cloudEvent.getId();
-        String eventType = cloudEvent.getType();
-
-        try {
-            log.info("Received invoice event: {} from topic: {} partition: {} offset: {}",
-                    eventType, topic, partition, offset);
-
-            if (isDuplicateEvent(eventId)) {
-                log.warn("Duplicate event detected, skipping: {}", eventId);
-                acknowledgment.acknowledge();
-                return;
-            }
-
-            CompletableFuture<Void> processingFuture = processEvent(cloudEvent, topic);
-
-            processingFuture.whenComplete((result, throwable) -> {
-                if (throwable != null) {
-                    handleProcessingFailure(eventId, eventType, throwable, acknowledgment);
-                } else {
-                    handleProcessingSuccess(eventId, eventType, acknowledgment);
-                }
-            });
-
-        } catch (Exception e) {
-            log.error("Unexpected error processing invoice event: {} from topic: {} offset: {}",
-                    eventType, topic, offset, e);
-            totalEventsFailed.incrementAndGet();
-        }
+        batchProcessor.process(records, acknowledgment);
     }
 
-    private boolean isDuplicateEvent(String eventId) {
-        if (processedEventIds.containsKey(eventId)) {
-            return true;
+    private void processEvent(CloudEvent cloudEvent, CacheInvalidationBatch invalidations) {
+        String eventType = cloudEvent.getType();
+        switch (eventType) {
+            case "com.droid.bss.invoice.created.v1":
+                handleInvoiceCreated(cloudEvent, invalidations);
+                break;
+            case "com.droid.bss.invoice.updated.v1":
+                handleInvoiceUpdated(cloudEvent, invalidations);
+                break;
+            case "com.droid.bss.invoice.issued.v1":
+                handleInvoiceIssued(cloudEvent);
+                break;
+            case "com.droid.bss.invoice.paid.v1":
+                handleInvoicePaid(cloudEvent, invalidations);
+                break;
+            case "com.droid.bss.invoice.overdue.v1":
+                handleInvoiceOverdue(cloudEvent, invalidations);
+                break;
+            case "com.droid.bss.invoice.cancelled.v1":
+                handleInvoiceCancelled(cloudEvent, invalidations);
+                break;
+            default:
+                log.warn("Unknown invoice event type: {}", eventType);
         }
-        processedEventIds.put(eventId, System.currentTimeMillis());
-        long cutoff = System.currentTimeMillis() - 3_600_000;
-        processedEventIds.entrySet().removeIf(entry -> entry.getValue() < cutoff);
-        return false;
     }
 
-    private CompletableFuture<Void> processEvent(CloudEvent cloudEvent, String topic) {
-        return CompletableFuture.runAsync(() -> {
-            String eventType = cloudEvent.getType();
-            try {
-                switch (eventType) {
-                    case "com.droid.bss.invoice.created.v1":
-                        handleInvoiceCreated(cloudEvent);
-                        break;
-                    case "com.droid.bss.invoice.updated.v1":
-                        handleInvoiceUpdated(cloudEvent);
-                        break;
-                    case "com.droid.bss.invoice.issued.v1":
-                        handleInvoiceIssued(cloudEvent);
-                        break;
-                    case "com.droid.bss.invoice.paid.v1":
-                        handleInvoicePaid(cloudEvent);
-                        break;
-                    case "com.droid.bss.invoice.overdue.v1":
-                        handleInvoiceOverdue(cloudEvent);
-                        break;
-                    case "com.droid.bss.invoice.cancelled.v1":
-                        handleInvoiceCancelled(cloudEvent);
-                        break;
-                    default:
-                        log.warn("Unknown invoice event type: {}", eventType);
-                }
-                totalEventsProcessed.incrementAndGet();
-            } catch (Exception e) {
-                log.error("Error processing invoice event: {} - {}", eventType, e.getMessage(), e);
-                throw new RuntimeException("Failed to process event: " + eventType, e);
-            }
-        });
-    }
-
-    private void handleInvoiceCreated(CloudEvent cloudEvent) {
-        log.info("Handling invoice created event: {}", cloudEvent.getId());
+    private void handleInvoiceCreated(CloudEvent cloudEvent, CacheInvalidationBatch invalidations) {
+        log.debug("Handling invoice created event: {}", cloudEvent.getId());
         // TODO: Update read model, send notification
 
         // Evict invoice caches
-        cacheEvictionService.evictAllInvoiceCaches();
-
-        log.debug("Invoice created event processed successfully");
+        invalidations.clear("invoices");
     }
 
-    private void handleInvoiceUpdated(CloudEvent cloudEvent) {
-        log.info("Handling invoice updated event: {}", cloudEvent.getId());
+    private void handleInvoiceUpdated(CloudEvent cloudEvent, CacheInvalidationBatch invalidations) {
+        log.debug("Handling invoice updated event: {}", cloudEvent.getId());
         // TODO: Update read model
 
         // Evict invoice caches
-        cacheEvictionService.evictAllInvoiceCaches();
-
-        log.debug("Invoice updated event processed successfully");
+        invalidations.clear("invoices");
     }
 
     private void handleInvoiceIssued(CloudEvent cloudEvent) {
-        log.info("Handling invoice issued event: {}", cloudEvent.getId());
+        log.debug("Handling invoice issued event: {}", cloudEvent.getId());
         // TODO: Update status, send to customer, trigger payment reminder
-        log.debug("Invoice issued event processed successfully");
     }
 
-    private void handleInvoicePaid(CloudEvent cloudEvent) {
-        log.info("Handling invoice paid event: {}", cloudEvent.getId());
+    private void handleInvoicePaid(CloudEvent cloudEvent, CacheInvalidationBatch invalidations) {
+        log.debug("Handling invoice paid event: {}", cloudEvent.getId());
         // TODO: Update status, send confirmation, update customer balance
 
         // Evict invoice caches
-        cacheEvictionService.evictAllInvoiceCaches();
-
-        log.debug("Invoice paid event processed successfully");
+        invalidations.clear("invoices");
     }
 
-    private void handleInvoiceOverdue(CloudEvent cloudEvent) {
-        log.info("Handling invoice overdue event: {}", cloudEvent.getId());
+    private void handleInvoiceOverdue(CloudEvent cloudEvent, CacheInvalidationBatch invalidations) {
+        log.debug("Handling invoice overdue event: {}", cloudEvent.getId());
         // TODO: Send overdue notice, apply late fees, suspend services
 
         // Evict invoice caches
-        cacheEvictionService.evictAllInvoiceCaches();
-
-        log.debug("Invoice overdue event processed successfully");
+        invalidations.clear("invoices");
     }
 
-    private void handleInvoiceCancelled(CloudEvent cloudEvent) {
-        log.info("Handling invoice cancelled event: {}", cloudEvent.getId());
+    private void handleInvoiceCancelled(CloudEvent cloudEvent, CacheInvalidationBatch invalidations) {
+        log.debug("Handling invoice cancelled event: {}", cloudEvent.getId());
         // TODO: Update status, send cancellation notice, adjust customer balance
 
         // Evict invoice caches
-        cacheEvictionService.evictAllInvoiceCaches();
-
-        log.debug("Invoice cancelled event processed successfully");
-    }
-
-    private void handleProcessingSuccess(String eventId, String eventType, Acknowledgment acknowledgment) {
-        log.info("Successfully processed invoice event: {} - {}", eventType, eventId);
-        acknowledgment.acknowledge();
-    }
-
-    private void handleProcessingFailure(String eventId, String eventType, Throwable throwable, Acknowledgment acknowledgment) {
-        log.error("Failed to process invoice event: {} - {}: {}", eventType, eventId, throwable.getMessage(), throwable);
-        totalEventsFailed.incrementAndGet();
-        acknowledgment.acknowledge();
+        invalidations.clear("invoices");
     }
 
     // Metrics
-    public long getTotalEventsProcessed() { return totalEventsProcessed.get(); }
-    public long getTotalEventsFailed() { return totalEventsFailed.get(); }
-    public double getSuccessRate() {
-        long total = totalEventsProcessed.get() + totalEventsFailed.get();
-        return total == 0 ? 0.0 : (double) totalEventsProcessed.get() / total * 100.0;
-    }
+    public long getTotalEventsProcessed() { return batchProcessor.getTotalEventsProcessed(); }
+    public long getTotalEventsFailed() { return batchProcessor.getTotalEventsFailed(); }
+    public double getSuccessRate() { return batchProcessor.getSuccessRate(); }
 }
@@ -1,20 +1,19 @@
 package com.droid.bss.infrastructure.messaging;
 
 import com.droid.bss.infrastructure.cache.CacheEvictionService;
+import com.droid.bss.infrastructure.cache.CacheInvalidationBatch;
+import com.droid.bss.infrastructure.messaging.config.KafkaBatchListenerConfig;
+import com.droid.bss.infrastructure.messaging.deadletter.DeadLetterQueue;
+import com.droid.bss.infrastructure.messaging.idempotency.EventDeduplicator;
 import io.cloudevents.CloudEvent;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.handler.annotation.Header;
-import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -32,15 +31,13 @@ public class OrderEventConsumer {
 
     private static final Logger log = LoggerFactory.getLogger(OrderEventConsumer.class);
 
-    // Event deduplication cache
-    private final ConcurrentMap<String, Long> processedEventIds = new ConcurrentHashMap<>();
-    private final AtomicLong totalEventsProcessed = new AtomicLong(0);
-    private final AtomicLong totalEventsFailed = new AtomicLong(0);
     private final AtomicLong totalEventsRetried = new AtomicLong(0);
-    private final CacheEvictionService cacheEvictionService;
+    private final CloudEventBatchProcessor batchProcessor;
 
-    public OrderEventConsumer(CacheEvictionService cacheEvictionService) {
-        this.cacheEvictionService = cacheEvictionService;
+    public OrderEventConsumer(DeadLetterQueue deadLetterQueue, CacheEvictionService cacheEvictionService,
+            EventDeduplicator eventDeduplicator) {
+        this.batchProcessor = new CloudEventBatchProcessor(
+                "order", this::processEvent, deadLetterQueue, cacheEvictionService, eventDeduplicator);
     }
 
     @KafkaListener(
@@ -52,96 +49,41 @@ public class OrderEventConsumer {
                     "order.cancelled"
             },
             groupId = "${KAFKA_CONSUMER_GROUP_ID:bss-backend}",
-            containerFactory = "kafkaListenerContainerFactory"
+            containerFactory = KafkaBatchListenerConfig.BATCH_LISTENER_CONTAINER_FACTORY
     )
-    public void handleOrderEvent(
-            @Payload CloudEvent cloudEvent,
-            @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
-            ConsumerRecord<String, CloudEvent> record,
+    public void handleOrderEvents(
+            List<ConsumerRecord<String, CloudEvent>> records,
             Acknowledgment acknowledgment
     ) {
-        int partition = record.partition();
-        long offset = record.offset();
-        String eventId = cloudEvent.getId();
-        String eventType = cloudEvent.getType();
-
-        try {
-            log.info("Received order event: {} from topic: {} partition: {} offset: {}",
-                    eventType, topic, partition, offset);
-
-            if (isDuplicateEvent(eventId)) {
-                log.warn("Duplicate event detected, skipping: {}", eventId);
-                acknowledgment.acknowledge();
-                return;
-            }
-
-            CompletableFuture<Void> processingFuture = processEvent(cloudEvent, topic);
-
-            processingFuture.whenComplete((result, throwable) -> {
-                if (throwable != null) {
-                    handleProcessingFailure(eventId, eventType, throwable, acknowledgment);
-                } else {
-                    handleProcessingSuccess(eventId, eventType, acknowledgment);
-                }
-            });
-
-        } catch (Exception e) {
-            log.error("Unexpected error processing order event: {} from topic: {} offset: {}",
-                    eventType, topic, offset, e);
-            totalEventsFailed.incrementAndGet();
-        }
-    }
-
-    private boolean isDuplicateEvent(String eventId) {
-        if (processedEventIds.containsKey(eventId)) {
-            return true;
-        }
-
-        processedEventIds.put(eventId, System.currentTimeMillis());
-
-        long cutoff = System.currentTimeMillis() - 3_600_000; // 1 hour
-        processedEventIds.entrySet().removeIf(entry -> entry.getValue() < cutoff);
-
-        return false;
+        batchProcessor.process(records, acknowledgment);
     }
 
-    private CompletableFuture<Void> processEvent(CloudEvent cloudEvent, String topic) {
-        return CompletableFuture.runAsync(() -> {
-            String eventType = cloudEvent.getType();
-
-            try {
-                switch (eventType) {
-                    case "com.droid.bss.order.created.v1":
-                        handleOrderCreated(cloudEvent);
-                        break;
-                    case "com.droid.bss.order.updated.v1":
-                        handleOrderUpdated(cloudEvent);
-                        break;
-                    case "com.droid.bss.order.statusChanged.v1":
-                        handleOrderStatusChanged(cloudEvent);
-                        break;
-                    case "com.droid.bss.order.completed.v1":
-                        handleOrderCompleted(cloudEvent);
-                        break;
-                    case "com.droid.bss.order.cancelled.v1":
-                        handleOrderCancelled(cloudEvent);
-                        break;
-                    default:
-                        log.warn("Unknown order event type: {}", eventType);
-                }
-
-                totalEventsProcessed.incrementAndGet();
+    private void processEvent(CloudEvent cloudEvent, CacheInvalidationBatch invalidations) {
+        String eventType = cloudEvent.getType();
 
-            } catch (Exception e) {
-                log.error("Error processing order event: {} - {}",
-                        eventType, e.getMessage(), e);
-                throw new RuntimeException("Failed to process event: " + eventType, e);
-            }
-        });
+        switch (eventType) {
+            case "com.droid.bss.order.created.v1":
+                handleOrderCreated(cloudEvent, invalidations);
+                break;
+            case "com.droid.bss.order.updated.v1":
+                handleOrderUpdated(cloudEvent, invalidations);
+                break;
+            case "com.droid.bss.order.statusChanged.v1":
+                handleOrderStatusChanged(cloudEvent);
+                break;
+            case "com.droid.bss.order.completed.v1":
+                handleOrderCompleted(cloudEvent, invalidations);
+                break;
+            case "com.droid.bss.order.cancelled.v1":
+                handleOrderCancelled(cloudEvent, invalidations);
+                break;
+            default:
+                log.warn("Unknown order event type: {}", eventType);
+        }
     }
 
-    private void handleOrderCreated(CloudEvent cloudEvent) {
-        log.info("Handling order created event: {}", cloudEvent.getId());
+    private void handleOrderCreated(CloudEvent cloudEvent, CacheInvalidationBatch invalidations) {
+        log.debug("Handling order created event: {}", cloudEvent.getId());
 
         // TODO: Implement business logic
         // - Update order read model
@@ -150,13 +92,11 @@ public class OrderEventConsumer {
         // - Update customer order history
 
         // Evict order caches
-        cacheEvictionService.evictAllOrderCaches();
-
-        log.debug("Order created event processed successfully");
+        invalidations.clear("orders");
     }
 
-    private void handleOrderUpdated(CloudEvent cloudEvent) {
-        log.info("Handling order updated event: {}", cloudEvent.getId());
+    private void handleOrderUpdated(CloudEvent cloudEvent, CacheInvalidationBatch invalidations) {
+        log.debug("Handling order updated event: {}", cloudEvent.getId());
 
         // TODO: Implement business logic
         // - Update order read model
@@ -164,13 +104,11 @@ public class OrderEventConsumer {
         // - Send notification
 
         // Evict order caches
-        cacheEvictionService.evictAllOrderCaches();
-
-        log.debug("Order updated event processed successfully");
+        invalidations.clear("orders");
     }
 
     private void handleOrderStatusChanged(CloudEvent cloudEvent) {
-        log.info("Handling order status changed event: {}", cloudEvent.getId());
+        log.debug("Handling order status changed event: {}", cloudEvent.getId());
 
         // TODO: Implement business logic
         // - Update order status in read model
@@ -179,12 +117,10 @@ public class OrderEventConsumer {
         //   * IN_PROGRESS: Update UI
         //   * REJECTED: Send rejection notification
         // - Update customer notification preferences
-
-        log.debug("Order status changed event processed successfully");
     }
 
-    private void handleOrderCompleted(CloudEvent cloudEvent) {
-        log.info("Handling order completed event: {}", cloudEvent.getId());
+    private void handleOrderCompleted(CloudEvent cloudEvent, CacheInvalidationBatch invalidations) {
+        log.debug("Handling order completed event: {}", cloudEvent.getId());
 
         // TODO: Implement business logic
         // - Update order to COMPLETED status
@@ -195,13 +131,11 @@ public class OrderEventConsumer {
         // - Trigger billing if needed
 
         // Evict order caches
-        cacheEvictionService.evictAllOrderCaches();
-
-        log.debug("Order completed event processed successfully");
+        invalidations.clear("orders");
     }
 
-    private void handleOrderCancelled(CloudEvent cloudEvent) {
-        log.info("Handling order cancelled event: {}", cloudEvent.getId());
+    private void handleOrderCancelled(CloudEvent cloudEvent, CacheInvalidationBatch invalidations) {
+        log.debug("Handling order cancelled event: {}", cloudEvent.getId());
 
         // TODO: Implement business logic
         // - Update order to CANCELLED status
@@ -211,36 +145,16 @@ public class OrderEventConsumer {
         // - Update customer notification
 
         // Evict order caches
-        cacheEvictionService.evictAllOrderCaches();
-
-        log.debug("Order cancelled event processed successfully");
-    }
-
-    private void handleProcessingSuccess(String eventId, String eventType, Acknowledgment acknowledgment) {
-        log.info("Successfully processed order event: {} - {}", eventType, eventId);
-        acknowledgment.acknowledge();
-    }
-
-    private void handleProcessingFailure(
-            String eventId,
-            String eventType,
-            Throwable throwable,
-            Acknowledgment acknowledgment
-    ) {
-        log.error("Failed to process order event: {} - {}: {}",
-                eventType, eventId, throwable.getMessage(), throwable);
-
-        totalEventsFailed.incrementAndGet();
-        acknowledgment.acknowledge();
+        invalidations.clear("orders");
     }
 
     // Metrics getters
     public long getTotalEventsProcessed() {
-        return totalEventsProcessed.get();
+        return batchProcessor.getTotalEventsProcessed();
     }
 
     public long getTotalEventsFailed() {
-        return totalEventsFailed.get();
+        return batchProcessor.getTotalEventsFailed();
     }
 
     public long getTotalEventsRetried() {
@@ -248,14 +162,14 @@ public class OrderEventConsumer {
     }
 
     public double getSuccessRate() {
-        long total = totalEventsProcessed.get() + totalEventsFailed.get();
-        if (total == 0) {
-            return 0.0;
-        }
-        return (double) totalEventsProcessed.get() / total * 100.0;
+        return batchProcessor.getSuccessRate();
     }
 
     public int getDuplicateEventCount() {
-        return processedEventIds.size();
+        return (int) Math.min(Integer.MAX_VALUE, batchProcessor.getTotalDuplicateEvents());
+    }
+
+    public long getTotalEventsSentToDLQ() {
+        return batchProcessor.getTotalEventsSentToDLQ();
     }
 }
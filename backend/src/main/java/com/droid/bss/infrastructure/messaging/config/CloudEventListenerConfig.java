@@ -0,0 +1,33 @@
+package com.droid.bss.infrastructure.messaging.config;
+
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+
+/**
+ * CloudEvent Listener Configuration
+ *
+ * Container factory for listeners of binary-mode CloudEvents: record values are handed over as the
+ * raw bytes of the payload codec named by the {@code content-type} header, whatever value
+ * deserializer the default consumer is configured with.
+ */
+@Configuration
+public class CloudEventListenerConfig {
+
+    public static final String CLOUD_EVENT_LISTENER_CONTAINER_FACTORY = "cloudEventKafkaListenerContainerFactory";
+
+    @Bean(name = CLOUD_EVENT_LISTENER_CONTAINER_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> cloudEventKafkaListenerContainerFactory(
+            KafkaProperties kafkaProperties) {
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(kafkaProperties.buildConsumerProperties(null),
+                new StringDeserializer(), new ByteArrayDeserializer()));
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        return factory;
+    }
+}
@@ -0,0 +1,88 @@
+package com.droid.bss.infrastructure.messaging.config;
+
+import com.droid.bss.infrastructure.messaging.idempotency.EventDeduplicator;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+
+import java.util.Collection;
+import java.util.Properties;
+
+/**
+ * Kafka Batch Listener Configuration
+ *
+ * Container factory for the domain event consumers: every poll is handed to the listener as one
+ * list of records, and the offsets of the whole poll are committed once the listener acknowledges
+ * the batch.
+ *
+ * When partitions are assigned, the {@link EventDeduplicator} picks up the events other instances
+ * processed before the rebalance, so records redelivered from their uncommitted offsets are skipped.
+ */
+@Slf4j
+@Configuration
+public class KafkaBatchListenerConfig {
+
+    public static final String BATCH_LISTENER_CONTAINER_FACTORY = "batchKafkaListenerContainerFactory";
+
+    private final int maxPollRecords;
+    private final int concurrency;
+
+    public KafkaBatchListenerConfig(
+            @Value("${bss.messaging.batch.max-poll-records:500}") int maxPollRecords,
+            @Value("${bss.messaging.batch.concurrency:3}") int concurrency) {
+        this.maxPollRecords = maxPollRecords;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Same settings as the auto-configured factory, switched to batch delivery with one offset
+     * commit per poll
+     */
+    @Bean(name = BATCH_LISTENER_CONTAINER_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            EventDeduplicator eventDeduplicator) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+
+        factory.setBatchListener(true);
+        factory.setConcurrency(concurrency);
+
+        ContainerProperties containerProperties = factory.getContainerProperties();
+        containerProperties.setAckMode(ContainerProperties.AckMode.MANUAL);
+
+        Properties consumerProperties = new Properties();
+        consumerProperties.setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(maxPollRecords));
+        containerProperties.setKafkaConsumerProperties(consumerProperties);
+
+        containerProperties.setConsumerRebalanceListener(new ConsumerRebalanceListener() {
+            @Override
+            public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+            }
+
+            @Override
+            public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+                if (partitions.isEmpty()) {
+                    return;
+                }
+                try {
+                    eventDeduplicator.sync();
+                } catch (RuntimeException e) {
+                    // Duplicates are still caught for events this instance has seen
+                    log.warn("Could not sync event deduplication after partition assignment: {}", e.getMessage());
+                }
+            }
+        });
+
+        return factory;
+    }
+}
@@ -1,22 +1,25 @@
 package com.droid.bss.infrastructure.messaging.deadletter;
 
-import io.cloudevents.CloudEvent;
-
 import java.time.LocalDateTime;
 
 /**
  * Dead Letter Queue Entry
  *
- * Represents a single failed event stored in the DLQ
+ * Represents a single failed event stored in the DLQ. The event itself is kept in the dead letter
+ * topic at {@code dltTopic}/{@code dltPartition}/{@code dltOffset}.
  */
 public class DLQEntry {
+    private final long id;
+    private final String consumer;
     private final String eventId;
     private final String eventType;
-    private final CloudEvent event;
     private final String errorMessage;
     private final String originalTopic;
     private final int partition;
     private final long offset;
+    private final String dltTopic;
+    private final int dltPartition;
+    private final long dltOffset;
     private final int retryCount;
     private final LocalDateTime failedAt;
 
@@ -25,30 +28,38 @@ public class DLQEntry {
     private LocalDateTime resolvedAt;
     private String resolution;
 
-    public DLQEntry(String eventId, String eventType, CloudEvent event,
-                    String errorMessage, String originalTopic, int partition,
-                    long offset, int retryCount, LocalDateTime failedAt,
-                    DLQStatus status) {
+    public DLQEntry(long id, String consumer, String eventId, String eventType,
+                    String errorMessage, String originalTopic, int partition, long offset,
+                    String dltTopic, int dltPartition, long dltOffset,
+                    int retryCount, LocalDateTime failedAt, DLQStatus status) {
+        this.id = id;
+        this.consumer = consumer;
         this.eventId = eventId;
         this.eventType = eventType;
-        this.event = event;
         this.errorMessage = errorMessage;
         this.originalTopic = originalTopic;
         this.partition = partition;
         this.offset = offset;
+        this.dltTopic = dltTopic;
+        this.dltPartition = dltPartition;
+        this.dltOffset = dltOffset;
         this.retryCount = retryCount;
         this.failedAt = failedAt;
         this.status = status;
     }
 
     // Getters and setters
+    public long getId() { return id; }
+    public String getConsumer() { return consumer; }
     public String getEventId() { return eventId; }
     public String getEventType() { return eventType; }
-    public CloudEvent getEvent() { return event; }
     public String getErrorMessage() { return errorMessage; }
     public String getOriginalTopic() { return originalTopic; }
     public int getPartition() { return partition; }
     public long getOffset() { return offset; }
+    public String getDltTopic() { return dltTopic; }
+    public int getDltPartition() { return dltPartition; }
+    public long getDltOffset() { return dltOffset; }
     public int getRetryCount() { return retryCount; }
     public LocalDateTime getFailedAt() { return failedAt; }
     public DLQStatus getStatus() { return status; }
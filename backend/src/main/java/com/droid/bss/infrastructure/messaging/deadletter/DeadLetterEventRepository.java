@@ -0,0 +1,297 @@
+package com.droid.bss.infrastructure.messaging.deadletter;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowMapperResultSetExtractor;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC access to dead_letter_event, the index of the events in the dead letter topics.
+ *
+ * Rows of a whole batch are written with one statement that takes each column as an array
+ * parameter. Pending rows are read for replay in original topic, partition and offset order with
+ * keyset pagination.
+ */
+@Repository
+public class DeadLetterEventRepository {
+
+    private static final String COLUMNS =
+            "id, consumer, event_id, event_type, error_message, original_topic, original_partition, " +
+            "original_offset, dlt_topic, dlt_partition, dlt_offset, retry_count, status, failed_at, " +
+            "reprocessed_at, resolved_at, resolution";
+
+    private static final String UPSERT =
+            "INSERT INTO dead_letter_event (consumer, event_id, event_type, error_message, original_topic, " +
+            "original_partition, original_offset, dlt_topic, dlt_partition, dlt_offset) " +
+            "SELECT * FROM unnest(?::varchar[], ?::varchar[], ?::varchar[], ?::text[], ?::varchar[], " +
+            "?::int[], ?::bigint[], ?::varchar[], ?::int[], ?::bigint[]) " +
+            "ON CONFLICT (event_id, consumer) DO UPDATE SET " +
+            "error_message = EXCLUDED.error_message, " +
+            "original_topic = EXCLUDED.original_topic, " +
+            "original_partition = EXCLUDED.original_partition, " +
+            "original_offset = EXCLUDED.original_offset, " +
+            "dlt_topic = EXCLUDED.dlt_topic, " +
+            "dlt_partition = EXCLUDED.dlt_partition, " +
+            "dlt_offset = EXCLUDED.dlt_offset, " +
+            "retry_count = dead_letter_event.retry_count + 1, " +
+            "status = 'PENDING', " +
+            "failed_at = NOW()";
+
+    private static final String FIND_RECENT =
+            "SELECT " + COLUMNS + " FROM dead_letter_event ORDER BY failed_at DESC LIMIT ?";
+
+    private static final String FIND_RECENT_BY_STATUS =
+            "SELECT " + COLUMNS + " FROM dead_letter_event WHERE status = ? ORDER BY failed_at DESC LIMIT ?";
+
+    private static final String FIND_PENDING_BY_EVENT_ID =
+            "SELECT " + COLUMNS + " FROM dead_letter_event WHERE event_id = ? AND status = 'PENDING' ORDER BY id";
+
+    private static final String FIND_PENDING_PAGE =
+            "SELECT " + COLUMNS + " FROM dead_letter_event " +
+            "WHERE status = 'PENDING' " +
+            "AND (original_topic, original_partition, original_offset, id) > (?, ?, ?, ?) " +
+            "ORDER BY original_topic, original_partition, original_offset, id LIMIT ?";
+
+    private static final String FIND_PENDING_PAGE_FOR_TOPICS =
+            "SELECT " + COLUMNS + " FROM dead_letter_event " +
+            "WHERE status = 'PENDING' AND original_topic = ANY(?) " +
+            "AND (original_topic, original_partition, original_offset, id) > (?, ?, ?, ?) " +
+            "ORDER BY original_topic, original_partition, original_offset, id LIMIT ?";
+
+    private static final String MARK_REPROCESSED =
+            "UPDATE dead_letter_event SET status = 'REPROCESSED', reprocessed_at = NOW() " +
+            "WHERE id = ANY(?) AND status = 'PENDING'";
+
+    private static final String RECORD_REPLAY_FAILURES =
+            "UPDATE dead_letter_event d SET retry_count = d.retry_count + 1, error_message = f.error_message " +
+            "FROM unnest(?::bigint[], ?::text[]) AS f(id, error_message) " +
+            "WHERE d.id = f.id AND d.status = 'PENDING'";
+
+    private static final String RESOLVE =
+            "UPDATE dead_letter_event SET status = 'RESOLVED', resolution = ?, resolved_at = NOW() " +
+            "WHERE event_id = ? AND status <> 'RESOLVED'";
+
+    private static final String COUNT_BY_STATUS =
+            "SELECT status, COUNT(*) FROM dead_letter_event GROUP BY status";
+
+    private static final String DELETE_CLOSED =
+            "DELETE FROM dead_letter_event WHERE ctid = ANY(ARRAY(" +
+            "SELECT ctid FROM dead_letter_event " +
+            "WHERE status <> 'PENDING' AND COALESCE(resolved_at, reprocessed_at) < ? LIMIT ?))";
+
+    private static final RowMapper<DLQEntry> ENTRY_MAPPER = (rs, rowNum) -> {
+        DLQEntry entry = new DLQEntry(
+                rs.getLong("id"),
+                rs.getString("consumer"),
+                rs.getString("event_id"),
+                rs.getString("event_type"),
+                rs.getString("error_message"),
+                rs.getString("original_topic"),
+                rs.getInt("original_partition"),
+                rs.getLong("original_offset"),
+                rs.getString("dlt_topic"),
+                rs.getInt("dlt_partition"),
+                rs.getLong("dlt_offset"),
+                rs.getInt("retry_count"),
+                rs.getTimestamp("failed_at").toLocalDateTime(),
+                DLQStatus.valueOf(rs.getString("status"))
+        );
+        Timestamp reprocessedAt = rs.getTimestamp("reprocessed_at");
+        entry.setReprocessedAt(reprocessedAt != null ? reprocessedAt.toLocalDateTime() : null);
+        Timestamp resolvedAt = rs.getTimestamp("resolved_at");
+        entry.setResolvedAt(resolvedAt != null ? resolvedAt.toLocalDateTime() : null);
+        entry.setResolution(rs.getString("resolution"));
+        return entry;
+    };
+
+    /**
+     * A failed event written to a dead letter topic
+     */
+    public record DeadLetterRow(String consumer, String eventId, String eventType, String errorMessage,
+                                String originalTopic, int originalPartition, long originalOffset,
+                                String dltTopic, int dltPartition, long dltOffset) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DeadLetterEventRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Index failed events with one statement; events already in the index are pointed at their
+     * new dead letter record and counted as retried
+     */
+    public int upsert(List<DeadLetterRow> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        int size = rows.size();
+        String[] consumers = new String[size];
+        String[] eventIds = new String[size];
+        String[] eventTypes = new String[size];
+        String[] errorMessages = new String[size];
+        String[] originalTopics = new String[size];
+        Integer[] originalPartitions = new Integer[size];
+        Long[] originalOffsets = new Long[size];
+        String[] dltTopics = new String[size];
+        Integer[] dltPartitions = new Integer[size];
+        Long[] dltOffsets = new Long[size];
+        for (int i = 0; i < size; i++) {
+            DeadLetterRow row = rows.get(i);
+            consumers[i] = row.consumer();
+            eventIds[i] = row.eventId();
+            eventTypes[i] = row.eventType();
+            errorMessages[i] = row.errorMessage();
+            originalTopics[i] = row.originalTopic();
+            originalPartitions[i] = row.originalPartition();
+            originalOffsets[i] = row.originalOffset();
+            dltTopics[i] = row.dltTopic();
+            dltPartitions[i] = row.dltPartition();
+            dltOffsets[i] = row.dltOffset();
+        }
+        return jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(UPSERT)) {
+                ps.setArray(1, connection.createArrayOf("varchar", consumers));
+                ps.setArray(2, connection.createArrayOf("varchar", eventIds));
+                ps.setArray(3, connection.createArrayOf("varchar", eventTypes));
+                ps.setArray(4, connection.createArrayOf("text", errorMessages));
+                ps.setArray(5, connection.createArrayOf("varchar", originalTopics));
+                ps.setArray(6, connection.createArrayOf("int4", originalPartitions));
+                ps.setArray(7, connection.createArrayOf("int8", originalOffsets));
+                ps.setArray(8, connection.createArrayOf("varchar", dltTopics));
+                ps.setArray(9, connection.createArrayOf("int4", dltPartitions));
+                ps.setArray(10, connection.createArrayOf("int8", dltOffsets));
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * Most recently failed events
+     */
+    public List<DLQEntry> findRecent(int limit) {
+        return jdbcTemplate.query(FIND_RECENT, ENTRY_MAPPER, limit);
+    }
+
+    /**
+     * Most recently failed events with the given status
+     */
+    public List<DLQEntry> findRecentByStatus(DLQStatus status, int limit) {
+        return jdbcTemplate.query(FIND_RECENT_BY_STATUS, ENTRY_MAPPER, status.name(), limit);
+    }
+
+    /**
+     * Pending entries of an event, one per consumer it failed in
+     */
+    public List<DLQEntry> findPendingByEventId(String eventId) {
+        return jdbcTemplate.query(FIND_PENDING_BY_EVENT_ID, ENTRY_MAPPER, eventId);
+    }
+
+    /**
+     * Next page of pending entries after the given one in original topic, partition and offset
+     * order, optionally restricted to some original topics; {@code after} may be null to start
+     */
+    public List<DLQEntry> findPendingPage(Collection<String> topics, DLQEntry after, int limit) {
+        String afterTopic = after != null ? after.getOriginalTopic() : "";
+        int afterPartition = after != null ? after.getPartition() : -1;
+        long afterOffset = after != null ? after.getOffset() : -1L;
+        long afterId = after != null ? after.getId() : 0L;
+        if (topics == null || topics.isEmpty()) {
+            return jdbcTemplate.query(FIND_PENDING_PAGE, ENTRY_MAPPER,
+                    afterTopic, afterPartition, afterOffset, afterId, limit);
+        }
+        String[] topicArray = topics.toArray(String[]::new);
+        return jdbcTemplate.execute((ConnectionCallback<List<DLQEntry>>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(FIND_PENDING_PAGE_FOR_TOPICS)) {
+                ps.setArray(1, connection.createArrayOf("varchar", topicArray));
+                ps.setString(2, afterTopic);
+                ps.setInt(3, afterPartition);
+                ps.setLong(4, afterOffset);
+                ps.setLong(5, afterId);
+                ps.setInt(6, limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return new RowMapperResultSetExtractor<>(ENTRY_MAPPER).extractData(rs);
+                }
+            }
+        });
+    }
+
+    /**
+     * Mark pending entries as reprocessed with one statement
+     */
+    public int markReprocessed(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Long[] idArray = ids.toArray(Long[]::new);
+        return jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(MARK_REPROCESSED)) {
+                ps.setArray(1, connection.createArrayOf("int8", idArray));
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * Record failed replays of pending entries with one statement; they stay pending
+     */
+    public int recordReplayFailures(Map<Long, String> errorMessagesById) {
+        if (errorMessagesById.isEmpty()) {
+            return 0;
+        }
+        Long[] ids = new Long[errorMessagesById.size()];
+        String[] errorMessages = new String[errorMessagesById.size()];
+        int i = 0;
+        for (Map.Entry<Long, String> failure : errorMessagesById.entrySet()) {
+            ids[i] = failure.getKey();
+            errorMessages[i] = failure.getValue();
+            i++;
+        }
+        return jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(RECORD_REPLAY_FAILURES)) {
+                ps.setArray(1, connection.createArrayOf("int8", ids));
+                ps.setArray(2, connection.createArrayOf("text", errorMessages));
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * Mark all entries of an event as resolved
+     */
+    public int resolve(String eventId, String resolution) {
+        return jdbcTemplate.update(RESOLVE, resolution, eventId);
+    }
+
+    /**
+     * Number of entries per status
+     */
+    public Map<DLQStatus, Long> countByStatus() {
+        Map<DLQStatus, Long> counts = new EnumMap<>(DLQStatus.class);
+        for (DLQStatus status : DLQStatus.values()) {
+            counts.put(status, 0L);
+        }
+        jdbcTemplate.query(COUNT_BY_STATUS, rs -> {
+            counts.put(DLQStatus.valueOf(rs.getString(1)), rs.getLong(2));
+        });
+        return counts;
+    }
+
+    /**
+     * Delete up to {@code limit} reprocessed or resolved entries closed before the cutoff
+     */
+    public int deleteClosedBefore(Instant cutoff, int limit) {
+        return jdbcTemplate.update(DELETE_CLOSED, Timestamp.from(cutoff), limit);
+    }
+}
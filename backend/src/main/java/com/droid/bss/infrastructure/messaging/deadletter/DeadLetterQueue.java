@@ -1,153 +1,295 @@
 package com.droid.bss.infrastructure.messaging.deadletter;
 
+import com.droid.bss.infrastructure.messaging.kafka.DeadLetterQueueConfig;
 import io.cloudevents.CloudEvent;
+import io.cloudevents.jackson.JsonFormat;
+import jakarta.annotation.PreDestroy;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Dead Letter Queue (DLQ) Handler
  *
- * Handles messages that have failed processing in event consumers.
- * Stores failed events for later analysis, reprocessing, or manual intervention.
+ * Handles messages that have failed processing in event consumers. A failed CloudEvent is written
+ * in structured JSON mode to the dead letter topic of its original topic ({@code <topic>.DLQ}) and
+ * indexed in dead_letter_event, so failures survive restarts and memory use does not grow with
+ * them. Failed events of a batch are written together: all records are sent at once and the index
+ * rows are written with one statement.
+ *
+ * Consumers register a replay handler per consumer name, which {@link DeadLetterReplayService}
+ * uses to replay events in-process.
  */
 @Component
 public class DeadLetterQueue {
 
     private static final Logger log = LoggerFactory.getLogger(DeadLetterQueue.class);
 
-    private final ConcurrentMap<String, DLQEntry> failedEvents = new ConcurrentHashMap<>();
-    private final AtomicLong totalFailedEvents = new AtomicLong(0);
-    private final AtomicLong totalReprocessedEvents = new AtomicLong(0);
+    private static final int MAX_ERROR_MESSAGE_LENGTH = 2000;
 
     /**
-     * Store a failed event in the DLQ
+     * A record whose event could not be processed by a consumer
      */
-    public void storeFailedEvent(String eventId, String eventType, CloudEvent event,
-                                 String errorMessage, String originalTopic,
-                                 int partition, long offset, int retryCount) {
-        DLQEntry entry = new DLQEntry(
-                eventId,
-                eventType,
-                event,
-                errorMessage,
-                originalTopic,
-                partition,
-                offset,
-                retryCount,
-                LocalDateTime.now(),
-                DLQStatus.PENDING
-        );
+    public record FailedEvent(String consumer, ConsumerRecord<String, CloudEvent> record, String errorMessage) {
+    }
 
-        failedEvents.put(eventId, entry);
-        totalFailedEvents.incrementAndGet();
+    /**
+     * Processes an event from the DLQ again, the way its consumer would
+     */
+    @FunctionalInterface
+    public interface ReplayHandler {
+        void replay(CloudEvent cloudEvent) throws Exception;
+    }
 
-        log.error("Event stored in DLQ: {} - {} from topic: {} partition: {} offset: {}. Error: {}",
-                eventType, eventId, originalTopic, partition, offset, errorMessage);
+    private final DeadLetterEventRepository repository;
+    private final DeadLetterQueueConfig deadLetterTopics;
+    private final DefaultKafkaProducerFactory<String, byte[]> producerFactory;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final JsonFormat eventFormat = new JsonFormat();
+    private final Map<String, ReplayHandler> replayHandlers = new ConcurrentHashMap<>();
+    private final long sendTimeoutMillis;
+    private final int retentionDays;
+    private final int cleanupBatchSize;
+
+    public DeadLetterQueue(
+            DeadLetterEventRepository repository,
+            DeadLetterQueueConfig deadLetterTopics,
+            KafkaProperties kafkaProperties,
+            @Value("${bss.messaging.dlq.send-timeout-ms:10000}") long sendTimeoutMillis,
+            @Value("${bss.messaging.dlq.retention-days:7}") int retentionDays,
+            @Value("${bss.messaging.dlq.cleanup-batch-size:10000}") int cleanupBatchSize) {
+        this.repository = repository;
+        this.deadLetterTopics = deadLetterTopics;
+        this.sendTimeoutMillis = sendTimeoutMillis;
+        this.retentionDays = retentionDays;
+        this.cleanupBatchSize = cleanupBatchSize;
+
+        // Events are indexed only after every broker has them, so the index never points at a lost record
+        Map<String, Object> producerProperties = new HashMap<>(kafkaProperties.buildProducerProperties(null));
+        producerProperties.put(ProducerConfig.ACKS_CONFIG, "all");
+        producerProperties.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        this.producerFactory = new DefaultKafkaProducerFactory<>(producerProperties,
+                new StringSerializer(), new ByteArraySerializer());
+        this.kafkaTemplate = new KafkaTemplate<>(producerFactory);
+    }
+
+    @PreDestroy
+    public void stop() {
+        producerFactory.destroy();
     }
 
     /**
-     * Get all failed events
+     * Register the handler that replays events of a consumer
      */
-    public ConcurrentMap<String, DLQEntry> getFailedEvents() {
-        return new ConcurrentHashMap<>(failedEvents);
+    public void registerReplayHandler(String consumer, ReplayHandler handler) {
+        replayHandlers.put(consumer, handler);
     }
 
     /**
-     * Get failed events by status
+     * Replay handler of a consumer, or null if none is registered
      */
-    public ConcurrentMap<String, DLQEntry> getFailedEventsByStatus(DLQStatus status) {
-        ConcurrentMap<String, DLQEntry> filtered = new ConcurrentHashMap<>();
-        failedEvents.entrySet().parallelStream()
-                .filter(entry -> entry.getValue().getStatus() == status)
-                .forEach(entry -> filtered.put(entry.getKey(), entry.getValue()));
-        return filtered;
+    public ReplayHandler getReplayHandler(String consumer) {
+        return replayHandlers.get(consumer);
     }
 
     /**
-     * Reprocess a failed event
+     * Store a failed event in the DLQ
      */
-    public boolean reprocessEvent(String eventId) {
-        DLQEntry entry = failedEvents.get(eventId);
-        if (entry == null) {
-            log.warn("Cannot reprocess event - not found in DLQ: {}", eventId);
-            return false;
+    public void storeFailedEvent(String consumer, ConsumerRecord<String, CloudEvent> record, String errorMessage) {
+        storeFailedEvents(List.of(new FailedEvent(consumer, record, errorMessage)));
+    }
+
+    /**
+     * Store the failed events of a batch in the DLQ. Returns once every event is in its dead letter
+     * topic and indexed; throws {@link DeadLetterQueueException} otherwise, in which case the batch
+     * must not be acknowledged.
+     */
+    public void storeFailedEvents(List<FailedEvent> failedEvents) {
+        if (failedEvents.isEmpty()) {
+            return;
         }
 
-        if (entry.getStatus() == DLQStatus.REPROCESSED) {
-            log.warn("Event already reprocessed: {}", eventId);
-            return false;
+        // One row per consumer and event, as the index holds; the last failure wins
+        Map<String, FailedEvent> unique = new LinkedHashMap<>();
+        for (FailedEvent failedEvent : failedEvents) {
+            unique.put(failedEvent.consumer() + '\u0000' + failedEvent.record().value().getId(), failedEvent);
+        }
+
+        List<FailedEvent> toStore = new ArrayList<>(unique.values());
+        List<CompletableFuture<SendResult<String, byte[]>>> sends = new ArrayList<>(toStore.size());
+        for (FailedEvent failedEvent : toStore) {
+            sends.add(kafkaTemplate.send(toDeadLetterRecord(failedEvent)));
+        }
+        kafkaTemplate.flush();
+
+        List<DeadLetterEventRepository.DeadLetterRow> rows = new ArrayList<>(toStore.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        for (int i = 0; i < toStore.size(); i++) {
+            FailedEvent failedEvent = toStore.get(i);
+            ConsumerRecord<String, CloudEvent> record = failedEvent.record();
+            CloudEvent cloudEvent = record.value();
+            RecordMetadata metadata;
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                metadata = sends.get(i).get(remaining, TimeUnit.NANOSECONDS).getRecordMetadata();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DeadLetterQueueException("Interrupted while sending events to DLQ", e);
+            } catch (Exception e) {
+                throw new DeadLetterQueueException("Failed to send event to DLQ: " + cloudEvent.getId(), e);
+            }
+            rows.add(new DeadLetterEventRepository.DeadLetterRow(
+                    failedEvent.consumer(),
+                    cloudEvent.getId(),
+                    cloudEvent.getType(),
+                    truncate(failedEvent.errorMessage()),
+                    record.topic(),
+                    record.partition(),
+                    record.offset(),
+                    metadata.topic(),
+                    metadata.partition(),
+                    metadata.offset()
+            ));
         }
 
-        entry.setStatus(DLQStatus.REPROCESSED);
-        entry.setReprocessedAt(LocalDateTime.now());
-        totalReprocessedEvents.incrementAndGet();
+        try {
+            repository.upsert(rows);
+        } catch (Exception e) {
+            throw new DeadLetterQueueException("Failed to index " + rows.size() + " events in DLQ", e);
+        }
 
-        log.info("Event marked for reprocessing: {}", eventId);
-        return true;
+        for (DeadLetterEventRepository.DeadLetterRow row : rows) {
+            log.error("Event stored in DLQ: {} - {} from topic: {} partition: {} offset: {} at {}/{}/{}. Error: {}",
+                    row.eventType(), row.eventId(), row.originalTopic(), row.originalPartition(),
+                    row.originalOffset(), row.dltTopic(), row.dltPartition(), row.dltOffset(), row.errorMessage());
+        }
+    }
+
+    private ProducerRecord<String, byte[]> toDeadLetterRecord(FailedEvent failedEvent) {
+        ConsumerRecord<String, CloudEvent> record = failedEvent.record();
+        ProducerRecord<String, byte[]> deadLetter = new ProducerRecord<>(
+                deadLetterTopics.getDlqTopic(record.topic()),
+                record.key(),
+                eventFormat.serialize(record.value())
+        );
+        deadLetter.headers().add("content-type", JsonFormat.CONTENT_TYPE.getBytes(StandardCharsets.UTF_8));
+        deadLetter.headers().add("X-Original-Topic", record.topic().getBytes(StandardCharsets.UTF_8));
+        deadLetter.headers().add("X-Original-Offset",
+                String.valueOf(record.offset()).getBytes(StandardCharsets.UTF_8));
+        deadLetter.headers().add("X-Original-Partition",
+                String.valueOf(record.partition()).getBytes(StandardCharsets.UTF_8));
+        deadLetter.headers().add("X-Consumer", failedEvent.consumer().getBytes(StandardCharsets.UTF_8));
+        if (failedEvent.errorMessage() != null) {
+            deadLetter.headers().add("X-Error-Message",
+                    truncate(failedEvent.errorMessage()).getBytes(StandardCharsets.UTF_8));
+        }
+        return deadLetter;
+    }
+
+    /**
+     * Read a CloudEvent back from the value of a dead letter record
+     */
+    CloudEvent deserialize(byte[] value) {
+        return eventFormat.deserialize(value);
+    }
+
+    /**
+     * Most recently failed events
+     */
+    public List<DLQEntry> getFailedEvents(int limit) {
+        return repository.findRecent(limit);
+    }
+
+    /**
+     * Most recently failed events by status
+     */
+    public List<DLQEntry> getFailedEventsByStatus(DLQStatus status, int limit) {
+        return repository.findRecentByStatus(status, limit);
     }
 
     /**
      * Mark event as resolved (after manual review/fix)
      */
     public boolean markAsResolved(String eventId, String resolution) {
-        DLQEntry entry = failedEvents.get(eventId);
-        if (entry == null) {
+        if (repository.resolve(eventId, resolution) == 0) {
             log.warn("Cannot resolve event - not found in DLQ: {}", eventId);
             return false;
         }
 
-        entry.setStatus(DLQStatus.RESOLVED);
-        entry.setResolution(resolution);
-        entry.setResolvedAt(LocalDateTime.now());
-
         log.info("Event marked as resolved: {}. Resolution: {}", eventId, resolution);
         return true;
     }
 
     /**
-     * Clean up old DLQ entries (older than 7 days)
+     * Clean up reprocessed and resolved DLQ entries older than the retention; events still pending
+     * are kept however old they are
      */
+    @Scheduled(cron = "${bss.messaging.dlq.cleanup-cron:0 30 3 * * *}")
     public void cleanupOldEntries() {
-        LocalDateTime cutoff = LocalDateTime.now().minusDays(7);
-        failedEvents.entrySet().removeIf(entry -> {
-            if (entry.getValue().getStatus() == DLQStatus.RESOLVED &&
-                entry.getValue().getResolvedAt().isBefore(cutoff)) {
-                log.info("Cleaning up old DLQ entry: {}", entry.getKey());
-                return true;
-            }
-            return false;
-        });
+        Instant cutoff = Instant.now().minus(retentionDays, ChronoUnit.DAYS);
+        long deleted = 0;
+        int batch;
+        do {
+            batch = repository.deleteClosedBefore(cutoff, cleanupBatchSize);
+            deleted += batch;
+        } while (batch == cleanupBatchSize);
+
+        if (deleted > 0) {
+            log.info("Cleaned up {} old DLQ entries closed before {}", deleted, cutoff);
+        }
     }
 
     /**
      * Get statistics
      */
     public DLQStatistics getStatistics() {
+        Map<DLQStatus, Long> counts = repository.countByStatus();
+        long total = counts.values().stream().mapToLong(Long::longValue).sum();
         return new DLQStatistics(
-                totalFailedEvents.get(),
-                totalReprocessedEvents.get(),
-                failedEvents.size(),
-                failedEvents.values().parallelStream()
-                        .filter(e -> e.getStatus() == DLQStatus.PENDING)
-                        .count(),
-                failedEvents.values().parallelStream()
-                        .filter(e -> e.getStatus() == DLQStatus.RESOLVED)
-                        .count()
+                total,
+                counts.get(DLQStatus.REPROCESSED),
+                (int) Math.min(Integer.MAX_VALUE, total),
+                counts.get(DLQStatus.PENDING),
+                counts.get(DLQStatus.RESOLVED)
         );
     }
 
+    static String truncate(String errorMessage) {
+        if (errorMessage == null || errorMessage.length() <= MAX_ERROR_MESSAGE_LENGTH) {
+            return errorMessage;
+        }
+        return errorMessage.substring(0, MAX_ERROR_MESSAGE_LENGTH);
+    }
+
     // Kafka listener for monitoring DLQ (can be used for alerts)
     @KafkaListener(
             topics = {"dlq.monitoring"},
@@ -2,10 +2,11 @@ package com.droid.bss.infrastructure.messaging.deadletter;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Map;
+import java.util.List;
 
 /**
  * Dead Letter Queue REST Controller
@@ -17,10 +18,14 @@ import java.util.Map;
 @Tag(name = "Dead Letter Queue", description = "Dead Letter Queue monitoring and management")
 public class DeadLetterQueueController {
 
+    private static final int MAX_LIMIT = 1000;
+
     private final DeadLetterQueue deadLetterQueue;
+    private final DeadLetterReplayService replayService;
 
-    public DeadLetterQueueController(DeadLetterQueue deadLetterQueue) {
+    public DeadLetterQueueController(DeadLetterQueue deadLetterQueue, DeadLetterReplayService replayService) {
         this.deadLetterQueue = deadLetterQueue;
+        this.replayService = replayService;
     }
 
     @GetMapping("/statistics")
@@ -31,34 +36,77 @@ public class DeadLetterQueueController {
     }
 
     @GetMapping("/failed-events")
-    @Operation(summary = "Get all failed events", description = "Returns all events currently in the DLQ")
-    public ResponseEntity<Map<String, DLQEntry>> getFailedEvents() {
-        Map<String, DLQEntry> failedEvents = deadLetterQueue.getFailedEvents();
+    @Operation(summary = "Get failed events", description = "Returns the most recent events in the DLQ")
+    public ResponseEntity<List<DLQEntry>> getFailedEvents(@RequestParam(defaultValue = "100") int limit) {
+        List<DLQEntry> failedEvents = deadLetterQueue.getFailedEvents(boundedLimit(limit));
         return ResponseEntity.ok(failedEvents);
     }
 
     @GetMapping("/failed-events/pending")
-    @Operation(summary = "Get pending failed events", description = "Returns all pending (unprocessed) failed events")
-    public ResponseEntity<Map<String, DLQEntry>> getPendingEvents() {
-        Map<String, DLQEntry> pendingEvents = deadLetterQueue.getFailedEventsByStatus(DLQStatus.PENDING);
+    @Operation(summary = "Get pending failed events", description = "Returns the most recent pending (unprocessed) failed events")
+    public ResponseEntity<List<DLQEntry>> getPendingEvents(@RequestParam(defaultValue = "100") int limit) {
+        List<DLQEntry> pendingEvents = deadLetterQueue.getFailedEventsByStatus(DLQStatus.PENDING, boundedLimit(limit));
         return ResponseEntity.ok(pendingEvents);
     }
 
     @GetMapping("/failed-events/resolved")
-    @Operation(summary = "Get resolved failed events", description = "Returns all resolved failed events")
-    public ResponseEntity<Map<String, DLQEntry>> getResolvedEvents() {
-        Map<String, DLQEntry> resolvedEvents = deadLetterQueue.getFailedEventsByStatus(DLQStatus.RESOLVED);
+    @Operation(summary = "Get resolved failed events", description = "Returns the most recent resolved failed events")
+    public ResponseEntity<List<DLQEntry>> getResolvedEvents(@RequestParam(defaultValue = "100") int limit) {
+        List<DLQEntry> resolvedEvents = deadLetterQueue.getFailedEventsByStatus(DLQStatus.RESOLVED, boundedLimit(limit));
         return ResponseEntity.ok(resolvedEvents);
     }
 
     @PostMapping("/reprocess/{eventId}")
-    @Operation(summary = "Reprocess a failed event", description = "Marks an event for reprocessing")
+    @Operation(summary = "Reprocess a failed event", description = "Replays a pending event from its dead letter topic")
     public ResponseEntity<String> reprocessEvent(@PathVariable String eventId) {
-        boolean success = deadLetterQueue.reprocessEvent(eventId);
+        boolean success = replayService.replayEvent(eventId);
         if (success) {
-            return ResponseEntity.ok("Event " + eventId + " marked for reprocessing");
+            return ResponseEntity.ok("Event " + eventId + " reprocessed");
         } else {
-            return ResponseEntity.badRequest().body("Failed to reprocess event " + eventId + " (not found or already processed)");
+            return ResponseEntity.badRequest().body("Failed to reprocess event " + eventId + " (not pending or failed again)");
+        }
+    }
+
+    @PostMapping("/replay")
+    @Operation(summary = "Replay pending events in bulk",
+            description = "Starts a rate-limited replay of pending events, grouped by original topic partition, " +
+                    "that stops when the error rate exceeds the maximum")
+    public ResponseEntity<?> startReplay(
+            @RequestParam(required = false) List<String> topic,
+            @RequestParam(required = false) Integer ratePerSecond,
+            @RequestParam(required = false) Integer parallelism,
+            @RequestParam(required = false) Float maxErrorRatePercent,
+            @RequestParam(required = false) Long limit
+    ) {
+        try {
+            DeadLetterReplayJob job = replayService.startReplay(topic, ratePerSecond, parallelism,
+                    maxErrorRatePercent, limit);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/replay")
+    @Operation(summary = "Get replay jobs", description = "Returns the running and recent replay jobs")
+    public ResponseEntity<List<DeadLetterReplayJob>> getReplayJobs() {
+        return ResponseEntity.ok(replayService.getJobs());
+    }
+
+    @GetMapping("/replay/{jobId}")
+    @Operation(summary = "Get replay job", description = "Returns the progress of a replay job")
+    public ResponseEntity<DeadLetterReplayJob> getReplayJob(@PathVariable String jobId) {
+        DeadLetterReplayJob job = replayService.getJob(jobId);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    @PostMapping("/replay/{jobId}/cancel")
+    @Operation(summary = "Cancel replay job", description = "Stops a running replay job; remaining events stay pending")
+    public ResponseEntity<String> cancelReplay(@PathVariable String jobId) {
+        if (replayService.cancel(jobId)) {
+            return ResponseEntity.ok("Replay job " + jobId + " cancelled");
+        } else {
+            return ResponseEntity.badRequest().body("Failed to cancel replay job " + jobId + " (not found or not running)");
         }
     }
 
@@ -77,9 +125,13 @@ public class DeadLetterQueueController {
     }
 
     @PostMapping("/cleanup")
-    @Operation(summary = "Clean up old DLQ entries", description = "Removes old resolved entries (older than 7 days)")
+    @Operation(summary = "Clean up old DLQ entries", description = "Removes reprocessed and resolved entries older than the retention")
     public ResponseEntity<String> cleanupOldEntries() {
         deadLetterQueue.cleanupOldEntries();
         return ResponseEntity.ok("Old DLQ entries cleaned up successfully");
     }
+
+    private static int boundedLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
 }
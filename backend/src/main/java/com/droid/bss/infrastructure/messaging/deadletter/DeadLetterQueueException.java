@@ -1,10 +1,10 @@
 package com.droid.bss.infrastructure.messaging.deadletter;
 
 /**
- * Stub class for DeadLetterQueueException
- * Minimal implementation for testing purposes
+ * Thrown when failed events cannot be stored in the Dead Letter Queue. The batch they came from
+ * must not be acknowledged, so the events are delivered again.
  */
-public class DeadLetterQueueException extends Exception {
+public class DeadLetterQueueException extends RuntimeException {
 
     public DeadLetterQueueException(String message) {
         super(message);
@@ -0,0 +1,102 @@
+package com.droid.bss.infrastructure.messaging.deadletter;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A bulk replay of pending DLQ events, as run by {@link DeadLetterReplayService}
+ */
+public class DeadLetterReplayJob {
+
+    public enum State {
+        RUNNING,
+        COMPLETED,
+        CANCELLED,
+        STOPPED_ERROR_RATE,
+        FAILED
+    }
+
+    private final String id;
+    private final List<String> topics;
+    private final int ratePerSecond;
+    private final int parallelism;
+    private final float maxErrorRatePercent;
+    private final long limit;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final AtomicReference<State> state = new AtomicReference<>(State.RUNNING);
+    private final AtomicLong replayedEvents = new AtomicLong(0);
+    private final AtomicLong failedEvents = new AtomicLong(0);
+    private final AtomicLong skippedEvents = new AtomicLong(0);
+    private final CircuitBreaker errorRate;
+
+    private volatile LocalDateTime finishedAt;
+    private volatile String stopReason;
+
+    DeadLetterReplayJob(String id, List<String> topics, int ratePerSecond, int parallelism,
+                        float maxErrorRatePercent, long limit, CircuitBreaker errorRate) {
+        this.id = id;
+        this.topics = topics;
+        this.ratePerSecond = ratePerSecond;
+        this.parallelism = parallelism;
+        this.maxErrorRatePercent = maxErrorRatePercent;
+        this.limit = limit;
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * End the job unless it has ended already
+     */
+    boolean finish(State finalState, String reason) {
+        if (!state.compareAndSet(State.RUNNING, finalState)) {
+            return false;
+        }
+        stopReason = reason;
+        finishedAt = LocalDateTime.now();
+        return true;
+    }
+
+    boolean isRunning() {
+        return state.get() == State.RUNNING;
+    }
+
+    CircuitBreaker errorRate() {
+        return errorRate;
+    }
+
+    void recordReplayed() {
+        replayedEvents.incrementAndGet();
+    }
+
+    void recordFailed() {
+        failedEvents.incrementAndGet();
+    }
+
+    void recordSkipped() {
+        skippedEvents.incrementAndGet();
+    }
+
+    public String getId() { return id; }
+    public List<String> getTopics() { return topics; }
+    public int getRatePerSecond() { return ratePerSecond; }
+    public int getParallelism() { return parallelism; }
+    public float getMaxErrorRatePercent() { return maxErrorRatePercent; }
+    public long getLimit() { return limit; }
+    public State getState() { return state.get(); }
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public String getStopReason() { return stopReason; }
+    public long getReplayedEvents() { return replayedEvents.get(); }
+    public long getFailedEvents() { return failedEvents.get(); }
+    public long getSkippedEvents() { return skippedEvents.get(); }
+
+    /**
+     * Failure rate over the recent replays the job stops on, or -1 until enough events are replayed
+     */
+    public float getErrorRatePercent() {
+        return errorRate.getMetrics().getFailureRate();
+    }
+}
@@ -0,0 +1,376 @@
+package com.droid.bss.infrastructure.messaging.deadletter;
+
+import io.cloudevents.CloudEvent;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays pending DLQ events in bulk.
+ *
+ * A replay job walks the pending entries of dead_letter_event page by page in original topic,
+ * partition and offset order, reads their events back from the dead letter topics and hands them
+ * to the replay handler of the consumer they failed in. Each original topic partition of a page is
+ * replayed in order on one worker, and partitions run in parallel up to the job's parallelism;
+ * the next page starts when the current one is done, so events of a partition never overtake each
+ * other.
+ *
+ * All workers of a job share one rate limiter that spaces replays evenly at the job's rate, so a
+ * mass replay after an outage reaches downstream services as a steady trickle rather than a burst.
+ * Replay outcomes feed a count-based circuit breaker; once the failure rate over the recent
+ * replays climbs above the job's maximum, the job stops, leaving the rest of the events pending.
+ *
+ * One job runs at a time per instance. Entries are not claimed, so jobs started on several
+ * instances at once may replay an event twice, which the consumers' deduplication absorbs.
+ */
+@Component
+public class DeadLetterReplayService {
+
+    private static final Logger log = LoggerFactory.getLogger(DeadLetterReplayService.class);
+
+    private static final int MAX_FINISHED_JOBS = 20;
+
+    private final DeadLetterEventRepository repository;
+    private final DeadLetterQueue deadLetterQueue;
+    private final Map<String, Object> consumerProperties;
+    private final int defaultRatePerSecond;
+    private final int maxRatePerSecond;
+    private final int defaultParallelism;
+    private final int maxParallelism;
+    private final float defaultMaxErrorRatePercent;
+    private final int errorRateWindow;
+    private final int errorRateMinimumCalls;
+    private final int pageSize;
+    private final Duration pollTimeout;
+    private final Map<String, DeadLetterReplayJob> jobs = new LinkedHashMap<>();
+
+    private DeadLetterReplayJob activeJob;
+    private Thread activeJobThread;
+
+    public DeadLetterReplayService(
+            DeadLetterEventRepository repository,
+            DeadLetterQueue deadLetterQueue,
+            KafkaProperties kafkaProperties,
+            @Value("${bss.messaging.dlq.replay.rate-per-second:50}") int defaultRatePerSecond,
+            @Value("${bss.messaging.dlq.replay.max-rate-per-second:500}") int maxRatePerSecond,
+            @Value("${bss.messaging.dlq.replay.parallelism:4}") int defaultParallelism,
+            @Value("${bss.messaging.dlq.replay.max-parallelism:16}") int maxParallelism,
+            @Value("${bss.messaging.dlq.replay.max-error-rate-percent:20}") float defaultMaxErrorRatePercent,
+            @Value("${bss.messaging.dlq.replay.error-rate-window:100}") int errorRateWindow,
+            @Value("${bss.messaging.dlq.replay.error-rate-minimum-calls:20}") int errorRateMinimumCalls,
+            @Value("${bss.messaging.dlq.replay.page-size:500}") int pageSize,
+            @Value("${bss.messaging.dlq.replay.poll-timeout-ms:1000}") long pollTimeoutMillis) {
+        this.repository = repository;
+        this.deadLetterQueue = deadLetterQueue;
+        this.defaultRatePerSecond = defaultRatePerSecond;
+        this.maxRatePerSecond = maxRatePerSecond;
+        this.defaultParallelism = defaultParallelism;
+        this.maxParallelism = maxParallelism;
+        this.defaultMaxErrorRatePercent = defaultMaxErrorRatePercent;
+        this.errorRateWindow = errorRateWindow;
+        this.errorRateMinimumCalls = errorRateMinimumCalls;
+        this.pageSize = pageSize;
+        this.pollTimeout = Duration.ofMillis(pollTimeoutMillis);
+
+        // Dead letter topics are read by assigned partition and offset, without a group or commits
+        this.consumerProperties = new HashMap<>(kafkaProperties.buildConsumerProperties(null));
+        this.consumerProperties.remove(ConsumerConfig.GROUP_ID_CONFIG);
+        this.consumerProperties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        this.consumerProperties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        this.consumerProperties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, pageSize);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            if (activeJob != null) {
+                activeJob.finish(DeadLetterReplayJob.State.CANCELLED, "Application shutdown");
+            }
+            thread = activeJobThread;
+        }
+        if (thread != null) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    /**
+     * Start replaying pending events in the background. Null arguments take the configured
+     * defaults; rate and parallelism are capped at the configured maximums.
+     *
+     * @throws IllegalStateException if a replay job is still running
+     */
+    public synchronized DeadLetterReplayJob startReplay(List<String> topics, Integer ratePerSecond,
+                                                        Integer parallelism, Float maxErrorRatePercent,
+                                                        Long limit) {
+        if (activeJob != null && activeJob.isRunning()) {
+            throw new IllegalStateException("Replay job " + activeJob.getId() + " is still running");
+        }
+
+        String id = UUID.randomUUID().toString();
+        int rate = Math.max(1, Math.min(ratePerSecond != null ? ratePerSecond : defaultRatePerSecond,
+                maxRatePerSecond));
+        int threads = Math.max(1, Math.min(parallelism != null ? parallelism : defaultParallelism,
+                maxParallelism));
+        float maxErrorRate = maxErrorRatePercent != null ? maxErrorRatePercent : defaultMaxErrorRatePercent;
+        long maxEvents = limit != null && limit > 0 ? limit : Long.MAX_VALUE;
+
+        CircuitBreaker errorRate = CircuitBreaker.of("dlq-replay-" + id, CircuitBreakerConfig.custom()
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(errorRateWindow)
+                .minimumNumberOfCalls(Math.min(errorRateMinimumCalls, errorRateWindow))
+                .failureRateThreshold(maxErrorRate)
+                .build());
+        DeadLetterReplayJob job = new DeadLetterReplayJob(id, topics != null ? List.copyOf(topics) : List.of(),
+                rate, threads, maxErrorRate, maxEvents, errorRate);
+
+        activeJob = job;
+        jobs.put(id, job);
+        if (jobs.size() > MAX_FINISHED_JOBS) {
+            jobs.values().removeIf(oldJob -> oldJob != job && !oldJob.isRunning() && jobs.size() > MAX_FINISHED_JOBS);
+        }
+        activeJobThread = Thread.ofPlatform().name("dlq-replay-" + id).daemon().start(() -> run(job));
+
+        log.info("Started DLQ replay job {} for topics {} at {} events/s with {} workers, stopping above {}% errors",
+                id, job.getTopics().isEmpty() ? "all" : job.getTopics(), rate, threads, maxErrorRate);
+        return job;
+    }
+
+    public synchronized DeadLetterReplayJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    public synchronized List<DeadLetterReplayJob> getJobs() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    /**
+     * Cancel a running job; events being replayed finish first
+     */
+    public synchronized boolean cancel(String jobId) {
+        DeadLetterReplayJob job = jobs.get(jobId);
+        return job != null && job.finish(DeadLetterReplayJob.State.CANCELLED, "Cancelled");
+    }
+
+    /**
+     * Replay the pending entries of one event right away, without rate limiting
+     */
+    public boolean replayEvent(String eventId) {
+        List<DLQEntry> entries = repository.findPendingByEventId(eventId);
+        if (entries.isEmpty()) {
+            log.warn("Cannot reprocess event - not pending in DLQ: {}", eventId);
+            return false;
+        }
+
+        Map<Long, CloudEvent> events;
+        try (DeadLetterTopicReader reader = createReader()) {
+            events = reader.read(entries);
+        }
+
+        List<Long> replayed = new ArrayList<>();
+        Map<Long, String> failures = new HashMap<>();
+        for (DLQEntry entry : entries) {
+            String error = replay(entry, events.get(entry.getId()));
+            if (error == null) {
+                replayed.add(entry.getId());
+            } else {
+                failures.put(entry.getId(), error);
+            }
+        }
+        repository.markReprocessed(replayed);
+        repository.recordReplayFailures(failures);
+
+        log.info("Reprocessed event {} from DLQ: {} replayed, {} failed", eventId, replayed.size(), failures.size());
+        return failures.isEmpty();
+    }
+
+    private void run(DeadLetterReplayJob job) {
+        RateLimiter rateLimiter = RateLimiter.of("dlq-replay-" + job.getId(), RateLimiterConfig.custom()
+                .limitForPeriod(1)
+                .limitRefreshPeriod(Duration.ofNanos(TimeUnit.SECONDS.toNanos(1) / job.getRatePerSecond()))
+                .timeoutDuration(Duration.ofSeconds(1))
+                .build());
+        ExecutorService workers = Executors.newFixedThreadPool(job.getParallelism(),
+                Thread.ofPlatform().name("dlq-replay-worker-", 0).daemon().factory());
+
+        try (DeadLetterTopicReader reader = createReader()) {
+            DLQEntry after = null;
+            long remaining = job.getLimit();
+            while (job.isRunning() && remaining > 0) {
+                List<DLQEntry> page = repository.findPendingPage(job.getTopics(), after,
+                        (int) Math.min(pageSize, remaining));
+                if (page.isEmpty()) {
+                    break;
+                }
+                after = page.get(page.size() - 1);
+                remaining -= page.size();
+
+                Map<Long, CloudEvent> events = reader.read(page);
+                List<Future<?>> groups = new ArrayList<>();
+                for (List<DLQEntry> group : groupByOriginalPartition(page)) {
+                    groups.add(workers.submit(() -> replayGroup(job, group, events, rateLimiter)));
+                }
+                for (Future<?> group : groups) {
+                    group.get();
+                }
+            }
+            job.finish(DeadLetterReplayJob.State.COMPLETED, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.finish(DeadLetterReplayJob.State.CANCELLED, "Interrupted");
+        } catch (ExecutionException e) {
+            log.error("DLQ replay job {} failed", job.getId(), e.getCause());
+            job.finish(DeadLetterReplayJob.State.FAILED, String.valueOf(e.getCause().getMessage()));
+        } catch (Exception e) {
+            log.error("DLQ replay job {} failed", job.getId(), e);
+            job.finish(DeadLetterReplayJob.State.FAILED, String.valueOf(e.getMessage()));
+        } finally {
+            workers.shutdownNow();
+        }
+
+        log.info("DLQ replay job {} {}: {} replayed, {} failed, {} skipped{}", job.getId(), job.getState(),
+                job.getReplayedEvents(), job.getFailedEvents(), job.getSkippedEvents(),
+                job.getStopReason() != null ? " (" + job.getStopReason() + ")" : "");
+    }
+
+    /**
+     * Replay the entries of one original topic partition in offset order, recording the outcomes
+     * with one statement each at the end
+     */
+    private void replayGroup(DeadLetterReplayJob job, List<DLQEntry> group, Map<Long, CloudEvent> events,
+                             RateLimiter rateLimiter) {
+        CircuitBreaker errorRate = job.errorRate();
+        List<Long> replayed = new ArrayList<>(group.size());
+        Map<Long, String> failures = new HashMap<>();
+        try {
+            for (DLQEntry entry : group) {
+                CloudEvent cloudEvent = events.get(entry.getId());
+                if (cloudEvent == null || deadLetterQueue.getReplayHandler(entry.getConsumer()) == null) {
+                    // Not the downstream's fault, so left out of the error rate
+                    failures.put(entry.getId(), replay(entry, cloudEvent));
+                    job.recordSkipped();
+                    continue;
+                }
+                if (!acquirePermission(job, rateLimiter)) {
+                    return;
+                }
+                if (!errorRate.tryAcquirePermission()) {
+                    stopOnErrorRate(job);
+                    return;
+                }
+
+                long started = System.nanoTime();
+                String error = replay(entry, cloudEvent);
+                if (error == null) {
+                    errorRate.onSuccess(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                    replayed.add(entry.getId());
+                    job.recordReplayed();
+                } else {
+                    errorRate.onError(System.nanoTime() - started, TimeUnit.NANOSECONDS,
+                            new DeadLetterQueueException(error));
+                    failures.put(entry.getId(), error);
+                    job.recordFailed();
+                    if (errorRate.getState() == CircuitBreaker.State.OPEN) {
+                        stopOnErrorRate(job);
+                        return;
+                    }
+                }
+            }
+        } finally {
+            repository.markReprocessed(replayed);
+            repository.recordReplayFailures(failures);
+        }
+    }
+
+    /**
+     * Replay one entry; returns null on success, the error otherwise
+     */
+    private String replay(DLQEntry entry, CloudEvent cloudEvent) {
+        if (cloudEvent == null) {
+            return "Event no longer in dead letter topic " + entry.getDltTopic();
+        }
+        DeadLetterQueue.ReplayHandler handler = deadLetterQueue.getReplayHandler(entry.getConsumer());
+        if (handler == null) {
+            return "No replay handler for consumer " + entry.getConsumer();
+        }
+        try {
+            handler.replay(cloudEvent);
+            return null;
+        } catch (Exception e) {
+            log.warn("Replay of {} event {} from DLQ failed: {}", entry.getConsumer(), entry.getEventId(),
+                    e.getMessage());
+            return DeadLetterQueue.truncate(e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+        }
+    }
+
+    private boolean acquirePermission(DeadLetterReplayJob job, RateLimiter rateLimiter) {
+        while (!rateLimiter.acquirePermission()) {
+            if (!job.isRunning() || Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+        }
+        return job.isRunning();
+    }
+
+    private void stopOnErrorRate(DeadLetterReplayJob job) {
+        if (job.finish(DeadLetterReplayJob.State.STOPPED_ERROR_RATE, String.format(
+                "Error rate %.1f%% above %.1f%%", job.getErrorRatePercent(), job.getMaxErrorRatePercent()))) {
+            log.warn("Stopping DLQ replay job {}: {}", job.getId(), job.getStopReason());
+        }
+    }
+
+    /**
+     * Split a page, ordered by original topic, partition and offset, into runs of one partition
+     */
+    static List<List<DLQEntry>> groupByOriginalPartition(List<DLQEntry> page) {
+        List<List<DLQEntry>> groups = new ArrayList<>();
+        List<DLQEntry> group = null;
+        DLQEntry previous = null;
+        for (DLQEntry entry : page) {
+            if (previous == null || previous.getPartition() != entry.getPartition()
+                    || !previous.getOriginalTopic().equals(entry.getOriginalTopic())) {
+                group = new ArrayList<>();
+                groups.add(group);
+            }
+            group.add(entry);
+            previous = entry;
+        }
+        return groups;
+    }
+
+    private DeadLetterTopicReader createReader() {
+        return new DeadLetterTopicReader(createConsumer(), deadLetterQueue::deserialize, pollTimeout, pageSize);
+    }
+
+    /**
+     * Consumer the dead letter topics are read with, one per reader
+     */
+    Consumer<String, byte[]> createConsumer() {
+        return new KafkaConsumer<>(consumerProperties, new StringDeserializer(), new ByteArrayDeserializer());
+    }
+}
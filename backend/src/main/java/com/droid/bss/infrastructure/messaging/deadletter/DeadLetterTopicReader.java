@@ -0,0 +1,118 @@
+package com.droid.bss.infrastructure.messaging.deadletter;
+
+import io.cloudevents.CloudEvent;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Reads events back from the dead letter topics by the partition and offset recorded in their
+ * {@link DLQEntry}.
+ *
+ * Wanted offsets of one partition are read in a single forward pass, seeking over gaps wider than
+ * a few polls, with a consumer that is assigned partitions directly and never commits. Entries
+ * whose record is gone, because it has passed the topic's retention, are left out of the result.
+ * Not thread-safe; used by one replay job at a time.
+ */
+class DeadLetterTopicReader implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(DeadLetterTopicReader.class);
+
+    private static final int MAX_EMPTY_POLLS = 3;
+
+    private final Consumer<String, byte[]> consumer;
+    private final Function<byte[], CloudEvent> deserializer;
+    private final Duration pollTimeout;
+    private final long seekGap;
+
+    DeadLetterTopicReader(Consumer<String, byte[]> consumer, Function<byte[], CloudEvent> deserializer,
+                          Duration pollTimeout, long seekGap) {
+        this.consumer = consumer;
+        this.deserializer = deserializer;
+        this.pollTimeout = pollTimeout;
+        this.seekGap = seekGap;
+    }
+
+    /**
+     * Events of the given entries, by entry ID
+     */
+    Map<Long, CloudEvent> read(List<DLQEntry> entries) {
+        Map<TopicPartition, NavigableMap<Long, DLQEntry>> wanted = new HashMap<>();
+        for (DLQEntry entry : entries) {
+            wanted.computeIfAbsent(new TopicPartition(entry.getDltTopic(), entry.getDltPartition()),
+                    tp -> new TreeMap<>()).put(entry.getDltOffset(), entry);
+        }
+
+        Map<Long, CloudEvent> events = new HashMap<>(entries.size() * 2);
+        for (Map.Entry<TopicPartition, NavigableMap<Long, DLQEntry>> partition : wanted.entrySet()) {
+            readPartition(partition.getKey(), partition.getValue(), events);
+        }
+        return events;
+    }
+
+    private void readPartition(TopicPartition partition, NavigableMap<Long, DLQEntry> remaining,
+                               Map<Long, CloudEvent> events) {
+        consumer.assign(List.of(partition));
+        long endOffset = consumer.endOffsets(List.of(partition)).getOrDefault(partition, 0L);
+        remaining.tailMap(endOffset, true).clear();
+        if (remaining.isEmpty()) {
+            return;
+        }
+
+        // Offsets deleted by retention are reset to the earliest one still there
+        consumer.seek(partition, remaining.firstKey());
+        int emptyPolls = 0;
+        while (!remaining.isEmpty() && emptyPolls < MAX_EMPTY_POLLS) {
+            ConsumerRecords<String, byte[]> records = consumer.poll(pollTimeout);
+            if (records.isEmpty()) {
+                emptyPolls++;
+                continue;
+            }
+            emptyPolls = 0;
+
+            for (ConsumerRecord<String, byte[]> record : records.records(partition)) {
+                DLQEntry entry = remaining.remove(record.offset());
+                if (entry != null) {
+                    addEvent(entry, record, events);
+                }
+            }
+
+            long position = consumer.position(partition);
+            remaining.headMap(position, false).clear();
+            if (!remaining.isEmpty() && remaining.firstKey() - position > seekGap) {
+                consumer.seek(partition, remaining.firstKey());
+            }
+        }
+    }
+
+    private void addEvent(DLQEntry entry, ConsumerRecord<String, byte[]> record, Map<Long, CloudEvent> events) {
+        try {
+            CloudEvent cloudEvent = deserializer.apply(record.value());
+            if (entry.getEventId().equals(cloudEvent.getId())) {
+                events.put(entry.getId(), cloudEvent);
+            } else {
+                log.warn("DLQ record at {}/{}/{} holds event {} instead of {}", record.topic(),
+                        record.partition(), record.offset(), cloudEvent.getId(), entry.getEventId());
+            }
+        } catch (Exception e) {
+            log.warn("Cannot read DLQ record at {}/{}/{}: {}", record.topic(), record.partition(),
+                    record.offset(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        consumer.close();
+    }
+}
@@ -0,0 +1,194 @@
+package com.droid.bss.infrastructure.messaging.idempotency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Idempotency for the domain event consumers: remembers which events each consumer has processed
+ * for a fixed window, across restarts and instances, with a fixed memory budget.
+ *
+ * Lookups go to a {@link RotatingBloomFilter} first. Most events are new and the filter says so
+ * without touching the database; only IDs the filter reports as maybe seen are checked in
+ * processed_event, which tells real duplicates from false positives. Processed IDs are written to
+ * processed_event and added to the filter.
+ *
+ * The filter only knows what this instance has added or loaded. It is filled from processed_event
+ * when it is first used, and topped up with the rows written since (by any instance) whenever the
+ * consumers get partitions assigned, so events redelivered after a deploy or a rebalance are
+ * recognized. Rows older than the window are deleted in batches.
+ */
+@Slf4j
+@Component
+public class EventDeduplicator {
+
+    // Rows written by other instances while we last synced, with some clock skew between hosts
+    private static final Duration SYNC_OVERLAP = Duration.ofSeconds(30);
+
+    private final ProcessedEventRepository repository;
+    private final MeterRegistry meterRegistry;
+    private final RotatingBloomFilter filter;
+    private final Duration window;
+    private final int cleanupBatchSize;
+    private final Map<String, ConsumerMeters> consumerMeters = new ConcurrentHashMap<>();
+    private final Counter expiredCounter;
+    private volatile Instant syncedAt;
+
+    public EventDeduplicator(
+            ProcessedEventRepository repository,
+            MeterRegistry meterRegistry,
+            @Value("${bss.messaging.dedupe.window-hours:24}") long windowHours,
+            @Value("${bss.messaging.dedupe.generations:4}") int generations,
+            @Value("${bss.messaging.dedupe.memory-budget-mb:16}") long memoryBudgetMb,
+            @Value("${bss.messaging.dedupe.expected-events-per-window:2000000}") long expectedEventsPerWindow,
+            @Value("${bss.messaging.dedupe.cleanup-batch-size:10000}") int cleanupBatchSize) {
+        this.repository = repository;
+        this.meterRegistry = meterRegistry;
+        this.window = Duration.ofHours(windowHours);
+        this.cleanupBatchSize = cleanupBatchSize;
+        this.filter = new RotatingBloomFilter(
+                generations,
+                window.toMillis() / generations,
+                memoryBudgetMb * 1024 * 1024,
+                Math.max(1, expectedEventsPerWindow / generations),
+                System.currentTimeMillis());
+
+        Gauge.builder("bss.messaging.dedupe.filter.bytes", filter, RotatingBloomFilter::getMemoryBytes)
+                .description("Memory used by the event deduplication Bloom filter")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("bss.messaging.dedupe.filter.entries", filter, RotatingBloomFilter::getApproximateSize)
+                .description("Event IDs held by the event deduplication Bloom filter")
+                .register(meterRegistry);
+        Gauge.builder("bss.messaging.dedupe.filter.false_positive_rate", filter,
+                        RotatingBloomFilter::getEstimatedFalsePositiveRate)
+                .description("Estimated false positive rate of the event deduplication Bloom filter")
+                .register(meterRegistry);
+        Gauge.builder("bss.messaging.dedupe.filter.evictions", filter, RotatingBloomFilter::getEvictions)
+                .description("Event IDs evicted from the Bloom filter with expired generations")
+                .register(meterRegistry);
+        this.expiredCounter = Counter.builder("bss.messaging.dedupe.store.expired")
+                .description("Processed event rows deleted after the deduplication window")
+                .register(meterRegistry);
+
+        log.info("Event deduplication: {} h window, {} generations, {} KB filter, {} hash functions",
+                windowHours, generations, filter.getMemoryBytes() / 1024, filter.getHashFunctions());
+    }
+
+    /**
+     * IDs of the given events the consumer has already processed
+     */
+    public Set<String> findProcessed(String consumer, Collection<String> eventIds) {
+        if (eventIds.isEmpty()) {
+            return Set.of();
+        }
+        if (syncedAt == null) {
+            sync();
+        }
+
+        long now = System.currentTimeMillis();
+        List<String> maybeProcessed = new ArrayList<>();
+        for (String eventId : eventIds) {
+            if (filter.mightContain(consumer, eventId, now)) {
+                maybeProcessed.add(eventId);
+            }
+        }
+        if (maybeProcessed.isEmpty()) {
+            return Set.of();
+        }
+
+        Set<String> processed = repository.findExisting(consumer, maybeProcessed);
+        ConsumerMeters meters = meters(consumer);
+        meters.duplicates.increment(processed.size());
+        meters.falsePositives.increment(maybeProcessed.size() - processed.size());
+        return processed;
+    }
+
+    /**
+     * Record events as processed by the consumer
+     */
+    public void markProcessed(String consumer, Collection<String> eventIds) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        repository.insert(consumer, eventIds);
+        long now = System.currentTimeMillis();
+        for (String eventId : eventIds) {
+            filter.put(consumer, eventId, now, now);
+        }
+    }
+
+    /**
+     * Add the rows written to processed_event since the last sync to the filter; the first sync
+     * loads the whole window
+     */
+    public synchronized void sync() {
+        Instant started = Instant.now();
+        Instant since = syncedAt != null
+                ? syncedAt.minus(SYNC_OVERLAP)
+                : started.minus(window);
+        long now = started.toEpochMilli();
+        long[] loaded = {0};
+        repository.loadSince(since, (consumer, eventId, processedAt) -> {
+            filter.put(consumer, eventId, processedAt, now);
+            loaded[0]++;
+        });
+        if (syncedAt == null) {
+            log.info("Loaded {} processed event IDs into the deduplication filter in {} ms",
+                    loaded[0], System.currentTimeMillis() - now);
+        } else {
+            log.debug("Synced {} processed event IDs into the deduplication filter", loaded[0]);
+        }
+        syncedAt = started;
+    }
+
+    /**
+     * Delete processed event rows older than the window
+     */
+    @Scheduled(cron = "${bss.messaging.dedupe.cleanup-cron:0 */15 * * * *}")
+    public void deleteExpired() {
+        Instant cutoff = Instant.now().minus(window);
+        long deleted = 0;
+        int batch;
+        do {
+            batch = repository.deleteExpired(cutoff, cleanupBatchSize);
+            deleted += batch;
+        } while (batch == cleanupBatchSize);
+        expiredCounter.increment(deleted);
+        if (deleted > 0) {
+            log.info("Deleted {} processed event IDs older than {}", deleted, cutoff);
+        }
+    }
+
+    public RotatingBloomFilter getFilter() {
+        return filter;
+    }
+
+    private ConsumerMeters meters(String consumer) {
+        return consumerMeters.computeIfAbsent(consumer, name -> new ConsumerMeters(
+                Counter.builder("bss.messaging.dedupe.duplicates")
+                        .description("Redelivered events skipped by the consumer")
+                        .tag("consumer", name)
+                        .register(meterRegistry),
+                Counter.builder("bss.messaging.dedupe.false_positives")
+                        .description("New events the Bloom filter reported as maybe seen")
+                        .tag("consumer", name)
+                        .register(meterRegistry)));
+    }
+
+    private record ConsumerMeters(Counter duplicates, Counter falsePositives) {
+    }
+}
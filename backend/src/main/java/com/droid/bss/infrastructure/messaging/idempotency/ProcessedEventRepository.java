@@ -0,0 +1,123 @@
+package com.droid.bss.infrastructure.messaging.idempotency;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * JDBC access to processed_event, the store behind {@link EventDeduplicator}.
+ *
+ * Lookups and inserts take the IDs of a whole batch as one array parameter, so a batch costs one
+ * statement each.
+ */
+@Repository
+public class ProcessedEventRepository {
+
+    private static final String FIND_EXISTING =
+            "SELECT event_id FROM processed_event WHERE consumer = ? AND event_id = ANY(?)";
+
+    private static final String INSERT =
+            "INSERT INTO processed_event (consumer, event_id) " +
+            "SELECT ?, unnest(?::varchar[]) " +
+            "ON CONFLICT (consumer, event_id) DO NOTHING";
+
+    private static final String LOAD_SINCE =
+            "SELECT consumer, event_id, processed_at FROM processed_event WHERE processed_at >= ?";
+
+    private static final String DELETE_EXPIRED =
+            "DELETE FROM processed_event WHERE ctid = ANY(ARRAY(" +
+            "SELECT ctid FROM processed_event WHERE processed_at < ? LIMIT ?))";
+
+    /**
+     * Receives rows streamed by {@link #loadSince}
+     */
+    @FunctionalInterface
+    public interface ProcessedEventHandler {
+        void accept(String consumer, String eventId, long processedAtMillis);
+    }
+
+    private static final int LOAD_FETCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ProcessedEventRepository(JdbcTemplate jdbcTemplate, DataSource dataSource,
+                                    PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(LOAD_FETCH_SIZE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * IDs of the given events that a consumer has processed
+     */
+    public Set<String> findExisting(String consumer, Collection<String> eventIds) {
+        if (eventIds.isEmpty()) {
+            return Set.of();
+        }
+        String[] ids = eventIds.toArray(String[]::new);
+        return jdbcTemplate.execute((ConnectionCallback<Set<String>>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(FIND_EXISTING)) {
+                ps.setString(1, consumer);
+                ps.setArray(2, connection.createArrayOf("varchar", ids));
+                Set<String> existing = new HashSet<>();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        existing.add(rs.getString(1));
+                    }
+                }
+                return existing;
+            }
+        });
+    }
+
+    /**
+     * Record events as processed by a consumer with one statement
+     */
+    public int insert(String consumer, Collection<String> eventIds) {
+        if (eventIds.isEmpty()) {
+            return 0;
+        }
+        String[] ids = eventIds.toArray(String[]::new);
+        return jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT)) {
+                ps.setString(1, consumer);
+                ps.setArray(2, connection.createArrayOf("varchar", ids));
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * Stream the events processed since the given time; rows are fetched with a cursor in a
+     * read-only transaction, so the result is never held in memory as a whole
+     */
+    public void loadSince(Instant since, ProcessedEventHandler handler) {
+        RowCallbackHandler rowHandler = rs ->
+                handler.accept(rs.getString(1), rs.getString(2), rs.getTimestamp(3).getTime());
+        readOnlyTransaction.executeWithoutResult(status ->
+                streamingJdbcTemplate.query(LOAD_SINCE, rowHandler, Timestamp.from(since)));
+    }
+
+    /**
+     * Delete up to {@code limit} rows processed before the cutoff
+     */
+    public int deleteExpired(Instant cutoff, int limit) {
+        return jdbcTemplate.update(DELETE_EXPIRED, Timestamp.from(cutoff), limit);
+    }
+}
@@ -0,0 +1,236 @@
+package com.droid.bss.infrastructure.messaging.idempotency;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time-bucketed Bloom filter over (consumer, event ID) with a fixed memory budget.
+ *
+ * The filter is a ring of generations, each a bit array covering {@code generationMillis} of
+ * processing time, aligned to the epoch. IDs are added to the generation covering their processing
+ * time and looked up in all generations. When time moves past the newest generation, the oldest one
+ * is dropped and a new, empty one takes its place, so old IDs are evicted a whole generation at a
+ * time and the memory used never changes. With {@code generations} full generations plus the one
+ * being filled, every ID processed within {@code generations * generationMillis} is covered.
+ *
+ * Lookups never report a false negative for a covered ID; a positive only means "maybe seen" and is
+ * confirmed against the processed event store. Hashing works on the characters of the IDs and does
+ * not allocate. Thread-safe.
+ */
+public class RotatingBloomFilter {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final int MAX_HASH_FUNCTIONS = 16;
+
+    private final long generationMillis;
+    private final int bitsPerGeneration;
+    private final int hashFunctions;
+    private final LongAdder evictions = new LongAdder();
+
+    // Newest generation first
+    private volatile Generation[] ring;
+
+    /**
+     * @param generations            full generations kept besides the one being filled
+     * @param generationMillis       processing time covered by one generation
+     * @param memoryBudgetBytes      bytes for the bit arrays of all generations
+     * @param expectedPerGeneration  IDs expected per generation, used to pick the number of hashes
+     */
+    public RotatingBloomFilter(int generations, long generationMillis, long memoryBudgetBytes,
+                               long expectedPerGeneration, long nowMillis) {
+        if (generations < 1 || generationMillis <= 0 || expectedPerGeneration <= 0) {
+            throw new IllegalArgumentException("Generations, generation length and expected IDs must be positive");
+        }
+        long bitsBudget = memoryBudgetBytes * 8 / (generations + 1);
+        if (bitsBudget < Long.SIZE) {
+            throw new IllegalArgumentException("Memory budget too small for " + (generations + 1) + " generations");
+        }
+        // Power of two, so bit indexes are a mask of the hash
+        this.bitsPerGeneration = Integer.highestOneBit((int) Math.min(bitsBudget, 1 << 30));
+        this.generationMillis = generationMillis;
+        this.hashFunctions = (int) Math.max(1, Math.min(MAX_HASH_FUNCTIONS,
+                Math.round((double) bitsPerGeneration / expectedPerGeneration * Math.log(2))));
+
+        long newestStart = Math.floorDiv(nowMillis, generationMillis) * generationMillis;
+        Generation[] initial = new Generation[generations + 1];
+        for (int i = 0; i < initial.length; i++) {
+            initial[i] = new Generation(newestStart - i * generationMillis, bitsPerGeneration);
+        }
+        this.ring = initial;
+    }
+
+    /**
+     * Whether the ID may have been added; false means it was not added within the covered time
+     */
+    public boolean mightContain(String consumer, String eventId, long nowMillis) {
+        Generation[] generations = current(nowMillis);
+        long h1 = hash(consumer, eventId, FNV_OFFSET);
+        long h2 = hash(consumer, eventId, ~FNV_OFFSET) | 1;
+        for (Generation generation : generations) {
+            if (generation.mightContain(h1, h2, hashFunctions)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Add an ID processed at {@code processedAtMillis}; IDs older than the covered time are ignored
+     */
+    public void put(String consumer, String eventId, long processedAtMillis, long nowMillis) {
+        Generation[] generations = current(nowMillis);
+        for (Generation generation : generations) {
+            if (generation.start <= processedAtMillis) {
+                generation.put(hash(consumer, eventId, FNV_OFFSET), hash(consumer, eventId, ~FNV_OFFSET) | 1,
+                        hashFunctions);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Processing time covered by lookups
+     */
+    public long getCoveredMillis() {
+        return (ring.length - 1) * generationMillis;
+    }
+
+    /**
+     * Bytes used by the bit arrays
+     */
+    public long getMemoryBytes() {
+        return (long) ring.length * bitsPerGeneration / 8;
+    }
+
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+
+    /**
+     * IDs added to the generations currently kept
+     */
+    public long getApproximateSize() {
+        long size = 0;
+        for (Generation generation : ring) {
+            size += generation.insertions.sum();
+        }
+        return size;
+    }
+
+    /**
+     * IDs dropped with expired generations
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Probability that a lookup of an ID never added reports it as maybe seen, from the current fill
+     * of the generations
+     */
+    public double getEstimatedFalsePositiveRate() {
+        double allNegative = 1.0;
+        for (Generation generation : ring) {
+            double fill = (double) generation.setBits.sum() / bitsPerGeneration;
+            allNegative *= 1.0 - Math.pow(fill, hashFunctions);
+        }
+        return 1.0 - allNegative;
+    }
+
+    private Generation[] current(long nowMillis) {
+        Generation[] generations = ring;
+        if (nowMillis >= generations[0].start + generationMillis) {
+            generations = rotate(nowMillis);
+        }
+        return generations;
+    }
+
+    private synchronized Generation[] rotate(long nowMillis) {
+        Generation[] generations = ring;
+        long newestStart = Math.floorDiv(nowMillis, generationMillis) * generationMillis;
+        if (newestStart <= generations[0].start) {
+            return generations;
+        }
+        Generation[] rotated = new Generation[generations.length];
+        for (int i = 0; i < rotated.length; i++) {
+            long start = newestStart - i * generationMillis;
+            int kept = (int) ((generations[0].start - start) / generationMillis);
+            // Reuse generations still in range, shifted down the ring
+            rotated[i] = kept >= 0 && kept < generations.length && generations[kept].start == start
+                    ? generations[kept]
+                    : new Generation(start, bitsPerGeneration);
+        }
+        for (Generation generation : generations) {
+            if (generation.start < rotated[rotated.length - 1].start) {
+                evictions.add(generation.insertions.sum());
+            }
+        }
+        ring = rotated;
+        return rotated;
+    }
+
+    /**
+     * 64-bit FNV-1a over the consumer, a separator and the event ID, finished with the MurmurHash3
+     * mixer
+     */
+    private static long hash(String consumer, String eventId, long seed) {
+        long h = seed;
+        for (int i = 0; i < consumer.length(); i++) {
+            h = (h ^ consumer.charAt(i)) * FNV_PRIME;
+        }
+        h = (h ^ 0x1f) * FNV_PRIME;
+        for (int i = 0; i < eventId.length(); i++) {
+            h = (h ^ eventId.charAt(i)) * FNV_PRIME;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Generation {
+        private final long start;
+        private final AtomicLongArray words;
+        private final int mask;
+        private final LongAdder insertions = new LongAdder();
+        private final LongAdder setBits = new LongAdder();
+
+        Generation(long start, int bits) {
+            this.start = start;
+            this.words = new AtomicLongArray(bits / Long.SIZE);
+            this.mask = bits - 1;
+        }
+
+        boolean mightContain(long h1, long h2, int hashFunctions) {
+            for (int i = 0; i < hashFunctions; i++) {
+                int bit = (int) ((h1 + i * h2) & mask);
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void put(long h1, long h2, int hashFunctions) {
+            for (int i = 0; i < hashFunctions; i++) {
+                int bit = (int) ((h1 + i * h2) & mask);
+                int index = bit >>> 6;
+                long bitMask = 1L << bit;
+                long word;
+                do {
+                    word = words.get(index);
+                    if ((word & bitMask) != 0) {
+                        break;
+                    }
+                } while (!words.compareAndSet(index, word, word | bitMask));
+                if ((word & bitMask) == 0) {
+                    setBits.increment();
+                }
+            }
+            insertions.increment();
+        }
+    }
+}
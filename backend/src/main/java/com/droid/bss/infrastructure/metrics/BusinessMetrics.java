@@ -36,11 +36,20 @@ public class BusinessMetrics {
     // Billing metrics
     private final Counter usageRecordIngestedCounter;
     private final Counter usageRecordRatedCounter;
+    private final Counter usageRecordRejectedCounter;
     private final Counter billingCycleStartedCounter;
     private final Counter billingCycleProcessedCounter;
     private final Counter ratingRuleMatchedCounter;
     private final Timer usageRatingTimer;
     private final Timer billingCycleProcessingTimer;
+    private final Timer usageIngestionBatchTimer;
+    private final Timer onlineChargingTimer;
+    private final Timer balanceJournalFlushTimer;
+    private final Timer eventStoreAppendTimer;
+    private final Counter eventStoreAppendedCounter;
+    private final Timer outboxRelayBatchTimer;
+    private final Counter outboxPublishedCounter;
+    private final Counter outboxPublishFailedCounter;
 
     // Asset management metrics
     private final Counter assetCreatedCounter;
@@ -132,6 +141,33 @@ public class BusinessMetrics {
         this.usageRecordRatedCounter = Counter.builder("bss.billing.usage_records.rated.total")
                 .description("Total number of usage records rated")
                 .register(meterRegistry);
+        this.usageRecordRejectedCounter = Counter.builder("bss.billing.usage_records.rejected.total")
+                .description("Total number of usage records rejected during bulk ingestion")
+                .register(meterRegistry);
+        this.usageIngestionBatchTimer = Timer.builder("bss.billing.usage_records.ingestion_batch.duration")
+                .description("Time taken to validate and copy one bulk ingestion batch")
+                .register(meterRegistry);
+        this.onlineChargingTimer = Timer.builder("bss.billing.charging.request.duration")
+                .description("Time taken to answer an online charging request, including journaling")
+                .register(meterRegistry);
+        this.balanceJournalFlushTimer = Timer.builder("bss.billing.charging.journal_flush.duration")
+                .description("Time taken to write one group of prepaid balance journal entries")
+                .register(meterRegistry);
+        this.eventStoreAppendTimer = Timer.builder("bss.event_store.append.duration")
+                .description("Time taken to append one group of events to the event store")
+                .register(meterRegistry);
+        this.eventStoreAppendedCounter = Counter.builder("bss.event_store.events.appended.total")
+                .description("Total number of events written to the event store, including conflicting appends")
+                .register(meterRegistry);
+        this.outboxRelayBatchTimer = Timer.builder("bss.outbox.relay_batch.duration")
+                .description("Time taken to send and mark one claimed batch of outbox events")
+                .register(meterRegistry);
+        this.outboxPublishedCounter = Counter.builder("bss.outbox.events.published.total")
+                .description("Total number of outbox events published to Kafka")
+                .register(meterRegistry);
+        this.outboxPublishFailedCounter = Counter.builder("bss.outbox.events.failed.total")
+                .description("Total number of outbox event sends that failed and were scheduled for retry")
+                .register(meterRegistry);
         this.billingCycleStartedCounter = Counter.builder("bss.billing.cycles.started.total")
                 .description("Total number of billing cycles started")
                 .register(meterRegistry);
@@ -308,10 +344,61 @@ public class BusinessMetrics {
         usageRecordIngestedCounter.increment();
     }
 
+    public void incrementUsageRecordIngested(long count) {
+        usageRecordIngestedCounter.increment(count);
+    }
+
     public void incrementUsageRecordRated() {
         usageRecordRatedCounter.increment();
     }
 
+    public void incrementUsageRecordRejected(long count) {
+        usageRecordRejectedCounter.increment(count);
+    }
+
+    public Timer.Sample startUsageIngestionBatch() {
+        return Timer.start();
+    }
+
+    public void recordUsageIngestionBatch(Timer.Sample sample) {
+        sample.stop(usageIngestionBatchTimer);
+    }
+
+    public Timer.Sample startOnlineCharging() {
+        return Timer.start();
+    }
+
+    public void recordOnlineCharging(Timer.Sample sample) {
+        sample.stop(onlineChargingTimer);
+    }
+
+    public Timer.Sample startBalanceJournalFlush() {
+        return Timer.start();
+    }
+
+    public void recordBalanceJournalFlush(Timer.Sample sample) {
+        sample.stop(balanceJournalFlushTimer);
+    }
+
+    public Timer.Sample startEventStoreAppend() {
+        return Timer.start();
+    }
+
+    public void recordEventStoreAppend(Timer.Sample sample, int eventCount) {
+        sample.stop(eventStoreAppendTimer);
+        eventStoreAppendedCounter.increment(eventCount);
+    }
+
+    public Timer.Sample startOutboxRelayBatch() {
+        return Timer.start();
+    }
+
+    public void recordOutboxRelayBatch(Timer.Sample sample, int published, int failed) {
+        sample.stop(outboxRelayBatchTimer);
+        outboxPublishedCounter.increment(published);
+        outboxPublishFailedCounter.increment(failed);
+    }
+
     public void incrementBillingCycleStarted() {
         billingCycleStartedCounter.increment();
         pendingBillingCyclesGauge.incrementAndGet();
@@ -1,62 +1,104 @@
 package com.droid.bss.infrastructure.outbox;
 
 import com.droid.bss.domain.outbox.OutboxStatus;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 
 /**
  * Outbox Cleanup Job
  *
- * Periodically cleans up old published events to keep the database performant
+ * outbox_event is partitioned by UTC day of {@code created_at}. This job keeps partitions created
+ * {@code days-ahead} days in advance, moves events that fell into the default partition because
+ * their day had no partition, and drops partitions older than the retention as a whole,
+ * which takes the same time however many events they hold and leaves no dead tuples behind. Dead
+ * letters are moved to outbox_event_dead_letter_archive before their partition is dropped.
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class OutboxCleanupJob {
 
     private final OutboxRepository outboxRepository;
+    private final int daysAhead;
+    private final int retentionDays;
+    private final int deadLetterRetentionDays;
+
+    public OutboxCleanupJob(
+            OutboxRepository outboxRepository,
+            @Value("${bss.outbox.partitions.days-ahead:7}") int daysAhead,
+            @Value("${bss.outbox.partitions.retention-days:30}") int retentionDays,
+            @Value("${bss.outbox.partitions.dead-letter-retention-days:90}") int deadLetterRetentionDays) {
+        this.outboxRepository = outboxRepository;
+        this.daysAhead = daysAhead;
+        this.retentionDays = retentionDays;
+        this.deadLetterRetentionDays = deadLetterRetentionDays;
+    }
 
     /**
-     * Clean up old published events daily at 2 AM
-     * Keeps published events for 30 days
+     * Make sure the partitions for the next days exist and the default partition is empty, at
+     * startup and daily at 1 AM
      */
-    @Scheduled(cron = "0 0 2 * * ?")
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "0 0 1 * * ?")
     @Transactional
-    public void cleanupOldPublishedEvents() {
-        LocalDateTime cutoffDate = LocalDateTime.now().minusDays(30);
+    public void createUpcomingPartitions() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        try {
+            int split = outboxRepository.splitDefaultPartition();
+            if (split > 0) {
+                log.warn("Moved outbox events of {} days without a partition out of the default partition", split);
+            }
+
+            int created = outboxRepository.createPartitions(today, today.plusDays(daysAhead));
+            if (created > 0) {
+                log.info("Created {} outbox partitions up to {}", created, today.plusDays(daysAhead));
+            }
+        } catch (Exception e) {
+            log.error("Failed to create outbox partitions", e);
+        }
+    }
 
-        log.info("Starting cleanup of published events older than {}", cutoffDate);
+    /**
+     * Drop partitions older than the retention daily at 2 AM
+     */
+    @Scheduled(cron = "0 0 2 * * ?")
+    @Transactional
+    public void dropExpiredPartitions() {
+        log.info("Dropping outbox partitions older than {} days", retentionDays);
 
         try {
-            int deletedCount = outboxRepository.deletePublishedEventsOlderThan(cutoffDate);
+            int droppedCount = outboxRepository.dropPartitionsOlderThan(retentionDays);
 
-            if (deletedCount > 0) {
-                log.info("Cleaned up {} old published events", deletedCount);
+            if (droppedCount > 0) {
+                log.info("Dropped {} outbox partitions", droppedCount);
             } else {
-                log.debug("No old published events to clean up");
+                log.debug("No outbox partitions to drop");
             }
         } catch (Exception e) {
-            log.error("Failed to clean up old published events", e);
+            log.error("Failed to drop outbox partitions", e);
         }
     }
 
     /**
-     * Clean up dead letter events older than 90 days (weekly)
+     * Clean up archived dead letter events (weekly)
      */
     @Scheduled(cron = "0 0 3 ? * SUN")
     @Transactional
     public void cleanupOldDeadLetterEvents() {
-        LocalDateTime cutoffDate = LocalDateTime.now().minusDays(90);
+        LocalDateTime cutoffDate = LocalDateTime.now().minusDays(deadLetterRetentionDays);
 
-        log.info("Starting cleanup of dead letter events older than {}", cutoffDate);
+        log.info("Starting cleanup of archived dead letter events older than {}", cutoffDate);
 
         try {
-            int deletedCount = outboxRepository.deleteDeadLetterEventsOlderThan(cutoffDate);
+            int deletedCount = outboxRepository.deleteArchivedDeadLettersOlderThan(cutoffDate);
 
             if (deletedCount > 0) {
                 log.info("Cleaned up {} old dead letter events", deletedCount);
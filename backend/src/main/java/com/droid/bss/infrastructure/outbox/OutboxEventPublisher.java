@@ -3,26 +3,24 @@ package com.droid.bss.infrastructure.outbox;
 import com.droid.bss.domain.outbox.OutboxEvent;
 import com.droid.bss.domain.outbox.OutboxEventType;
 import com.droid.bss.domain.outbox.OutboxStatus;
+import com.droid.bss.infrastructure.serialization.PayloadCodecRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * Outbox Event Publisher
  *
  * Implements reliable event publishing using the Outbox Pattern
- * Periodically publishes pending events to Kafka
+ * Events are written to the outbox here and sent to Kafka by {@link OutboxRelay}. Event data is
+ * encoded once, with the configured payload codec, and relayed to Kafka as stored.
  */
 @Service
 @RequiredArgsConstructor
@@ -30,7 +28,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 public class OutboxEventPublisher {
 
     private final OutboxRepository outboxRepository;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final OutboxRelay outboxRelay;
+    private final PayloadCodecRegistry payloadCodecs;
+    private final ObjectMapper objectMapper;
     private final String defaultTopic = "bss.events";
 
     /**
@@ -76,9 +76,8 @@ public class OutboxEventPublisher {
             String topic) {
 
         try {
-            // Convert event data to JSON
-            String eventDataJson = serializeEventData(eventData);
-            String metadataJson = serializeEventData(createMetadata());
+            byte[] eventPayload = payloadCodecs.encode(eventData).getBytes();
+            String metadataJson = serializeMetadata(createMetadata());
 
             OutboxEvent outboxEvent = OutboxEvent.builder()
                     .eventId(UUID.randomUUID().toString())
@@ -86,7 +85,7 @@ public class OutboxEventPublisher {
                     .eventName(eventName)
                     .aggregateId(aggregateId)
                     .aggregateType(aggregateType)
-                    .eventData(eventDataJson)
+                    .eventPayload(eventPayload)
                     .metadata(metadataJson)
                     .version("1.0")
                     .source("BSS-System")
@@ -111,58 +110,12 @@ public class OutboxEventPublisher {
     }
 
     /**
-     * Scheduled task to publish pending events
-     * Runs every 5 seconds
+     * Relay pending events to Kafka now instead of waiting for the relay's next poll
+     *
+     * @return number of events relayed
      */
-    @Scheduled(fixedDelay = 5000)
-    @Transactional
-    public void publishPendingEvents() {
-        List<OutboxEvent> pendingEvents = outboxRepository
-                .findPendingEventsForProcessing(OutboxStatus.PENDING, LocalDateTime.now(), null);
-
-        if (pendingEvents.isEmpty()) {
-            return;
-        }
-
-        log.debug("Found {} pending events to publish", pendingEvents.size());
-
-        for (OutboxEvent event : pendingEvents) {
-            try {
-                publishEventToKafka(event);
-            } catch (Exception e) {
-                log.error("Failed to publish event: {}", event.getEventName(), e);
-                // Let the exception mark the event as failed
-            }
-        }
-    }
-
-    /**
-     * Publish a specific event to Kafka
-     */
-    @Transactional
-    public void publishEventToKafka(OutboxEvent event) {
-        try {
-            String topic = defaultTopic;
-            String key = event.getAggregateId() != null ? event.getAggregateId() : event.getEventId();
-
-            // Send to Kafka
-            CompletableFuture<SendResult<String, Object>> future = kafkaTemplate.send(topic, key, event);
-
-            // Handle result asynchronously
-            future.whenComplete((result, exception) -> {
-                if (exception == null) {
-                    markEventAsPublished(event);
-                    log.info("Event published successfully: {} (ID: {})", event.getEventName(), event.getId());
-                } else {
-                    markEventAsFailed(event, exception.getMessage());
-                    log.error("Failed to publish event: {} (ID: {})", event.getEventName(), event.getId(), exception);
-                }
-            });
-
-        } catch (Exception e) {
-            markEventAsFailed(event, e.getMessage());
-            throw e;
-        }
+    public int publishPendingEvents() {
+        return outboxRelay.relayPending();
     }
 
     /**
@@ -188,9 +141,6 @@ public class OutboxEventPublisher {
 
         outboxRepository.save(event);
         log.info("Event reset for retry: {}", eventId);
-
-        // Publish immediately
-        publishEventToKafka(event);
     }
 
     /**
@@ -223,13 +173,13 @@ public class OutboxEventPublisher {
     }
 
     /**
-     * Serialize event data to JSON
+     * Serialize metadata to JSON; it stays queryable as JSONB
      */
-    private String serializeEventData(Object data) {
+    private String serializeMetadata(Object metadata) {
         try {
-            return new ObjectMapper().writeValueAsString(data);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to serialize event data", e);
+            return objectMapper.writeValueAsString(metadata);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize event metadata", e);
         }
     }
 
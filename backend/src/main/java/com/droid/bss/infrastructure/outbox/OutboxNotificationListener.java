@@ -0,0 +1,188 @@
+package com.droid.bss.infrastructure.outbox;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wakes the outbox relay when events are written.
+ *
+ * An insert trigger on outbox_event sends {@code NOTIFY outbox_event}; this listener holds its own
+ * connection with {@code LISTEN outbox_event} and wakes the relay on every notification, so events
+ * are relayed right after their transaction commits. LISTEN needs a session of its own, which
+ * PgBouncer in transaction pooling mode does not give, so the listener connects directly to
+ * PostgreSQL: to {@code bss.outbox.notify.url}, or else to the datasource URL with its port
+ * replaced by {@code bss.outbox.notify.direct-port}.
+ *
+ * While the listener is disconnected the relay falls back to polling at its fast interval; the
+ * listener reconnects with a backoff, logs every failed attempt at WARN and reports itself
+ * through the outboxNotification health indicator.
+ */
+@Component
+@Slf4j
+public class OutboxNotificationListener {
+
+    static final String CHANNEL = "outbox_event";
+
+    private final OutboxRelay outboxRelay;
+    private final boolean enabled;
+    private final String url;
+    private final String username;
+    private final String password;
+
+    private volatile boolean running;
+    private volatile boolean listening;
+    private volatile String lastError;
+    private Thread listenerThread;
+    private volatile Connection connection;
+
+    public OutboxNotificationListener(
+            OutboxRelay outboxRelay,
+            @Value("${bss.outbox.notify.enabled:true}") boolean enabled,
+            @Value("${bss.outbox.notify.url:}") String url,
+            @Value("${bss.outbox.notify.direct-port:}") String directPort,
+            @Value("${spring.datasource.url}") String datasourceUrl,
+            @Value("${spring.datasource.username:}") String username,
+            @Value("${spring.datasource.password:}") String password) {
+        this.outboxRelay = outboxRelay;
+        this.enabled = enabled;
+        this.url = StringUtils.hasText(url) ? url : directUrl(datasourceUrl, directPort);
+        this.username = username;
+        this.password = password;
+    }
+
+    /**
+     * The datasource URL with the port of its (first) host replaced by the direct port, if one is set
+     */
+    static String directUrl(String datasourceUrl, String directPort) {
+        if (!StringUtils.hasText(directPort)) {
+            return datasourceUrl;
+        }
+        return datasourceUrl.replaceFirst("^(jdbc:postgresql://[^/:?,]+)(:\\d+)?", "$1:" + directPort.trim());
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            log.info("Outbox notifications disabled, the relay polls only");
+            return;
+        }
+        running = true;
+        listenerThread = Thread.ofPlatform().name("outbox-notify-listener").daemon().start(this::listenLoop);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (listenerThread != null) {
+            closeQuietly();
+            listenerThread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    private void listenLoop() {
+        long backoffMillis = 1000;
+        while (running) {
+            try {
+                listen();
+                backoffMillis = 1000;
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                lastError = e.getMessage();
+                log.warn("Outbox notification listener on {} disconnected: {}; retrying in {} ms",
+                        hostOf(url), e.getMessage(), backoffMillis);
+            } finally {
+                listening = false;
+                outboxRelay.setNotificationsActive(false);
+                closeQuietly();
+            }
+
+            try {
+                Thread.sleep(backoffMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            backoffMillis = Math.min(backoffMillis * 2, 30_000);
+        }
+    }
+
+    private void listen() throws SQLException {
+        connection = DriverManager.getConnection(url, username, password);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("LISTEN " + CHANNEL);
+        }
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        listening = true;
+        lastError = null;
+        outboxRelay.setNotificationsActive(true);
+        log.info("Listening for outbox notifications on channel {}", CHANNEL);
+
+        // Events written while the listener was away are picked up right away
+        outboxRelay.wakeUp();
+        while (running) {
+            PGNotification[] notifications = pgConnection.getNotifications(10_000);
+            if (notifications != null && notifications.length > 0) {
+                outboxRelay.wakeUp();
+            } else if (!connection.isValid(5)) {
+                throw new SQLException("Listener connection is no longer valid");
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether the listener currently holds its LISTEN connection
+     */
+    public boolean isListening() {
+        return listening;
+    }
+
+    /**
+     * Error of the last failed connection, or null while connected
+     */
+    public String getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Host and port of the listener URL, without its parameters
+     */
+    public String getTarget() {
+        return hostOf(url);
+    }
+
+    private static String hostOf(String jdbcUrl) {
+        String target = jdbcUrl.replaceFirst("^jdbc:postgresql://", "");
+        int end = target.indexOf('?');
+        return end >= 0 ? target.substring(0, end) : target;
+    }
+
+    private void closeQuietly() {
+        Connection current = connection;
+        connection = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (SQLException e) {
+                log.debug("Failed to close outbox listener connection: {}", e.getMessage());
+            }
+        }
+    }
+}
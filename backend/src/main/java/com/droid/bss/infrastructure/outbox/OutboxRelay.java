@@ -0,0 +1,267 @@
+package com.droid.bss.infrastructure.outbox;
+
+import com.droid.bss.domain.outbox.OutboxEvent;
+import com.droid.bss.infrastructure.metrics.BusinessMetrics;
+import com.droid.bss.infrastructure.serialization.EventPayload;
+import com.droid.bss.infrastructure.serialization.KafkaCloudEvents;
+import com.droid.bss.infrastructure.serialization.PayloadCodecRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Outbox relay.
+ *
+ * Drains the outbox in bounded batches: a batch is claimed with {@code FOR UPDATE SKIP LOCKED},
+ * all of its events are handed to the producer at once so they leave in a few Kafka batches, and
+ * once every send is acknowledged the batch is marked with one update per outcome and committed.
+ * A relay keeps claiming batches while they come back full, so a backlog is drained without
+ * waiting for the next poll.
+ *
+ * Relaying runs on a dedicated thread that is woken by {@link OutboxNotificationListener} when
+ * events are inserted; polling with an adaptive interval only covers missed notifications and
+ * retries whose backoff has passed.
+ *
+ * Events are sent as CloudEvents in Kafka binary mode: the record value is the event payload as
+ * stored in the outbox, without decoding it, and the event attributes travel in {@code ce_*}
+ * headers with the payload codec's {@code content-type}.
+ *
+ * Delivery is at least once: a relay that fails after sending but before committing leaves the
+ * rows to be sent again. Relays on different replicas claim disjoint batches, so events of one
+ * aggregate may be published out of order when several replicas relay at the same time.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxRelayRepository relayRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BusinessMetrics businessMetrics;
+    private final PayloadCodecRegistry payloadCodecs;
+    private final DefaultKafkaProducerFactory<String, byte[]> producerFactory;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final String topic;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long sendTimeoutMillis;
+    private final long pollIntervalMillis;
+    private final long idlePollIntervalMillis;
+    private final Semaphore wakeups = new Semaphore(0);
+
+    private volatile boolean running;
+    private volatile boolean notificationsActive;
+    private Thread relayThread;
+
+    public OutboxRelay(
+            OutboxRelayRepository relayRepository,
+            PlatformTransactionManager transactionManager,
+            BusinessMetrics businessMetrics,
+            PayloadCodecRegistry payloadCodecs,
+            KafkaProperties kafkaProperties,
+            @Value("${spring.kafka.template.default-topic:bss.events}") String topic,
+            @Value("${bss.outbox.relay.batch-size:500}") int batchSize,
+            @Value("${bss.outbox.relay.max-batches-per-run:200}") int maxBatchesPerRun,
+            @Value("${bss.outbox.relay.send-timeout-ms:10000}") long sendTimeoutMillis,
+            @Value("${bss.outbox.relay.poll-interval-ms:1000}") long pollIntervalMillis,
+            @Value("${bss.outbox.relay.idle-poll-interval-ms:30000}") long idlePollIntervalMillis,
+            @Value("${bss.outbox.relay.linger-ms:5}") int lingerMillis,
+            @Value("${bss.outbox.relay.producer-batch-bytes:262144}") int producerBatchBytes) {
+        this.relayRepository = relayRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.businessMetrics = businessMetrics;
+        this.payloadCodecs = payloadCodecs;
+        this.topic = topic;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.sendTimeoutMillis = sendTimeoutMillis;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.idlePollIntervalMillis = idlePollIntervalMillis;
+
+        // A producer of its own, tuned for throughput rather than the single-event sends elsewhere
+        Map<String, Object> producerProperties = new HashMap<>(kafkaProperties.buildProducerProperties(null));
+        producerProperties.put(ProducerConfig.LINGER_MS_CONFIG, lingerMillis);
+        producerProperties.put(ProducerConfig.BATCH_SIZE_CONFIG, producerBatchBytes);
+        producerProperties.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        // Idempotence keeps per-partition order with up to 5 requests in flight
+        producerProperties.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        this.producerFactory = new DefaultKafkaProducerFactory<>(producerProperties,
+                new StringSerializer(), new ByteArraySerializer());
+        this.kafkaTemplate = new KafkaTemplate<>(producerFactory);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        relayThread = Thread.ofPlatform().name("outbox-relay").daemon().start(this::relayLoop);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        wakeUp();
+        relayThread.join(TimeUnit.SECONDS.toMillis(10));
+        producerFactory.destroy();
+    }
+
+    /**
+     * Relay as soon as possible; wakeups that arrive while a run is in progress are coalesced into
+     * one more run
+     */
+    public void wakeUp() {
+        if (wakeups.availablePermits() == 0) {
+            wakeups.release();
+        }
+    }
+
+    /**
+     * Whether outbox notifications are being received; while they are not, the relay polls at
+     * {@code poll-interval-ms} instead of backing off
+     */
+    public void setNotificationsActive(boolean active) {
+        this.notificationsActive = active;
+    }
+
+    /**
+     * Runs on every wakeup, and otherwise polls: at {@code poll-interval-ms} after finding events or
+     * while notifications are down, backing off to {@code idle-poll-interval-ms} while idle
+     */
+    private void relayLoop() {
+        long wait = pollIntervalMillis;
+        while (running) {
+            try {
+                boolean woken = wakeups.tryAcquire(wait, TimeUnit.MILLISECONDS);
+                wakeups.drainPermits();
+                if (!running) {
+                    return;
+                }
+                int relayed = relayPending();
+                wait = relayed > 0 || woken || !notificationsActive
+                        ? pollIntervalMillis
+                        : Math.min(wait * 2, idlePollIntervalMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Outbox relay failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Relay batches until the outbox has no due events left or the per-run limit is reached
+     *
+     * @return number of events relayed
+     */
+    public int relayPending() {
+        int relayed = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            int claimed;
+            try {
+                claimed = relayBatch();
+            } catch (RuntimeException e) {
+                log.error("Outbox relay batch failed: {}", e.getMessage(), e);
+                break;
+            }
+            relayed += claimed;
+            if (claimed < batchSize) {
+                break;
+            }
+        }
+        return relayed;
+    }
+
+    /**
+     * Claim, send and mark one batch in one transaction
+     *
+     * @return number of events claimed
+     */
+    public int relayBatch() {
+        Integer claimed = transactionTemplate.execute(status -> {
+            List<OutboxEvent> events = relayRepository.claimBatch(batchSize);
+            if (events.isEmpty()) {
+                return 0;
+            }
+
+            Timer.Sample sample = businessMetrics.startOutboxRelayBatch();
+            List<CompletableFuture<SendResult<String, byte[]>>> sends = new ArrayList<>(events.size());
+            for (OutboxEvent event : events) {
+                sends.add(kafkaTemplate.send(toRecord(event)));
+            }
+            // Do not leave the tail of the batch waiting for linger
+            kafkaTemplate.flush();
+
+            List<OutboxEvent> published = new ArrayList<>(events.size());
+            // Claimed instances are unique; identity avoids hashing whole payloads
+            Map<OutboxEvent, String> failed = new IdentityHashMap<>();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+            for (int i = 0; i < events.size(); i++) {
+                OutboxEvent event = events.get(i);
+                try {
+                    sends.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    published.add(event);
+                } catch (ExecutionException e) {
+                    failed.put(event, String.valueOf(e.getCause().getMessage()));
+                } catch (TimeoutException e) {
+                    failed.put(event, "Send not acknowledged within " + sendTimeoutMillis + " ms");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failed.put(event, "Relay interrupted");
+                }
+            }
+
+            relayRepository.markPublished(published);
+            relayRepository.markFailed(failed);
+            businessMetrics.recordOutboxRelayBatch(sample, published.size(), failed.size());
+            if (!failed.isEmpty()) {
+                log.warn("Outbox relay: {} of {} events failed to publish", failed.size(), events.size());
+            }
+            return events.size();
+        });
+        return claimed != null ? claimed : 0;
+    }
+
+    /**
+     * CloudEvents binary-mode record of an outbox event
+     */
+    private ProducerRecord<String, byte[]> toRecord(OutboxEvent event) {
+        String key = event.getAggregateId() != null ? event.getAggregateId() : event.getEventId();
+        EventPayload payload = payloadCodecs.fromColumns(event.getEventPayload(), event.getEventData());
+        ProducerRecord<String, byte[]> record = KafkaCloudEvents.toRecord(topic, key, payload,
+                event.getEventId(), event.getEventName(), event.getSource(), event.getAggregateId(),
+                event.getTimestamp() != null
+                        ? event.getTimestamp().atZone(ZoneId.systemDefault()).toOffsetDateTime() : null);
+
+        Headers headers = record.headers();
+        KafkaCloudEvents.header(headers, "ce_aggregatetype", event.getAggregateType());
+        KafkaCloudEvents.header(headers, "ce_correlationid", event.getCorrelationId());
+        KafkaCloudEvents.header(headers, "ce_causationid", event.getCausationId());
+        KafkaCloudEvents.header(headers, "ce_traceid", event.getTraceId());
+        return record;
+    }
+}
@@ -0,0 +1,152 @@
+package com.droid.bss.infrastructure.outbox;
+
+import com.droid.bss.domain.outbox.OutboxEvent;
+import com.droid.bss.domain.outbox.OutboxEventType;
+import com.droid.bss.domain.outbox.OutboxStatus;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * JDBC access used by the outbox relay.
+ *
+ * Batches are claimed with {@code FOR UPDATE SKIP LOCKED}: the rows stay locked by the claiming
+ * transaction until the batch has been sent and marked, and other relays skip them instead of
+ * waiting, so any number of replicas can relay in parallel. If a relay dies, its locks are released
+ * with its connection and the rows are claimed again.
+ *
+ * outbox_event is partitioned by day of {@code created_at}; claimed events carry their
+ * {@code created_at} and are marked by {@code (id, created_at)}, so each update touches only the
+ * partition holding the event.
+ */
+@Repository
+public class OutboxRelayRepository {
+
+    private static final String CLAIM_BATCH =
+            "SELECT id, created_at, event_id, event_type, event_name, aggregate_id, aggregate_type, event_data::text AS event_data, " +
+            "event_payload, " +
+            "metadata::text AS metadata, version_field, source, correlation_id, causation_id, user_id, \"timestamp\", " +
+            "status, retry_count, max_retries, trace_id " +
+            "FROM outbox_event " +
+            "WHERE status IN ('PENDING', 'RETRY') AND (next_retry_at IS NULL OR next_retry_at <= NOW()) " +
+            "AND deleted_at IS NULL " +
+            "ORDER BY created_at " +
+            "LIMIT ? " +
+            "FOR UPDATE SKIP LOCKED";
+
+    private static final String MARK_PUBLISHED =
+            "UPDATE outbox_event e SET status = 'PUBLISHED', published_at = NOW(), updated_at = NOW(), " +
+            "error_message = NULL, next_retry_at = NULL " +
+            "FROM unnest(?::uuid[], ?::timestamptz[]) AS p(id, created_at) " +
+            "WHERE e.id = p.id AND e.created_at = p.created_at";
+
+    // Same backoff as OutboxEvent.markAsFailed: 2^retry_count seconds, at most an hour
+    private static final String MARK_FAILED =
+            "UPDATE outbox_event e SET retry_count = e.retry_count + 1, " +
+            "status = CASE WHEN e.retry_count + 1 >= e.max_retries THEN 'DEAD_LETTER' ELSE 'RETRY' END, " +
+            "next_retry_at = CASE WHEN e.retry_count + 1 >= e.max_retries THEN NULL " +
+            "ELSE NOW() + make_interval(secs => LEAST(power(2, e.retry_count + 1), 3600)) END, " +
+            "error_message = f.error_message, updated_at = NOW() " +
+            "FROM unnest(?::uuid[], ?::timestamptz[], ?::text[]) AS f(id, created_at, error_message) " +
+            "WHERE e.id = f.id AND e.created_at = f.created_at";
+
+    private static final RowMapper<OutboxEvent> ROW_MAPPER = (rs, rowNum) -> {
+        Timestamp timestamp = rs.getTimestamp("timestamp");
+        OutboxEvent event = OutboxEvent.builder()
+                .id(rs.getObject("id", UUID.class))
+                .eventId(rs.getString("event_id"))
+                .eventType(OutboxEventType.valueOf(rs.getString("event_type")))
+                .eventName(rs.getString("event_name"))
+                .aggregateId(rs.getString("aggregate_id"))
+                .aggregateType(rs.getString("aggregate_type"))
+                .eventData(rs.getString("event_data"))
+                .eventPayload(rs.getBytes("event_payload"))
+                .metadata(rs.getString("metadata"))
+                .version(rs.getString("version_field"))
+                .source(rs.getString("source"))
+                .correlationId(rs.getString("correlation_id"))
+                .causationId(rs.getString("causation_id"))
+                .userId(rs.getString("user_id"))
+                .timestamp(timestamp != null ? timestamp.toLocalDateTime() : null)
+                .status(OutboxStatus.valueOf(rs.getString("status")))
+                .retryCount(rs.getInt("retry_count"))
+                .maxRetries(rs.getInt("max_retries"))
+                .traceId(rs.getString("trace_id"))
+                .build();
+        event.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        return event;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OutboxRelayRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Lock up to {@code limit} due events, oldest first; must run in a transaction
+     */
+    public List<OutboxEvent> claimBatch(int limit) {
+        return jdbcTemplate.query(CLAIM_BATCH, ROW_MAPPER, limit);
+    }
+
+    /**
+     * Mark claimed events published with one statement
+     */
+    public int markPublished(Collection<OutboxEvent> events) {
+        if (events.isEmpty()) {
+            return 0;
+        }
+        UUID[] ids = new UUID[events.size()];
+        Timestamp[] createdAt = new Timestamp[events.size()];
+        int i = 0;
+        for (OutboxEvent event : events) {
+            ids[i] = event.getId();
+            createdAt[i++] = Timestamp.valueOf(event.getCreatedAt());
+        }
+        return jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(MARK_PUBLISHED)) {
+                ps.setArray(1, connection.createArrayOf("uuid", ids));
+                ps.setArray(2, connection.createArrayOf("timestamptz", createdAt));
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * Schedule failed events for retry, or move them to the dead letter state once they are out of
+     * retries, with one statement
+     *
+     * @param errors error message by claimed event
+     */
+    public int markFailed(Map<OutboxEvent, String> errors) {
+        if (errors.isEmpty()) {
+            return 0;
+        }
+        UUID[] ids = new UUID[errors.size()];
+        Timestamp[] createdAt = new Timestamp[errors.size()];
+        String[] messages = new String[errors.size()];
+        int i = 0;
+        for (Map.Entry<OutboxEvent, String> error : errors.entrySet()) {
+            ids[i] = error.getKey().getId();
+            createdAt[i] = Timestamp.valueOf(error.getKey().getCreatedAt());
+            messages[i++] = error.getValue();
+        }
+        return jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(MARK_FAILED)) {
+                ps.setArray(1, connection.createArrayOf("uuid", ids));
+                ps.setArray(2, connection.createArrayOf("timestamptz", createdAt));
+                ps.setArray(3, connection.createArrayOf("text", messages));
+                return ps.executeUpdate();
+            }
+        });
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -130,4 +131,49 @@ public interface OutboxRepository extends JpaRepository<OutboxEvent, UUID> {
     @Modifying
     @Query("DELETE FROM OutboxEvent e WHERE e.status = 'DEAD_LETTER' AND e.updatedAt < :cutoffDate")
     int deleteDeadLetterEventsOlderThan(@Param("cutoffDate") LocalDateTime cutoffDate);
+
+    /**
+     * Create the missing daily partitions for [fromDay, toDay]
+     *
+     * @return number of partitions created
+     */
+    @Query(value = "SELECT create_outbox_partitions(CAST(:fromDay AS date), CAST(:toDay AS date))", nativeQuery = true)
+    int createPartitions(@Param("fromDay") LocalDate fromDay, @Param("toDay") LocalDate toDay);
+
+    /**
+     * Move events out of the default partition into newly created partitions of their days
+     *
+     * @return number of partitions created
+     */
+    @Query(value = "SELECT split_outbox_default_partition()", nativeQuery = true)
+    int splitDefaultPartition();
+
+    /**
+     * Number of days in [fromDay, toDay] without a daily partition
+     */
+    @Query(value = "SELECT COUNT(*) FROM generate_series(CAST(:fromDay AS date), CAST(:toDay AS date), INTERVAL '1 day') d " +
+            "WHERE to_regclass('outbox_event_p' || to_char(d, 'YYYYMMDD')) IS NULL", nativeQuery = true)
+    long countMissingPartitions(@Param("fromDay") LocalDate fromDay, @Param("toDay") LocalDate toDay);
+
+    /**
+     * Number of events in the default partition, i.e. written on days without a partition
+     */
+    @Query(value = "SELECT COUNT(*) FROM outbox_event_default", nativeQuery = true)
+    long countDefaultPartitionEvents();
+
+    /**
+     * Drop daily partitions older than the retention, archiving their dead letters; partitions
+     * with events still to be relayed are kept
+     *
+     * @return number of partitions dropped
+     */
+    @Query(value = "SELECT drop_outbox_partitions(:retentionDays)", nativeQuery = true)
+    int dropPartitionsOlderThan(@Param("retentionDays") int retentionDays);
+
+    /**
+     * Delete archived dead letter events last updated before the cutoff
+     */
+    @Modifying
+    @Query(value = "DELETE FROM outbox_event_dead_letter_archive WHERE updated_at < :cutoffDate", nativeQuery = true)
+    int deleteArchivedDeadLettersOlderThan(@Param("cutoffDate") LocalDateTime cutoffDate);
 }
@@ -0,0 +1,162 @@
+package com.droid.bss.infrastructure.read;
+
+import com.droid.bss.domain.invoice.InvoiceStatus;
+import com.droid.bss.domain.payment.PaymentStatus;
+import com.droid.bss.domain.subscription.SubscriptionStatus;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Per-customer aggregates for the computed fields of the GraphQL Customer type.
+ *
+ * Each aggregate is computed for a whole page of customers with one grouped {@code = ANY(?)}
+ * query, so the database does the reduction and no payment, invoice or subscription rows are
+ * loaded. Results are cached for a short time per customer, and a query only covers the misses.
+ */
+@Repository
+public class CustomerAggregateRepository {
+
+    private static final String TOTAL_REVENUE =
+            "SELECT customer_id, SUM(amount) FROM payments " +
+            "WHERE customer_id = ANY(?) AND payment_status = ? AND deleted_at IS NULL GROUP BY customer_id";
+
+    private static final String LAST_PAYMENT_DATE =
+            "SELECT customer_id, MAX(COALESCE(received_date, payment_date)) FROM payments " +
+            "WHERE customer_id = ANY(?) AND payment_status = ? AND deleted_at IS NULL GROUP BY customer_id";
+
+    private static final String ACTIVE_SUBSCRIPTIONS =
+            "SELECT customer_id, COUNT(*) FROM subscriptions " +
+            "WHERE customer_id = ANY(?) AND status = ? AND deleted_at IS NULL GROUP BY customer_id";
+
+    private static final String OVERDUE_INVOICES =
+            "SELECT customer_id, COUNT(*) FROM invoices " +
+            "WHERE customer_id = ANY(?) AND status = ? AND deleted_at IS NULL GROUP BY customer_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<UUID, BigDecimal> totalRevenue;
+    private final Cache<UUID, Optional<LocalDateTime>> lastPaymentDate;
+    private final Cache<UUID, Integer> activeSubscriptions;
+    private final Cache<UUID, Integer> overdueInvoices;
+
+    public CustomerAggregateRepository(
+            JdbcTemplate jdbcTemplate,
+            @Value("${bss.graphql.customer-aggregates.cache-size:50000}") long maximumSize,
+            @Value("${bss.graphql.customer-aggregates.cache-ttl-seconds:30}") long ttlSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        this.totalRevenue = newCache(maximumSize, ttl);
+        this.lastPaymentDate = newCache(maximumSize, ttl);
+        this.activeSubscriptions = newCache(maximumSize, ttl);
+        this.overdueInvoices = newCache(maximumSize, ttl);
+    }
+
+    private static <V> Cache<UUID, V> newCache(long maximumSize, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Sum of completed payments per customer
+     */
+    public Map<UUID, BigDecimal> totalRevenue(Collection<UUID> customerIds) {
+        return totalRevenue.getAll(customerIds, missing -> {
+            Map<UUID, BigDecimal> loaded = withDefault(missing, BigDecimal.ZERO);
+            query(TOTAL_REVENUE, missing, PaymentStatus.COMPLETED.ordinal(),
+                    rs -> loaded.put(rs.getObject(1, UUID.class), rs.getBigDecimal(2)));
+            return loaded;
+        });
+    }
+
+    /**
+     * Date of the latest completed payment per customer, empty if the customer never paid
+     */
+    public Map<UUID, Optional<LocalDateTime>> lastPaymentDate(Collection<UUID> customerIds) {
+        return lastPaymentDate.getAll(customerIds, missing -> {
+            Map<UUID, Optional<LocalDateTime>> loaded = withDefault(missing, Optional.empty());
+            query(LAST_PAYMENT_DATE, missing, PaymentStatus.COMPLETED.ordinal(), rs -> {
+                Date date = rs.getDate(2);
+                loaded.put(rs.getObject(1, UUID.class), Optional.ofNullable(date).map(d -> d.toLocalDate().atStartOfDay()));
+            });
+            return loaded;
+        });
+    }
+
+    /**
+     * Number of active subscriptions per customer
+     */
+    public Map<UUID, Integer> activeSubscriptionsCount(Collection<UUID> customerIds) {
+        return activeSubscriptions.getAll(customerIds, missing -> count(
+                ACTIVE_SUBSCRIPTIONS, missing, SubscriptionStatus.ACTIVE.ordinal()));
+    }
+
+    /**
+     * Number of overdue invoices per customer
+     */
+    public Map<UUID, Integer> overdueInvoicesCount(Collection<UUID> customerIds) {
+        return overdueInvoices.getAll(customerIds, missing -> count(
+                OVERDUE_INVOICES, missing, InvoiceStatus.OVERDUE.ordinal()));
+    }
+
+    /**
+     * Drop the cached aggregates of a customer, e.g. after a payment was recorded
+     */
+    public void invalidate(UUID customerId) {
+        totalRevenue.invalidate(customerId);
+        lastPaymentDate.invalidate(customerId);
+        activeSubscriptions.invalidate(customerId);
+        overdueInvoices.invalidate(customerId);
+    }
+
+    public void invalidateAll() {
+        totalRevenue.invalidateAll();
+        lastPaymentDate.invalidateAll();
+        activeSubscriptions.invalidateAll();
+        overdueInvoices.invalidateAll();
+    }
+
+    private Map<UUID, Integer> count(String sql, Set<? extends UUID> customerIds, int status) {
+        Map<UUID, Integer> loaded = withDefault(customerIds, 0);
+        query(sql, customerIds, status, rs -> loaded.put(rs.getObject(1, UUID.class), rs.getInt(2)));
+        return loaded;
+    }
+
+    private void query(String sql, Set<? extends UUID> customerIds, int status, RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(sql);
+            Array ids = connection.createArrayOf("uuid", customerIds.toArray());
+            statement.setArray(1, ids);
+            statement.setInt(2, status);
+            return statement;
+        }, handler);
+    }
+
+    /**
+     * Customers without matching rows are absent from a grouped result, so every requested id
+     * starts with the empty value and is cached as such
+     */
+    private static <V> Map<UUID, V> withDefault(Set<? extends UUID> customerIds, V empty) {
+        Map<UUID, V> values = new HashMap<>(customerIds.size() * 2);
+        for (UUID id : customerIds) {
+            values.put(id, empty);
+        }
+        return values;
+    }
+}
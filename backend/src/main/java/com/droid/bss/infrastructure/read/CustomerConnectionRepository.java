@@ -0,0 +1,225 @@
+package com.droid.bss.infrastructure.read;
+
+import com.droid.bss.domain.customer.CustomerEntity;
+import com.droid.bss.domain.customer.CustomerStatus;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * JDBC read access to customers for the GraphQL customer connections.
+ *
+ * Pages are read by keyset on (created_at, id), newest first, so every page costs the same however
+ * deep the client pages, and status and search are filtered in the database. Search uses the
+ * search_vector full-text index (V1040) with prefix matching; PESEL and NIP also match exactly
+ * through their unique indexes. Total counts are planner estimates, never a COUNT(*).
+ */
+@Repository
+public class CustomerConnectionRepository {
+
+    private static final String SELECT_COLUMNS =
+            "SELECT c.id, c.first_name, c.last_name, c.pesel, c.nip, c.email, c.phone, c.status, " +
+            "c.created_at, c.updated_at, c.deleted_at, c.version FROM customers c WHERE true ";
+
+    private static final String STATUS_FILTER = "AND c.status = ? ";
+
+    private static final String SEARCH_FILTER =
+            "AND (c.search_vector @@ to_tsquery('english', ?) OR c.pesel = ? OR c.nip = ?) ";
+
+    private static final String AFTER = "AND (c.created_at, c.id) < (?, ?) ";
+    private static final String BEFORE = "AND (c.created_at, c.id) > (?, ?) ";
+    private static final String NEWEST_FIRST = "ORDER BY c.created_at DESC, c.id DESC LIMIT ?";
+    private static final String OLDEST_FIRST = "ORDER BY c.created_at, c.id LIMIT ?";
+
+    private static final String SEARCH_BY_RANK =
+            SELECT_COLUMNS + SEARCH_FILTER +
+            "ORDER BY ts_rank(c.search_vector, to_tsquery('english', ?)) DESC, c.created_at DESC, c.id DESC LIMIT ?";
+
+    private static final String TABLE_ROW_ESTIMATE =
+            "SELECT reltuples::bigint FROM pg_class WHERE oid = 'customers'::regclass";
+
+    private static final String EXPLAIN = "EXPLAIN (FORMAT JSON) ";
+
+    private static final RowMapper<CustomerRow> ROW_MAPPER = (rs, rowNum) -> {
+        OffsetDateTime createdAt = rs.getObject("created_at", OffsetDateTime.class);
+        CustomerEntity customer = new CustomerEntity(
+                rs.getObject("id", UUID.class),
+                rs.getString("first_name"),
+                rs.getString("last_name"),
+                rs.getString("pesel"),
+                rs.getString("nip"),
+                rs.getString("email"),
+                rs.getString("phone"),
+                CustomerStatus.values()[rs.getInt("status")]);
+        customer.setCreatedAt(toLocal(createdAt));
+        customer.setUpdatedAt(toLocal(rs.getObject("updated_at", OffsetDateTime.class)));
+        customer.setDeletedAt(toLocal(rs.getObject("deleted_at", OffsetDateTime.class)));
+        customer.setVersion(rs.getLong("version"));
+        return new CustomerRow(customer, new Keyset(createdAt, customer.getId()));
+    };
+
+    /**
+     * Position of a customer in the (created_at, id) order
+     */
+    public record Keyset(OffsetDateTime createdAt, UUID id) {
+    }
+
+    public record CustomerRow(CustomerEntity customer, Keyset keyset) {
+    }
+
+    /**
+     * Database-side customer filter; null fields do not filter
+     */
+    public record CustomerFilter(CustomerStatus status, String search) {
+
+        public boolean isEmpty() {
+            return status == null && toPrefixTsQuery(search) == null;
+        }
+    }
+
+    /**
+     * Estimated number of matching customers, and whether the estimate came from the planner
+     */
+    public record CountEstimate(long count, boolean estimated) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public CustomerConnectionRepository(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Read up to {@code limit} customers after a position, newest first.
+     *
+     * @param after exclusive position to continue from, or null to start with the newest customer
+     */
+    public List<CustomerRow> findAfter(CustomerFilter filter, Keyset after, int limit) {
+        List<Object> args = new ArrayList<>(8);
+        StringBuilder sql = filtered(filter, args);
+        if (after != null) {
+            sql.append(AFTER);
+            args.add(after.createdAt());
+            args.add(after.id());
+        }
+        sql.append(NEWEST_FIRST);
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), ROW_MAPPER, args.toArray());
+    }
+
+    /**
+     * Read up to {@code limit} customers right before a position, returned newest first.
+     *
+     * @param before exclusive position to go back from, or null to end with the oldest customer
+     */
+    public List<CustomerRow> findBefore(CustomerFilter filter, Keyset before, int limit) {
+        List<Object> args = new ArrayList<>(8);
+        StringBuilder sql = filtered(filter, args);
+        if (before != null) {
+            sql.append(BEFORE);
+            args.add(before.createdAt());
+            args.add(before.id());
+        }
+        sql.append(OLDEST_FIRST);
+        args.add(limit);
+        List<CustomerRow> rows = new ArrayList<>(jdbcTemplate.query(sql.toString(), ROW_MAPPER, args.toArray()));
+        Collections.reverse(rows);
+        return rows;
+    }
+
+    /**
+     * Best full-text matches for a search box, by rank
+     */
+    public List<CustomerEntity> search(String query, int limit) {
+        String tsQuery = toPrefixTsQuery(query);
+        if (tsQuery == null) {
+            return List.of();
+        }
+        String exact = query.trim();
+        return jdbcTemplate.query(SEARCH_BY_RANK, ROW_MAPPER, tsQuery, exact, exact, tsQuery, limit).stream()
+                .map(CustomerRow::customer)
+                .toList();
+    }
+
+    /**
+     * Estimate the number of customers matching a filter without counting them: the table's row
+     * estimate from pg_class when unfiltered, otherwise the planner's row estimate for the filter
+     */
+    public CountEstimate estimateCount(CustomerFilter filter) {
+        if (filter.isEmpty()) {
+            Long rows = jdbcTemplate.queryForObject(TABLE_ROW_ESTIMATE, Long.class);
+            // -1 until the table has been analyzed
+            if (rows != null && rows >= 0) {
+                return new CountEstimate(rows, true);
+            }
+        }
+        List<Object> args = new ArrayList<>(4);
+        StringBuilder sql = filtered(filter, args);
+        String plan = jdbcTemplate.queryForObject(EXPLAIN + sql, String.class, args.toArray());
+        return new CountEstimate(planRows(plan), true);
+    }
+
+    private long planRows(String plan) {
+        try {
+            JsonNode rows = objectMapper.readTree(plan).path(0).path("Plan").path("Plan Rows");
+            return rows.asLong(0);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unreadable query plan for customer count estimate", e);
+        }
+    }
+
+    private static StringBuilder filtered(CustomerFilter filter, List<Object> args) {
+        StringBuilder sql = new StringBuilder(SELECT_COLUMNS);
+        if (filter.status() != null) {
+            sql.append(STATUS_FILTER);
+            args.add(filter.status().ordinal());
+        }
+        String tsQuery = toPrefixTsQuery(filter.search());
+        if (tsQuery != null) {
+            String exact = filter.search().trim();
+            sql.append(SEARCH_FILTER);
+            args.add(tsQuery);
+            args.add(exact);
+            args.add(exact);
+        }
+        return sql;
+    }
+
+    /**
+     * Turn free text into a tsquery that matches every word as a prefix, e.g.
+     * {@code jan kowal} becomes {@code 'jan':* & 'kowal':*}; null if there are no words
+     */
+    static String toPrefixTsQuery(String search) {
+        if (search == null) {
+            return null;
+        }
+        StringBuilder query = new StringBuilder();
+        for (String word : search.trim().split("\\s+")) {
+            String term = word.replaceAll("[^\\p{L}\\p{N}@._-]", "");
+            if (term.isEmpty()) {
+                continue;
+            }
+            if (!query.isEmpty()) {
+                query.append(" & ");
+            }
+            query.append('\'').append(term.toLowerCase()).append("':*");
+        }
+        return query.isEmpty() ? null : query.toString();
+    }
+
+    private static LocalDateTime toLocal(OffsetDateTime value) {
+        return value != null ? value.withOffsetSameInstant(ZoneOffset.UTC).toLocalDateTime() : null;
+    }
+}
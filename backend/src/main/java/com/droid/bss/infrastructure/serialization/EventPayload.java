@@ -0,0 +1,144 @@
+package com.droid.bss.infrastructure.serialization;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * An encoded event payload as stored in {@code bytea} columns: one byte with the id of the
+ * {@link PayloadCodec}, followed by the encoded data.
+ *
+ * The stored bytes are passed around as they are; a payload is only decoded by readers that need
+ * its content. {@link #toJson()} is kept for readers working on JSON strings and is computed once.
+ */
+public final class EventPayload {
+
+    private static final int INITIAL_BUFFER = 256;
+
+    private final PayloadCodec codec;
+    private final byte[] bytes;
+    private volatile String json;
+
+    private EventPayload(PayloadCodec codec, byte[] bytes, String json) {
+        this.codec = codec;
+        this.bytes = bytes;
+        this.json = json;
+    }
+
+    /**
+     * Encode a value
+     */
+    public static EventPayload encode(PayloadCodec codec, Object value) {
+        ByteArrayOutputStream out = frame(codec);
+        try {
+            codec.encode(value, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode event payload with " + codec.name(), e);
+        }
+        return new EventPayload(codec, out.toByteArray(), null);
+    }
+
+    /**
+     * Re-encode a JSON document
+     */
+    public static EventPayload fromJson(PayloadCodec codec, byte[] json) {
+        ByteArrayOutputStream out = frame(codec);
+        try {
+            codec.encodeJson(json, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode event payload with " + codec.name(), e);
+        }
+        return new EventPayload(codec, out.toByteArray(), null);
+    }
+
+    /**
+     * Payload of a row written before payloads were stored in binary, kept as JSON
+     */
+    public static EventPayload ofJson(String json) {
+        byte[] data = json.getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = new byte[data.length + 1];
+        bytes[0] = JacksonPayloadCodec.JSON.id();
+        System.arraycopy(data, 0, bytes, 1, data.length);
+        return new EventPayload(JacksonPayloadCodec.JSON, bytes, json);
+    }
+
+    /**
+     * Wrap bytes that were already encoded with {@code codec}, without the codec id
+     */
+    public static EventPayload ofEncoded(PayloadCodec codec, byte[] data) {
+        byte[] bytes = new byte[data.length + 1];
+        bytes[0] = codec.id();
+        System.arraycopy(data, 0, bytes, 1, data.length);
+        return new EventPayload(codec, bytes, null);
+    }
+
+    /**
+     * Wrap stored bytes; the codec must match their first byte
+     */
+    static EventPayload ofStored(PayloadCodec codec, byte[] bytes) {
+        return new EventPayload(codec, bytes, null);
+    }
+
+    private static ByteArrayOutputStream frame(PayloadCodec codec) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(INITIAL_BUFFER);
+        out.write(codec.id());
+        return out;
+    }
+
+    public PayloadCodec getCodec() {
+        return codec;
+    }
+
+    public String getContentType() {
+        return codec.contentType();
+    }
+
+    /**
+     * Stored form, including the codec id; not copied, callers must not modify it
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Encoded data without the codec id, as sent to Kafka
+     */
+    public byte[] getData() {
+        return Arrays.copyOfRange(bytes, 1, bytes.length);
+    }
+
+    /**
+     * Size of the encoded data in bytes
+     */
+    public int size() {
+        return bytes.length - 1;
+    }
+
+    public <T> T decode(Class<T> type) {
+        try {
+            return codec.decode(bytes, 1, bytes.length - 1, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode event payload with " + codec.name(), e);
+        }
+    }
+
+    public String toJson() {
+        String result = json;
+        if (result == null) {
+            try {
+                result = codec.decodeToJson(bytes, 1, bytes.length - 1);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to decode event payload with " + codec.name(), e);
+            }
+            json = result;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "EventPayload{codec=" + codec.name() + ", size=" + size() + '}';
+    }
+}
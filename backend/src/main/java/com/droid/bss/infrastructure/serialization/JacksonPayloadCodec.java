@@ -0,0 +1,110 @@
+package com.droid.bss.infrastructure.serialization;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Payload codecs on Jackson data formats.
+ *
+ * {@link #SMILE} is Jackson's binary JSON: the same data model as JSON, so any payload converts
+ * both ways without schemas, but numbers are binary and repeated field names are back-references,
+ * which makes payloads smaller and faster to parse. Conversions between formats stream tokens from
+ * a parser to a generator instead of building a tree or an intermediate string.
+ */
+public final class JacksonPayloadCodec implements PayloadCodec {
+
+    public static final JacksonPayloadCodec JSON = new JacksonPayloadCodec((byte) 1, "json", "application/json",
+            JsonMapper.builder()
+                    .findAndAddModules()
+                    .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                    .build());
+
+    public static final JacksonPayloadCodec SMILE = new JacksonPayloadCodec((byte) 2, "smile", "application/x-jackson-smile",
+            SmileMapper.builder()
+                    .findAndAddModules()
+                    .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                    .build());
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final byte id;
+    private final String name;
+    private final String contentType;
+    private final ObjectMapper mapper;
+    private final boolean json;
+
+    private JacksonPayloadCodec(byte id, String name, String contentType, ObjectMapper mapper) {
+        this.id = id;
+        this.name = name;
+        this.contentType = contentType;
+        this.mapper = mapper;
+        this.json = mapper.getFactory().getFormatName().equals(JsonFactory.FORMAT_NAME_JSON);
+    }
+
+    @Override
+    public byte id() {
+        return id;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String contentType() {
+        return contentType;
+    }
+
+    @Override
+    public void encode(Object value, OutputStream out) throws IOException {
+        mapper.writeValue(out, value);
+    }
+
+    @Override
+    public void encodeJson(byte[] jsonBytes, OutputStream out) throws IOException {
+        if (json) {
+            out.write(jsonBytes);
+            return;
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(jsonBytes);
+             JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        }
+    }
+
+    @Override
+    public <T> T decode(byte[] data, int offset, int length, Class<T> type) throws IOException {
+        return mapper.readValue(data, offset, length, type);
+    }
+
+    @Override
+    public String decodeToJson(byte[] data, int offset, int length) throws IOException {
+        if (json) {
+            return new String(data, offset, length, StandardCharsets.UTF_8);
+        }
+        StringWriter writer = new StringWriter(length * 2);
+        try (JsonParser parser = mapper.getFactory().createParser(data, offset, length);
+             JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        }
+        return writer.toString();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
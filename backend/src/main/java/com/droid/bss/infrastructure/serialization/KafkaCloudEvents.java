@@ -0,0 +1,107 @@
+package com.droid.bss.infrastructure.serialization;
+
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.Set;
+
+/**
+ * CloudEvents in Kafka binary mode, as sent by the outbox relay and the event publisher.
+ *
+ * The record value is the event data encoded with a {@link PayloadCodec}, without the codec id of
+ * stored payloads; the event attributes travel in {@code ce_*} headers and the codec is named by
+ * the {@code content-type} header.
+ */
+public final class KafkaCloudEvents {
+
+    private static final String PREFIX = "ce_";
+    private static final String CONTENT_TYPE = "content-type";
+    private static final URI DEFAULT_SOURCE = URI.create("/bss");
+    private static final Set<String> CORE_ATTRIBUTES =
+            Set.of("ce_specversion", "ce_id", "ce_type", "ce_source", "ce_subject", "ce_time");
+
+    private KafkaCloudEvents() {
+    }
+
+    /**
+     * Binary-mode record of an event; attributes that are null are left out
+     */
+    public static ProducerRecord<String, byte[]> toRecord(String topic, String key, EventPayload payload,
+                                                          String id, String type, String source,
+                                                          String subject, OffsetDateTime time) {
+        ProducerRecord<String, byte[]> record = new ProducerRecord<>(topic, key, payload.getData());
+        Headers headers = record.headers();
+        header(headers, "ce_specversion", "1.0");
+        header(headers, "ce_id", id);
+        header(headers, "ce_type", type);
+        header(headers, "ce_source", source);
+        header(headers, "ce_subject", subject);
+        header(headers, CONTENT_TYPE, payload.getContentType());
+        if (time != null) {
+            header(headers, "ce_time", time.toString());
+        }
+        return record;
+    }
+
+    /**
+     * Add a header if the value is set; CloudEvents extensions are named {@code ce_<extension>}
+     */
+    public static void header(Headers headers, String name, String value) {
+        if (value != null) {
+            headers.add(name, value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * CloudEvent of a binary-mode record, with its data decoded to JSON for readers that pass it on
+     * as text
+     */
+    public static CloudEvent fromRecord(ConsumerRecord<String, byte[]> record, PayloadCodecRegistry payloadCodecs) {
+        Headers headers = record.headers();
+        String source = value(headers, "ce_source");
+        String subject = value(headers, "ce_subject");
+        String time = value(headers, "ce_time");
+        CloudEventBuilder builder = CloudEventBuilder.v1()
+                .withId(value(headers, "ce_id"))
+                .withType(value(headers, "ce_type"))
+                .withSource(source != null ? URI.create(source) : DEFAULT_SOURCE);
+        if (subject != null) {
+            builder.withSubject(subject);
+        }
+        if (time != null) {
+            builder.withTime(OffsetDateTime.parse(time));
+        }
+        for (Header header : headers) {
+            if (header.key().startsWith(PREFIX) && !CORE_ATTRIBUTES.contains(header.key())) {
+                builder.withExtension(header.key().substring(PREFIX.length()),
+                        new String(header.value(), StandardCharsets.UTF_8));
+            }
+        }
+
+        byte[] data = record.value();
+        if (data != null) {
+            PayloadCodec codec = payloadCodecs.forContentType(value(headers, CONTENT_TYPE));
+            try {
+                String json = codec.decodeToJson(data, 0, data.length);
+                builder.withData(JacksonPayloadCodec.JSON.contentType(), json.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to decode event data with " + codec.name(), e);
+            }
+        }
+        return builder.build();
+    }
+
+    private static String value(Headers headers, String name) {
+        Header header = headers.lastHeader(name);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+}
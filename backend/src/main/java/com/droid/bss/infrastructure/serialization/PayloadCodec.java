@@ -0,0 +1,50 @@
+package com.droid.bss.infrastructure.serialization;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encoding of event payloads in the event store, the outbox and on Kafka.
+ *
+ * Codecs are Spring beans collected by {@link PayloadCodecRegistry}. Stored payloads start with
+ * the codec id (see {@link EventPayload}), so the id of a codec must never change or be reused:
+ * rows written with one codec stay readable after {@code bss.serialization.payload-codec} switches
+ * to another.
+ */
+public interface PayloadCodec {
+
+    /**
+     * Id written in front of every stored payload
+     */
+    byte id();
+
+    /**
+     * Name used in configuration
+     */
+    String name();
+
+    /**
+     * MIME type, used as CloudEvents data content type and Kafka content-type header
+     */
+    String contentType();
+
+    /**
+     * Encode a value
+     */
+    void encode(Object value, OutputStream out) throws IOException;
+
+    /**
+     * Re-encode a JSON document without binding it to objects
+     */
+    void encodeJson(byte[] json, OutputStream out) throws IOException;
+
+    /**
+     * Decode a value
+     */
+    <T> T decode(byte[] data, int offset, int length, Class<T> type) throws IOException;
+
+    /**
+     * Decode to JSON text, for readers that still work on JSON strings
+     */
+    String decodeToJson(byte[] data, int offset, int length) throws IOException;
+}
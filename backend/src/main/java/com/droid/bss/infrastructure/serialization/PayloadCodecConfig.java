@@ -0,0 +1,22 @@
+package com.droid.bss.infrastructure.serialization;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Built-in payload codecs; further codecs are added as {@link PayloadCodec} beans with ids of
+ * their own
+ */
+@Configuration
+public class PayloadCodecConfig {
+
+    @Bean
+    public PayloadCodec jsonPayloadCodec() {
+        return JacksonPayloadCodec.JSON;
+    }
+
+    @Bean
+    public PayloadCodec smilePayloadCodec() {
+        return JacksonPayloadCodec.SMILE;
+    }
+}
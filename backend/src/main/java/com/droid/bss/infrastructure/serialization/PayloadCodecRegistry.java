@@ -0,0 +1,109 @@
+package com.droid.bss.infrastructure.serialization;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Registry of the {@link PayloadCodec} beans; stands in for a schema registry.
+ *
+ * New payloads are written with the codec named by {@code bss.serialization.payload-codec}; stored
+ * payloads are read with the codec whose id they start with, so switching the codec needs no
+ * migration of existing rows.
+ */
+@Component
+@Slf4j
+public class PayloadCodecRegistry {
+
+    private final PayloadCodec[] codecsById = new PayloadCodec[256];
+    private final PayloadCodec active;
+
+    public PayloadCodecRegistry(
+            List<PayloadCodec> codecs,
+            @Value("${bss.serialization.payload-codec:smile}") String activeCodec) {
+        PayloadCodec selected = null;
+        for (PayloadCodec codec : codecs) {
+            int index = Byte.toUnsignedInt(codec.id());
+            if (codecsById[index] != null && codecsById[index] != codec) {
+                throw new IllegalStateException("Payload codecs " + codecsById[index].name() + " and "
+                        + codec.name() + " share id " + index);
+            }
+            codecsById[index] = codec;
+            if (codec.name().equals(activeCodec)) {
+                selected = codec;
+            }
+        }
+        if (selected == null) {
+            throw new IllegalStateException("Unknown payload codec: " + activeCodec);
+        }
+        this.active = selected;
+        log.info("Writing event payloads with the {} codec", active.name());
+    }
+
+    /**
+     * Codec new payloads are written with
+     */
+    public PayloadCodec active() {
+        return active;
+    }
+
+    /**
+     * Encode a value with the active codec
+     */
+    public EventPayload encode(Object value) {
+        return EventPayload.encode(active, value);
+    }
+
+    /**
+     * Encode data of the given content type with the active codec; data that already has the
+     * active codec's content type is kept as it is
+     */
+    public EventPayload fromData(String contentType, byte[] data) {
+        if (active.contentType().equals(contentType)) {
+            return EventPayload.ofEncoded(active, data);
+        }
+        if (contentType == null || contentType.startsWith(JacksonPayloadCodec.JSON.contentType())) {
+            return EventPayload.fromJson(active, data);
+        }
+        throw new IllegalArgumentException("Unsupported event data content type: " + contentType);
+    }
+
+    /**
+     * Codec of data received with a content type, e.g. the content-type header of a Kafka record;
+     * data without one is JSON
+     */
+    public PayloadCodec forContentType(String contentType) {
+        if (contentType == null) {
+            return JacksonPayloadCodec.JSON;
+        }
+        for (PayloadCodec codec : codecsById) {
+            if (codec != null && contentType.startsWith(codec.contentType())) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported event data content type: " + contentType);
+    }
+
+    /**
+     * Wrap a stored payload
+     */
+    public EventPayload fromStored(byte[] bytes) {
+        if (bytes.length == 0) {
+            throw new IllegalArgumentException("Empty event payload");
+        }
+        PayloadCodec codec = codecsById[Byte.toUnsignedInt(bytes[0])];
+        if (codec == null) {
+            throw new IllegalArgumentException("Unknown payload codec id: " + Byte.toUnsignedInt(bytes[0]));
+        }
+        return EventPayload.ofStored(codec, bytes);
+    }
+
+    /**
+     * Payload of a row with a stored payload or, for rows written before, JSON text
+     */
+    public EventPayload fromColumns(byte[] payload, String json) {
+        return payload != null ? fromStored(payload) : EventPayload.ofJson(json);
+    }
+}
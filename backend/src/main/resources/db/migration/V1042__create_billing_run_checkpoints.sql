@@ -0,0 +1,31 @@
+-- Streaming billing run support
+-- Checkpoints let a billing run resume after a crash, and a keyset index
+-- lets the run page through a cycle's usage in (subscription_id, id) order.
+
+CREATE TABLE IF NOT EXISTS billing_run_checkpoints (
+    billing_cycle_id UUID PRIMARY KEY,
+    status VARCHAR(20) NOT NULL,
+    last_subscription_id UUID,
+    records_processed BIGINT NOT NULL DEFAULT 0,
+    records_failed BIGINT NOT NULL DEFAULT 0,
+    invoices_created INTEGER NOT NULL DEFAULT 0,
+    net_amount DECIMAL(14,2) NOT NULL DEFAULT 0,
+    tax_amount DECIMAL(14,2) NOT NULL DEFAULT 0,
+    started_at TIMESTAMP NOT NULL,
+    completed_at TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Keyset pagination over not yet invoiced usage
+CREATE INDEX IF NOT EXISTS idx_usage_records_keyset_uninvoiced
+    ON usage_records(subscription_id, id)
+    INCLUDE (usage_date)
+    WHERE invoice_id IS NULL;
+
+-- Lookup of a customer's invoice within a billing cycle
+ALTER TABLE invoices ADD COLUMN IF NOT EXISTS billing_cycle_id UUID;
+CREATE INDEX IF NOT EXISTS idx_invoices_customer_billing_cycle
+    ON invoices(customer_id, billing_cycle_id);
+
+COMMENT ON TABLE billing_run_checkpoints IS 'Progress of streaming billing runs, used to resume interrupted runs';
+COMMENT ON COLUMN billing_run_checkpoints.last_subscription_id IS 'Last subscription whose usage has been fully invoiced';
@@ -0,0 +1,24 @@
+-- Partitioned billing runs
+-- Each billing cycle is split into customer-hash partitions. Every partition has its own
+-- checkpoint row, which doubles as a lease so several backend replicas can work on one cycle.
+
+ALTER TABLE billing_run_checkpoints
+    ADD COLUMN IF NOT EXISTS partition_no INTEGER NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS partition_count INTEGER NOT NULL DEFAULT 1,
+    ADD COLUMN IF NOT EXISTS lease_owner VARCHAR(200),
+    ADD COLUMN IF NOT EXISTS lease_expires_at TIMESTAMP,
+    ADD COLUMN IF NOT EXISTS attempts INTEGER NOT NULL DEFAULT 0;
+
+ALTER TABLE billing_run_checkpoints DROP CONSTRAINT IF EXISTS billing_run_checkpoints_pkey;
+ALTER TABLE billing_run_checkpoints ADD PRIMARY KEY (billing_cycle_id, partition_no);
+
+ALTER TABLE billing_run_checkpoints ALTER COLUMN started_at DROP NOT NULL;
+
+-- Claim scan: partitions that are not completed, by cycle
+CREATE INDEX IF NOT EXISTS idx_billing_run_checkpoints_claimable
+    ON billing_run_checkpoints(billing_cycle_id, status, lease_expires_at)
+    WHERE status <> 'COMPLETED';
+
+COMMENT ON COLUMN billing_run_checkpoints.partition_no IS 'Customer-hash partition number, 0..partition_count-1';
+COMMENT ON COLUMN billing_run_checkpoints.lease_owner IS 'Replica currently working on the partition';
+COMMENT ON COLUMN billing_run_checkpoints.lease_expires_at IS 'Lease expiry; an expired RUNNING partition may be claimed by another replica';
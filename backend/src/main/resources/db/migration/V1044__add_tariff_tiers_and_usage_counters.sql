@@ -0,0 +1,41 @@
+-- Tiered, volume and allowance tariffs
+-- A rating rule is priced FLAT, TIERED (graduated) or VOLUME, may include free units per month,
+-- and may share its allowance and tier position with other rules of the same bundle.
+
+ALTER TABLE rating_rules
+    ADD COLUMN IF NOT EXISTS tariff_mode VARCHAR(20) NOT NULL DEFAULT 'FLAT',
+    ADD COLUMN IF NOT EXISTS included_units DECIMAL(15, 3),
+    ADD COLUMN IF NOT EXISTS bundle_code VARCHAR(100);
+
+CREATE TABLE IF NOT EXISTS rating_rule_tiers (
+    id VARCHAR(36) PRIMARY KEY,
+    version BIGINT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    created_by VARCHAR(100),
+    updated_by VARCHAR(100),
+    deleted_at TIMESTAMP,
+    rule_id VARCHAR(36) NOT NULL REFERENCES rating_rules(id) ON DELETE CASCADE,
+    from_units DECIMAL(15, 3) NOT NULL,
+    unit_rate DECIMAL(8, 4) NOT NULL,
+    CONSTRAINT uk_rating_rule_tiers_rule_from UNIQUE (rule_id, from_units)
+);
+
+-- Running consumption per subscription, counter (rule or bundle code) and calendar month.
+-- Written only by incremental flushes from the rating engine's in-memory counters.
+CREATE TABLE IF NOT EXISTS usage_counters (
+    subscription_id UUID NOT NULL,
+    counter_key VARCHAR(100) NOT NULL,
+    period_start DATE NOT NULL,
+    consumed_units DECIMAL(20, 6) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (subscription_id, counter_key, period_start)
+);
+
+CREATE INDEX IF NOT EXISTS idx_usage_counters_period ON usage_counters(period_start);
+
+COMMENT ON COLUMN rating_rules.tariff_mode IS 'FLAT, TIERED (each tier at its own rate) or VOLUME (whole record at the tier reached)';
+COMMENT ON COLUMN rating_rules.included_units IS 'Free units per subscription and month before the rule charges';
+COMMENT ON COLUMN rating_rules.bundle_code IS 'Rules with the same bundle code share one usage counter';
+COMMENT ON COLUMN rating_rule_tiers.from_units IS 'Cumulative monthly units at which the tier starts';
+COMMENT ON COLUMN usage_counters.consumed_units IS 'Billable units consumed in the period, including free units';
@@ -0,0 +1,35 @@
+-- Prepaid balances for online charging
+-- The journal is written before a charging request is acknowledged; prepaid_balances holds
+-- periodic snapshots so a balance is recovered as snapshot + journal entries after journal_seq.
+
+CREATE TABLE IF NOT EXISTS prepaid_balance_journal (
+    seq BIGSERIAL PRIMARY KEY,
+    subscription_id UUID NOT NULL,
+    session_id VARCHAR(255),
+    entry_type VARCHAR(20) NOT NULL,
+    amount DECIMAL(19, 6) NOT NULL DEFAULT 0,
+    units DECIMAL(19, 6) NOT NULL DEFAULT 0,
+    currency VARCHAR(3),
+    usage_type VARCHAR(50),
+    destination_type VARCHAR(50),
+    rate_period VARCHAR(50),
+    expires_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT chk_prepaid_balance_journal_type CHECK (entry_type IN ('TOPUP', 'RESERVE', 'COMMIT', 'RELEASE'))
+);
+
+-- Recovery reads the tail of one subscription's journal
+CREATE INDEX IF NOT EXISTS idx_prepaid_balance_journal_subscription
+    ON prepaid_balance_journal(subscription_id, seq);
+
+CREATE TABLE IF NOT EXISTS prepaid_balances (
+    subscription_id UUID PRIMARY KEY,
+    currency VARCHAR(3),
+    balance DECIMAL(19, 6) NOT NULL DEFAULT 0,
+    journal_seq BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+COMMENT ON TABLE prepaid_balance_journal IS 'Append-only log of prepaid balance changes (top-ups, reservations, debits, releases)';
+COMMENT ON COLUMN prepaid_balance_journal.amount IS 'Credited amount (TOPUP), reserved amount (RESERVE) or debited amount (COMMIT)';
+COMMENT ON COLUMN prepaid_balances.balance IS 'Committed balance up to journal_seq; open reservations are not deducted';
@@ -0,0 +1,39 @@
+-- Global position for the event store
+-- A position over all aggregates, assigned at insert; streaming readers (replay, projections)
+-- resume from a position instead of re-reading by timestamp or loading the table into memory.
+-- The event store append numbers positions itself under its append lock; the sequence default
+-- only covers rows inserted by other means.
+
+ALTER TABLE event_store ADD COLUMN IF NOT EXISTS global_position BIGINT;
+
+-- Existing events are numbered in write order; adding a serial column would number them in heap order
+UPDATE event_store e
+SET global_position = p.position
+FROM (
+    SELECT id, ROW_NUMBER() OVER (ORDER BY "timestamp", id) AS position
+    FROM event_store
+) p
+WHERE e.id = p.id;
+
+CREATE SEQUENCE IF NOT EXISTS event_store_global_position_seq OWNED BY event_store.global_position;
+
+SELECT setval('event_store_global_position_seq',
+              COALESCE((SELECT MAX(global_position) FROM event_store), 0) + 1, false);
+
+ALTER TABLE event_store
+    ALTER COLUMN global_position SET DEFAULT nextval('event_store_global_position_seq'),
+    ALTER COLUMN global_position SET NOT NULL;
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_event_store_global_position
+    ON event_store(global_position);
+
+-- Time-range and event-type scans stream in position order
+CREATE INDEX IF NOT EXISTS idx_event_store_timestamp_position
+    ON event_store("timestamp", global_position);
+
+CREATE INDEX IF NOT EXISTS idx_event_store_type_position
+    ON event_store(event_type, global_position);
+
+-- Aggregate tail reads after a snapshot
+CREATE INDEX IF NOT EXISTS idx_event_store_aggregate_version
+    ON event_store(aggregate_id, version);
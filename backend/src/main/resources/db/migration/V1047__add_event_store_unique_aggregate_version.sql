@@ -0,0 +1,59 @@
+-- Optimistic concurrency for event store appends
+-- Appends are a single INSERT ... ON CONFLICT (aggregate_id, version) DO NOTHING, so the unique
+-- index is what detects a concurrent writer.
+
+-- Events saved in one call used to share a version. Only streams with shared versions are
+-- renumbered, and in them only the events from the first shared version on: those keep their
+-- write order and get consecutive versions. Every changed version is recorded in
+-- event_store_version_renumbering so references to an old version can be translated.
+CREATE TABLE IF NOT EXISTS event_store_version_renumbering (
+    event_id VARCHAR(36) PRIMARY KEY,
+    aggregate_id VARCHAR(255) NOT NULL,
+    old_version BIGINT NOT NULL,
+    new_version BIGINT NOT NULL,
+    renumbered_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+INSERT INTO event_store_version_renumbering (event_id, aggregate_id, old_version, new_version)
+SELECT r.id::text, r.aggregate_id, r.old_version, r.new_version
+FROM (
+    SELECT e.id, e.aggregate_id, e.version AS old_version,
+           d.first_shared_version - 1
+               + ROW_NUMBER() OVER (PARTITION BY e.aggregate_id ORDER BY e.version, e.global_position) AS new_version
+    FROM event_store e
+    JOIN (
+        SELECT aggregate_id, MIN(version) AS first_shared_version
+        FROM (
+            SELECT aggregate_id, version
+            FROM event_store
+            GROUP BY aggregate_id, version
+            HAVING COUNT(*) > 1
+        ) shared
+        GROUP BY aggregate_id
+    ) d ON d.aggregate_id = e.aggregate_id
+    WHERE e.version >= d.first_shared_version
+) r
+WHERE r.old_version <> r.new_version;
+
+UPDATE event_store e
+SET version = m.new_version
+FROM event_store_version_renumbering m
+WHERE e.id::text = m.event_id;
+
+-- Snapshots taken at a renumbered version no longer match the stream; aggregates rebuild from events
+DELETE FROM snapshot_store s
+USING (
+    SELECT aggregate_id, MIN(old_version) AS first_renumbered_version
+    FROM event_store_version_renumbering
+    GROUP BY aggregate_id
+) m
+WHERE s.aggregate_id = m.aggregate_id
+  AND s.version >= m.first_renumbered_version;
+
+COMMENT ON TABLE event_store_version_renumbering IS 'Versions changed by V1047 to make (aggregate_id, version) unique';
+
+-- Replaces the plain index created for aggregate tail reads
+DROP INDEX IF EXISTS idx_event_store_aggregate_version;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_event_store_aggregate_version
+    ON event_store(aggregate_id, version);
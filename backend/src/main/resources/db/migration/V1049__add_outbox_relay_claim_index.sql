@@ -0,0 +1,7 @@
+-- Outbox relay claim index
+-- The relay claims due events oldest first (ORDER BY created_at LIMIT n FOR UPDATE SKIP LOCKED);
+-- this index only contains events still waiting to be relayed, so it stays small.
+
+CREATE INDEX IF NOT EXISTS idx_outbox_relay_claim
+    ON outbox_event (created_at)
+    WHERE status IN ('PENDING', 'RETRY') AND deleted_at IS NULL;
@@ -0,0 +1,19 @@
+-- Outbox notifications
+-- Wakes the outbox relay (LISTEN outbox_event) when events are written. The trigger is per
+-- statement and the payload is empty: the relay claims whatever is due, and PostgreSQL folds
+-- identical notifications of one transaction into one, delivered at commit.
+
+CREATE OR REPLACE FUNCTION notify_outbox_event()
+RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM pg_notify('outbox_event', '');
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS outbox_event_notify ON outbox_event;
+
+CREATE TRIGGER outbox_event_notify
+    AFTER INSERT ON outbox_event
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION notify_outbox_event();
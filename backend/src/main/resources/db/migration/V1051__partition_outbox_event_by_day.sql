@@ -0,0 +1,250 @@
+-- Partition outbox_event by day
+-- Published events used to be removed with row-level DELETEs, which bloat the table and its
+-- indexes under the outbox write volume. outbox_event is now range-partitioned on created_at
+-- with one partition per UTC day; retention drops whole partitions (drop_outbox_partitions) and
+-- the relay's claim index only holds events that still have to be relayed.
+--
+-- Primary and unique keys of a partitioned table must contain the partition key, so they become
+-- (id, created_at) and (event_id, created_at).
+
+ALTER TABLE IF EXISTS outbox_event RENAME TO outbox_event_legacy;
+
+CREATE TABLE outbox_event (
+    id UUID NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    created_by VARCHAR(255),
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    updated_by VARCHAR(255),
+    deleted_at TIMESTAMP WITH TIME ZONE,
+    event_id VARCHAR(36) NOT NULL,
+    event_type VARCHAR(100) NOT NULL,
+    event_name VARCHAR(100) NOT NULL,
+    aggregate_id VARCHAR(255),
+    aggregate_type VARCHAR(100),
+    event_data JSONB NOT NULL,
+    metadata JSONB,
+    version_field VARCHAR(50),
+    source VARCHAR(255),
+    correlation_id VARCHAR(255),
+    causation_id VARCHAR(255),
+    user_id VARCHAR(255),
+    timestamp TIMESTAMP WITH TIME ZONE NOT NULL,
+    status VARCHAR(50) NOT NULL,
+    retry_count INTEGER NOT NULL DEFAULT 0,
+    max_retries INTEGER NOT NULL DEFAULT 3,
+    next_retry_at TIMESTAMP WITH TIME ZONE,
+    published_at TIMESTAMP WITH TIME ZONE,
+    error_message TEXT,
+    trace_id VARCHAR(255)
+) PARTITION BY RANGE (created_at);
+
+-- Dead letters outlive the partitions they were written to; retention moves them here
+CREATE TABLE IF NOT EXISTS outbox_event_dead_letter_archive (
+    LIKE outbox_event INCLUDING DEFAULTS,
+    PRIMARY KEY (id)
+);
+
+-- Create the daily partitions for [from_day, to_day] that do not exist yet
+CREATE OR REPLACE FUNCTION create_outbox_partitions(from_day DATE, to_day DATE)
+RETURNS INTEGER AS $$
+DECLARE
+    partition_day DATE := from_day;
+    partition_name TEXT;
+    created INTEGER := 0;
+BEGIN
+    WHILE partition_day <= to_day LOOP
+        partition_name := 'outbox_event_p' || to_char(partition_day, 'YYYYMMDD');
+        IF to_regclass(partition_name) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF outbox_event FOR VALUES FROM (%L) TO (%L)',
+                           partition_name,
+                           partition_day::timestamp AT TIME ZONE 'UTC',
+                           (partition_day + 1)::timestamp AT TIME ZONE 'UTC');
+            created := created + 1;
+        END IF;
+        partition_day := partition_day + 1;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Drop daily partitions older than the retention. Dead letters are archived first; a partition
+-- that still holds events waiting to be relayed is kept.
+CREATE OR REPLACE FUNCTION drop_outbox_partitions(retention_days INTEGER)
+RETURNS INTEGER AS $$
+DECLARE
+    part RECORD;
+    cutoff DATE := (NOW() AT TIME ZONE 'UTC')::date - retention_days;
+    unrelayed BIGINT;
+    dropped INTEGER := 0;
+BEGIN
+    FOR part IN
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'outbox_event'::regclass
+          AND c.relname ~ '^outbox_event_p[0-9]{8}$'
+          AND to_date(substring(c.relname FROM 15), 'YYYYMMDD') < cutoff
+        ORDER BY c.relname
+    LOOP
+        EXECUTE format('SELECT COUNT(*) FROM %I WHERE status IN (''PENDING'', ''RETRY'')', part.relname)
+            INTO unrelayed;
+        IF unrelayed > 0 THEN
+            RAISE WARNING 'Keeping outbox partition % with % unrelayed events', part.relname, unrelayed;
+            CONTINUE;
+        END IF;
+
+        EXECUTE format('INSERT INTO outbox_event_dead_letter_archive SELECT * FROM %I WHERE status = ''DEAD_LETTER'' '
+                       'ON CONFLICT (id) DO NOTHING', part.relname);
+        EXECUTE format('DROP TABLE %I', part.relname);
+        dropped := dropped + 1;
+    END LOOP;
+    RETURN dropped;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Partitions for existing events and the week ahead; existing events are moved over
+DO $$
+DECLARE
+    first_day DATE := (NOW() AT TIME ZONE 'UTC')::date;
+BEGIN
+    IF to_regclass('outbox_event_legacy') IS NOT NULL THEN
+        SELECT LEAST(first_day, COALESCE(MIN((created_at AT TIME ZONE 'UTC')::date), first_day))
+        INTO first_day
+        FROM outbox_event_legacy;
+    END IF;
+
+    PERFORM create_outbox_partitions(first_day, (NOW() AT TIME ZONE 'UTC')::date + 7);
+
+    IF to_regclass('outbox_event_legacy') IS NOT NULL THEN
+        INSERT INTO outbox_event (
+            id, version, created_at, created_by, updated_at, updated_by, deleted_at, event_id, event_type,
+            event_name, aggregate_id, aggregate_type, event_data, metadata, version_field, source,
+            correlation_id, causation_id, user_id, timestamp, status, retry_count, max_retries,
+            next_retry_at, published_at, error_message, trace_id)
+        SELECT
+            id, version, created_at, created_by, updated_at, updated_by, deleted_at, event_id, event_type,
+            event_name, aggregate_id, aggregate_type, event_data, metadata, version_field, source,
+            correlation_id, causation_id, user_id, timestamp, status, retry_count, max_retries,
+            next_retry_at, published_at, error_message, trace_id
+        FROM outbox_event_legacy;
+    END IF;
+END;
+$$;
+
+-- Also drops the statistics views and triggers of the old table; they are recreated below
+DROP TABLE IF EXISTS outbox_event_legacy CASCADE;
+
+ALTER TABLE outbox_event ADD CONSTRAINT outbox_event_pkey PRIMARY KEY (id, created_at);
+ALTER TABLE outbox_event ADD CONSTRAINT uk_outbox_event_id UNIQUE (event_id, created_at);
+
+CREATE INDEX IF NOT EXISTS idx_outbox_aggregate ON outbox_event (aggregate_id);
+CREATE INDEX IF NOT EXISTS idx_outbox_type ON outbox_event (event_type);
+CREATE INDEX IF NOT EXISTS idx_outbox_trace ON outbox_event (trace_id);
+CREATE INDEX IF NOT EXISTS idx_outbox_id ON outbox_event (id);
+
+-- Partial indexes: events waiting to be relayed, and dead letters for manual review
+CREATE INDEX IF NOT EXISTS idx_outbox_relay_claim
+    ON outbox_event (created_at)
+    WHERE status IN ('PENDING', 'RETRY') AND deleted_at IS NULL;
+CREATE INDEX IF NOT EXISTS idx_outbox_dead_letter
+    ON outbox_event (created_at)
+    WHERE status = 'DEAD_LETTER';
+
+-- Triggers of the old table (V1026, V1050)
+CREATE OR REPLACE FUNCTION set_outbox_event_id()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF NEW.event_id IS NULL THEN
+        NEW.event_id := gen_random_uuid()::text;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER outbox_event_set_id
+    BEFORE INSERT ON outbox_event
+    FOR EACH ROW
+    EXECUTE FUNCTION set_outbox_event_id();
+
+CREATE OR REPLACE FUNCTION validate_outbox_event()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF NEW.status NOT IN ('PENDING', 'PUBLISHED', 'RETRY', 'DEAD_LETTER') THEN
+        RAISE EXCEPTION 'Invalid status: %', NEW.status;
+    END IF;
+
+    IF NEW.status = 'RETRY' AND NEW.next_retry_at IS NULL THEN
+        RAISE EXCEPTION 'next_retry_at must be set for RETRY status';
+    END IF;
+
+    IF NEW.status = 'PUBLISHED' AND NEW.published_at IS NULL THEN
+        NEW.published_at := NOW();
+    END IF;
+
+    IF NEW.retry_count > NEW.max_retries THEN
+        RAISE EXCEPTION 'retry_count (%) exceeds max_retries (%)', NEW.retry_count, NEW.max_retries;
+    END IF;
+
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER outbox_event_validate
+    BEFORE INSERT OR UPDATE ON outbox_event
+    FOR EACH ROW
+    EXECUTE FUNCTION validate_outbox_event();
+
+CREATE OR REPLACE FUNCTION notify_outbox_event()
+RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM pg_notify('outbox_event', '');
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER outbox_event_notify
+    AFTER INSERT ON outbox_event
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION notify_outbox_event();
+
+-- Row level security as before, where the application role exists
+ALTER TABLE outbox_event ENABLE ROW LEVEL SECURITY;
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_roles WHERE rolname = 'bss_app') THEN
+        CREATE POLICY outbox_event_service_policy ON outbox_event
+            FOR ALL
+            TO bss_app
+            USING (true)
+            WITH CHECK (true);
+    END IF;
+END;
+$$;
+
+CREATE OR REPLACE VIEW outbox_statistics AS
+SELECT
+    status,
+    COUNT(*) as count,
+    COUNT(*) * 100.0 / NULLIF((SELECT COUNT(*) FROM outbox_event), 0) as percentage
+FROM outbox_event
+GROUP BY status;
+
+CREATE OR REPLACE VIEW outbox_dead_letters AS
+SELECT
+    e.*
+FROM outbox_event e
+WHERE e.status = 'DEAD_LETTER'
+ORDER BY e.created_at DESC;
+
+-- Row-level cleanup is replaced by drop_outbox_partitions
+CREATE OR REPLACE FUNCTION cleanup_old_outbox_events()
+RETURNS INTEGER AS $$
+BEGIN
+    RETURN drop_outbox_partitions(30);
+END;
+$$ LANGUAGE plpgsql;
+
+COMMENT ON TABLE outbox_event IS 'Outbox Pattern - Reliable event publishing, partitioned by day of created_at';
+COMMENT ON TABLE outbox_event_dead_letter_archive IS 'Dead letter outbox events from dropped partitions';
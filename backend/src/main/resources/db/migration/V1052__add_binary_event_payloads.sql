@@ -0,0 +1,22 @@
+-- Binary event payloads
+-- New events store their payload encoded with the configured payload codec
+-- (bss.serialization.payload-codec) in event_payload: one byte with the codec id, then the encoded
+-- data. event_data keeps the JSON of events written before and is no longer filled.
+
+ALTER TABLE event_store ADD COLUMN IF NOT EXISTS event_payload BYTEA;
+ALTER TABLE event_store ALTER COLUMN event_data DROP NOT NULL;
+ALTER TABLE event_store ADD CONSTRAINT chk_event_store_payload
+    CHECK (event_data IS NOT NULL OR event_payload IS NOT NULL);
+
+-- Added to the partitions of outbox_event as well; the archive keeps the column layout of
+-- outbox_event, drop_outbox_partitions copies rows with SELECT *
+ALTER TABLE outbox_event ADD COLUMN IF NOT EXISTS event_payload BYTEA;
+ALTER TABLE outbox_event ALTER COLUMN event_data DROP NOT NULL;
+ALTER TABLE outbox_event ADD CONSTRAINT chk_outbox_event_payload
+    CHECK (event_data IS NOT NULL OR event_payload IS NOT NULL);
+
+ALTER TABLE outbox_event_dead_letter_archive ADD COLUMN IF NOT EXISTS event_payload BYTEA;
+ALTER TABLE outbox_event_dead_letter_archive ALTER COLUMN event_data DROP NOT NULL;
+
+COMMENT ON COLUMN event_store.event_payload IS 'Payload codec id followed by the encoded event data';
+COMMENT ON COLUMN outbox_event.event_payload IS 'Payload codec id followed by the encoded event data';
@@ -0,0 +1,15 @@
+-- Processed event IDs of the domain event consumers
+-- Backs the in-memory rotating Bloom filter of EventDeduplicator: IDs the filter reports as maybe
+-- seen are confirmed here, and the filter is refilled from here after a restart or a partition
+-- assignment. Rows older than the deduplication window are deleted in batches.
+
+CREATE TABLE IF NOT EXISTS processed_event (
+    consumer VARCHAR(50) NOT NULL,
+    event_id VARCHAR(255) NOT NULL,
+    processed_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (consumer, event_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_processed_event_processed_at ON processed_event (processed_at);
+
+COMMENT ON TABLE processed_event IS 'Event IDs handled by Kafka domain event consumers, kept for the deduplication window';
@@ -0,0 +1,41 @@
+-- Index of events in the Kafka dead letter topics
+-- The failed CloudEvent itself lives in the dead letter topic (<topic>.DLQ); a row points at it by
+-- topic, partition and offset and keeps what is needed to list, resolve and replay it. Events
+-- that fail again are upserted, so a poison pill keeps one row with a growing retry_count.
+
+CREATE TABLE IF NOT EXISTS dead_letter_event (
+    id BIGSERIAL PRIMARY KEY,
+    consumer VARCHAR(50) NOT NULL,
+    event_id VARCHAR(255) NOT NULL,
+    event_type VARCHAR(255),
+    error_message TEXT,
+    original_topic VARCHAR(255) NOT NULL,
+    original_partition INTEGER NOT NULL,
+    original_offset BIGINT NOT NULL,
+    dlt_topic VARCHAR(255) NOT NULL,
+    dlt_partition INTEGER NOT NULL,
+    dlt_offset BIGINT NOT NULL,
+    retry_count INTEGER NOT NULL DEFAULT 0,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    failed_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    reprocessed_at TIMESTAMPTZ,
+    resolved_at TIMESTAMPTZ,
+    resolution TEXT,
+    CONSTRAINT uk_dead_letter_event UNIQUE (event_id, consumer),
+    CONSTRAINT chk_dead_letter_event_status CHECK (status IN ('PENDING', 'REPROCESSED', 'RESOLVED'))
+);
+
+-- Replay walks pending events in original topic/partition/offset order
+CREATE INDEX IF NOT EXISTS idx_dead_letter_event_replay
+    ON dead_letter_event (original_topic, original_partition, original_offset, id)
+    WHERE status = 'PENDING';
+
+CREATE INDEX IF NOT EXISTS idx_dead_letter_event_status_failed_at ON dead_letter_event (status, failed_at);
+CREATE INDEX IF NOT EXISTS idx_dead_letter_event_failed_at ON dead_letter_event (failed_at);
+
+-- Cleanup of reprocessed and resolved events past retention
+CREATE INDEX IF NOT EXISTS idx_dead_letter_event_closed
+    ON dead_letter_event ((COALESCE(resolved_at, reprocessed_at)))
+    WHERE status <> 'PENDING';
+
+COMMENT ON TABLE dead_letter_event IS 'Failed domain events; payloads are kept in the Kafka dead letter topics';
@@ -0,0 +1,12 @@
+-- Keyset pagination of the GraphQL customer connections
+-- Customers are paged newest first by (created_at, id); the status variant serves the status filter.
+-- Search goes through idx_customers_search_vector (V1040) and the PESEL/NIP indexes.
+
+CREATE INDEX IF NOT EXISTS idx_customers_keyset
+    ON customers (created_at DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_customers_status_keyset
+    ON customers (status, created_at DESC, id DESC);
+
+-- Superseded by idx_customers_keyset
+DROP INDEX IF EXISTS idx_customers_created_at;
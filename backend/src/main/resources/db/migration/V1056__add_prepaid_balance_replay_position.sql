@@ -0,0 +1,16 @@
+-- Open reservations of a prepaid balance snapshot
+-- A snapshot's balance does not deduct open reservations, so recovery must also see the RESERVE
+-- entries of sessions still open at journal_seq. replay_from_seq is the journal position just
+-- before the oldest of them; recovery reads the journal from there and applies balance changes
+-- only after journal_seq.
+
+ALTER TABLE prepaid_balances ADD COLUMN IF NOT EXISTS replay_from_seq BIGINT;
+
+-- Snapshots written before this column existed may have lost their open reservations;
+-- replaying them from the start of the journal restores those reservations
+UPDATE prepaid_balances SET replay_from_seq = 0 WHERE replay_from_seq IS NULL;
+
+ALTER TABLE prepaid_balances ALTER COLUMN replay_from_seq SET DEFAULT 0;
+ALTER TABLE prepaid_balances ALTER COLUMN replay_from_seq SET NOT NULL;
+
+COMMENT ON COLUMN prepaid_balances.replay_from_seq IS 'Journal position before the oldest reservation open at journal_seq; recovery replays from here';
@@ -0,0 +1,69 @@
+-- Default partition of outbox_event
+-- Without one, an insert for a UTC day whose partition is missing (e.g. the partition job did not
+-- run) fails, and with it the business transaction that wrote the event. Such events now land in
+-- outbox_event_default; create_outbox_partitions moves them into their day's partition once it is
+-- created, so the default partition is normally empty and cheap to check when a partition is added.
+
+CREATE TABLE IF NOT EXISTS outbox_event_default PARTITION OF outbox_event DEFAULT;
+
+-- Create the daily partitions for [from_day, to_day] that do not exist yet, moving the events of
+-- those days out of the default partition first
+CREATE OR REPLACE FUNCTION create_outbox_partitions(from_day DATE, to_day DATE)
+RETURNS INTEGER AS $$
+DECLARE
+    partition_day DATE := from_day;
+    partition_name TEXT;
+    day_start TIMESTAMP WITH TIME ZONE;
+    day_end TIMESTAMP WITH TIME ZONE;
+    moved BIGINT;
+    created INTEGER := 0;
+BEGIN
+    WHILE partition_day <= to_day LOOP
+        partition_name := 'outbox_event_p' || to_char(partition_day, 'YYYYMMDD');
+        IF to_regclass(partition_name) IS NULL THEN
+            day_start := partition_day::timestamp AT TIME ZONE 'UTC';
+            day_end := (partition_day + 1)::timestamp AT TIME ZONE 'UTC';
+
+            CREATE TEMP TABLE IF NOT EXISTS outbox_event_moving (LIKE outbox_event) ON COMMIT DROP;
+            INSERT INTO outbox_event_moving
+                SELECT * FROM outbox_event_default WHERE created_at >= day_start AND created_at < day_end;
+            GET DIAGNOSTICS moved = ROW_COUNT;
+            IF moved > 0 THEN
+                DELETE FROM outbox_event_default WHERE created_at >= day_start AND created_at < day_end;
+            END IF;
+
+            EXECUTE format('CREATE TABLE %I PARTITION OF outbox_event FOR VALUES FROM (%L) TO (%L)',
+                           partition_name, day_start, day_end);
+
+            IF moved > 0 THEN
+                INSERT INTO outbox_event SELECT * FROM outbox_event_moving;
+                TRUNCATE outbox_event_moving;
+                RAISE WARNING 'Moved % outbox events from the default partition to %', moved, partition_name;
+            END IF;
+            created := created + 1;
+        END IF;
+        partition_day := partition_day + 1;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Create the partitions of the days that have events in the default partition, moving them there
+CREATE OR REPLACE FUNCTION split_outbox_default_partition()
+RETURNS INTEGER AS $$
+DECLARE
+    first_day DATE;
+    last_day DATE;
+BEGIN
+    SELECT MIN((created_at AT TIME ZONE 'UTC')::date), MAX((created_at AT TIME ZONE 'UTC')::date)
+    INTO first_day, last_day
+    FROM outbox_event_default;
+
+    IF first_day IS NULL THEN
+        RETURN 0;
+    END IF;
+    RETURN create_outbox_partitions(first_day, last_day);
+END;
+$$ LANGUAGE plpgsql;
+
+COMMENT ON TABLE outbox_event_default IS 'Events of days without a partition; moved out by create_outbox_partitions';
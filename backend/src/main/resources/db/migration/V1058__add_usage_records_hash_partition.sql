@@ -0,0 +1,49 @@
+-- Customer-hash partition of usage records
+-- Partitioned billing runs split a cycle by customer. The partition was computed from
+-- subscriptions.customer_id while paging, so every worker walked all uninvoiced usage and kept
+-- only its share. The partition (one of 1024 buckets, see UsageRecordBatchRepository) is now
+-- stored on the row by a trigger and leads the keyset index, so a worker seeks straight to its
+-- own bucket range. A subscription never changes customer, so the bucket is fixed per row.
+
+CREATE OR REPLACE FUNCTION usage_hash_partition(p_customer_id UUID)
+RETURNS SMALLINT AS $$
+    SELECT ((hashtext(p_customer_id::text) & 2147483647) % 1024)::smallint;
+$$ LANGUAGE sql IMMUTABLE PARALLEL SAFE;
+
+ALTER TABLE usage_records ADD COLUMN IF NOT EXISTS hash_partition SMALLINT;
+
+CREATE OR REPLACE FUNCTION set_usage_hash_partition()
+RETURNS TRIGGER AS $$
+BEGIN
+    SELECT usage_hash_partition(s.customer_id) INTO NEW.hash_partition
+    FROM subscriptions s
+    WHERE s.id = NEW.subscription_id;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS usage_records_hash_partition ON usage_records;
+
+-- Also fires for COPY, so bulk CDR ingestion is covered
+CREATE TRIGGER usage_records_hash_partition
+    BEFORE INSERT OR UPDATE OF subscription_id ON usage_records
+    FOR EACH ROW
+    EXECUTE FUNCTION set_usage_hash_partition();
+
+-- Invoiced usage is never read by a billing run again and is left without a partition
+UPDATE usage_records u
+SET hash_partition = usage_hash_partition(s.customer_id)
+FROM subscriptions s
+WHERE s.id = u.subscription_id
+  AND u.invoice_id IS NULL
+  AND u.hash_partition IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_usage_records_partition_keyset_uninvoiced
+    ON usage_records(hash_partition, subscription_id, id)
+    INCLUDE (usage_date)
+    WHERE invoice_id IS NULL;
+
+-- Superseded by idx_usage_records_partition_keyset_uninvoiced
+DROP INDEX IF EXISTS idx_usage_records_keyset_uninvoiced;
+
+COMMENT ON COLUMN usage_records.hash_partition IS 'Customer-hash bucket 0..1023 used to split billing runs';
@@ -0,0 +1,109 @@
+-- Outbox indexes lost by partitioning, and event_id uniqueness across partitions
+--
+-- V1051 recreated outbox_event as a partitioned table without the V1026 status indexes, so the
+-- status counts and statistics and the published-range lookups read every row of every daily
+-- partition. The indexes those queries need are recreated on the partitioned parent, which
+-- creates them on every partition, present and future:
+--   idx_outbox_status          countByStatus, getStatusStatistics, findByStatus
+--   idx_outbox_pending_retry   findPendingEventsForProcessing
+--   idx_outbox_published_range findPublishedEventsInRange
+-- Not recreated:
+--   idx_outbox_retry        same leading columns as idx_outbox_pending_retry, which covers the
+--                           only query on next_retry_at
+--   idx_outbox_status_type  no query filters on status and event_type together; event type
+--                           counts use idx_outbox_type
+--   idx_outbox_created      created_at is the partition key, so ranges on it prune partitions;
+--                           the relay claim and dead letter indexes are ordered by created_at
+
+CREATE INDEX IF NOT EXISTS idx_outbox_status ON outbox_event (status);
+
+CREATE INDEX IF NOT EXISTS idx_outbox_pending_retry
+    ON outbox_event (status, next_retry_at)
+    WHERE status IN ('PENDING', 'RETRY');
+
+CREATE INDEX IF NOT EXISTS idx_outbox_published_range
+    ON outbox_event (published_at)
+    WHERE status = 'PUBLISHED';
+
+-- A unique key of a partitioned table must contain the partition key, so uk_outbox_event_id is
+-- (event_id, created_at) and only rejects a duplicate with the same created_at. event_id is made
+-- unique across partitions by a non-partitioned key table kept by row triggers, which are cloned
+-- to every partition: an insert of an event_id that already exists fails on outbox_event_id_pkey
+-- and rolls back with the transaction that wrote the event. Key rows live as long as their event.
+CREATE TABLE IF NOT EXISTS outbox_event_id (
+    event_id VARCHAR(36) NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    CONSTRAINT outbox_event_id_pkey PRIMARY KEY (event_id)
+);
+
+INSERT INTO outbox_event_id (event_id, created_at)
+SELECT event_id, MIN(created_at)
+FROM outbox_event
+GROUP BY event_id
+ON CONFLICT (event_id) DO NOTHING;
+
+CREATE OR REPLACE FUNCTION reserve_outbox_event_id()
+RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO outbox_event_id (event_id, created_at) VALUES (NEW.event_id, NEW.created_at);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Also frees the keys of events that create_outbox_partitions moves out of the default
+-- partition before it inserts them again
+CREATE OR REPLACE FUNCTION release_outbox_event_id()
+RETURNS TRIGGER AS $$
+BEGIN
+    DELETE FROM outbox_event_id WHERE event_id = OLD.event_id AND created_at = OLD.created_at;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER outbox_event_reserve_id
+    AFTER INSERT ON outbox_event
+    FOR EACH ROW
+    EXECUTE FUNCTION reserve_outbox_event_id();
+
+CREATE TRIGGER outbox_event_release_id
+    AFTER DELETE ON outbox_event
+    FOR EACH ROW
+    EXECUTE FUNCTION release_outbox_event_id();
+
+-- Dropping a partition fires no delete triggers; its keys are released before the drop
+CREATE OR REPLACE FUNCTION drop_outbox_partitions(retention_days INTEGER)
+RETURNS INTEGER AS $$
+DECLARE
+    part RECORD;
+    cutoff DATE := (NOW() AT TIME ZONE 'UTC')::date - retention_days;
+    unrelayed BIGINT;
+    dropped INTEGER := 0;
+BEGIN
+    FOR part IN
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'outbox_event'::regclass
+          AND c.relname ~ '^outbox_event_p[0-9]{8}$'
+          AND to_date(substring(c.relname FROM 15), 'YYYYMMDD') < cutoff
+        ORDER BY c.relname
+    LOOP
+        EXECUTE format('SELECT COUNT(*) FROM %I WHERE status IN (''PENDING'', ''RETRY'')', part.relname)
+            INTO unrelayed;
+        IF unrelayed > 0 THEN
+            RAISE WARNING 'Keeping outbox partition % with % unrelayed events', part.relname, unrelayed;
+            CONTINUE;
+        END IF;
+
+        EXECUTE format('INSERT INTO outbox_event_dead_letter_archive SELECT * FROM %I WHERE status = ''DEAD_LETTER'' '
+                       'ON CONFLICT (id) DO NOTHING', part.relname);
+        EXECUTE format('DELETE FROM outbox_event_id k USING %I p WHERE k.event_id = p.event_id '
+                       'AND k.created_at = p.created_at', part.relname);
+        EXECUTE format('DROP TABLE %I', part.relname);
+        dropped := dropped + 1;
+    END LOOP;
+    RETURN dropped;
+END;
+$$ LANGUAGE plpgsql;
+
+COMMENT ON TABLE outbox_event_id IS 'event_id of every outbox_event row, unique across partitions';
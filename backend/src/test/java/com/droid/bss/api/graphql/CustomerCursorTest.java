@@ -0,0 +1,36 @@
+package com.droid.bss.api.graphql;
+
+import com.droid.bss.infrastructure.read.CustomerConnectionRepository.Keyset;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the opaque keyset cursors of the customer connection
+ */
+class CustomerCursorTest {
+
+    @Test
+    @DisplayName("Cursor - Keyset survives an encode/decode round trip at microsecond precision")
+    void testRoundTrip() {
+        Keyset keyset = new Keyset(
+            OffsetDateTime.of(2024, 3, 1, 12, 30, 15, 123_456_000, ZoneOffset.UTC), UUID.randomUUID());
+
+        Keyset decoded = CustomerCursor.decode(CustomerCursor.encode(keyset));
+
+        assertEquals(keyset.id(), decoded.id());
+        assertTrue(keyset.createdAt().isEqual(decoded.createdAt()));
+    }
+
+    @Test
+    @DisplayName("Cursor - Tampered cursors are rejected")
+    void testInvalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> CustomerCursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> CustomerCursor.decode("YzE6eDp5"));
+    }
+}
@@ -0,0 +1,172 @@
+package com.droid.bss.application.command.billing;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BerCdrReader
+ */
+class BerCdrReaderTest {
+
+    private static final String SUBSCRIPTION_ID = "7f1c0e4a-3c1d-4b8e-9a51-2f0d6c7e8b90";
+
+    @Test
+    @DisplayName("Should decode consecutive CDR SEQUENCEs and skip unknown fields")
+    void shouldDecodeRecords() throws IOException {
+        // Given
+        byte[] first = record(
+                field(0, SUBSCRIPTION_ID), field(1, "VOICE"), field(2, "SECONDS"), field(3, "125.500"),
+                field(4, "2026-09-14"), field(5, "08:15:30"), field(6, "NATIONAL"), field(10, "PEAK"),
+                // Application-class tag added by mediation
+                tlv(0x41, "ignored".getBytes(StandardCharsets.UTF_8)));
+        byte[] second = record(
+                field(0, SUBSCRIPTION_ID), field(1, "DATA"), field(2, "MB"), field(3, "1.5"),
+                field(4, "2026-09-14"), field(5, "09:00:00"), field(20, "unknown"));
+
+        // When
+        List<CdrRecord> records = readAll(concat(first, second));
+
+        // Then
+        assertEquals(2, records.size());
+        CdrRecord voice = records.get(0);
+        assertTrue(voice.isParsed());
+        assertEquals(1, voice.position());
+        assertEquals(SUBSCRIPTION_ID, voice.command().subscriptionId());
+        assertEquals(0, new BigDecimal("125.500").compareTo(voice.command().usageAmount()));
+        assertEquals(LocalDate.of(2026, 9, 14), voice.command().usageDate());
+        assertEquals("NATIONAL", voice.command().destinationType());
+        assertEquals("PEAK", voice.command().ratePeriod());
+        assertEquals("cdr.ber", voice.command().sourceFile());
+        assertEquals(2, records.get(1).position());
+        assertEquals("DATA", records.get(1).command().usageType());
+    }
+
+    @Test
+    @DisplayName("Should decode fields with a long-form length")
+    void shouldDecodeLongFormLength() throws IOException {
+        // Given
+        String networkId = "N".repeat(200);
+        byte[] cdr = record(
+                field(0, SUBSCRIPTION_ID), field(1, "VOICE"), field(2, "SECONDS"), field(3, "60"),
+                field(4, "2026-09-14"), field(5, "10:00:00"), field(9, networkId));
+
+        // When
+        CdrRecord record = readAll(cdr).get(0);
+
+        // Then
+        assertTrue(record.isParsed());
+        assertEquals(networkId, record.command().networkId());
+    }
+
+    @Test
+    @DisplayName("Should reject a malformed field and continue with the next record")
+    void shouldRejectMalformedField() throws IOException {
+        // Given
+        byte[] overrun = record(field(0, SUBSCRIPTION_ID), new byte[] {(byte) 0x81, 0x10, 'V'});
+        byte[] indefinite = record(field(0, SUBSCRIPTION_ID), new byte[] {(byte) 0x81, (byte) 0x80});
+        byte[] missingFields = record(field(0, SUBSCRIPTION_ID), field(1, "VOICE"));
+        byte[] valid = record(
+                field(0, SUBSCRIPTION_ID), field(1, "SMS"), field(2, "COUNT"), field(3, "1"),
+                field(4, "2026-09-14"), field(5, "10:00:00"));
+
+        // When
+        List<CdrRecord> records = readAll(concat(overrun, indefinite, missingFields, valid));
+
+        // Then
+        assertEquals(4, records.size());
+        assertEquals("Field exceeds record length", records.get(0).parseError());
+        assertEquals("Indefinite length fields are not supported", records.get(1).parseError());
+        // Missing fields decode as null and are rejected by validation
+        assertTrue(records.get(2).isParsed());
+        assertNull(records.get(2).command().usageAmount());
+        assertTrue(records.get(3).isParsed());
+    }
+
+    @Test
+    @DisplayName("Should end the file after a broken record header")
+    void shouldStopAtBrokenHeader() throws IOException {
+        // Given
+        byte[] valid = record(
+                field(0, SUBSCRIPTION_ID), field(1, "SMS"), field(2, "COUNT"), field(3, "1"),
+                field(4, "2026-09-14"), field(5, "10:00:00"));
+        byte[] notASequence = tlv(0x04, "garbage".getBytes(StandardCharsets.UTF_8));
+
+        // When
+        List<CdrRecord> records = readAll(concat(valid, notASequence, valid));
+
+        // Then
+        assertEquals(2, records.size());
+        assertTrue(records.get(0).isParsed());
+        assertEquals("Expected CDR SEQUENCE, got tag 0x4 length 7", records.get(1).parseError());
+    }
+
+    @Test
+    @DisplayName("Should report a truncated record")
+    void shouldReportTruncatedRecord() throws IOException {
+        // Given
+        byte[] cdr = record(field(0, SUBSCRIPTION_ID), field(1, "VOICE"));
+
+        // When
+        List<CdrRecord> records = readAll(Arrays.copyOf(cdr, cdr.length - 3));
+
+        // Then
+        assertEquals(1, records.size());
+        assertEquals("Truncated record", records.get(0).parseError());
+    }
+
+    private static List<CdrRecord> readAll(byte[] ber) throws IOException {
+        List<CdrRecord> records = new ArrayList<>();
+        try (CdrReader reader = new BerCdrReader(new ByteArrayInputStream(ber), "cdr.ber")) {
+            CdrRecord record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    private static byte[] record(byte[]... fields) {
+        return tlv(0x30, concat(fields));
+    }
+
+    private static byte[] field(int fieldNo, String value) {
+        return tlv(0x80 | fieldNo, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] tlv(int tag, byte[] value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(tag);
+        if (value.length < 0x80) {
+            out.write(value.length);
+        } else if (value.length < 0x100) {
+            out.write(0x81);
+            out.write(value.length);
+        } else {
+            out.write(0x82);
+            out.write(value.length >> 8);
+            out.write(value.length & 0xFF);
+        }
+        out.writeBytes(value);
+        return out.toByteArray();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,150 @@
+package com.droid.bss.application.command.billing;
+
+import com.droid.bss.application.dto.billing.IngestUsageRecordCommand;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CdrValidator
+ */
+class CdrValidatorTest {
+
+    private static final UUID SUBSCRIPTION_ID = UUID.randomUUID();
+    private static final Set<UUID> EXISTING = Set.of(SUBSCRIPTION_ID);
+
+    private final CdrValidator validator = new CdrValidator();
+
+    @Test
+    @DisplayName("Should accept a complete record")
+    void shouldAcceptValidRecord() {
+        // Given
+        IngestUsageRecordCommand command = valid().usageAmount(new BigDecimal("125.500")).build();
+
+        // When
+        String rejection = validator.validate(command, EXISTING);
+
+        // Then
+        assertNull(rejection);
+    }
+
+    @Test
+    @DisplayName("Should accept a record without optional fields")
+    void shouldAcceptRecordWithoutOptionalFields() {
+        // Given
+        IngestUsageRecordCommand command = valid().usageType("SMS").usageUnit("COUNT").usageAmount(BigDecimal.ONE)
+                .destinationType(null).destinationNumber(null).destinationCountry(null).networkId(null)
+                .ratePeriod(null).source(null).build();
+
+        // When / Then
+        assertNull(validator.validate(command, EXISTING));
+    }
+
+    @Test
+    @DisplayName("Should reject invalid and unknown subscriptions")
+    void shouldRejectSubscriptions() {
+        // Given
+        String unknown = UUID.randomUUID().toString();
+
+        // When / Then
+        assertEquals("Invalid subscription id: not-a-uuid",
+                validator.validate(valid().subscriptionId("not-a-uuid").build(), EXISTING));
+        assertEquals("Invalid subscription id: null",
+                validator.validate(valid().subscriptionId(null).build(), EXISTING));
+        assertEquals("Subscription not found: " + unknown,
+                validator.validate(valid().subscriptionId(unknown).build(), EXISTING));
+    }
+
+    @Test
+    @DisplayName("Should reject values outside the database enums")
+    void shouldRejectUnknownEnumValues() {
+        assertEquals("Invalid usage type: FAX", validator.validate(valid().usageType("FAX").build(), EXISTING));
+        assertEquals("Invalid usage type: null", validator.validate(valid().usageType(null).build(), EXISTING));
+        assertEquals("Invalid usage unit: LITRES", validator.validate(valid().usageUnit("LITRES").build(), EXISTING));
+        assertEquals("Invalid destination type: MOON",
+                validator.validate(valid().destinationType("MOON").build(), EXISTING));
+        assertEquals("Invalid rate period: NIGHT", validator.validate(valid().ratePeriod("NIGHT").build(), EXISTING));
+        assertEquals("Invalid source: FTP", validator.validate(valid().source("FTP").build(), EXISTING));
+    }
+
+    @Test
+    @DisplayName("Should reject amounts the usage_amount column cannot hold")
+    void shouldRejectInvalidAmounts() {
+        assertEquals("Invalid usage amount: null", validator.validate(valid().usageAmount(null).build(), EXISTING));
+        assertEquals("Invalid usage amount: -1", validator.validate(valid().usageAmount(new BigDecimal("-1")).build(), EXISTING));
+        assertEquals("Invalid usage amount: 1.2345",
+                validator.validate(valid().usageAmount(new BigDecimal("1.2345")).build(), EXISTING));
+        assertEquals("Invalid usage amount: 1000000000000",
+                validator.validate(valid().usageAmount(new BigDecimal("1000000000000")).build(), EXISTING));
+        assertNull(validator.validate(valid().usageAmount(new BigDecimal("999999999999.999")).build(), EXISTING));
+    }
+
+    @Test
+    @DisplayName("Should reject missing and future usage dates")
+    void shouldRejectInvalidDates() {
+        LocalDate future = LocalDate.now().plusDays(2);
+
+        assertEquals("Usage date and time are required", validator.validate(valid().usageDate(null).build(), EXISTING));
+        assertEquals("Usage date and time are required", validator.validate(valid().usageTime(null).build(), EXISTING));
+        assertEquals("Usage date is in the future: " + future, validator.validate(valid().usageDate(future).build(), EXISTING));
+        assertNull(validator.validate(valid().usageDate(LocalDate.now().plusDays(1)).build(), EXISTING));
+    }
+
+    @Test
+    @DisplayName("Should reject text longer than its column")
+    void shouldRejectTooLongText() {
+        assertEquals("Destination number longer than 50 characters",
+                validator.validate(valid().destinationNumber("1".repeat(51)).build(), EXISTING));
+        assertEquals("Destination country must be an ISO 3166-1 alpha-2 code",
+                validator.validate(valid().destinationCountry("POL").build(), EXISTING));
+        assertEquals("Network id longer than 50 characters",
+                validator.validate(valid().networkId("N".repeat(51)).build(), EXISTING));
+    }
+
+    private static CommandBuilder valid() {
+        return new CommandBuilder();
+    }
+
+    /**
+     * Valid record with one field to be broken by the test
+     */
+    private static final class CommandBuilder {
+        private String subscriptionId = SUBSCRIPTION_ID.toString();
+        private String usageType = "VOICE";
+        private String usageUnit = "SECONDS";
+        private BigDecimal usageAmount = new BigDecimal("60");
+        private LocalDate usageDate = LocalDate.now().minusDays(1);
+        private LocalTime usageTime = LocalTime.NOON;
+        private String destinationType = "NATIONAL";
+        private String destinationNumber = "+48123456789";
+        private String destinationCountry = "PL";
+        private String networkId = "NET-1";
+        private String ratePeriod = "PEAK";
+        private String source = "CDR";
+
+        CommandBuilder subscriptionId(String value) { subscriptionId = value; return this; }
+        CommandBuilder usageType(String value) { usageType = value; return this; }
+        CommandBuilder usageUnit(String value) { usageUnit = value; return this; }
+        CommandBuilder usageAmount(BigDecimal value) { usageAmount = value; return this; }
+        CommandBuilder usageDate(LocalDate value) { usageDate = value; return this; }
+        CommandBuilder usageTime(LocalTime value) { usageTime = value; return this; }
+        CommandBuilder destinationType(String value) { destinationType = value; return this; }
+        CommandBuilder destinationNumber(String value) { destinationNumber = value; return this; }
+        CommandBuilder destinationCountry(String value) { destinationCountry = value; return this; }
+        CommandBuilder networkId(String value) { networkId = value; return this; }
+        CommandBuilder ratePeriod(String value) { ratePeriod = value; return this; }
+        CommandBuilder source(String value) { source = value; return this; }
+
+        IngestUsageRecordCommand build() {
+            return new IngestUsageRecordCommand(subscriptionId, usageType, usageUnit, usageAmount, usageDate, usageTime,
+                    destinationType, destinationNumber, destinationCountry, networkId, ratePeriod, source, "cdr.csv");
+        }
+    }
+}
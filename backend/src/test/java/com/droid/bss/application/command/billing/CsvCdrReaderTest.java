@@ -0,0 +1,105 @@
+package com.droid.bss.application.command.billing;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CsvCdrReader
+ */
+class CsvCdrReaderTest {
+
+    private static final String SUBSCRIPTION_ID = "7f1c0e4a-3c1d-4b8e-9a51-2f0d6c7e8b90";
+
+    @Test
+    @DisplayName("Should decode CDR lines and skip the header and blank lines")
+    void shouldDecodeLines() throws IOException {
+        // Given
+        String csv = "subscription_id,usage_type,usage_unit,usage_amount,usage_date,usage_time\n"
+                + SUBSCRIPTION_ID + ",VOICE,SECONDS,125.500,2026-09-14,08:15:30,NATIONAL,+48123456789,PL,NET-1,PEAK,CDR\n"
+                + "\n"
+                + SUBSCRIPTION_ID + ",SMS,COUNT,1,2026-09-14,09:00:00\n";
+
+        // When
+        List<CdrRecord> records = readAll(csv);
+
+        // Then
+        assertEquals(2, records.size());
+        CdrRecord voice = records.get(0);
+        assertTrue(voice.isParsed());
+        assertEquals(2, voice.position());
+        assertEquals(SUBSCRIPTION_ID, voice.command().subscriptionId());
+        assertEquals(0, new BigDecimal("125.500").compareTo(voice.command().usageAmount()));
+        assertEquals(LocalDate.of(2026, 9, 14), voice.command().usageDate());
+        assertEquals(LocalTime.of(8, 15, 30), voice.command().usageTime());
+        assertEquals("+48123456789", voice.command().destinationNumber());
+        assertEquals("CDR", voice.command().source());
+        assertEquals("cdr.csv", voice.command().sourceFile());
+
+        CdrRecord sms = records.get(1);
+        assertEquals(4, sms.position());
+        assertNull(sms.command().destinationType());
+        assertNull(sms.command().source());
+    }
+
+    @Test
+    @DisplayName("Should unquote fields with commas and escaped quotes")
+    void shouldUnquoteFields() throws IOException {
+        // Given
+        String csv = SUBSCRIPTION_ID + ",VOICE,SECONDS,60,2026-09-14,10:00:00,NATIONAL,\"12,\"\"34\"\"\",PL\n";
+
+        // When
+        CdrRecord record = readAll(csv).get(0);
+
+        // Then
+        assertTrue(record.isParsed());
+        assertEquals("12,\"34\"", record.command().destinationNumber());
+        assertEquals("PL", record.command().destinationCountry());
+    }
+
+    @Test
+    @DisplayName("Should report malformed lines on their own and continue with the next line")
+    void shouldReportMalformedLines() throws IOException {
+        // Given
+        String csv = SUBSCRIPTION_ID + ",VOICE,SECONDS\n"
+                + SUBSCRIPTION_ID + ",VOICE,SECONDS,abc,2026-09-14,10:00:00\n"
+                + SUBSCRIPTION_ID + ",VOICE,SECONDS,60,2026-13-01,10:00:00\n"
+                + SUBSCRIPTION_ID + ",VOICE,SECONDS,60,2026-09-14,25:00\n"
+                + SUBSCRIPTION_ID + ",VOICE,\"SECONDS,60,2026-09-14,10:00:00\n"
+                + SUBSCRIPTION_ID + ",DATA,MB,1.5,2026-09-14,10:00:00\n";
+
+        // When
+        List<CdrRecord> records = readAll(csv);
+
+        // Then
+        assertEquals(6, records.size());
+        assertEquals("Expected at least 6 fields, got 3", records.get(0).parseError());
+        assertEquals("Invalid usage amount: abc", records.get(1).parseError());
+        assertTrue(records.get(2).parseError().startsWith("Invalid usage date or time"));
+        assertTrue(records.get(3).parseError().startsWith("Invalid usage date or time"));
+        assertEquals("Unterminated quoted field", records.get(4).parseError());
+        assertEquals(5, records.get(4).position());
+        assertTrue(records.get(5).isParsed());
+    }
+
+    private static List<CdrRecord> readAll(String csv) throws IOException {
+        List<CdrRecord> records = new ArrayList<>();
+        try (CdrReader reader = new CsvCdrReader(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), "cdr.csv")) {
+            CdrRecord record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,174 @@
+package com.droid.bss.application.command.billing;
+
+import com.droid.bss.application.dto.billing.ChargingResult;
+import com.droid.bss.application.dto.billing.ChargingStatus;
+import com.droid.bss.domain.billing.BalanceJournalEntry;
+import com.droid.bss.domain.billing.CompiledRatingRule;
+import com.droid.bss.domain.billing.MicroUnits;
+import com.droid.bss.domain.billing.RatePeriod;
+import com.droid.bss.domain.billing.UsageType;
+import com.droid.bss.infrastructure.billing.BalanceJournalWriter;
+import com.droid.bss.infrastructure.billing.PrepaidBalanceRepository;
+import com.droid.bss.infrastructure.billing.PrepaidBalanceRepository.BalanceSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for PrepaidBalanceStore, backed by an in-memory journal and snapshot table
+ */
+class PrepaidBalanceStoreTest {
+
+    private static final CompiledRatingRule VOICE_RULE = new CompiledRatingRule(
+            UUID.randomUUID(), "VOICE-STD", UsageType.VOICE, null, null,
+            new BigDecimal("0.10"), MicroUnits.of(new BigDecimal("0.10")), "PLN",
+            0L, 0L, null, Long.MIN_VALUE, CompiledRatingRule.OPEN_END, null);
+
+    private final List<BalanceJournalEntry> journal = new ArrayList<>();
+    private final Map<UUID, BalanceSnapshot> snapshots = new HashMap<>();
+
+    private PrepaidBalanceRepository repository;
+    private BalanceJournalWriter journalWriter;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        repository = mock(PrepaidBalanceRepository.class);
+        when(repository.findSnapshot(any())).thenAnswer(invocation -> {
+            UUID subscriptionId = invocation.getArgument(0);
+            return snapshots.getOrDefault(subscriptionId, new BalanceSnapshot(subscriptionId, null, 0L, 0L, 0L));
+        });
+        when(repository.findJournalAfter(any(), anyLong())).thenAnswer(invocation -> journal.stream()
+                .filter(entry -> entry.subscriptionId().equals(invocation.getArgument(0)))
+                .filter(entry -> entry.seq() > invocation.<Long>getArgument(1))
+                .toList());
+        when(repository.saveSnapshots(anyList())).thenAnswer(invocation -> {
+            invocation.<List<BalanceSnapshot>>getArgument(0)
+                    .forEach(snapshot -> snapshots.put(snapshot.subscriptionId(), snapshot));
+            return new int[0];
+        });
+
+        journalWriter = mock(BalanceJournalWriter.class);
+        when(journalWriter.append(any(), anyList())).thenAnswer(invocation -> journalWriter.append(
+                invocation.<BalanceJournalEntry>getArgument(0)));
+        when(journalWriter.append(any())).thenAnswer(invocation -> {
+            BalanceJournalEntry entry = invocation.getArgument(0);
+            long seq = journal.size() + 1L;
+            journal.add(new BalanceJournalEntry(seq, entry.subscriptionId(), entry.sessionId(), entry.type(),
+                    entry.amountMicros(), entry.unitsMicros(), entry.currency(), entry.usageType(),
+                    entry.destinationType(), entry.ratePeriod(), entry.expiresAtMillis()));
+            return CompletableFuture.completedFuture(seq);
+        });
+    }
+
+    @Test
+    @DisplayName("Should keep the same session id of two subscriptions apart")
+    void shouldKeySessionsBySubscription() {
+        // Given
+        PrepaidBalanceStore store = newStore();
+        UUID first = UUID.randomUUID();
+        UUID second = otherInSameShard(first);
+        store.topUp(first, "TOPUP-1", MicroUnits.ofUnits(10), "PLN").join();
+        store.topUp(second, "TOPUP-2", MicroUnits.ofUnits(10), "PLN").join();
+
+        // When
+        store.reserve(first, "session-1", VOICE_RULE, RatePeriod.PEAK, MicroUnits.ofUnits(30), expiresAt(), "PLN").join();
+        ChargingResult result = store.reserve(second, "session-1", VOICE_RULE, RatePeriod.PEAK,
+                MicroUnits.ofUnits(50), expiresAt(), "PLN").join();
+
+        // Then
+        assertEquals(ChargingStatus.GRANTED, result.status());
+        assertEquals(0, new BigDecimal("5.00").compareTo(store.balance(second).availableBalance()));
+        assertEquals(0, new BigDecimal("7.00").compareTo(store.balance(first).availableBalance()));
+    }
+
+    @Test
+    @DisplayName("Should restore reservations opened before the snapshot when the balance is reloaded")
+    void shouldRestoreReservationsOpenedBeforeSnapshot() {
+        // Given
+        PrepaidBalanceStore store = newStore();
+        UUID subscriptionId = UUID.randomUUID();
+        store.topUp(subscriptionId, "TOPUP-1", MicroUnits.ofUnits(10), "PLN").join();
+        store.reserve(subscriptionId, "session-1", VOICE_RULE, RatePeriod.PEAK, MicroUnits.ofUnits(30), expiresAt(), "PLN").join();
+        store.topUp(subscriptionId, "TOPUP-2", MicroUnits.ofUnits(5), "PLN").join();
+        BigDecimal available = store.balance(subscriptionId).availableBalance();
+        store.snapshot();
+
+        // When
+        PrepaidBalanceStore reloaded = newStore();
+        ChargingResult result = reloaded.balance(subscriptionId);
+
+        // Then
+        assertEquals(0, new BigDecimal("12.00").compareTo(available));
+        assertEquals(0, available.compareTo(result.availableBalance()));
+        assertNotNull(reloaded.findReservation(subscriptionId, "session-1"));
+        assertEquals(1L, snapshots.get(subscriptionId).replayFromSeq());
+    }
+
+    @Test
+    @DisplayName("Should not restore reservations closed before the snapshot")
+    void shouldNotRestoreReservationsClosedBeforeSnapshot() {
+        // Given
+        PrepaidBalanceStore store = newStore();
+        UUID subscriptionId = UUID.randomUUID();
+        store.topUp(subscriptionId, "TOPUP-1", MicroUnits.ofUnits(10), "PLN").join();
+        store.reserve(subscriptionId, "session-1", VOICE_RULE, RatePeriod.PEAK, MicroUnits.ofUnits(30), expiresAt(), "PLN").join();
+        store.commit(subscriptionId, "session-1", MicroUnits.ofUnits(20), MicroUnits.ofUnits(2), List.of()).join();
+        store.snapshot();
+
+        // When
+        PrepaidBalanceStore reloaded = newStore();
+
+        // Then
+        assertEquals(0, new BigDecimal("8.00").compareTo(reloaded.balance(subscriptionId).availableBalance()));
+        assertNull(reloaded.findReservation(subscriptionId, "session-1"));
+        assertEquals(3L, snapshots.get(subscriptionId).replayFromSeq());
+    }
+
+    @Test
+    @DisplayName("Should reject a reservation in another currency than the balance")
+    void shouldRejectReservationInOtherCurrency() {
+        // Given
+        PrepaidBalanceStore store = newStore();
+        UUID subscriptionId = UUID.randomUUID();
+        store.topUp(subscriptionId, "TOPUP-1", MicroUnits.ofUnits(10), "EUR").join();
+
+        // When
+        ChargingResult result = store.reserve(subscriptionId, "session-1", VOICE_RULE, RatePeriod.PEAK,
+                MicroUnits.ofUnits(30), expiresAt(), "PLN").join();
+
+        // Then
+        assertEquals(ChargingStatus.CURRENCY_MISMATCH, result.status());
+        assertNull(store.findReservation(subscriptionId, "session-1"));
+        assertEquals(0, new BigDecimal("10.00").compareTo(result.availableBalance()));
+        assertEquals(1, journal.size());
+    }
+
+    private PrepaidBalanceStore newStore() {
+        return new PrepaidBalanceStore(repository, journalWriter, 4, 600_000);
+    }
+
+    private static UUID otherInSameShard(UUID subscriptionId) {
+        UUID candidate;
+        do {
+            candidate = UUID.randomUUID();
+        } while (Math.floorMod(candidate.hashCode(), 4) != Math.floorMod(subscriptionId.hashCode(), 4));
+        return candidate;
+    }
+
+    private static long expiresAt() {
+        return System.currentTimeMillis() + 60_000;
+    }
+}
@@ -0,0 +1,97 @@
+package com.droid.bss.application.command.billing;
+
+import com.droid.bss.domain.billing.MicroUnits;
+import com.droid.bss.infrastructure.billing.UsageCounterRepository;
+import com.droid.bss.infrastructure.billing.UsageCounterRepository.CounterDelta;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for UsageCounterStore consumption captured for the balance journal
+ */
+class UsageCounterStoreTest {
+
+    private static final long EPOCH_DAY = LocalDate.of(2026, 3, 15).toEpochDay();
+
+    private final RecordingRepository repository = new RecordingRepository();
+    private final UsageCounterStore store = new UsageCounterStore(repository, 600_000);
+    private final UUID subscriptionId = UUID.randomUUID();
+
+    @Test
+    @DisplayName("Should undo captured consumption when the journal transaction fails")
+    void shouldUndoCapturedConsumptionWhenNotPersisted() {
+        // Given
+        UsageCounterStore.Captured<Long> rated = store.capture(() -> consume(5));
+
+        // When
+        rated.consumption().complete(false);
+
+        // Then
+        assertEquals(0L, consume(1));
+        store.flush();
+        assertEquals(List.of(new CounterDelta(subscriptionId, "VOICE-TIER", LocalDate.of(2026, 3, 1),
+                MicroUnits.ofUnits(1))), repository.added);
+    }
+
+    @Test
+    @DisplayName("Should keep persisted consumption without flushing it again")
+    void shouldNotFlushPersistedConsumption() {
+        // Given
+        UsageCounterStore.Captured<Long> rated = store.capture(() -> consume(5));
+        List<CounterDelta> deltas = rated.consumption().deltas();
+
+        // When
+        rated.consumption().complete(true);
+        store.flush();
+
+        // Then
+        assertEquals(List.of(new CounterDelta(subscriptionId, "VOICE-TIER", LocalDate.of(2026, 3, 1),
+                MicroUnits.ofUnits(5))), deltas);
+        assertTrue(repository.added.isEmpty());
+        assertEquals(MicroUnits.ofUnits(5), consume(1));
+    }
+
+    @Test
+    @DisplayName("Should undo captured consumption when rating fails")
+    void shouldUndoConsumptionWhenRatingFails() {
+        // When
+        assertThrows(IllegalStateException.class, () -> store.capture(() -> {
+            consume(5);
+            throw new IllegalStateException("rating failed");
+        }));
+
+        // Then
+        assertEquals(0L, consume(1));
+    }
+
+    private long consume(long units) {
+        return store.consume(subscriptionId, "VOICE-TIER", EPOCH_DAY, MicroUnits.ofUnits(units));
+    }
+
+    private static final class RecordingRepository extends UsageCounterRepository {
+
+        private final List<CounterDelta> added = new ArrayList<>();
+
+        private RecordingRepository() {
+            super(null);
+        }
+
+        @Override
+        public long findConsumedMicros(UUID subscriptionId, String counterKey, LocalDate periodStart) {
+            return 0L;
+        }
+
+        @Override
+        public int[] addConsumed(List<CounterDelta> deltas) {
+            added.addAll(deltas);
+            return new int[deltas.size()];
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.droid.bss.domain.billing;
+
+import org.junit.jupiter.api.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CompiledTariff
+ */
+class CompiledTariffTest {
+
+    private static final long BASE_RATE = MicroUnits.of(new BigDecimal("0.1000"));
+
+    // 0-100 units at the base rate, 100-500 at 0.05, from 500 at 0.02
+    private static final long[] TIER_STARTS = {MicroUnits.ofUnits(100), MicroUnits.ofUnits(500)};
+    private static final long[] TIER_RATES = {50_000L, 20_000L};
+
+    @Test
+    @DisplayName("Should not charge units covered by the allowance")
+    void shouldConsumeAllowanceFirst() {
+        // Given
+        CompiledTariff tariff = new CompiledTariff(TariffMode.FLAT, MicroUnits.ofUnits(60), "BUNDLE", new long[0], new long[0]);
+
+        // When / Then
+        assertEquals(0L, tariff.charge(0L, MicroUnits.ofUnits(50), BASE_RATE));
+        // 10 of 30 units left in the allowance
+        assertEquals(MicroUnits.ofUnits(2), tariff.charge(MicroUnits.ofUnits(50), MicroUnits.ofUnits(30), BASE_RATE));
+        assertEquals(MicroUnits.ofUnits(1), tariff.charge(MicroUnits.ofUnits(80), MicroUnits.ofUnits(10), BASE_RATE));
+    }
+
+    @Test
+    @DisplayName("Should price each tier separately in graduated mode")
+    void shouldPriceGraduatedTiers() {
+        // Given
+        CompiledTariff tariff = new CompiledTariff(TariffMode.TIERED, 0L, "DATA", TIER_STARTS, TIER_RATES);
+
+        // When
+        // 50 units at 0.10 + 400 at 0.05 + 50 at 0.02 = 5 + 20 + 1
+        long charge = tariff.charge(MicroUnits.ofUnits(50), MicroUnits.ofUnits(500), BASE_RATE);
+
+        // Then
+        assertEquals(MicroUnits.ofUnits(26), charge);
+        assertEquals(tariff.charge(0L, MicroUnits.ofUnits(550), BASE_RATE),
+                tariff.charge(0L, MicroUnits.ofUnits(50), BASE_RATE) + charge);
+    }
+
+    @Test
+    @DisplayName("Should price the whole record at the tier reached in volume mode")
+    void shouldPriceVolumeTier() {
+        // Given
+        CompiledTariff tariff = new CompiledTariff(TariffMode.VOLUME, 0L, "DATA", TIER_STARTS, TIER_RATES);
+
+        // When / Then
+        assertEquals(MicroUnits.ofUnits(5), tariff.charge(0L, MicroUnits.ofUnits(50), BASE_RATE));
+        // Reaches 150 units: all 100 units at 0.05
+        assertEquals(MicroUnits.ofUnits(5), tariff.charge(MicroUnits.ofUnits(50), MicroUnits.ofUnits(100), BASE_RATE));
+        // Ends exactly at the tier boundary: still the lower tier
+        assertEquals(MicroUnits.ofUnits(5), tariff.charge(MicroUnits.ofUnits(400), MicroUnits.ofUnits(100), BASE_RATE));
+        // Crosses into the last tier: all 100 units at 0.02
+        assertEquals(MicroUnits.ofUnits(2), tariff.charge(MicroUnits.ofUnits(450), MicroUnits.ofUnits(100), BASE_RATE));
+    }
+
+    @Test
+    @DisplayName("Should classify weekends and the weekday peak window")
+    void shouldClassifyRatePeriods() {
+        // Given
+        RatePeriodClassifier classifier = RatePeriodClassifier.ofHours(8, 20);
+        long monday = LocalDate.of(2025, 6, 2).toEpochDay();
+
+        // When / Then
+        assertEquals(RatePeriod.PEAK, classifier.classify(monday, 8 * 3600));
+        assertEquals(RatePeriod.OFF_PEAK, classifier.classify(monday, 20 * 3600));
+        assertEquals(RatePeriod.OFF_PEAK, classifier.classify(monday + 4, 7 * 3600));
+        assertEquals(RatePeriod.WEEKEND, classifier.classify(monday + 5, 12 * 3600));
+        assertEquals(RatePeriod.WEEKEND, classifier.classify(monday + 6, 12 * 3600));
+    }
+}
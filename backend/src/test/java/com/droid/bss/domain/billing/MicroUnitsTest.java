@@ -0,0 +1,65 @@
+package com.droid.bss.domain.billing;
+
+import org.junit.jupiter.api.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MicroUnits
+ */
+class MicroUnitsTest {
+
+    @Test
+    @DisplayName("Should convert decimals to micro-units and back")
+    void shouldConvertDecimals() {
+        assertEquals(125_500_000L, MicroUnits.of(new BigDecimal("125.500")));
+        assertEquals(0L, MicroUnits.of(null));
+        assertEquals(new BigDecimal("12.34"), MicroUnits.toBigDecimal(12_340_000L, MicroUnits.MONEY_SCALE));
+        assertThrows(ArithmeticException.class, () -> MicroUnits.of(new BigDecimal("0.0000001")));
+        assertThrows(ArithmeticException.class, () -> MicroUnits.toBigDecimal(12_345_000L, MicroUnits.MONEY_SCALE));
+    }
+
+    @Test
+    @DisplayName("Should round charges half up to money scale")
+    void shouldRoundChargesHalfUp() {
+        // 3.125 units at 0.1000 = 0.3125 -> 0.31
+        assertEquals(310_000L, MicroUnits.multiply(3_125_000L, 100_000L, 2, RoundingMode.HALF_UP));
+        // 0.125 at 1.0 = 0.125 -> 0.13
+        assertEquals(130_000L, MicroUnits.multiply(125_000L, 1_000_000L, 2, RoundingMode.HALF_UP));
+        assertEquals(120_000L, MicroUnits.multiply(125_000L, 1_000_000L, 2, RoundingMode.HALF_EVEN));
+        // 23% of 10.01 = 2.3023 -> 2.30
+        assertEquals(2_300_000L, MicroUnits.percentOf(10_010_000L, 23_000_000L, 2, RoundingMode.HALF_UP));
+    }
+
+    @Test
+    @DisplayName("Should match BigDecimal arithmetic for every rounding mode")
+    void shouldMatchBigDecimal() {
+        Random random = new Random(42);
+        RoundingMode[] modes = {RoundingMode.HALF_UP, RoundingMode.HALF_EVEN, RoundingMode.HALF_DOWN,
+                RoundingMode.UP, RoundingMode.DOWN, RoundingMode.FLOOR, RoundingMode.CEILING};
+
+        for (int i = 0; i < 100_000; i++) {
+            long a = random.nextLong() % 100_000_000_000L;
+            long b = random.nextLong() % 10_000_000L;
+            RoundingMode mode = modes[random.nextInt(modes.length)];
+
+            BigDecimal expected = BigDecimal.valueOf(a, 6).multiply(BigDecimal.valueOf(b, 6)).setScale(2, mode);
+            assertEquals(0, expected.compareTo(MicroUnits.toBigDecimal(MicroUnits.multiply(a, b, 2, mode), 2)),
+                    () -> a + " * " + b + " " + mode);
+        }
+    }
+
+    @Test
+    @DisplayName("Should fall back to exact arithmetic when the product exceeds 64 bits")
+    void shouldHandleWideProducts() {
+        long a = 50_000_000_000_000L;   // 50 million units
+        long b = 500_000_000L;          // rate 500
+        assertEquals(25_000_000_000L * MicroUnits.ONE, MicroUnits.multiply(a, b, 2, RoundingMode.HALF_UP));
+        assertThrows(ArithmeticException.class,
+                () -> MicroUnits.multiply(Long.MAX_VALUE / 2, 3_000_000L, 2, RoundingMode.HALF_UP));
+    }
+}
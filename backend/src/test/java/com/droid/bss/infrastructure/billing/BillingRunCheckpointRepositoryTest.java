@@ -0,0 +1,173 @@
+package com.droid.bss.infrastructure.billing;
+
+import com.droid.bss.domain.billing.BillingRunCheckpoint;
+import com.droid.bss.domain.billing.BillingRunStatus;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for the partition leases of BillingRunCheckpointRepository (V1042, V1043)
+ */
+@Testcontainers
+class BillingRunCheckpointRepositoryTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:18-alpine"))
+            .withDatabaseName("bss_test")
+            .withUsername("test")
+            .withPassword("test");
+
+    // Its usage_records and invoices parts need tables this test has not
+    private static final String CHECKPOINT_MIGRATION = "db/migration/V1042__create_billing_run_checkpoints.sql";
+    private static final String PARTITION_MIGRATION = "db/migration/V1043__partition_billing_run_checkpoints.sql";
+    private static final long LEASE_SECONDS = 120;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static DriverManagerDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+    private static BillingRunCheckpointRepository repository;
+
+    private UUID billingCycleId;
+
+    @BeforeAll
+    static void setup() throws Exception {
+        dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        repository = new BillingRunCheckpointRepository(jdbcTemplate);
+
+        String checkpointMigration = new ClassPathResource(CHECKPOINT_MIGRATION).getContentAsString(StandardCharsets.UTF_8);
+        Arrays.stream(checkpointMigration.split(";"))
+                .filter(statement -> statement.contains("billing_run_checkpoints"))
+                .forEach(jdbcTemplate::execute);
+        jdbcTemplate.execute(new ClassPathResource(PARTITION_MIGRATION).getContentAsString(StandardCharsets.UTF_8));
+    }
+
+    @BeforeEach
+    void setUp() {
+        billingCycleId = UUID.randomUUID();
+    }
+
+    @Test
+    @DisplayName("Should lease every partition to one claimer only")
+    void shouldClaimEachPartitionOnce() {
+        // Given
+        repository.createPartitions(billingCycleId, 3);
+
+        // When
+        BillingRunCheckpoint first = repository.claimNext(billingCycleId, "replica-a", LEASE_SECONDS, MAX_ATTEMPTS).orElseThrow();
+        BillingRunCheckpoint second = repository.claimNext(billingCycleId, "replica-b", LEASE_SECONDS, MAX_ATTEMPTS).orElseThrow();
+        BillingRunCheckpoint third = repository.claimNext(billingCycleId, "replica-a", LEASE_SECONDS, MAX_ATTEMPTS).orElseThrow();
+        Optional<BillingRunCheckpoint> none = repository.claimNext(billingCycleId, "replica-c", LEASE_SECONDS, MAX_ATTEMPTS);
+
+        // Then
+        assertEquals(0, first.partitionNo());
+        assertEquals(1, second.partitionNo());
+        assertEquals(2, third.partitionNo());
+        assertTrue(none.isEmpty());
+        assertEquals(BillingRunStatus.RUNNING, first.status());
+        assertNotNull(first.startedAt());
+        assertEquals("replica-b", jdbcTemplate.queryForObject(
+                "SELECT lease_owner FROM billing_run_checkpoints WHERE billing_cycle_id = ? AND partition_no = 1",
+                String.class, billingCycleId));
+    }
+
+    @Test
+    @DisplayName("Should skip a partition locked by another claimer instead of waiting for it")
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void shouldSkipLockedPartition() throws Exception {
+        // Given
+        repository.createPartitions(billingCycleId, 2);
+
+        try (Connection other = dataSource.getConnection()) {
+            other.setAutoCommit(false);
+            try (PreparedStatement lock = other.prepareStatement(
+                    "SELECT 1 FROM billing_run_checkpoints WHERE billing_cycle_id = ? AND partition_no = 0 FOR UPDATE")) {
+                lock.setObject(1, billingCycleId);
+                lock.executeQuery().close();
+            }
+
+            // When
+            Optional<BillingRunCheckpoint> claimed = repository.claimNext(billingCycleId, "replica-b", LEASE_SECONDS, MAX_ATTEMPTS);
+            Optional<BillingRunCheckpoint> none = repository.claimNext(billingCycleId, "replica-b", LEASE_SECONDS, MAX_ATTEMPTS);
+
+            // Then
+            assertEquals(1, claimed.orElseThrow().partitionNo());
+            assertTrue(none.isEmpty());
+            other.rollback();
+        }
+
+        assertEquals(0, repository.claimNext(billingCycleId, "replica-c", LEASE_SECONDS, MAX_ATTEMPTS)
+                .orElseThrow().partitionNo());
+    }
+
+    @Test
+    @DisplayName("Should hand an expired lease over and resume after the last invoiced subscription")
+    void shouldResumeAfterLeaseExpires() {
+        // Given
+        repository.createPartitions(billingCycleId, 1);
+        BillingRunCheckpoint claimed = repository.claimNext(billingCycleId, "replica-a", LEASE_SECONDS, MAX_ATTEMPTS).orElseThrow();
+        UUID lastSubscription = UUID.randomUUID();
+        BillingRunCheckpoint progress = claimed.advance(lastSubscription, 10, 1, true,
+                new BigDecimal("12.50"), new BigDecimal("2.88"));
+        assertTrue(repository.saveProgress(progress, "replica-a", LEASE_SECONDS));
+        assertTrue(repository.claimNext(billingCycleId, "replica-b", LEASE_SECONDS, MAX_ATTEMPTS).isEmpty());
+
+        // When
+        jdbcTemplate.update("UPDATE billing_run_checkpoints SET lease_expires_at = NOW() - INTERVAL '1 second' " +
+                "WHERE billing_cycle_id = ?", billingCycleId);
+        BillingRunCheckpoint resumed = repository.claimNext(billingCycleId, "replica-b", LEASE_SECONDS, MAX_ATTEMPTS).orElseThrow();
+
+        // Then
+        assertEquals(lastSubscription, resumed.lastSubscriptionId());
+        assertEquals(10, resumed.recordsProcessed());
+        assertEquals(1, resumed.invoicesCreated());
+        assertEquals(0, new BigDecimal("12.50").compareTo(resumed.netAmount()));
+        assertFalse(repository.renewLease(billingCycleId, 0, "replica-a", LEASE_SECONDS));
+        assertFalse(repository.saveProgress(progress.withStatus(BillingRunStatus.COMPLETED), "replica-a", LEASE_SECONDS));
+        assertTrue(repository.renewLease(billingCycleId, 0, "replica-b", LEASE_SECONDS));
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT attempts FROM billing_run_checkpoints WHERE billing_cycle_id = ?", Integer.class, billingCycleId));
+    }
+
+    @Test
+    @DisplayName("Should stop claiming a failed partition after its attempts until the run is restarted")
+    void shouldRetryFailedPartitionUpToMaxAttempts() {
+        // Given
+        repository.createPartitions(billingCycleId, 1);
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            repository.claimNext(billingCycleId, "replica-a", LEASE_SECONDS, MAX_ATTEMPTS).orElseThrow();
+            repository.markFailed(billingCycleId, 0, "replica-a");
+        }
+
+        // When
+        Optional<BillingRunCheckpoint> exhausted = repository.claimNext(billingCycleId, "replica-a", LEASE_SECONDS, MAX_ATTEMPTS);
+        int reset = repository.resetFailedAttempts(billingCycleId);
+
+        // Then
+        assertTrue(exhausted.isEmpty());
+        assertEquals(1, repository.summarize(billingCycleId, MAX_ATTEMPTS).exhaustedPartitions());
+        assertEquals(1, reset);
+        assertTrue(repository.claimNext(billingCycleId, "replica-a", LEASE_SECONDS, MAX_ATTEMPTS).isPresent());
+    }
+}
@@ -0,0 +1,75 @@
+package com.droid.bss.infrastructure.billing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for SubscriptionLookupCache
+ */
+class SubscriptionLookupCacheTest {
+
+    private final Set<UUID> subscriptions = new HashSet<>();
+
+    private JdbcTemplate jdbcTemplate;
+    private SubscriptionLookupCache cache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (UUID id : subscriptions) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getObject(1, UUID.class)).thenReturn(id);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        cache = new SubscriptionLookupCache(jdbcTemplate, 1000, 300);
+    }
+
+    @Test
+    @DisplayName("Should resolve cached subscriptions without another query")
+    void shouldCacheExistingSubscriptions() {
+        // Given
+        UUID existing = UUID.randomUUID();
+        subscriptions.add(existing);
+        cache.findExisting(List.of(existing));
+
+        // When
+        Set<UUID> found = cache.findExisting(List.of(existing));
+
+        // Then
+        assertEquals(Set.of(existing), found);
+        verify(jdbcTemplate, times(1)).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    @DisplayName("Should accept a subscription created after it was looked up as unknown")
+    void shouldNotCacheUnknownSubscriptions() {
+        // Given
+        UUID created = UUID.randomUUID();
+        assertTrue(cache.findExisting(List.of(created)).isEmpty());
+
+        // When
+        subscriptions.add(created);
+        Set<UUID> found = cache.findExisting(List.of(created));
+
+        // Then
+        assertEquals(Set.of(created), found);
+    }
+}
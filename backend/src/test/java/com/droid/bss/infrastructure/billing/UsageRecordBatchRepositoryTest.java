@@ -0,0 +1,193 @@
+package com.droid.bss.infrastructure.billing;
+
+import com.droid.bss.domain.billing.UsageRecordRow;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for UsageRecordBatchRepository against the usage_records columns the billing run reads
+ */
+@Testcontainers
+class UsageRecordBatchRepositoryTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:18-alpine"))
+            .withDatabaseName("bss_test")
+            .withUsername("test")
+            .withPassword("test");
+
+    private static final String MIGRATION = "db/migration/V1058__add_usage_records_hash_partition.sql";
+    private static final LocalDate CYCLE_START = LocalDate.of(2026, 9, 1);
+    private static final LocalDate CYCLE_END = LocalDate.of(2026, 9, 30);
+
+    private static JdbcTemplate jdbcTemplate;
+    private static UsageRecordBatchRepository repository;
+
+    private UUID subscriptionId;
+
+    @BeforeAll
+    static void setup() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        repository = new UsageRecordBatchRepository(jdbcTemplate);
+
+        jdbcTemplate.execute("CREATE TABLE subscriptions (id UUID PRIMARY KEY, customer_id UUID NOT NULL)");
+        jdbcTemplate.execute("""
+                CREATE TABLE usage_records (
+                    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+                    subscription_id UUID NOT NULL REFERENCES subscriptions(id),
+                    usage_type VARCHAR(20) NOT NULL,
+                    usage_unit VARCHAR(20) NOT NULL,
+                    usage_amount DECIMAL(15,3) NOT NULL,
+                    usage_date DATE NOT NULL,
+                    usage_time TIME NOT NULL,
+                    destination_type VARCHAR(20),
+                    rate_period VARCHAR(20),
+                    tax_rate DECIMAL(5,2) DEFAULT 23.00,
+                    charge_amount DECIMAL(10,2),
+                    rated BOOLEAN DEFAULT false,
+                    processed BOOLEAN DEFAULT false,
+                    invoice_id UUID
+                )""");
+        jdbcTemplate.execute(new ClassPathResource(MIGRATION).getContentAsString(StandardCharsets.UTF_8));
+    }
+
+    @BeforeEach
+    void setUp() {
+        // Usage left by other tests is out of the way of the billing run queries
+        jdbcTemplate.update("UPDATE usage_records SET invoice_id = ? WHERE invoice_id IS NULL", UUID.randomUUID());
+        newSubscription();
+    }
+
+    @Test
+    @DisplayName("Should link only the usage that was added up, not usage rated after the tally")
+    void shouldLinkOnlyTalliedUsage() {
+        // Given
+        insertRatedUsage(CYCLE_START.plusDays(1));
+        insertRatedUsage(CYCLE_START.plusDays(2));
+        List<UUID> tallied = repository.findPage(CYCLE_START, CYCLE_END, 0, 1, null, null, 100).stream()
+                .filter(row -> row.subscriptionId().equals(subscriptionId))
+                .map(UsageRecordRow::id)
+                .toList();
+        UUID lateUsage = insertRatedUsage(CYCLE_START.plusDays(3));
+
+        // When
+        UUID invoiceId = UUID.randomUUID();
+        int linked = repository.linkToInvoice(invoiceId, tallied);
+
+        // Then
+        assertEquals(2, tallied.size());
+        assertEquals(2, linked);
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM usage_records WHERE invoice_id = ? AND processed", Integer.class, invoiceId));
+        assertNull(jdbcTemplate.queryForObject(
+                "SELECT invoice_id FROM usage_records WHERE id = ?", UUID.class, lateUsage));
+    }
+
+    @Test
+    @DisplayName("Should not relink usage that is already on an invoice")
+    void shouldNotRelinkInvoicedUsage() {
+        // Given
+        UUID usageId = insertRatedUsage(CYCLE_START.plusDays(1));
+        UUID firstInvoice = UUID.randomUUID();
+        repository.linkToInvoice(firstInvoice, List.of(usageId));
+
+        // When
+        int linked = repository.linkToInvoice(UUID.randomUUID(), List.of(usageId));
+
+        // Then
+        assertEquals(0, linked);
+        assertEquals(firstInvoice, jdbcTemplate.queryForObject(
+                "SELECT invoice_id FROM usage_records WHERE id = ?", UUID.class, usageId));
+    }
+
+    @Test
+    @DisplayName("Should split uninvoiced usage into disjoint customer partitions that page to completion")
+    void shouldSplitUsageIntoCustomerPartitions() {
+        // Given
+        Set<UUID> inserted = new HashSet<>();
+        for (int i = 0; i < 40; i++) {
+            newSubscription();
+            inserted.add(insertRatedUsage(CYCLE_START.plusDays(1)));
+            inserted.add(insertRatedUsage(CYCLE_START.plusDays(2)));
+        }
+
+        // When
+        List<UUID> read = new ArrayList<>();
+        Set<UUID> customers = new HashSet<>();
+        int partitionCount = 3;
+        for (int partition = 0; partition < partitionCount; partition++) {
+            Set<UUID> partitionCustomers = new HashSet<>();
+            UUID afterSubscription = null;
+            UUID afterUsage = null;
+            List<UsageRecordRow> page;
+            while (!(page = repository.findPage(CYCLE_START, CYCLE_END, partition, partitionCount,
+                    afterSubscription, afterUsage, 7)).isEmpty()) {
+                for (UsageRecordRow row : page) {
+                    read.add(row.id());
+                    partitionCustomers.add(row.customerId());
+                }
+                afterSubscription = page.get(page.size() - 1).subscriptionId();
+                afterUsage = page.get(page.size() - 1).id();
+            }
+            partitionCustomers.forEach(customer -> assertTrue(customers.add(customer),
+                    "Customer " + customer + " read by more than one partition"));
+        }
+
+        // Then
+        assertEquals(inserted.size(), read.size());
+        assertEquals(inserted, new HashSet<>(read));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM usage_records WHERE hash_partition IS NULL", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Should cover every bucket exactly once for any partition count")
+    void shouldCoverAllBuckets() {
+        for (int partitionCount : new int[] {1, 3, 8, 1000}) {
+            assertEquals(0, UsageRecordBatchRepository.bucketBound(0, partitionCount));
+            assertEquals(UsageRecordBatchRepository.HASH_PARTITIONS,
+                    UsageRecordBatchRepository.bucketBound(partitionCount, partitionCount));
+            for (int partition = 0; partition < partitionCount; partition++) {
+                assertTrue(UsageRecordBatchRepository.bucketBound(partition, partitionCount)
+                        <= UsageRecordBatchRepository.bucketBound(partition + 1, partitionCount));
+            }
+        }
+    }
+
+    private void newSubscription() {
+        subscriptionId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO subscriptions (id, customer_id) VALUES (?, ?)", subscriptionId, UUID.randomUUID());
+    }
+
+    private UUID insertRatedUsage(LocalDate usageDate) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("""
+                INSERT INTO usage_records (id, subscription_id, usage_type, usage_unit, usage_amount, usage_date,
+                    usage_time, destination_type, rate_period, charge_amount, rated)
+                VALUES (?, ?, 'VOICE', 'SECONDS', 60, ?, '10:00', 'NATIONAL', 'PEAK', 1.00, true)""",
+                id, subscriptionId, Date.valueOf(usageDate));
+        return id;
+    }
+}
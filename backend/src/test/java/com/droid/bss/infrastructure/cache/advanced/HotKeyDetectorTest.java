@@ -0,0 +1,68 @@
+package com.droid.bss.infrastructure.cache.advanced;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the count-min sketch and top-K heap of HotKeyDetector
+ */
+class HotKeyDetectorTest {
+
+    private HotKeyDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        detector = new HotKeyDetector(null, 1024, 4, 10, 100, 10_000);
+    }
+
+    @Test
+    @DisplayName("Hot keys - Heavy hitters are found among many cold keys")
+    void testHeavyHittersAmongColdKeys() {
+        for (int round = 0; round < 200; round++) {
+            detector.recordAccess("bss:customer:hot-1");
+            detector.recordAccess("bss:customer:hot-2");
+            for (int i = 0; i < 50; i++) {
+                detector.recordAccess("bss:customer:" + round + ":" + i);
+            }
+        }
+
+        detector.detectHotKeys();
+
+        assertTrue(detector.isHotKey("bss:customer:hot-1"));
+        assertTrue(detector.isHotKey("bss:customer:hot-2"));
+        assertFalse(detector.isHotKey("bss:customer:7:7"));
+        List<String> top = detector.getTopHotKeys(2);
+        assertTrue(top.containsAll(List.of("bss:customer:hot-1", "bss:customer:hot-2")));
+    }
+
+    @Test
+    @DisplayName("Hot keys - Top K stays bounded")
+    void testTopKBounded() {
+        for (int i = 0; i < 10_000; i++) {
+            detector.recordAccess("bss:order:" + i);
+        }
+
+        assertTrue(detector.getTopHotKeys(Integer.MAX_VALUE).size() <= 10);
+    }
+
+    @Test
+    @DisplayName("Hot keys - Decay cools down keys that are no longer read")
+    void testDecay() {
+        for (int i = 0; i < 150; i++) {
+            detector.recordAccess("bss:customer:1");
+        }
+        detector.detectHotKeys();
+        assertTrue(detector.isHotKey("bss:customer:1"));
+
+        detector.decay();
+        detector.detectHotKeys();
+
+        assertFalse(detector.isHotKey("bss:customer:1"));
+        assertEquals(75, detector.getAccessCount("bss:customer:1"));
+    }
+}
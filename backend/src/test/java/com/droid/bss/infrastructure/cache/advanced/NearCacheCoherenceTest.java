@@ -0,0 +1,197 @@
+package com.droid.bss.infrastructure.cache.advanced;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the near-cache protocol of MultiLayerCacheManager
+ */
+class NearCacheCoherenceTest {
+
+    private RedisTemplate<String, Object> l2Cache;
+    private ValueOperations<String, Object> valueOperations;
+    private NearCacheInvalidationBus invalidationBus;
+    private MultiLayerCacheManager cacheManager;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        l2Cache = mock(RedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        invalidationBus = mock(NearCacheInvalidationBus.class);
+        when(l2Cache.opsForValue()).thenReturn(valueOperations);
+        cacheManager = new MultiLayerCacheManager(Caffeine.newBuilder().build(), l2Cache,
+                invalidationBus, Duration.ofSeconds(30));
+    }
+
+    @Test
+    @DisplayName("Near cache - Writes and evictions broadcast with increasing versions")
+    void testBroadcastsVersions() {
+        cacheManager.put("bss:customer:1", "v1");
+        cacheManager.evict("bss:customer:1");
+
+        ArgumentCaptor<Long> versions = ArgumentCaptor.forClass(Long.class);
+        verify(invalidationBus, times(2)).publishKey(eq("bss:customer:1"), versions.capture());
+        assertTrue(versions.getAllValues().get(1) > versions.getAllValues().get(0));
+    }
+
+    @Test
+    @DisplayName("Near cache - Remote invalidation drops older L1 entry")
+    void testRemoteInvalidationDropsOlderEntry() {
+        cacheManager.put("bss:customer:1", "v1");
+        when(valueOperations.get("bss:customer:1")).thenReturn("v2");
+
+        cacheManager.onKeyInvalidated("bss:customer:1", futureVersion());
+
+        assertEquals(Optional.of("v2"), cacheManager.get("bss:customer:1", String.class));
+        verify(valueOperations, times(1)).get("bss:customer:1");
+        assertEquals(1, cacheManager.getRemoteInvalidations());
+    }
+
+    @Test
+    @DisplayName("Near cache - Remote invalidation drops the L1 entry even if its clock is behind")
+    void testRemoteInvalidationFromSlowerClockDropsEntry() {
+        cacheManager.put("bss:customer:1", "v1");
+        when(valueOperations.get("bss:customer:1")).thenReturn("v2");
+
+        cacheManager.onKeyInvalidated("bss:customer:1", 1L);
+
+        assertEquals(Optional.of("v2"), cacheManager.get("bss:customer:1", String.class));
+        verify(valueOperations, times(1)).get("bss:customer:1");
+    }
+
+    @Test
+    @DisplayName("Near cache - L1 entry expires with the TTL it was put with")
+    void testL1EntryExpiresWithPutTtl() throws InterruptedException {
+        MultiLayerCacheManager expiringCacheManager = new MultiLayerCacheManager(Caffeine.newBuilder()
+                .expireAfter(MultiLayerCacheManager.l1Expiry(Duration.ofMinutes(30), Duration.ofHours(2)))
+                .build(), l2Cache, invalidationBus, Duration.ofSeconds(30));
+        expiringCacheManager.put("bss:customer:1", "v1", Duration.ofMillis(50));
+        expiringCacheManager.put("bss:customer:2", "v2", Duration.ofMinutes(5));
+
+        Thread.sleep(100);
+
+        assertFalse(expiringCacheManager.get("bss:customer:1", String.class).isPresent());
+        assertEquals(Optional.of("v2"), expiringCacheManager.get("bss:customer:2", String.class));
+        verify(valueOperations, times(1)).get("bss:customer:1");
+        verify(valueOperations, never()).get("bss:customer:2");
+    }
+
+    @Test
+    @DisplayName("Near cache - Loaded value past its TTL is not returned by get")
+    void testExpiredLoadedValueNotReturned() {
+        when(valueOperations.get("bss:customer:1")).thenReturn(
+                new MultiLayerCacheManager.LoadedValue("old", System.currentTimeMillis() - 1000, 5));
+
+        assertFalse(cacheManager.get("bss:customer:1", String.class).isPresent());
+    }
+
+    @Test
+    @DisplayName("Near cache - L2 read overtaken by an invalidation is not put into L1")
+    void testStaleFillSkipped() {
+        when(valueOperations.get("bss:customer:1")).thenAnswer(invocation -> {
+            cacheManager.onKeyInvalidated("bss:customer:1", futureVersion());
+            return "stale";
+        }).thenReturn("fresh");
+
+        assertEquals(Optional.of("stale"), cacheManager.get("bss:customer:1", String.class));
+        assertEquals(Optional.of("fresh"), cacheManager.get("bss:customer:1", String.class));
+        assertEquals(Optional.of("fresh"), cacheManager.get("bss:customer:1", String.class));
+
+        verify(valueOperations, times(2)).get("bss:customer:1");
+        assertEquals(1, cacheManager.getStaleFillsSkipped());
+    }
+
+    @Test
+    @DisplayName("Near cache - L2 read overtaken by a remote invalidation with a lagging clock is not put into L1")
+    void testStaleFillSkippedForLaggingRemoteInvalidation() {
+        when(valueOperations.get("bss:customer:1")).thenAnswer(invocation -> {
+            cacheManager.onKeyInvalidated("bss:customer:1", 1L);
+            return "stale";
+        }).thenReturn("fresh");
+
+        assertEquals(Optional.of("stale"), cacheManager.get("bss:customer:1", String.class));
+        assertEquals(Optional.of("fresh"), cacheManager.get("bss:customer:1", String.class));
+        assertEquals(Optional.of("fresh"), cacheManager.get("bss:customer:1", String.class));
+
+        verify(valueOperations, times(2)).get("bss:customer:1");
+        assertEquals(1, cacheManager.getStaleFillsSkipped());
+    }
+
+    @Test
+    @DisplayName("Near cache - L2 read overtaken by a remote clear with a lagging clock is not put into L1")
+    void testStaleFillSkippedForLaggingRemoteClear() {
+        when(valueOperations.get("bss:customer:1")).thenAnswer(invocation -> {
+            cacheManager.onPatternInvalidated("*", 1L);
+            return "stale";
+        }).thenReturn("fresh");
+
+        assertEquals(Optional.of("stale"), cacheManager.get("bss:customer:1", String.class));
+        assertEquals(Optional.of("fresh"), cacheManager.get("bss:customer:1", String.class));
+
+        verify(valueOperations, times(2)).get("bss:customer:1");
+        assertEquals(1, cacheManager.getStaleFillsSkipped());
+    }
+
+    @Test
+    @DisplayName("Near cache - Put stores the value in L2 with its expiry")
+    void testPutStoresExpiryInL2Envelope() {
+        long before = System.currentTimeMillis();
+
+        cacheManager.put("bss:customer:1", "v1", Duration.ofMinutes(5));
+
+        ArgumentCaptor<Object> stored = ArgumentCaptor.forClass(Object.class);
+        verify(valueOperations).set(eq("bss:customer:1"), stored.capture(), eq(300_000L), eq(TimeUnit.MILLISECONDS));
+        MultiLayerCacheManager.ExpiringValue envelope =
+                assertInstanceOf(MultiLayerCacheManager.ExpiringValue.class, stored.getValue());
+        assertEquals("v1", envelope.value());
+        assertTrue(envelope.expiresAt() >= before + 300_000);
+    }
+
+    @Test
+    @DisplayName("Near cache - L1 copy of an L2 hit expires with the envelope, without a TTL lookup")
+    void testL2HitBoundedByEnvelopeExpiry() throws InterruptedException {
+        MultiLayerCacheManager expiringCacheManager = new MultiLayerCacheManager(Caffeine.newBuilder()
+                .expireAfter(MultiLayerCacheManager.l1Expiry(Duration.ofMinutes(30), Duration.ofHours(2)))
+                .build(), l2Cache, invalidationBus, Duration.ofSeconds(30));
+        when(valueOperations.get("bss:customer:1")).thenReturn(
+                new MultiLayerCacheManager.ExpiringValue("v1", System.currentTimeMillis() + 50));
+
+        assertEquals(Optional.of("v1"), expiringCacheManager.get("bss:customer:1", String.class));
+        assertEquals(Optional.of("v1"), expiringCacheManager.get("bss:customer:1", String.class));
+        Thread.sleep(100);
+        expiringCacheManager.get("bss:customer:1", String.class);
+
+        verify(valueOperations, times(2)).get("bss:customer:1");
+        verify(l2Cache, never()).getExpire(anyString(), any(TimeUnit.class));
+    }
+
+    @Test
+    @DisplayName("Near cache - Missed invalidations drop the whole L1")
+    void testMissedInvalidationsClearL1() {
+        cacheManager.put("bss:customer:1", "v1");
+        cacheManager.put("bss:order:1", "o1");
+
+        cacheManager.onMissedInvalidations();
+
+        assertFalse(cacheManager.get("bss:customer:1", String.class).isPresent());
+        assertFalse(cacheManager.get("bss:order:1", String.class).isPresent());
+    }
+
+    private static long futureVersion() {
+        return (System.currentTimeMillis() + 60_000) << 16;
+    }
+}
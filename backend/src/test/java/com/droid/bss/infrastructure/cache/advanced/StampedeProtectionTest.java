@@ -0,0 +1,130 @@
+package com.droid.bss.infrastructure.cache.advanced;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the stampede protection of MultiLayerCacheManager.getOrLoad
+ */
+class StampedeProtectionTest {
+
+    private ValueOperations<String, Object> valueOperations;
+    private MultiLayerCacheManager cacheManager;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        RedisTemplate<String, Object> l2Cache = mock(RedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(l2Cache.opsForValue()).thenReturn(valueOperations);
+        cacheManager = newCacheManager(l2Cache, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cacheManager.shutdown();
+    }
+
+    @Test
+    @DisplayName("getOrLoad - Concurrent misses of a key run the loader once")
+    void testSingleFlight() throws Exception {
+        AtomicInteger loaderCalls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> cacheManager.getOrLoad("bss:customer:1", key -> {
+                    loaderCalls.incrementAndGet();
+                    await(release);
+                    return "customer-1";
+                }, Duration.ofMinutes(5), String.class)));
+            }
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (cacheManager.getCoalescedLoads() < callers - 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("customer-1", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loaderCalls.get());
+        assertEquals(callers - 1, cacheManager.getCoalescedLoads());
+    }
+
+    @Test
+    @DisplayName("getOrLoad - Expired value within the stale window is served while it is reloaded")
+    void testStaleWhileRevalidate() throws Exception {
+        when(valueOperations.get("bss:customer:1")).thenReturn(
+            new MultiLayerCacheManager.LoadedValue("old", System.currentTimeMillis() - 1000, 5));
+        CountDownLatch reloaded = new CountDownLatch(1);
+
+        String value = cacheManager.getOrLoad("bss:customer:1", key -> {
+            reloaded.countDown();
+            return "new";
+        }, Duration.ofMinutes(5), String.class);
+
+        assertEquals("old", value);
+        assertTrue(reloaded.await(5, TimeUnit.SECONDS));
+        assertEquals(1, cacheManager.getStaleHits());
+    }
+
+    @Test
+    @DisplayName("getOrLoad - Early refresh reloads a fresh value in the background")
+    @SuppressWarnings("unchecked")
+    void testEarlyRefresh() throws Exception {
+        RedisTemplate<String, Object> l2Cache = mock(RedisTemplate.class);
+        when(l2Cache.opsForValue()).thenReturn(valueOperations);
+        cacheManager.shutdown();
+        cacheManager = newCacheManager(l2Cache, 1_000_000);
+        when(valueOperations.get("bss:customer:1")).thenReturn(
+            new MultiLayerCacheManager.LoadedValue("current", System.currentTimeMillis() + 60_000, 50));
+        CountDownLatch reloaded = new CountDownLatch(1);
+
+        String value = cacheManager.getOrLoad("bss:customer:1", key -> {
+            reloaded.countDown();
+            return "next";
+        }, Duration.ofMinutes(5), String.class);
+
+        assertEquals("current", value);
+        assertTrue(reloaded.await(5, TimeUnit.SECONDS));
+        assertEquals(1, cacheManager.getEarlyRefreshes());
+    }
+
+    private static MultiLayerCacheManager newCacheManager(RedisTemplate<String, Object> l2Cache, double beta) {
+        return new MultiLayerCacheManager(Caffeine.newBuilder().build(), l2Cache, null, Duration.ofSeconds(30),
+            new MultiLayerCacheManager.LoadOptions(Duration.ofMinutes(1), beta, Duration.ofSeconds(10), 2));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
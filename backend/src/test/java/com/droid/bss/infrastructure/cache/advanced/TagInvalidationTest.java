@@ -0,0 +1,83 @@
+package com.droid.bss.infrastructure.cache.advanced;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for tag-based invalidation of MultiLayerCacheManager
+ */
+class TagInvalidationTest {
+
+    private RedisTemplate<String, Object> l2Cache;
+    private NearCacheInvalidationBus invalidationBus;
+    private MultiLayerCacheManager cacheManager;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        l2Cache = mock(RedisTemplate.class);
+        ValueOperations<String, Object> valueOperations = mock(ValueOperations.class);
+        invalidationBus = mock(NearCacheInvalidationBus.class);
+        when(l2Cache.opsForValue()).thenReturn(valueOperations);
+        doReturn(RedisSerializer.json()).when(l2Cache).getValueSerializer();
+        cacheManager = new MultiLayerCacheManager(Caffeine.newBuilder().build(), l2Cache,
+                invalidationBus, Duration.ofSeconds(30));
+    }
+
+    @Test
+    @DisplayName("Tags - Tagged put registers the key in the Redis tag sets")
+    @SuppressWarnings("unchecked")
+    void testTaggedPutRegistersTags() {
+        cacheManager.put("bss:orders:customer-1", "orders", Duration.ofMinutes(5), List.of("customer:1"));
+
+        ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+        verify(l2Cache).execute(any(RedisScript.class), any(RedisSerializer.class), any(RedisSerializer.class),
+                keys.capture(), any(), any());
+        assertEquals(List.of("bss:orders:customer-1", "bss:tag:customer:1"), keys.getValue());
+    }
+
+    @Test
+    @DisplayName("Tags - Tag eviction drops only the tagged entries and broadcasts their keys")
+    @SuppressWarnings("unchecked")
+    void testEvictTag() {
+        cacheManager.put("bss:orders:customer-1", "orders", Duration.ofMinutes(5), List.of("customer:1"));
+        cacheManager.put("bss:orders:customer-2", "orders", Duration.ofMinutes(5), List.of("customer:2"));
+        doReturn("bss:orders:customer-1\nbss:invoices:customer-1").when(l2Cache).execute(any(RedisScript.class),
+                any(RedisSerializer.class), any(RedisSerializer.class), eq(List.of("bss:tag:customer:1")));
+
+        assertEquals(2, cacheManager.evictTag("customer:1"));
+
+        ArgumentCaptor<Collection<String>> published = ArgumentCaptor.forClass(Collection.class);
+        verify(invalidationBus).publishKeys(published.capture(), anyLong());
+        assertEquals(Set.of("bss:orders:customer-1", "bss:invoices:customer-1"), Set.copyOf(published.getValue()));
+        assertEquals(Optional.of("orders"), cacheManager.get("bss:orders:customer-2", String.class));
+        assertFalse(cacheManager.get("bss:orders:customer-1", String.class).isPresent());
+    }
+
+    @Test
+    @DisplayName("Tags - Tag eviction drops L1 entries even if Redis no longer lists them")
+    void testEvictTagUsesL1Index() {
+        cacheManager.put("bss:orders:customer-1", "orders", Duration.ofMinutes(5), List.of("customer:1"));
+
+        assertEquals(1, cacheManager.evictTag("customer:1"));
+
+        assertFalse(cacheManager.get("bss:orders:customer-1", String.class).isPresent());
+    }
+}
@@ -0,0 +1,172 @@
+package com.droid.bss.infrastructure.event.sourcing.aggregates;
+
+import com.droid.bss.infrastructure.event.sourcing.EventSerializer;
+import com.droid.bss.infrastructure.event.sourcing.EventSourcingService;
+import com.droid.bss.infrastructure.event.sourcing.EventStore;
+import com.droid.bss.infrastructure.event.sourcing.Snapshot;
+import com.droid.bss.infrastructure.event.sourcing.SnapshotStore;
+import com.droid.bss.infrastructure.event.sourcing.StoredEvent;
+import io.cloudevents.CloudEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for CustomerAggregate snapshots, saved and loaded through EventSourcingService
+ */
+class CustomerAggregateTest {
+
+    private static final String CUSTOMER_ID = UUID.randomUUID().toString();
+
+    private final List<StoredEvent> events = new ArrayList<>();
+
+    private EventStore eventStore;
+    private SnapshotStore snapshotStore;
+    private EventSourcingService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        eventStore = mock(EventStore.class);
+        doAnswer(invocation -> events.addAll(invocation.getArgument(1)))
+                .when(eventStore).saveEvents(anyString(), anyList(), anyInt());
+        when(eventStore.streamEventsForAggregate(anyString(), anyLong(), any())).thenAnswer(invocation -> {
+            long afterVersion = invocation.getArgument(1);
+            Consumer<StoredEvent> consumer = invocation.getArgument(2);
+            List<StoredEvent> tail = events.stream().filter(event -> event.getVersion() > afterVersion).toList();
+            tail.forEach(consumer);
+            return (long) tail.size();
+        });
+        snapshotStore = mock(SnapshotStore.class);
+        when(snapshotStore.getLatestSnapshot(anyString())).thenReturn(Optional.empty());
+
+        EventSerializer serializer = mock(EventSerializer.class);
+        when(serializer.fromCloudEvent(any(), anyString(), anyString(), any(), any(), anyLong()))
+                .thenAnswer(invocation -> {
+                    CloudEvent event = invocation.getArgument(0);
+                    return new StoredEvent(UUID.fromString(event.getId()), invocation.getArgument(1),
+                            invocation.getArgument(2), event.getType(),
+                            new String(event.getData().toBytes(), StandardCharsets.UTF_8),
+                            LocalDateTime.now(), invocation.getArgument(3), invocation.getArgument(4),
+                            invocation.<Long>getArgument(5));
+                });
+        service = new EventSourcingService(eventStore, snapshotStore, serializer);
+    }
+
+    @Test
+    @DisplayName("Should restore the state and version written to a snapshot")
+    void shouldRoundTripSnapshotState() {
+        // Given
+        CustomerAggregate customer = new CustomerAggregate(CUSTOMER_ID);
+        customer.create("Jan", "Kowalski", "jan@example.com");
+        customer.changeStatus("SUSPENDED");
+        Snapshot snapshot = Snapshot.create(CUSTOMER_ID, "CustomerAggregate", customer.snapshotState(), 2);
+
+        // When
+        CustomerAggregate restored = new CustomerAggregate(CUSTOMER_ID);
+        restored.loadFromSnapshot(snapshot);
+
+        // Then
+        assertEquals(2, restored.getVersion());
+        assertEquals("Jan", restored.getFirstName());
+        assertEquals("Kowalski", restored.getLastName());
+        assertEquals("jan@example.com", restored.getEmail());
+        assertEquals("SUSPENDED", restored.getStatus());
+        assertFalse(restored.isDeleted());
+        assertEquals(customer.snapshotState(), restored.snapshotState());
+    }
+
+    @Test
+    @DisplayName("Should snapshot on save and replay only the events after the snapshot on load")
+    void shouldLoadFromSnapshotAndTail() {
+        // Given
+        CustomerAggregate customer = new CustomerAggregate(CUSTOMER_ID);
+        customer.create("Jan", "Kowalski", "jan@example.com");
+        for (int i = 1; i < 10; i++) {
+            customer.update("Jan", "Kowalski", "jan" + i + "@example.com");
+        }
+        service.saveAggregate(customer, "user-1");
+
+        ArgumentCaptor<Snapshot> saved = ArgumentCaptor.forClass(Snapshot.class);
+        verify(snapshotStore).saveSnapshot(saved.capture());
+        assertEquals(10, saved.getValue().getVersion());
+        when(snapshotStore.getLatestSnapshot(CUSTOMER_ID)).thenReturn(Optional.of(saved.getValue()));
+
+        CustomerAggregate loaded = service.loadAggregate(CUSTOMER_ID, CustomerAggregate.class, CustomerAggregate::new);
+        loaded.changeStatus("INACTIVE");
+        service.saveAggregate(loaded, "user-1");
+
+        // When
+        CustomerAggregate reloaded = service.loadAggregate(CUSTOMER_ID, CustomerAggregate.class, CustomerAggregate::new);
+
+        // Then
+        verify(eventStore, times(2)).streamEventsForAggregate(eq(CUSTOMER_ID), eq(10L), any());
+        assertEquals(11, reloaded.getVersion());
+        assertEquals("jan9@example.com", reloaded.getEmail());
+        assertEquals("INACTIVE", reloaded.getStatus());
+    }
+
+    @Test
+    @DisplayName("Should continue versions after the saved events when the same aggregate is saved again")
+    void shouldContinueVersionsOnResave() {
+        // Given
+        CustomerAggregate customer = new CustomerAggregate(CUSTOMER_ID);
+        customer.create("Jan", "Kowalski", "jan@example.com");
+        customer.changeStatus("ACTIVE");
+        service.saveAggregate(customer, "user-1");
+
+        // When
+        customer.changeStatus("SUSPENDED");
+        service.saveAggregate(customer, "user-1");
+
+        // Then
+        assertEquals(3, customer.getVersion());
+        assertTrue(customer.getDomainEvents().isEmpty());
+        assertEquals(List.of(1L, 2L, 3L), events.stream().map(StoredEvent::getVersion).toList());
+        verify(eventStore).saveEvents(eq(CUSTOMER_ID), anyList(), eq(0));
+        verify(eventStore).saveEvents(eq(CUSTOMER_ID), anyList(), eq(2));
+    }
+
+    @Test
+    @DisplayName("Should snapshot when a save of several events crosses the snapshot interval")
+    void shouldSnapshotWhenSaveCrossesInterval() {
+        // Given
+        CustomerAggregate customer = new CustomerAggregate(CUSTOMER_ID);
+        customer.create("Jan", "Kowalski", "jan@example.com");
+        for (int i = 1; i < 9; i++) {
+            customer.update("Jan", "Kowalski", "jan" + i + "@example.com");
+        }
+        service.saveAggregate(customer, "user-1");
+        verify(snapshotStore, never()).saveSnapshot(any());
+
+        // When
+        customer.update("Jan", "Kowalski", "jan9@example.com");
+        customer.changeStatus("SUSPENDED");
+        customer.changeStatus("ACTIVE");
+        service.saveAggregate(customer, "user-1");
+
+        // Then
+        ArgumentCaptor<Snapshot> saved = ArgumentCaptor.forClass(Snapshot.class);
+        verify(snapshotStore).saveSnapshot(saved.capture());
+        assertEquals(12, saved.getValue().getVersion());
+        assertEquals(12, customer.getVersion());
+
+        CustomerAggregate restored = new CustomerAggregate(CUSTOMER_ID);
+        restored.loadFromSnapshot(saved.getValue());
+        assertEquals("jan9@example.com", restored.getEmail());
+        assertEquals("ACTIVE", restored.getStatus());
+    }
+}
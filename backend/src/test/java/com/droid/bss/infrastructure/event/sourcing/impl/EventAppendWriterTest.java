@@ -0,0 +1,265 @@
+package com.droid.bss.infrastructure.event.sourcing.impl;
+
+import com.droid.bss.infrastructure.event.sourcing.StoredEvent;
+import com.droid.bss.infrastructure.metrics.BusinessMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for concurrent event store appends through EventAppendWriter: optimistic
+ * conflicts and global positions
+ */
+@Testcontainers
+class EventAppendWriterTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:18-alpine"))
+            .withDatabaseName("bss_test")
+            .withUsername("test")
+            .withPassword("test");
+
+    private static final String[] MIGRATIONS = {
+            "db/migration/V1046__add_event_store_global_position.sql",
+            "db/migration/V1047__add_event_store_unique_aggregate_version.sql"
+    };
+
+    private static JdbcTemplate jdbcTemplate;
+    private static TransactionTemplate transactionTemplate;
+    private static EventAppendWriter writer;
+
+    @BeforeAll
+    static void setup() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        jdbcTemplate.execute("""
+                CREATE TABLE event_store (
+                    id UUID PRIMARY KEY,
+                    aggregate_id VARCHAR(255) NOT NULL,
+                    aggregate_type VARCHAR(255) NOT NULL,
+                    event_type VARCHAR(255) NOT NULL,
+                    event_data TEXT,
+                    event_payload BYTEA,
+                    "timestamp" TIMESTAMP NOT NULL,
+                    user_id VARCHAR(255),
+                    correlation_id VARCHAR(255),
+                    version BIGINT NOT NULL
+                )""");
+        jdbcTemplate.execute("""
+                CREATE TABLE snapshot_store (
+                    id VARCHAR(36) PRIMARY KEY,
+                    aggregate_id VARCHAR(255) NOT NULL UNIQUE,
+                    version BIGINT NOT NULL
+                )""");
+        for (String migration : MIGRATIONS) {
+            jdbcTemplate.execute(new ClassPathResource(migration).getContentAsString(StandardCharsets.UTF_8));
+        }
+
+        writer = new EventAppendWriter(new EventAppendRepository(jdbcTemplate), transactionManager,
+                new BusinessMetrics(new SimpleMeterRegistry()), 100, 10_000);
+        writer.start();
+    }
+
+    @AfterAll
+    static void tearDown() throws InterruptedException {
+        writer.stop();
+    }
+
+    @Test
+    @DisplayName("Should let exactly one of several concurrent appends at the same expected version win")
+    void shouldRejectConcurrentAppendsAtSameVersion() throws Exception {
+        // Given
+        String aggregateId = UUID.randomUUID().toString();
+        int writers = 8;
+        CyclicBarrier start = new CyclicBarrier(writers);
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        List<Future<CompletableFuture<Long>>> submitted = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < writers; i++) {
+            submitted.add(executor.submit(() -> {
+                start.await();
+                return writer.submit(aggregateId, List.of(event(aggregateId, 1), event(aggregateId, 2)));
+            }));
+        }
+        int won = 0;
+        int conflicted = 0;
+        for (Future<CompletableFuture<Long>> future : submitted) {
+            try {
+                future.get(10, TimeUnit.SECONDS).join();
+                won++;
+            } catch (CompletionException e) {
+                assertInstanceOf(OptimisticLockingFailureException.class, e.getCause());
+                conflicted++;
+            }
+        }
+        executor.shutdown();
+
+        // Then
+        assertEquals(1, won);
+        assertEquals(writers - 1, conflicted);
+        assertEquals(List.of(1L, 2L), jdbcTemplate.queryForList(
+                "SELECT version FROM event_store WHERE aggregate_id = ? ORDER BY version", Long.class, aggregateId));
+    }
+
+    @Test
+    @DisplayName("Should roll back the second of two transactions appending the same version")
+    void shouldRollBackConcurrentTransactionAtSameVersion() throws Exception {
+        // Given
+        String aggregateId = UUID.randomUUID().toString();
+        CyclicBarrier bothAppended = new CyclicBarrier(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Future<Boolean>> outcomes = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 2; i++) {
+            String eventType = "customer.attempt" + i;
+            outcomes.add(executor.submit(() -> {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        writer.appendInCurrentTransaction(aggregateId,
+                                List.of(event(aggregateId, 1, eventType)));
+                        await(bothAppended);
+                    });
+                    return true;
+                } catch (OptimisticLockingFailureException e) {
+                    return false;
+                }
+            }));
+        }
+        int committed = 0;
+        for (Future<Boolean> outcome : outcomes) {
+            committed += outcome.get(10, TimeUnit.SECONDS) ? 1 : 0;
+        }
+        executor.shutdown();
+
+        // Then
+        assertEquals(1, committed);
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM event_store WHERE aggregate_id = ?", Integer.class, aggregateId));
+    }
+
+    @Test
+    @DisplayName("Should keep global positions gap-free and visible in commit order under concurrent appends")
+    void shouldAssignGapFreePositionsInCommitOrder() throws Exception {
+        // Given
+        long startPosition = latestPosition();
+        int writers = 8;
+        int appendsPerWriter = 50;
+        String contested = UUID.randomUUID().toString();
+        CountDownLatch done = new CountDownLatch(writers);
+        AtomicBoolean reading = new AtomicBoolean(true);
+        List<Long> observed = new ArrayList<>();
+
+        // A subscriber that only ever reads past the highest position it has seen
+        Thread subscriber = Thread.ofPlatform().start(() -> {
+            long last = startPosition;
+            while (reading.get() || last < latestPosition()) {
+                List<Long> batch = jdbcTemplate.queryForList(
+                        "SELECT global_position FROM event_store WHERE global_position > ? ORDER BY global_position",
+                        Long.class, last);
+                if (!batch.isEmpty()) {
+                    observed.addAll(batch);
+                    last = batch.get(batch.size() - 1);
+                }
+            }
+        });
+
+        // When
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        for (int w = 0; w < writers; w++) {
+            int writerNo = w;
+            executor.submit(() -> {
+                try {
+                    for (int i = 0; i < appendsPerWriter; i++) {
+                        String aggregateId = UUID.randomUUID().toString();
+                        List<StoredEvent> events = List.of(event(aggregateId, 1), event(aggregateId, 2));
+                        if (i % 2 == 0) {
+                            writer.submit(aggregateId, events).join();
+                        } else {
+                            transactionTemplate.executeWithoutResult(
+                                    status -> writer.appendInCurrentTransaction(aggregateId, events));
+                        }
+                        // Losing appends must not consume positions
+                        try {
+                            writer.submit(contested, List.of(event(contested, 1 + i / 10))).join();
+                        } catch (CompletionException e) {
+                            assertInstanceOf(OptimisticLockingFailureException.class, e.getCause());
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        executor.shutdown();
+        reading.set(false);
+        subscriber.join(TimeUnit.SECONDS.toMillis(10));
+
+        // Then
+        List<Long> positions = jdbcTemplate.queryForList(
+                "SELECT global_position FROM event_store WHERE global_position > ? ORDER BY global_position",
+                Long.class, startPosition);
+        int expected = writers * appendsPerWriter * 2 + appendsPerWriter / 10;
+        assertEquals(expected, positions.size());
+        for (int i = 0; i < positions.size(); i++) {
+            assertEquals(startPosition + i + 1, positions.get(i));
+        }
+        assertEquals(positions, observed);
+    }
+
+    private static long latestPosition() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(global_position), 0) FROM event_store", Long.class);
+    }
+
+    private static StoredEvent event(String aggregateId, long version) {
+        return event(aggregateId, version, "customer.updated");
+    }
+
+    private static StoredEvent event(String aggregateId, long version, String eventType) {
+        return new StoredEvent(UUID.randomUUID(), aggregateId, "CustomerAggregate", eventType,
+                "{\"version\":" + version + "}", LocalDateTime.now(), "user-1", UUID.randomUUID().toString(), version);
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.droid.bss.infrastructure.graphql;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.dataloader.MappedBatchLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the hash-indexed batch loaders and their metrics
+ */
+class BatchLoadersTest {
+
+    private record Invoice(String number, String customerId) {
+    }
+
+    private SimpleMeterRegistry meterRegistry;
+    private BatchLoaders batchLoaders;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        batchLoaders = new BatchLoaders(meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Batch loaders - Results are matched to keys, missing keys map to null")
+    void testByKey() throws Exception {
+        MappedBatchLoader<String, Invoice> loader = batchLoaders.byKey("invoice",
+            numbers -> CompletableFuture.completedFuture(List.of(new Invoice("FV/2", "c1"), new Invoice("FV/1", "c1"))),
+            Invoice::number);
+
+        Map<String, Invoice> loaded = loader.load(Set.of("FV/1", "FV/2", "FV/3")).toCompletableFuture().get();
+
+        assertEquals("FV/1", loaded.get("FV/1").number());
+        assertEquals("FV/2", loaded.get("FV/2").number());
+        assertNull(loaded.get("FV/3"));
+    }
+
+    @Test
+    @DisplayName("Batch loaders - Grouped results give every key a list, empty when it has no results")
+    void testGroupedBy() throws Exception {
+        MappedBatchLoader<String, List<Invoice>> loader = batchLoaders.groupedBy("invoices",
+            customerIds -> CompletableFuture.completedFuture(List.of(
+                new Invoice("FV/1", "c1"), new Invoice("FV/2", "c2"), new Invoice("FV/3", "c1"))),
+            Invoice::customerId);
+
+        Map<String, List<Invoice>> loaded = loader.load(Set.of("c1", "c2", "c3")).toCompletableFuture().get();
+
+        assertEquals(List.of("FV/1", "FV/3"), loaded.get("c1").stream().map(Invoice::number).toList());
+        assertEquals(1, loaded.get("c2").size());
+        assertTrue(loaded.get("c3").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Batch loaders - Batch size and latency are recorded per loader")
+    void testMetrics() throws Exception {
+        batchLoaders.timed("customer.invoices", 3, () -> CompletableFuture.completedFuture("done")).get();
+        batchLoaders.timed("customer.invoices", 5, () -> CompletableFuture.completedFuture("done")).get();
+
+        assertEquals(2, meterRegistry.get("bss.graphql.batch_loader.size")
+            .tag("loader", "customer.invoices").summary().count());
+        assertEquals(8.0, meterRegistry.get("bss.graphql.batch_loader.size")
+            .tag("loader", "customer.invoices").summary().totalAmount());
+        assertEquals(2, meterRegistry.get("bss.graphql.batch_loader.duration")
+            .tag("loader", "customer.invoices").timer().count());
+    }
+
+    @Test
+    @DisplayName("Batch loaders - Key order is restored for list results")
+    void testInKeyOrder() {
+        assertEquals(List.of("b", "a", "b"), BatchLoaders.inKeyOrder(List.of(2, 1, 2), Map.of(1, "a", 2, "b")));
+    }
+}
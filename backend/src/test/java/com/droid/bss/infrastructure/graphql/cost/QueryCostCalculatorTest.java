@@ -0,0 +1,105 @@
+package com.droid.bss.infrastructure.graphql.cost;
+
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the static and actual cost of GraphQL operations
+ */
+class QueryCostCalculatorTest {
+
+    private static final String SCHEMA = """
+        type Query {
+            customers(first: Int, size: Int = 20): CustomerConnection!
+        }
+        type CustomerConnection {
+            edges: [CustomerEdge!]!
+            totalCount: Int!
+        }
+        type CustomerEdge {
+            node: Customer!
+            cursor: String!
+        }
+        type Customer {
+            id: ID!
+            totalRevenue: Float!
+            invoices(size: Int): [Invoice!]!
+        }
+        type Invoice {
+            id: ID!
+            items: [InvoiceItem!]!
+        }
+        type InvoiceItem {
+            id: ID!
+        }
+        """;
+
+    private static final String QUERY = """
+        query Customers($first: Int) {
+            customers(first: $first) {
+                totalCount
+                edges { node { id totalRevenue ...Invoices } }
+            }
+        }
+        fragment Invoices on Customer {
+            invoices(size: 20) { id items { id } }
+        }
+        """;
+
+    private GraphQLSchema schema;
+    private QueryCostCalculator calculator;
+
+    @BeforeEach
+    void setUp() {
+        schema = new SchemaGenerator().makeExecutableSchema(
+            new SchemaParser().parse(SCHEMA), RuntimeWiring.MOCKED_WIRING);
+        QueryCostProperties properties = new QueryCostProperties();
+        properties.setFieldWeights(Map.of("Customer.totalRevenue", 2L));
+        properties.setMaxListSize(100);
+        calculator = new QueryCostCalculator(properties);
+    }
+
+    @Test
+    @DisplayName("Query cost - Nested lists multiply by their size arguments")
+    void testNestedListsMultiply() {
+        // items: 1 + 10 x 0, invoices: 1 + 20 x 1, node: 1 + 2 + 21, edges: 1 + 24, customers: 1 + 10 x 25
+        long cost = calculator.analyze(schema, QUERY, "Customers", Map.of("first", 10)).estimatedCost();
+
+        assertEquals(251, cost);
+    }
+
+    @Test
+    @DisplayName("Query cost - Size arguments are capped and defaults apply")
+    void testSizeCapAndDefaults() {
+        long capped = calculator.analyze(schema, QUERY, "Customers", Map.of("first", 1_000_000)).estimatedCost();
+        long byDefault = calculator.analyze(schema, QUERY, "Customers", Map.of()).estimatedCost();
+
+        assertEquals(1 + 100 * 25, capped);
+        assertEquals(1 + 20 * 25, byDefault);
+    }
+
+    @Test
+    @DisplayName("Query cost - Actual cost follows the items in the response")
+    void testActualCost() {
+        QueryCostCalculator.Analysis analysis = calculator.analyze(schema, QUERY, "Customers", Map.of("first", 10));
+        Map<String, Object> data = Map.of("customers", Map.of(
+            "totalCount", 2,
+            "edges", List.of(
+                Map.of("node", Map.of("id", "1", "totalRevenue", 10.0, "invoices", List.of(
+                    Map.of("id", "FV/1", "items", List.of(Map.of("id", "a"), Map.of("id", "b")))))),
+                Map.of("node", Map.of("id", "2", "totalRevenue", 0.0, "invoices", List.of())))));
+
+        // node 1: 1 + 2 + (1 + 1), node 2: 1 + 2 + 1, edges: 1 + 5 + 4, customers: 1 + 10
+        assertEquals(11, calculator.actualCost(analysis, data));
+    }
+}
@@ -0,0 +1,155 @@
+package com.droid.bss.infrastructure.messaging;
+
+import com.droid.bss.infrastructure.cache.CacheEvictionService;
+import com.droid.bss.infrastructure.cache.CacheInvalidationBatch;
+import com.droid.bss.infrastructure.messaging.deadletter.DeadLetterQueue;
+import com.droid.bss.infrastructure.messaging.deadletter.DeadLetterQueueException;
+import com.droid.bss.infrastructure.messaging.idempotency.EventDeduplicator;
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for CloudEventBatchProcessor
+ */
+class CloudEventBatchProcessorTest {
+
+    private DeadLetterQueue deadLetterQueue;
+    private CacheEvictionService cacheEvictionService;
+    private EventDeduplicator eventDeduplicator;
+    private Acknowledgment acknowledgment;
+    private List<String> handled;
+    private CloudEventBatchProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        deadLetterQueue = mock(DeadLetterQueue.class);
+        cacheEvictionService = mock(CacheEvictionService.class);
+        eventDeduplicator = mock(EventDeduplicator.class);
+        acknowledgment = mock(Acknowledgment.class);
+        when(eventDeduplicator.findProcessed(anyString(), anyCollection())).thenReturn(Set.of());
+        handled = new ArrayList<>();
+        processor = new CloudEventBatchProcessor("customer", (event, invalidations) -> {
+            if (event.getId().equals("evt-fail")) {
+                throw new IllegalStateException("boom");
+            }
+            handled.add(event.getId());
+            invalidations.clear("customers");
+        }, deadLetterQueue, cacheEvictionService, eventDeduplicator);
+    }
+
+    @Test
+    @DisplayName("Batch - Duplicates skipped and invalidations applied once with one acknowledgment")
+    void testDedupesAndCoalescesInvalidations() {
+        List<ConsumerRecord<String, CloudEvent>> records = List.of(
+                record(0, "evt-1"), record(1, "evt-2"), record(2, "evt-1"), record(3, "evt-3"));
+
+        processor.process(records, acknowledgment);
+
+        assertEquals(List.of("evt-1", "evt-2", "evt-3"), handled);
+        ArgumentCaptor<CacheInvalidationBatch> batch = ArgumentCaptor.forClass(CacheInvalidationBatch.class);
+        verify(cacheEvictionService, times(1)).apply(batch.capture());
+        assertEquals(3, batch.getValue().getRequestCount());
+        assertEquals(1, batch.getValue().getOperationCount());
+        verify(acknowledgment, times(1)).acknowledge();
+        verify(eventDeduplicator).markProcessed("customer", List.of("evt-1", "evt-2", "evt-3"));
+        assertEquals(3, processor.getTotalEventsProcessed());
+        assertEquals(1, processor.getTotalDuplicateEvents());
+    }
+
+    @Test
+    @DisplayName("Batch - Events already processed according to the deduplicator skipped")
+    void testSkipsProcessedEvents() {
+        when(eventDeduplicator.findProcessed(eq("customer"), anyCollection())).thenReturn(Set.of("evt-2"));
+
+        processor.process(List.of(record(0, "evt-1"), record(1, "evt-2")), acknowledgment);
+
+        assertEquals(List.of("evt-1"), handled);
+        verify(eventDeduplicator).markProcessed("customer", List.of("evt-1"));
+        assertEquals(1, processor.getTotalDuplicateEvents());
+    }
+
+    @Test
+    @DisplayName("Batch - Failed records stored in the DLQ together without holding back the batch")
+    @SuppressWarnings("unchecked")
+    void testPartialFailureGoesToDeadLetterQueue() {
+        List<ConsumerRecord<String, CloudEvent>> records = List.of(
+                record(10, "evt-1"), record(11, "evt-fail"), record(12, "evt-3"));
+
+        processor.process(records, acknowledgment);
+
+        ArgumentCaptor<List<DeadLetterQueue.FailedEvent>> failed = ArgumentCaptor.forClass(List.class);
+        verify(deadLetterQueue, times(1)).storeFailedEvents(failed.capture());
+        assertEquals(1, failed.getValue().size());
+        DeadLetterQueue.FailedEvent failedEvent = failed.getValue().get(0);
+        assertEquals("customer", failedEvent.consumer());
+        assertEquals("boom", failedEvent.errorMessage());
+        assertEquals(11L, failedEvent.record().offset());
+        verify(acknowledgment, times(1)).acknowledge();
+        verify(eventDeduplicator).markProcessed("customer", List.of("evt-1", "evt-3"));
+        assertEquals(2, processor.getTotalEventsProcessed());
+        assertEquals(1, processor.getTotalEventsFailed());
+        assertEquals(1, processor.getTotalEventsSentToDLQ());
+    }
+
+    @Test
+    @DisplayName("Batch - Not acknowledged when failed records cannot be stored in the DLQ")
+    void testNoAcknowledgmentWhenDeadLetterQueueFails() {
+        doThrow(new DeadLetterQueueException("kafka down")).when(deadLetterQueue).storeFailedEvents(anyList());
+
+        assertThrows(DeadLetterQueueException.class, () -> processor.process(
+                List.of(record(0, "evt-1"), record(1, "evt-fail")), acknowledgment));
+
+        verify(acknowledgment, never()).acknowledge();
+        verify(eventDeduplicator, never()).markProcessed(anyString(), anyCollection());
+    }
+
+    @Test
+    @DisplayName("Replay - Handler registered with the DLQ handles replayed events like the batch")
+    void testReplayHandlerRegistered() throws Exception {
+        ArgumentCaptor<DeadLetterQueue.ReplayHandler> replayHandler =
+                ArgumentCaptor.forClass(DeadLetterQueue.ReplayHandler.class);
+        verify(deadLetterQueue).registerReplayHandler(eq("customer"), replayHandler.capture());
+
+        replayHandler.getValue().replay(record(5, "evt-5").value());
+
+        assertEquals(List.of("evt-5"), handled);
+        verify(cacheEvictionService).apply(any(CacheInvalidationBatch.class));
+        verify(eventDeduplicator).markProcessed("customer", List.of("evt-5"));
+    }
+
+    @Test
+    @DisplayName("Batch - Not acknowledged when invalidations cannot be applied")
+    void testNoAcknowledgmentWhenInvalidationFails() {
+        doThrow(new IllegalStateException("cache down")).when(cacheEvictionService).apply(any());
+
+        assertThrows(IllegalStateException.class, () -> processor.process(
+                List.of(record(0, "evt-1")), acknowledgment));
+
+        verify(acknowledgment, never()).acknowledge();
+        verify(eventDeduplicator, never()).markProcessed(anyString(), anyCollection());
+    }
+
+    private static ConsumerRecord<String, CloudEvent> record(long offset, String eventId) {
+        CloudEvent event = CloudEventBuilder.v1()
+                .withId(eventId)
+                .withType("com.droid.bss.customer.updated.v1")
+                .withSource(URI.create("/bss/customer"))
+                .build();
+        return new ConsumerRecord<>("customer.updated", 0, offset, eventId, event);
+    }
+}
@@ -0,0 +1,326 @@
+package com.droid.bss.infrastructure.messaging.deadletter;
+
+import io.cloudevents.core.builder.CloudEventBuilder;
+import io.cloudevents.jackson.JsonFormat;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DeadLetterReplayService bulk replays, reading the dead letter topic through a
+ * MockConsumer and keeping the dead_letter_event index in memory
+ */
+class DeadLetterReplayServiceTest {
+
+    private static final String DLT = "bss.events.customer.DLT";
+    private static final String CONSUMER = "customer-consumer";
+
+    private final InMemoryRepository repository = new InMemoryRepository();
+    private final DeadLetterQueue deadLetterQueue =
+            new DeadLetterQueue(repository, null, new KafkaProperties(), 1000, 7, 100);
+    private final List<ConsumerRecord<String, byte[]>> deadLetterTopic = new CopyOnWriteArrayList<>();
+    private final JsonFormat eventFormat = new JsonFormat();
+    private DeadLetterReplayService service;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (service != null) {
+            service.shutdown();
+        }
+        deadLetterQueue.stop();
+    }
+
+    @Test
+    @DisplayName("Should split a page into runs of one original topic partition")
+    void shouldGroupPageByOriginalPartition() {
+        // Given
+        List<DLQEntry> page = List.of(
+                entry(1, "bss.events.customer", 0, 10, -1),
+                entry(2, "bss.events.customer", 0, 11, -1),
+                entry(3, "bss.events.customer", 1, 3, -1),
+                entry(4, "bss.events.order", 1, 4, -1),
+                entry(5, "bss.events.order", 1, 7, -1));
+
+        // When
+        List<List<DLQEntry>> groups = DeadLetterReplayService.groupByOriginalPartition(page);
+
+        // Then
+        assertEquals(List.of(List.of(1L, 2L), List.of(3L), List.of(4L, 5L)),
+                groups.stream().map(group -> group.stream().map(DLQEntry::getId).toList()).toList());
+    }
+
+    @Test
+    @DisplayName("Should replay each original partition in offset order across pages and mark entries reprocessed")
+    void shouldReplayPartitionsInOffsetOrder() throws Exception {
+        // Given
+        for (int partition = 0; partition < 3; partition++) {
+            for (int offset = 0; offset < 5; offset++) {
+                addFailedEvent("bss.events.customer", partition, offset);
+            }
+        }
+        Map<Integer, List<Long>> replayedOffsets = new ConcurrentHashMap<>();
+        deadLetterQueue.registerReplayHandler(CONSUMER, event -> {
+            DLQEntry entry = repository.byEventId(event.getId());
+            replayedOffsets.computeIfAbsent(entry.getPartition(), p -> new CopyOnWriteArrayList<>())
+                    .add(entry.getOffset());
+            Thread.sleep(1);
+        });
+        service = service(100, 20, 4);
+
+        // When
+        DeadLetterReplayJob job = service.startReplay(null, 500, 3, null, null);
+        awaitFinished(job);
+
+        // Then
+        assertEquals(DeadLetterReplayJob.State.COMPLETED, job.getState());
+        assertEquals(15, job.getReplayedEvents());
+        for (int partition = 0; partition < 3; partition++) {
+            assertEquals(List.of(0L, 1L, 2L, 3L, 4L), replayedOffsets.get(partition));
+        }
+        assertTrue(repository.entries.stream().allMatch(e -> e.getStatus() == DLQStatus.REPROCESSED));
+        assertTrue(repository.errors.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should space replays of all workers at the job's rate")
+    void shouldSpaceReplaysAtJobRate() throws Exception {
+        // Given
+        for (int offset = 0; offset < 6; offset++) {
+            addFailedEvent("bss.events.customer", 0, offset);
+            addFailedEvent("bss.events.customer", 1, offset);
+        }
+        List<Long> replayTimes = new CopyOnWriteArrayList<>();
+        deadLetterQueue.registerReplayHandler(CONSUMER, event -> replayTimes.add(System.nanoTime()));
+        service = service(100, 20, 100);
+
+        // When
+        DeadLetterReplayJob job = service.startReplay(null, 20, 2, null, null);
+        awaitFinished(job);
+
+        // Then
+        assertEquals(12, job.getReplayedEvents());
+        List<Long> sorted = replayTimes.stream().sorted().toList();
+        // One permit per 50 ms: the first may come at the end of a period, the other 11 a period apart
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(sorted.get(sorted.size() - 1) - sorted.get(0));
+        assertTrue(elapsedMillis >= 10 * 50, "12 replays at 20/s took only " + elapsedMillis + " ms");
+    }
+
+    @Test
+    @DisplayName("Should stop once the error rate opens the circuit breaker and leave the rest pending")
+    void shouldStopWhenCircuitBreakerOpens() throws Exception {
+        // Given
+        for (int offset = 0; offset < 20; offset++) {
+            addFailedEvent("bss.events.customer", 0, offset);
+        }
+        AtomicInteger attempts = new AtomicInteger();
+        deadLetterQueue.registerReplayHandler(CONSUMER, event -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("downstream unavailable");
+        });
+        service = service(10, 5, 100);
+
+        // When
+        DeadLetterReplayJob job = service.startReplay(null, 500, 1, 50f, null);
+        awaitFinished(job);
+
+        // Then
+        assertEquals(DeadLetterReplayJob.State.STOPPED_ERROR_RATE, job.getState());
+        assertEquals(5, attempts.get());
+        assertEquals(5, job.getFailedEvents());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), repository.errors.keySet().stream().sorted().toList());
+        assertEquals("downstream unavailable", repository.errors.get(1L));
+        assertTrue(repository.entries.stream().allMatch(e -> e.getStatus() == DLQStatus.PENDING));
+        assertEquals(1, repository.entries.get(0).getRetryCount());
+        assertEquals(0, repository.entries.get(5).getRetryCount());
+    }
+
+    @Test
+    @DisplayName("Should skip entries whose record left the dead letter topic without counting them as errors")
+    void shouldSkipEventsGoneFromDeadLetterTopic() throws Exception {
+        // Given
+        for (int offset = 0; offset < 5; offset++) {
+            addFailedEvent("bss.events.customer", 0, offset);
+        }
+        // Indexed, but its dead letter record has passed retention
+        repository.entries.add(entry(6, "bss.events.customer", 0, 5, 100));
+        deadLetterQueue.registerReplayHandler(CONSUMER, event -> {
+        });
+        service = service(10, 1, 100);
+
+        // When
+        DeadLetterReplayJob job = service.startReplay(null, 500, 1, 1f, null);
+        awaitFinished(job);
+
+        // Then
+        assertEquals(DeadLetterReplayJob.State.COMPLETED, job.getState());
+        assertEquals(5, job.getReplayedEvents());
+        assertEquals(1, job.getSkippedEvents());
+        assertEquals(0, job.getFailedEvents());
+        assertEquals(DLQStatus.PENDING, repository.entries.get(5).getStatus());
+        assertEquals("Event no longer in dead letter topic " + DLT, repository.errors.get(6L));
+    }
+
+    private DeadLetterReplayService service(int errorRateWindow, int errorRateMinimumCalls, int pageSize) {
+        return new DeadLetterReplayService(repository, deadLetterQueue, new KafkaProperties(),
+                50, 500, 4, 16, 20f, errorRateWindow, errorRateMinimumCalls, pageSize, 10) {
+            @Override
+            Consumer<String, byte[]> createConsumer() {
+                return new DeadLetterTopicConsumer(deadLetterTopic);
+            }
+        };
+    }
+
+    /**
+     * Index a failed event and write it to the dead letter topic at the next offset
+     */
+    private void addFailedEvent(String originalTopic, int partition, long offset) {
+        long id = repository.entries.size() + 1;
+        long dltOffset = deadLetterTopic.size();
+        DLQEntry entry = entry(id, originalTopic, partition, offset, dltOffset);
+        repository.entries.add(entry);
+        byte[] value = eventFormat.serialize(CloudEventBuilder.v1()
+                .withId(entry.getEventId())
+                .withType("CustomerUpdated")
+                .withSource(URI.create("/bss/customer"))
+                .build());
+        deadLetterTopic.add(new ConsumerRecord<>(DLT, 0, dltOffset, entry.getEventId(), value));
+    }
+
+    private void awaitFinished(DeadLetterReplayJob job) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (job.isRunning() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(job.isRunning(), "Replay job did not finish");
+        // Waits for the job thread, whose workers record their outcomes after the job has stopped
+        service.shutdown();
+    }
+
+    private static DLQEntry entry(long id, String originalTopic, int partition, long offset, long dltOffset) {
+        return new DLQEntry(id, CONSUMER, "event-" + id, "CustomerUpdated", "failed", originalTopic,
+                partition, offset, DLT, 0, dltOffset, 0, LocalDateTime.now(), DLQStatus.PENDING);
+    }
+
+    /**
+     * Serves the records of one dead letter topic partition to each reader from the start
+     */
+    private static final class DeadLetterTopicConsumer extends MockConsumer<String, byte[]> {
+
+        private final List<ConsumerRecord<String, byte[]>> records;
+
+        private DeadLetterTopicConsumer(List<ConsumerRecord<String, byte[]>> records) {
+            super(OffsetResetStrategy.EARLIEST);
+            this.records = records;
+        }
+
+        @Override
+        public synchronized void assign(Collection<TopicPartition> partitions) {
+            super.assign(partitions);
+            Map<TopicPartition, Long> endOffsets = new HashMap<>();
+            for (TopicPartition partition : partitions) {
+                List<ConsumerRecord<String, byte[]>> partitionRecords = records.stream()
+                        .filter(r -> r.topic().equals(partition.topic()) && r.partition() == partition.partition())
+                        .toList();
+                partitionRecords.forEach(this::addRecord);
+                endOffsets.put(partition, (long) partitionRecords.size());
+            }
+            updateEndOffsets(endOffsets);
+        }
+    }
+
+    /**
+     * dead_letter_event index with the statuses and replay failures the statements would write
+     */
+    private static final class InMemoryRepository extends DeadLetterEventRepository {
+
+        private static final Comparator<DLQEntry> PAGE_ORDER = Comparator.comparing(DLQEntry::getOriginalTopic)
+                .thenComparingInt(DLQEntry::getPartition)
+                .thenComparingLong(DLQEntry::getOffset)
+                .thenComparingLong(DLQEntry::getId);
+
+        private final List<DLQEntry> entries = new CopyOnWriteArrayList<>();
+        private final Map<Long, String> errors = new ConcurrentHashMap<>();
+
+        private InMemoryRepository() {
+            super(null);
+        }
+
+        @Override
+        public List<DLQEntry> findPendingByEventId(String eventId) {
+            return entries.stream()
+                    .filter(e -> e.getEventId().equals(eventId) && e.getStatus() == DLQStatus.PENDING)
+                    .toList();
+        }
+
+        @Override
+        public List<DLQEntry> findPendingPage(Collection<String> topics, DLQEntry after, int limit) {
+            return entries.stream()
+                    .filter(e -> e.getStatus() == DLQStatus.PENDING)
+                    .filter(e -> topics == null || topics.isEmpty() || topics.contains(e.getOriginalTopic()))
+                    .filter(e -> after == null || PAGE_ORDER.compare(e, after) > 0)
+                    .sorted(PAGE_ORDER)
+                    .limit(limit)
+                    .toList();
+        }
+
+        @Override
+        public synchronized int markReprocessed(Collection<Long> ids) {
+            List<DLQEntry> marked = new ArrayList<>();
+            for (DLQEntry entry : entries) {
+                if (ids.contains(entry.getId()) && entry.getStatus() == DLQStatus.PENDING) {
+                    entry.setStatus(DLQStatus.REPROCESSED);
+                    entry.setReprocessedAt(LocalDateTime.now());
+                    marked.add(entry);
+                }
+            }
+            return marked.size();
+        }
+
+        @Override
+        public synchronized int recordReplayFailures(Map<Long, String> errorMessagesById) {
+            int recorded = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                DLQEntry entry = entries.get(i);
+                String error = errorMessagesById.get(entry.getId());
+                if (error != null && entry.getStatus() == DLQStatus.PENDING) {
+                    entries.set(i, retried(entry, error));
+                    errors.put(entry.getId(), error);
+                    recorded++;
+                }
+            }
+            return recorded;
+        }
+
+        private DLQEntry byEventId(String eventId) {
+            return entries.stream().filter(e -> e.getEventId().equals(eventId)).findFirst().orElseThrow();
+        }
+
+        private static DLQEntry retried(DLQEntry entry, String error) {
+            return new DLQEntry(entry.getId(), entry.getConsumer(), entry.getEventId(), entry.getEventType(),
+                    error, entry.getOriginalTopic(), entry.getPartition(), entry.getOffset(),
+                    entry.getDltTopic(), entry.getDltPartition(), entry.getDltOffset(),
+                    entry.getRetryCount() + 1, entry.getFailedAt(), entry.getStatus());
+        }
+    }
+}
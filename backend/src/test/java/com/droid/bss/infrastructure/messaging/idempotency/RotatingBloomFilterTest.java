@@ -0,0 +1,87 @@
+package com.droid.bss.infrastructure.messaging.idempotency;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RotatingBloomFilter
+ */
+class RotatingBloomFilterTest {
+
+    private static final long HOUR = 3_600_000L;
+    private static final long START = 1_000 * HOUR;
+
+    @Test
+    @DisplayName("Bloom Filter - No false negatives and false positives within the estimate")
+    void testNoFalseNegatives() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(4, HOUR, 1024 * 1024, 50_000, START);
+        String[] added = new String[50_000];
+        for (int i = 0; i < added.length; i++) {
+            added[i] = UUID.randomUUID().toString();
+            filter.put("customer", added[i], START, START);
+        }
+
+        for (String eventId : added) {
+            assertTrue(filter.mightContain("customer", eventId, START));
+        }
+
+        int falsePositives = 0;
+        int lookups = 100_000;
+        for (int i = 0; i < lookups; i++) {
+            if (filter.mightContain("customer", UUID.randomUUID().toString(), START)) {
+                falsePositives++;
+            }
+        }
+        double observed = (double) falsePositives / lookups;
+        assertTrue(observed <= filter.getEstimatedFalsePositiveRate() * 2 + 0.001,
+                "Observed false positive rate " + observed + " above estimate "
+                        + filter.getEstimatedFalsePositiveRate());
+    }
+
+    @Test
+    @DisplayName("Bloom Filter - Consumers keep separate IDs")
+    void testConsumersSeparated() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(4, HOUR, 64 * 1024, 1_000, START);
+        filter.put("customer", "evt-1", START, START);
+
+        assertTrue(filter.mightContain("customer", "evt-1", START));
+        assertFalse(filter.mightContain("order", "evt-1", START));
+    }
+
+    @Test
+    @DisplayName("Bloom Filter - Generations expire after the covered time with fixed memory")
+    void testRotationEvictsOldGenerations() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(4, HOUR, 64 * 1024, 1_000, START);
+        long memory = filter.getMemoryBytes();
+        filter.put("customer", "evt-1", START, START);
+        filter.put("customer", "evt-old", START - 10 * HOUR, START);
+
+        // Older than the covered time, so never added
+        assertEquals(1, filter.getApproximateSize());
+
+        long stillCovered = START + 4 * HOUR;
+        assertTrue(filter.mightContain("customer", "evt-1", stillCovered));
+        assertEquals(0, filter.getEvictions());
+
+        long expired = START + 5 * HOUR;
+        assertFalse(filter.mightContain("customer", "evt-1", expired));
+        assertEquals(1, filter.getEvictions());
+        assertEquals(0, filter.getApproximateSize());
+        assertEquals(memory, filter.getMemoryBytes());
+    }
+
+    @Test
+    @DisplayName("Bloom Filter - IDs loaded with their processing time land in the covering generation")
+    void testPutByProcessingTime() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(4, HOUR, 64 * 1024, 1_000, START);
+        filter.put("customer", "evt-3h", START - 3 * HOUR, START);
+
+        assertTrue(filter.mightContain("customer", "evt-3h", START + HOUR));
+        // Dropped with its generation once that is more than four generations old
+        assertFalse(filter.mightContain("customer", "evt-3h", START + 2 * HOUR));
+    }
+}
@@ -0,0 +1,133 @@
+package com.droid.bss.infrastructure.outbox;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for the outbox_event_id key table (V1059) that keeps event_id unique across the
+ * daily partitions of outbox_event
+ */
+@Testcontainers
+class OutboxEventIdKeyTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:18-alpine"))
+            .withDatabaseName("bss_test")
+            .withUsername("test")
+            .withPassword("test");
+
+    private static final String PARTITION_MIGRATION = "db/migration/V1051__partition_outbox_event_by_day.sql";
+    // Its event_store part needs a table this test has not
+    private static final String PAYLOAD_MIGRATION = "db/migration/V1052__add_binary_event_payloads.sql";
+    private static final String DEFAULT_PARTITION_MIGRATION = "db/migration/V1057__add_outbox_default_partition.sql";
+    private static final String KEY_MIGRATION = "db/migration/V1059__add_outbox_status_indexes_and_event_id_key.sql";
+
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void setup() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        jdbcTemplate.execute(migration(PARTITION_MIGRATION));
+        Arrays.stream(migration(PAYLOAD_MIGRATION).split(";"))
+                .filter(statement -> statement.contains("outbox_event"))
+                .forEach(jdbcTemplate::execute);
+        jdbcTemplate.execute(migration(DEFAULT_PARTITION_MIGRATION));
+        jdbcTemplate.execute(migration(KEY_MIGRATION));
+        jdbcTemplate.queryForObject(
+                "SELECT create_outbox_partitions((NOW() AT TIME ZONE 'UTC')::date - 40, (NOW() AT TIME ZONE 'UTC')::date)",
+                Integer.class);
+    }
+
+    @Test
+    @DisplayName("Should reject an event_id that already exists in another day's partition")
+    void shouldRejectDuplicateEventIdAcrossPartitions() {
+        // Given
+        String eventId = UUID.randomUUID().toString();
+        insertEvent(eventId, 1, "PUBLISHED");
+
+        // When / Then
+        assertThrows(DuplicateKeyException.class, () -> insertEvent(eventId, 2, "PENDING"));
+        assertEquals(1, countEvents(eventId));
+        assertEquals(1, countKeys(eventId));
+    }
+
+    @Test
+    @DisplayName("Should keep the key of an event moved out of the default partition")
+    void shouldKeepKeyWhenMovingOutOfDefaultPartition() {
+        // Given
+        String eventId = UUID.randomUUID().toString();
+        insertEventAt(eventId, "'2030-01-01 12:00:00+00'::timestamptz", "PENDING");
+
+        // When
+        jdbcTemplate.queryForObject("SELECT split_outbox_default_partition()", Integer.class);
+
+        // Then
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_event_default", Long.class));
+        assertEquals(1, countEvents(eventId));
+        assertEquals(1, countKeys(eventId));
+        assertThrows(DuplicateKeyException.class, () -> insertEvent(eventId, 0, "PENDING"));
+    }
+
+    @Test
+    @DisplayName("Should release the keys of a dropped partition and of deleted events")
+    void shouldReleaseKeysOfDroppedAndDeletedEvents() {
+        // Given
+        String expired = UUID.randomUUID().toString();
+        String deleted = UUID.randomUUID().toString();
+        insertEvent(expired, 35, "PUBLISHED");
+        insertEvent(deleted, 3, "PUBLISHED");
+
+        // When
+        jdbcTemplate.queryForObject("SELECT drop_outbox_partitions(30)", Integer.class);
+        jdbcTemplate.update("DELETE FROM outbox_event WHERE event_id = ?", deleted);
+
+        // Then
+        assertEquals(0, countKeys(expired));
+        assertEquals(0, countKeys(deleted));
+        insertEvent(deleted, 1, "PENDING");
+        assertEquals(1, countKeys(deleted));
+    }
+
+    private static void insertEvent(String eventId, int daysAgo, String status) {
+        insertEventAt(eventId, "(NOW() - make_interval(days => " + daysAgo + "))", status);
+    }
+
+    private static void insertEventAt(String eventId, String createdAt, String status) {
+        jdbcTemplate.update(
+                "INSERT INTO outbox_event (id, created_at, updated_at, event_id, event_type, event_name, " +
+                "event_data, \"timestamp\", status) " +
+                "SELECT gen_random_uuid(), t, t, ?, 'CUSTOMER_CREATED', 'CustomerCreated', " +
+                "'{\"name\": \"Test\"}'::jsonb, t, ? FROM (SELECT " + createdAt + " AS t) s",
+                eventId, status);
+    }
+
+    private static long countEvents(String eventId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_event WHERE event_id = ?", Long.class, eventId);
+    }
+
+    private static long countKeys(String eventId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_event_id WHERE event_id = ?", Long.class, eventId);
+    }
+
+    private static String migration(String path) throws Exception {
+        return new ClassPathResource(path).getContentAsString(StandardCharsets.UTF_8);
+    }
+}
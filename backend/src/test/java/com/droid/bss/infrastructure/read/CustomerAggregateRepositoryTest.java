@@ -0,0 +1,65 @@
+package com.droid.bss.infrastructure.read;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the batched, cached customer aggregates of the GraphQL Customer type
+ */
+class CustomerAggregateRepositoryTest {
+
+    private final UUID paying = UUID.randomUUID();
+    private final UUID newcomer = UUID.randomUUID();
+
+    private JdbcTemplate jdbcTemplate;
+    private CustomerAggregateRepository repository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getObject(1, UUID.class)).thenReturn(paying);
+        when(rs.getBigDecimal(2)).thenReturn(new BigDecimal("150.00"));
+        doAnswer(invocation -> {
+            invocation.getArgument(1, RowCallbackHandler.class).processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        repository = new CustomerAggregateRepository(jdbcTemplate, 1000, 30);
+    }
+
+    @Test
+    @DisplayName("Aggregates - A page of customers is computed with one query, missing rows default to zero")
+    void testOneQueryPerPage() {
+        Map<UUID, BigDecimal> revenue = repository.totalRevenue(List.of(paying, newcomer));
+
+        assertEquals(new BigDecimal("150.00"), revenue.get(paying));
+        assertEquals(BigDecimal.ZERO, revenue.get(newcomer));
+        verify(jdbcTemplate, times(1)).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    @DisplayName("Aggregates - Cached customers are not queried again until invalidated")
+    void testCachedUntilInvalidated() {
+        repository.totalRevenue(List.of(paying, newcomer));
+        repository.totalRevenue(List.of(paying));
+        verify(jdbcTemplate, times(1)).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        repository.invalidate(paying);
+        repository.totalRevenue(List.of(paying, newcomer));
+        verify(jdbcTemplate, times(2)).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+}
@@ -0,0 +1,75 @@
+package com.droid.bss.infrastructure.serialization;
+
+import io.cloudevents.CloudEvent;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for binary-mode CloudEvents records
+ */
+class KafkaCloudEventsTest {
+
+    private final PayloadCodecRegistry payloadCodecs =
+            new PayloadCodecRegistry(List.of(JacksonPayloadCodec.JSON, JacksonPayloadCodec.SMILE), "smile");
+
+    @Test
+    @DisplayName("Should read back an event written with the active codec as JSON data")
+    void shouldRoundTripEncodedEvent() {
+        // Given
+        OffsetDateTime time = OffsetDateTime.parse("2026-03-15T10:15:30Z");
+        ProducerRecord<String, byte[]> sent = KafkaCloudEvents.toRecord("bss.events.customer", "c-1",
+                payloadCodecs.encode(Map.of("name", "Test")), "e-1", "CustomerCreated", "/bss/customer",
+                "c-1", time);
+        KafkaCloudEvents.header(sent.headers(), "ce_correlationid", "corr-1");
+
+        // When
+        CloudEvent event = KafkaCloudEvents.fromRecord(received(sent), payloadCodecs);
+
+        // Then
+        assertEquals(JacksonPayloadCodec.SMILE.contentType(),
+                new String(sent.headers().lastHeader("content-type").value(), StandardCharsets.UTF_8));
+        assertEquals("e-1", event.getId());
+        assertEquals("CustomerCreated", event.getType());
+        assertEquals(URI.create("/bss/customer"), event.getSource());
+        assertEquals("c-1", event.getSubject());
+        assertEquals(time, event.getTime());
+        assertEquals("corr-1", event.getExtension("correlationid"));
+        assertEquals("application/json", event.getDataContentType());
+        assertEquals("{\"name\":\"Test\"}", new String(event.getData().toBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Should treat data without a content type as JSON")
+    void shouldReadDataWithoutContentTypeAsJson() {
+        // Given
+        ProducerRecord<String, byte[]> sent = new ProducerRecord<>("bss.events.system", "k",
+                "{\"ok\":true}".getBytes(StandardCharsets.UTF_8));
+        KafkaCloudEvents.header(sent.headers(), "ce_id", "e-2");
+        KafkaCloudEvents.header(sent.headers(), "ce_type", "Heartbeat");
+
+        // When
+        CloudEvent event = KafkaCloudEvents.fromRecord(received(sent), payloadCodecs);
+
+        // Then
+        assertEquals(URI.create("/bss"), event.getSource());
+        assertEquals("{\"ok\":true}", new String(event.getData().toBytes(), StandardCharsets.UTF_8));
+    }
+
+    private static ConsumerRecord<String, byte[]> received(ProducerRecord<String, byte[]> sent) {
+        return new ConsumerRecord<>(sent.topic(), 0, 0L, 0L, TimestampType.CREATE_TIME, -1, -1,
+                sent.key(), sent.value(), new RecordHeaders(sent.headers().toArray()), Optional.empty());
+    }
+}
@@ -0,0 +1,164 @@
+package com.droid.bss.performance;
+
+import com.droid.bss.domain.outbox.OutboxEvent;
+import com.droid.bss.infrastructure.outbox.OutboxRelayRepository;
+import org.junit.jupiter.api.*;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Outbox Partition Performance Tests
+ * Loads weeks of relayed events into the day-partitioned outbox_event table (V1051, V1052) and checks
+ * that the relay's claim query stays as fast as with one week of history, and that retention
+ * drops whole partitions
+ */
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class OutboxPartitionPerformanceTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:18-alpine"))
+            .withDatabaseName("bss_test")
+            .withUsername("test")
+            .withPassword("test");
+
+    private static final String MIGRATION = "db/migration/V1051__partition_outbox_event_by_day.sql";
+    // Adds event_payload, which the relay's claim query selects; its event_store part needs a table this test has not
+    private static final String PAYLOAD_MIGRATION = "db/migration/V1052__add_binary_event_payloads.sql";
+    private static final int WEEKS = 4;
+    private static final int EVENTS_PER_DAY = 20_000;
+    private static final int PENDING_EVENTS = 2_000;
+    private static final int BATCH_SIZE = 500;
+    private static final int ITERATIONS = 200;
+
+    private static JdbcTemplate jdbcTemplate;
+    private static TransactionTemplate transactionTemplate;
+    private static OutboxRelayRepository relayRepository;
+
+    @BeforeAll
+    static void setup() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        relayRepository = new OutboxRelayRepository(jdbcTemplate);
+
+        String migration = new ClassPathResource(MIGRATION).getContentAsString(StandardCharsets.UTF_8);
+        jdbcTemplate.execute(migration);
+        String payloadMigration = new ClassPathResource(PAYLOAD_MIGRATION).getContentAsString(StandardCharsets.UTF_8);
+        Arrays.stream(payloadMigration.split(";"))
+                .filter(statement -> statement.contains("outbox_event"))
+                .forEach(jdbcTemplate::execute);
+        jdbcTemplate.queryForObject(
+                "SELECT create_outbox_partitions((NOW() AT TIME ZONE 'UTC')::date - ?, (NOW() AT TIME ZONE 'UTC')::date + 7)",
+                Integer.class, WEEKS * 7);
+
+        // Backlog the relay works on; it stays the same while history grows
+        insertEvents(0, PENDING_EVENTS, "PENDING");
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Outbox Partitions - Claim latency flat from one to four weeks of history")
+    @Timeout(value = 10, unit = TimeUnit.MINUTES)
+    void testClaimLatencyWithGrowingHistory() {
+        for (int day = 1; day <= 7; day++) {
+            insertEvents(day, EVENTS_PER_DAY, "PUBLISHED");
+        }
+        jdbcTemplate.execute("ANALYZE outbox_event");
+        double firstWeekMillis = medianClaimMillis();
+
+        for (int day = 8; day <= WEEKS * 7; day++) {
+            insertEvents(day, EVENTS_PER_DAY, "PUBLISHED");
+        }
+        jdbcTemplate.execute("ANALYZE outbox_event");
+        double lastWeekMillis = medianClaimMillis();
+
+        long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_event", Long.class);
+        System.out.printf("Outbox claim median: %.2f ms after 1 week, %.2f ms after %d weeks (%d events)%n",
+                firstWeekMillis, lastWeekMillis, WEEKS, total);
+
+        // Relayed events are outside the partial claim index, so history adds no work
+        assertTrue(lastWeekMillis <= firstWeekMillis * 2 + 1.0,
+                "Claim latency grew from " + firstWeekMillis + " ms to " + lastWeekMillis + " ms");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Outbox Partitions - Retention drops partitions and archives dead letters")
+    void testRetentionDropsPartitions() {
+        int retentionDays = 14;
+        insertEvents(20, 1, "DEAD_LETTER");
+        insertEvents(21, 1, "PENDING");
+
+        long droppedBefore = countPartitions();
+        int dropped = jdbcTemplate.queryForObject("SELECT drop_outbox_partitions(?)", Integer.class, retentionDays);
+
+        // Days 15..28 are older than the retention; day 21 still has an event to relay
+        assertEquals(WEEKS * 7 - retentionDays - 1, dropped);
+        assertEquals(droppedBefore - dropped, countPartitions());
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM outbox_event_dead_letter_archive", Long.class));
+
+        List<OutboxEvent> claimed = claim();
+        assertEquals(BATCH_SIZE, claimed.size());
+    }
+
+    private static double medianClaimMillis() {
+        // Warm up
+        for (int i = 0; i < 20; i++) {
+            claim();
+        }
+
+        long[] latencies = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            List<OutboxEvent> claimed = claim();
+            latencies[i] = System.nanoTime() - start;
+            assertEquals(BATCH_SIZE, claimed.size());
+        }
+        Arrays.sort(latencies);
+        return latencies[ITERATIONS / 2] / 1_000_000.0;
+    }
+
+    /**
+     * Claim a batch like the relay does, and roll back so the backlog stays
+     */
+    private static List<OutboxEvent> claim() {
+        return transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            return relayRepository.claimBatch(BATCH_SIZE);
+        });
+    }
+
+    private static void insertEvents(int daysAgo, int count, String status) {
+        jdbcTemplate.update(
+                "INSERT INTO outbox_event (id, created_at, updated_at, event_id, event_type, event_name, " +
+                "aggregate_id, aggregate_type, event_data, \"timestamp\", status, published_at) " +
+                "SELECT gen_random_uuid(), t, t, gen_random_uuid()::text, 'CUSTOMER_CREATED', 'CustomerCreated', " +
+                "gen_random_uuid()::text, 'Customer', '{\"name\": \"Test\"}'::jsonb, t, ?, " +
+                "CASE WHEN ? = 'PUBLISHED' THEN t END " +
+                "FROM (SELECT ((NOW() AT TIME ZONE 'UTC')::date - ?)::timestamp AT TIME ZONE 'UTC' " +
+                "+ make_interval(secs => g * 80000.0 / ?) AS t FROM generate_series(1, ?) g) s",
+                status, status, daysAgo, count, count);
+    }
+
+    private static long countPartitions() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pg_inherits WHERE inhparent = 'outbox_event'::regclass", Long.class);
+    }
+}
@@ -0,0 +1,150 @@
+package com.droid.bss.performance.jmh;
+
+import com.droid.bss.infrastructure.serialization.EventPayload;
+import com.droid.bss.infrastructure.serialization.JacksonPayloadCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH Benchmarks for event payload encoding
+ *
+ * Compares the JSON string path the event store and outbox used before (writeValueAsString,
+ * String#getBytes, new String and readValue) with the payload codecs:
+ * 1. Encoding a domain event
+ * 2. Decoding it back
+ * 3. Converting JSON CloudEvent data to the stored form, and stored payloads back to JSON text
+ *    for readers that still work on strings
+ *
+ * Bytes per event of each format are printed at setup. Run with the GC profiler ({@link #main})
+ * to compare allocation per event.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(2)
+public class EventPayloadCodecBenchmark {
+
+    /**
+     * Number of line items in the event, from a small status change to a large order
+     */
+    @Param({"1", "20"})
+    private int itemCount;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private Map<String, Object> event;
+    private byte[] jsonBytes;
+    private EventPayload jsonPayload;
+    private EventPayload smilePayload;
+
+    @Setup
+    public void setup() throws Exception {
+        event = new LinkedHashMap<>();
+        event.put("orderId", UUID.randomUUID().toString());
+        event.put("customerId", UUID.randomUUID().toString());
+        event.put("status", "CONFIRMED");
+        event.put("createdAt", LocalDateTime.of(2025, 3, 14, 9, 26, 53));
+        event.put("currency", "EUR");
+        event.put("totalAmount", new BigDecimal("1249.90"));
+        List<Map<String, Object>> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("productId", "PRD-" + (1000 + i));
+            item.put("quantity", 1 + i % 3);
+            item.put("unitPrice", new BigDecimal("49.99"));
+            item.put("discountPercent", i % 5 == 0 ? 10 : 0);
+            item.put("description", "Monthly subscription add-on " + i);
+            items.add(item);
+        }
+        event.put("items", items);
+        event.put("metadata", Map.of("channel", "WEB", "salesAgent", "system", "priority", 2));
+
+        jsonBytes = objectMapper.writeValueAsString(event).getBytes(StandardCharsets.UTF_8);
+        jsonPayload = EventPayload.encode(JacksonPayloadCodec.JSON, event);
+        smilePayload = EventPayload.encode(JacksonPayloadCodec.SMILE, event);
+
+        System.out.printf("%nBytes per event with %d items: json=%d, smile=%d (%.0f%%)%n",
+                itemCount, jsonBytes.length, smilePayload.size(),
+                100.0 * smilePayload.size() / jsonBytes.length);
+    }
+
+    // ========== ENCODING ==========
+
+    @Benchmark
+    public byte[] jsonStringEncode() throws Exception {
+        return objectMapper.writeValueAsString(event).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] jsonCodecEncode() {
+        return EventPayload.encode(JacksonPayloadCodec.JSON, event).getBytes();
+    }
+
+    @Benchmark
+    public byte[] smileCodecEncode() {
+        return EventPayload.encode(JacksonPayloadCodec.SMILE, event).getBytes();
+    }
+
+    // ========== DECODING ==========
+
+    @Benchmark
+    public Object jsonStringDecode() throws Exception {
+        return objectMapper.readValue(new String(jsonBytes, StandardCharsets.UTF_8), Map.class);
+    }
+
+    @Benchmark
+    public Object jsonCodecDecode() {
+        return jsonPayload.decode(Map.class);
+    }
+
+    @Benchmark
+    public Object smileCodecDecode() {
+        return smilePayload.decode(Map.class);
+    }
+
+    // ========== CONVERSION ==========
+
+    @Benchmark
+    public byte[] smileFromJsonData() {
+        return EventPayload.fromJson(JacksonPayloadCodec.SMILE, jsonBytes).getBytes();
+    }
+
+    @Benchmark
+    public String smileToJsonText() {
+        return EventPayload.ofEncoded(JacksonPayloadCodec.SMILE, smilePayload.getData()).toJson();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+            .include(EventPayloadCodecBenchmark.class.getSimpleName())
+            .result("jmh-payload-codec-results.json")
+            .resultFormat(ResultFormatType.JSON)
+            .addProfiler(GCProfiler.class)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,218 @@
+package com.droid.bss.performance.jmh;
+
+import com.droid.bss.application.command.billing.RatingEngine;
+import com.droid.bss.application.command.billing.TariffEngine;
+import com.droid.bss.domain.billing.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH Benchmarks for usage rating
+ *
+ * Measures the per-record cost of rating against the compiled in-memory rule index:
+ * 1. Rule lookup only
+ * 2. Full in-memory rating (lookup, charge, totals)
+ * 3. Baseline linear scan with the entity matching logic used by the old query path
+ * 4. Fixed-point charge calculation vs the BigDecimal arithmetic it replaced
+ *
+ * Run with the GC profiler ({@link #main}) to see allocation per record: the fixed-point
+ * charge path should report close to 0 B/op, the raw rating path only the returned charge.
+ *
+ * Target: full in-memory rating under 1 microsecond per record.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(2)
+public class RatingEngineBenchmark {
+
+    private static final int RECORD_COUNT = 4096;
+
+    @Param({"50", "500"})
+    private int ruleCount;
+
+    private List<RatingRuleEntity> rules;
+    private RatingRuleIndex index;
+    private RatingEngine ratingEngine;
+    private UsageRecordEntity[] records;
+    private long[] usageMicros;
+    private long[] usageEpochDays;
+    private long taxRateMicros;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        UsageType[] usageTypes = UsageType.values();
+        DestinationType[] destinations = DestinationType.values();
+        RatePeriod[] periods = RatePeriod.values();
+        LocalDate baseDate = LocalDate.of(2025, 1, 1);
+
+        rules = new ArrayList<>(ruleCount);
+        for (int i = 0; i < ruleCount; i++) {
+            RatingRuleEntity rule = new RatingRuleEntity(
+                    "RULE-" + i,
+                    "Rule " + i,
+                    usageTypes[i % usageTypes.length],
+                    new BigDecimal("0.0" + (10 + random.nextInt(89))),
+                    baseDate.plusDays(random.nextInt(180))
+            );
+            // Mix of fully specified and wildcard rules
+            if (i % 3 != 0) {
+                rule.setDestinationType(destinations[random.nextInt(destinations.length)]);
+            }
+            if (i % 4 != 0) {
+                rule.setRatePeriod(periods[random.nextInt(periods.length)]);
+            }
+            if (i % 5 == 0) {
+                rule.setEffectiveTo(rule.getEffectiveFrom().plusDays(90));
+            }
+            rules.add(rule);
+        }
+        // Catch-all rule per usage type so every record rates
+        for (UsageType usageType : usageTypes) {
+            rules.add(new RatingRuleEntity(
+                    "DEFAULT-" + usageType,
+                    "Default " + usageType,
+                    usageType,
+                    new BigDecimal("0.1000"),
+                    baseDate.minusYears(1)
+            ));
+        }
+        index = RatingRuleIndex.compile(rules);
+        // Rules here are flat, so the tariff engine never touches its counter store
+        ratingEngine = new RatingEngine(null, null, null, new TariffEngine(null, 8, 20));
+
+        records = new UsageRecordEntity[RECORD_COUNT];
+        usageMicros = new long[RECORD_COUNT];
+        usageEpochDays = new long[RECORD_COUNT];
+        taxRateMicros = MicroUnits.of(new BigDecimal("23.00"));
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            UsageRecordEntity record = new UsageRecordEntity(
+                    null,
+                    usageTypes[random.nextInt(usageTypes.length)],
+                    UsageUnit.values()[0],
+                    new BigDecimal(random.nextInt(600) + ".000"),
+                    baseDate.plusDays(random.nextInt(365)),
+                    LocalTime.of(random.nextInt(24), random.nextInt(60))
+            );
+            record.setDestinationType(destinations[random.nextInt(destinations.length)]);
+            record.setRatePeriod(periods[random.nextInt(periods.length)]);
+            records[i] = record;
+            usageMicros[i] = MicroUnits.of(record.getUsageAmount());
+            usageEpochDays[i] = record.getUsageDate().toEpochDay();
+        }
+    }
+
+    private UsageRecordEntity nextRecord() {
+        UsageRecordEntity record = records[cursor];
+        cursor = (cursor + 1) & (RECORD_COUNT - 1);
+        return record;
+    }
+
+    private int nextIndex() {
+        int index = cursor;
+        cursor = (cursor + 1) & (RECORD_COUNT - 1);
+        return index;
+    }
+
+    // ========== INDEX LOOKUP BENCHMARKS ==========
+
+    @Benchmark
+    public CompiledRatingRule benchmarkIndexLookup() {
+        UsageRecordEntity record = nextRecord();
+        return index.findRule(
+                record.getUsageType(),
+                record.getDestinationType(),
+                record.getRatePeriod(),
+                record.getUsageDate()
+        );
+    }
+
+    @Benchmark
+    public RatingRuleEntity benchmarkLinearScanLookup() {
+        UsageRecordEntity record = nextRecord();
+        for (RatingRuleEntity rule : rules) {
+            if (rule.matches(record.getUsageType(), record.getDestinationType(), record.getRatePeriod())
+                    && rule.isEffectiveOn(record.getUsageDate())) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    // ========== FULL RATING BENCHMARKS ==========
+
+    @Benchmark
+    public UsageRecordEntity benchmarkInMemoryRating() {
+        return ratingEngine.applyRating(nextRecord(), index);
+    }
+
+    @Benchmark
+    public UsageCharge benchmarkRawRating() {
+        int i = nextIndex();
+        UsageRecordEntity record = records[i];
+        return ratingEngine.rate(record.getUsageType(), record.getDestinationType(), record.getRatePeriod(),
+                null, usageEpochDays[i], record.getUsageTime().toSecondOfDay(), usageMicros[i], taxRateMicros, index);
+    }
+
+    // ========== CHARGE ARITHMETIC ==========
+
+    @Benchmark
+    public long benchmarkFixedPointCharge() {
+        int i = nextIndex();
+        UsageRecordEntity record = records[i];
+        CompiledRatingRule rule = index.findRule(record.getUsageType(), record.getDestinationType(),
+                record.getRatePeriod(), usageEpochDays[i]);
+        long charge = RatingEngine.calculateCharge(usageMicros[i], rule);
+        return charge + UsageCharge.taxOf(charge, taxRateMicros);
+    }
+
+    @Benchmark
+    public BigDecimal benchmarkBigDecimalCharge() {
+        int i = nextIndex();
+        UsageRecordEntity record = records[i];
+        CompiledRatingRule rule = index.findRule(record.getUsageType(), record.getDestinationType(),
+                record.getRatePeriod(), usageEpochDays[i]);
+        // Arithmetic of the previous calculateCharge / calculateTotals
+        BigDecimal units = new BigDecimal(record.getUsageAmount().toString());
+        BigDecimal minUnits = new BigDecimal(rule.minimumUnits());
+        BigDecimal charge = (units.compareTo(minUnits) < 0 ? minUnits : units).multiply(rule.unitRate());
+        BigDecimal tax = charge.multiply(record.getTaxRate()).divide(new BigDecimal("100"));
+        return charge.add(tax);
+    }
+
+    // ========== INDEX COMPILATION ==========
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public RatingRuleIndex benchmarkIndexCompilation() {
+        return RatingRuleIndex.compile(rules);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+            .include(RatingEngineBenchmark.class.getSimpleName())
+            .result("jmh-rating-results.json")
+            .resultFormat(ResultFormatType.JSON)
+            .addProfiler(GCProfiler.class)
+            .build();
+
+        new Runner(opt).run();
+    }
+}